@@ -0,0 +1,121 @@
+package com.github.onsdigital.elasticutils.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Simple POJO used as the document for all benchmarks. The size of the body and the
+ * number of tags are controlled by {@link EntitySize}.
+ */
+public class BenchmarkEntity {
+
+    private String id;
+
+    private String title;
+
+    private String body;
+
+    private String summary;
+
+    private long timestamp;
+
+    private double score;
+
+    private List<String> tags;
+
+    private BenchmarkEntity() {}
+
+    public BenchmarkEntity(String id, String title, String body, String summary, long timestamp, double score, List<String> tags) {
+        this.id = id;
+        this.title = title;
+        this.body = body;
+        this.summary = summary;
+        this.timestamp = timestamp;
+        this.score = score;
+        this.tags = tags;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Builds a pseudo-random entity. Every other entity has a null summary so that
+     * JsonInclude.Include.NON_NULL has something to do.
+     */
+    public static BenchmarkEntity create(int index, EntitySize size, Random random) {
+        List<String> tags = new ArrayList<>(size.getNumTags());
+        for (int i = 0; i < size.getNumTags(); i++) {
+            tags.add(randomString(random, 8));
+        }
+
+        String summary = index % 2 == 0 ? randomString(random, 32) : null;
+        return new BenchmarkEntity(String.valueOf(index), randomString(random, 24), randomString(random, size.getBodyLength()),
+                summary, System.currentTimeMillis(), random.nextDouble(), tags);
+    }
+
+    public static List<BenchmarkEntity> create(int count, EntitySize size) {
+        // Fixed seed so runs are comparable
+        Random random = new Random(42L);
+        List<BenchmarkEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(create(i, size, random));
+        }
+        return entities;
+    }
+
+    private static String randomString(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    public enum EntitySize {
+        SMALL(64, 2),
+        MEDIUM(1024, 10),
+        LARGE(16384, 50);
+
+        private int bodyLength;
+        private int numTags;
+
+        EntitySize(int bodyLength, int numTags) {
+            this.bodyLength = bodyLength;
+            this.numTags = numTags;
+        }
+
+        public int getBodyLength() {
+            return bodyLength;
+        }
+
+        public int getNumTags() {
+            return numTags;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.onsdigital.elasticutils.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.github.onsdigital.elasticutils.benchmarks.BenchmarkEntity.EntitySize;
+import com.github.onsdigital.elasticutils.client.type.DefaultDocumentTypes;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side cost of ElasticSearchClient.bulk(String, DocumentType, Stream, XContentType, JsonInclude.Include).
+ * Each invocation pushes {@link #NUM_DOCUMENTS} entities through the BulkProcessor, so scores are
+ * reported per document.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkBenchmark {
+
+    private static final int NUM_DOCUMENTS = 10000;
+    private static final String INDEX = "benchmark";
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private EntitySize entitySize;
+
+    @Param({"100", "1000", "10000"})
+    private int bulkActions;
+
+    @Param({"USE_DEFAULTS", "NON_NULL"})
+    private JsonInclude.Include include;
+
+    private NoOpSearchClient<BenchmarkEntity> client;
+    private List<BenchmarkEntity> entities;
+
+    @Setup
+    public void setup() {
+        this.client = new NoOpSearchClient<>(this.bulkActions);
+        this.entities = BenchmarkEntity.create(NUM_DOCUMENTS, this.entitySize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.client.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_DOCUMENTS)
+    public long bulk() {
+        this.client.bulk(INDEX, DefaultDocumentTypes.DOCUMENT, this.entities.stream(), XContentType.JSON, this.include);
+        this.client.flush();
+        return this.client.getNumActions();
+    }
+}
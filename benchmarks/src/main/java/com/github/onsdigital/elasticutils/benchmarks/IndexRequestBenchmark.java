@@ -0,0 +1,66 @@
+package com.github.onsdigital.elasticutils.benchmarks;
+
+import com.github.onsdigital.elasticutils.benchmarks.BenchmarkEntity.EntitySize;
+import com.github.onsdigital.elasticutils.client.type.DefaultDocumentTypes;
+import com.github.onsdigital.elasticutils.util.JsonUtils;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of wrapping already serialized bytes in an IndexRequest via ElasticSearchClient.createIndexRequest
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IndexRequestBenchmark {
+
+    private static final int NUM_ENTITIES = 1024;
+    private static final String INDEX = "benchmark";
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private EntitySize entitySize;
+
+    private NoOpSearchClient<BenchmarkEntity> client;
+    private byte[][] sources;
+    private int position;
+
+    @Setup
+    public void setup() {
+        this.client = new NoOpSearchClient<>(1000);
+
+        List<BenchmarkEntity> entities = BenchmarkEntity.create(NUM_ENTITIES, this.entitySize);
+        this.sources = new byte[NUM_ENTITIES][];
+        for (int i = 0; i < NUM_ENTITIES; i++) {
+            this.sources[i] = JsonUtils.convertJsonToBytes(entities.get(i)).get();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.client.shutdown();
+    }
+
+    @Benchmark
+    public IndexRequest createIndexRequest() {
+        byte[] source = this.sources[this.position++ & (NUM_ENTITIES - 1)];
+        return this.client.indexRequest(INDEX, DefaultDocumentTypes.DOCUMENT, source, XContentType.JSON);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.onsdigital.elasticutils.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.github.onsdigital.elasticutils.benchmarks.BenchmarkEntity.EntitySize;
+import com.github.onsdigital.elasticutils.util.JsonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing a single entity with {@link JsonUtils#convertJsonToBytes(Object, JsonInclude.Include)}
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonUtilsBenchmark {
+
+    private static final int NUM_ENTITIES = 1024;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private EntitySize entitySize;
+
+    @Param({"USE_DEFAULTS", "NON_NULL"})
+    private JsonInclude.Include include;
+
+    private List<BenchmarkEntity> entities;
+    private int position;
+
+    @Setup
+    public void setup() {
+        this.entities = BenchmarkEntity.create(NUM_ENTITIES, this.entitySize);
+    }
+
+    @Benchmark
+    public Optional<byte[]> convertJsonToBytes() {
+        BenchmarkEntity entity = this.entities.get(this.position++ & (NUM_ENTITIES - 1));
+        return JsonUtils.convertJsonToBytes(entity, this.include);
+    }
+}
@@ -0,0 +1,228 @@
+package com.github.onsdigital.elasticutils.benchmarks;
+
+import com.github.onsdigital.elasticutils.client.type.DocumentType;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ElasticSearchClient which never leaves the JVM. Bulk requests are acknowledged as soon as
+ * the BulkProcessor hands them over, so benchmarks only measure client side work
+ * (serialization, request building and batching).
+ */
+public class NoOpSearchClient<T> extends ElasticSearchClient<T> {
+
+    private final ThreadPool threadPool;
+    private final BulkProcessor bulkProcessor;
+    private final AtomicLong numActions = new AtomicLong();
+
+    public NoOpSearchClient(int bulkActions) {
+        Settings settings = Settings.builder().put("node.name", "benchmarks").build();
+        this.threadPool = new ThreadPool(settings);
+
+        BulkProcessor.Listener listener = new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                numActions.addAndGet(request.numberOfActions());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            }
+        };
+
+        // Zero concurrent requests executes each bulk on the calling thread
+        this.bulkProcessor = new BulkProcessor.Builder(
+                (request, bulkListener) -> bulkListener.onResponse(new BulkResponse(new BulkItemResponse[0], 0L)),
+                listener, this.threadPool)
+                .setConcurrentRequests(0)
+                .setBulkActions(bulkActions)
+                .setBulkSize(new ByteSizeValue(5, ByteSizeUnit.MB))
+                .setBackoffPolicy(BackoffPolicy.noBackoff())
+                .build();
+    }
+
+    /**
+     * Exposes the protected createIndexRequest method to the benchmarks
+     */
+    public IndexRequest indexRequest(String index, DocumentType documentType, byte[] messageBytes, XContentType xContentType) {
+        return this.createIndexRequest(index, documentType, messageBytes, xContentType);
+    }
+
+    public long getNumActions() {
+        return numActions.get();
+    }
+
+    @Override
+    public BulkProcessor getBulkProcessor() {
+        return this.bulkProcessor;
+    }
+
+    @Override
+    public IndexResponse index(IndexRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<IndexResponse> indexAsync(IndexRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<BulkResponse> bulkAsync(BytesReference body, String defaultIndex, String defaultType) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GetResponse get(GetRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<GetResponse> getAsync(GetRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public MultiGetResponse multiGet(MultiGetRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<MultiGetResponse> multiGetAsync(MultiGetRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SearchResponse search(SearchRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public MultiSearchResponse multiSearch(MultiSearchRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<MultiSearchResponse> multiSearchAsync(MultiSearchRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SearchResponse searchScroll(SearchScrollRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<SearchResponse> searchScrollAsync(SearchScrollRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClearScrollResponse clearScroll(ClearScrollRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean dropIndex(String index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dropIndexAsync(String index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean indexExists(String index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean createIndex(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createIndexAsync(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Settings getIndexSettings(String index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean updateIndexSettings(String index, Settings settings) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void refresh(String index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void forceMerge(String index, int maxNumSegments) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<String> getAliasedIndices(String alias) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean swapAlias(String alias, String index, Collection<String> fromIndices) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void shutdown() {
+        try {
+            this.bulkProcessor.awaitClose(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ThreadPool.terminate(this.threadPool, 10, TimeUnit.SECONDS);
+    }
+}
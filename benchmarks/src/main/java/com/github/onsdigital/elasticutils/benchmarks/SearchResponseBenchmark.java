@@ -0,0 +1,65 @@
+package com.github.onsdigital.elasticutils.benchmarks;
+
+import com.github.onsdigital.elasticutils.benchmarks.BenchmarkEntity.EntitySize;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchResponse;
+import com.github.onsdigital.elasticutils.client.type.DefaultDocumentTypes;
+import org.elasticsearch.action.search.SearchResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of decoding a page of search hits into POJOs with {@link ElasticSearchResponse#entities()}, compared
+ * with the lazy views when only the first hit is used
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchResponseBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private EntitySize entitySize;
+
+    @Param({"10", "100", "1000"})
+    private int numHits;
+
+    private SearchResponse response;
+
+    @Setup
+    public void setup() {
+        List<BenchmarkEntity> entities = BenchmarkEntity.create(this.numHits, this.entitySize);
+        this.response = SearchResponses.of(entities, DefaultDocumentTypes.DOCUMENT.getType());
+    }
+
+    @Benchmark
+    public List<BenchmarkEntity> entities() {
+        return new ElasticSearchResponse<>(this.response, BenchmarkEntity.class).entities();
+    }
+
+    /**
+     * Typical "top result" access pattern, where only the first hit is inspected
+     */
+    @Benchmark
+    public BenchmarkEntity firstFromStream() {
+        return new ElasticSearchResponse<>(this.response, BenchmarkEntity.class).stream().findFirst().orElse(null);
+    }
+
+    @Benchmark
+    public BenchmarkEntity firstFromLazyEntities() {
+        return new ElasticSearchResponse<>(this.response, BenchmarkEntity.class).lazyEntities().get(0);
+    }
+}
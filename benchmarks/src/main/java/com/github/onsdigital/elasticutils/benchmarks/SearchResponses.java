@@ -0,0 +1,35 @@
+package com.github.onsdigital.elasticutils.benchmarks;
+
+import com.github.onsdigital.elasticutils.util.JsonUtils;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds in-memory SearchResponses so the decode path can be benchmarked without a cluster
+ */
+public class SearchResponses {
+
+    private SearchResponses() {}
+
+    public static <T> SearchResponse of(List<T> entities, String type) {
+        SearchHit[] hits = new SearchHit[entities.size()];
+        for (int i = 0; i < hits.length; i++) {
+            byte[] source = JsonUtils.convertJsonToBytes(entities.get(i)).get();
+            hits[i] = new SearchHit(i, String.valueOf(i), new Text(type), Collections.emptyMap())
+                    .sourceRef(new BytesArray(source));
+        }
+
+        SearchHits searchHits = new SearchHits(hits, hits.length, 1.0f);
+        InternalSearchResponse internalResponse = new InternalSearchResponse(searchHits, null, null, null,
+                false, null, 1);
+        return new SearchResponse(internalResponse, null, 1, 1, 0, 1L, ShardSearchFailure.EMPTY_ARRAY);
+    }
+}
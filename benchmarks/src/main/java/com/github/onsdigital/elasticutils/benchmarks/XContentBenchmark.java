@@ -0,0 +1,97 @@
+package com.github.onsdigital.elasticutils.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.onsdigital.elasticutils.benchmarks.BenchmarkEntity.EntitySize;
+import com.github.onsdigital.elasticutils.util.DeserializerRegistry;
+import com.github.onsdigital.elasticutils.util.SerializerRegistry;
+import com.github.onsdigital.elasticutils.util.XContentFormats;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing and parsing a single entity as JSON, SMILE and CBOR. In throughput mode the serialize
+ * benchmark also reports the bytes it encodes as serialize:encodedBytes; dividing that by the serialize
+ * throughput gives the payload size per entity of each format.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XContentBenchmark {
+
+    private static final int NUM_ENTITIES = 1024;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private EntitySize entitySize;
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private XContentType contentType;
+
+    private List<BenchmarkEntity> entities;
+    private BytesRef[] encoded;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private int position;
+
+    @Setup
+    public void setup() throws IOException {
+        this.entities = BenchmarkEntity.create(NUM_ENTITIES, this.entitySize);
+        this.writer = SerializerRegistry.getInstance().forContentType(this.contentType).writerFor(BenchmarkEntity.class);
+        this.reader = DeserializerRegistry.getInstance().readerFor(BenchmarkEntity.class);
+
+        this.encoded = new BytesRef[NUM_ENTITIES];
+        for (int i = 0; i < NUM_ENTITIES; i++) {
+            this.encoded[i] = new BytesRef(this.writer.writeValueAsBytes(this.entities.get(i)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize(EncodedSize size) throws IOException {
+        byte[] bytes = this.writer.writeValueAsBytes(this.entities.get(this.position++ & (NUM_ENTITIES - 1)));
+        size.encodedBytes += bytes.length;
+        return bytes;
+    }
+
+    /**
+     * Parses as a search hit source is decoded, detecting the format from the bytes
+     */
+    @Benchmark
+    public BenchmarkEntity parse() throws IOException {
+        return XContentFormats.readValue(this.reader, this.encoded[this.position++ & (NUM_ENTITIES - 1)]);
+    }
+
+    /**
+     * Counts the bytes encoded by each iteration
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class EncodedSize {
+
+        public long encodedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.encodedBytes = 0;
+        }
+    }
+}
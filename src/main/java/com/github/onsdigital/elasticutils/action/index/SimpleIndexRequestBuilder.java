@@ -1,11 +1,8 @@
 package com.github.onsdigital.elasticutils.action.index;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.onsdigital.elasticutils.action.SimpleActionRequest;
 import com.github.onsdigital.elasticutils.util.JsonUtils;
+import com.github.onsdigital.elasticutils.util.SerializerRegistry;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -21,7 +18,7 @@ import java.util.Optional;
  */
 public class SimpleIndexRequestBuilder implements SimpleActionRequest<IndexRequest> {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final SerializerRegistry SERIALIZERS = SerializerRegistry.getInstance();
     private IndexRequest request;
 
     public SimpleIndexRequestBuilder() {
@@ -86,7 +83,8 @@ public class SimpleIndexRequestBuilder implements SimpleActionRequest<IndexReque
     }
 
     public SimpleIndexRequestBuilder setSource(Object source, XContentType xContentType) {
-        byte[] messageBytes = JsonUtils.convertJsonToBytes(source).get();
+        byte[] messageBytes = JsonUtils.convertJsonToBytes(source,
+                SERIALIZERS.forContentType(xContentType).writerFor(source.getClass())).get();
         return this.setSource(messageBytes, xContentType);
     }
 
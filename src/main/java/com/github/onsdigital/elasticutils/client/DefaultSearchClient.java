@@ -5,11 +5,16 @@ import com.github.onsdigital.elasticutils.action.index.SimpleIndexRequestBuilder
 import com.github.onsdigital.elasticutils.action.search.SimpleSearchRequestBuilder;
 import com.github.onsdigital.elasticutils.client.type.DocumentType;
 import com.github.onsdigital.elasticutils.util.search.ElasticSearchIndex;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
@@ -21,6 +26,19 @@ public interface DefaultSearchClient<T> extends AutoCloseable {
 
     IndexResponse index(IndexRequest request) throws IOException;
 
+    CompletableFuture<IndexResponse> indexAsync(IndexRequest request);
+
+    /**
+     * Realtime get of a single document, routed to the one shard holding it
+     */
+    GetResponse get(GetRequest request) throws IOException;
+
+    CompletableFuture<GetResponse> getAsync(GetRequest request);
+
+    MultiGetResponse multiGet(MultiGetRequest request) throws IOException;
+
+    CompletableFuture<MultiGetResponse> multiGetAsync(MultiGetRequest request);
+
     void bulk(String index, DocumentType documentType, T entity);
 
     void bulk(String index, DocumentType documentType, List<T> entities);
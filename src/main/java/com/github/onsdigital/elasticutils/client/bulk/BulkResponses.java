@@ -0,0 +1,74 @@
+package com.github.onsdigital.elasticutils.client.bulk;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.List;
+
+/**
+ * Helpers for stages which split a bulk request up and have to reassemble a single BulkResponse
+ * whose items line up with the original request.
+ */
+public class BulkResponses {
+
+    private BulkResponses() {
+    }
+
+    /**
+     * An empty bulk request carrying the same timeout, refresh policy and active shard count as the given request
+     */
+    public static BulkRequest emptyCopyOf(BulkRequest request) {
+        BulkRequest copy = new BulkRequest();
+        copy.timeout(request.timeout());
+        copy.setRefreshPolicy(request.getRefreshPolicy());
+        copy.waitForActiveShards(request.waitForActiveShards());
+        return copy;
+    }
+
+    /**
+     * The requests of the bulk request, typed. BulkRequest.requests() returns a list of the raw DocWriteRequest type.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static List<DocWriteRequest<?>> requests(BulkRequest request) {
+        return (List) request.requests();
+    }
+
+    /**
+     * Copies the item, changing its position in the bulk request
+     */
+    public static BulkItemResponse renumber(BulkItemResponse item, int id) {
+        if (item.isFailed()) {
+            return new BulkItemResponse(id, item.getOpType(), item.getFailure());
+        }
+        return new BulkItemResponse(id, item.getOpType(), item.getResponse());
+    }
+
+    /**
+     * Item response for a request which failed without reaching a shard, e.g. because its whole bulk request failed
+     */
+    public static BulkItemResponse failure(int id, DocWriteRequest<?> request, Exception e) {
+        BulkItemResponse.Failure failure = new BulkItemResponse.Failure(request.index(), request.type(), request.id(), e);
+        return new BulkItemResponse(id, request.opType(), failure);
+    }
+
+    /**
+     * The status of a bulk request which failed as a whole, on either client. The REST client reports error
+     * responses as a ResponseException, which ExceptionsHelper.status does not recognise.
+     */
+    public static RestStatus status(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ResponseException) {
+                int statusCode = ((ResponseException) cause).getResponse().getStatusLine().getStatusCode();
+                RestStatus status = RestStatus.fromCode(statusCode);
+                if (status != null) {
+                    return status;
+                }
+            }
+        }
+        return ExceptionsHelper.status(e);
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.onsdigital.elasticutils.client.bulk.adaptive;
+
+import com.github.onsdigital.elasticutils.client.bulk.options.AdaptiveBulkOptions;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Additive increase / multiplicative decrease controller for bulk indexing. Each completed batch
+ * reports its round trip latency:
+ *
+ *  - on target: the batch size grows by a fixed step and, once batches are at their maximum size,
+ *    one more request is allowed in flight
+ *  - over target: the batch size is multiplied by the decrease factor
+ *  - rejected (429 / EsRejectedExecutionException): both batch size and concurrency are multiplied
+ *    by the decrease factor
+ *
+ * The controller also acts as the concurrency limiter, so lowering the limit takes effect for the
+ * next batch to be sent.
+ */
+public class AdaptiveBulkController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveBulkController.class);
+
+    private static final int STEPS = 20;
+
+    private final AdaptiveBulkOptions options;
+    private final long targetLatencyNanos;
+    private final int actionsStep;
+    private final long bytesStep;
+
+    private int bulkActions;
+    private long bulkSizeInBytes;
+    private int concurrentRequests;
+    private int inFlightRequests;
+    private long lastLatencyNanos;
+    private long rejections;
+
+    public AdaptiveBulkController(AdaptiveBulkOptions options, int initialBulkActions, ByteSizeValue initialBulkSize,
+                                  int initialConcurrentRequests) {
+        this.options = options;
+        this.targetLatencyNanos = options.getTargetLatency().nanos();
+        this.actionsStep = Math.max(1, (options.getMaxBulkActions() - options.getMinBulkActions()) / STEPS);
+        this.bytesStep = Math.max(1L, (options.getMaxBulkSize().getBytes() - options.getMinBulkSize().getBytes()) / STEPS);
+
+        this.bulkActions = clamp(initialBulkActions, options.getMinBulkActions(), options.getMaxBulkActions());
+        this.bulkSizeInBytes = clamp(initialBulkSize.getBytes(), options.getMinBulkSize().getBytes(), options.getMaxBulkSize().getBytes());
+        this.concurrentRequests = clamp(initialConcurrentRequests, options.getMinConcurrentRequests(), options.getMaxConcurrentRequests());
+    }
+
+    public AdaptiveBulkOptions getOptions() {
+        return options;
+    }
+
+    public synchronized int getBulkActions() {
+        return bulkActions;
+    }
+
+    public synchronized ByteSizeValue getBulkSize() {
+        return new ByteSizeValue(bulkSizeInBytes);
+    }
+
+    public synchronized int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    public synchronized int getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    public synchronized long getLastLatency(TimeUnit unit) {
+        return unit.convert(lastLatencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Blocks until fewer than the current number of concurrent requests are in flight
+     */
+    synchronized void acquire() throws InterruptedException {
+        while (this.inFlightRequests >= this.concurrentRequests) {
+            this.wait();
+        }
+        this.inFlightRequests++;
+    }
+
+    synchronized void release() {
+        this.inFlightRequests--;
+        this.notifyAll();
+    }
+
+    synchronized void onCompleted(long latencyNanos) {
+        this.lastLatencyNanos = latencyNanos;
+        if (latencyNanos > this.targetLatencyNanos) {
+            this.decreaseBatchSize();
+        } else if (this.bulkActions < this.options.getMaxBulkActions()
+                || this.bulkSizeInBytes < this.options.getMaxBulkSize().getBytes()) {
+            this.bulkActions = Math.min(this.options.getMaxBulkActions(), this.bulkActions + this.actionsStep);
+            this.bulkSizeInBytes = Math.min(this.options.getMaxBulkSize().getBytes(), this.bulkSizeInBytes + this.bytesStep);
+        } else if (this.concurrentRequests < this.options.getMaxConcurrentRequests()) {
+            this.concurrentRequests++;
+            this.notifyAll();
+        }
+    }
+
+    synchronized void onRejected(long latencyNanos) {
+        this.lastLatencyNanos = latencyNanos;
+        this.rejections++;
+        this.decreaseBatchSize();
+        this.concurrentRequests = Math.max(this.options.getMinConcurrentRequests(),
+                (int) (this.concurrentRequests * this.options.getDecreaseFactor()));
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Bulk rejected by cluster, backing off to {}", this);
+        }
+    }
+
+    private void decreaseBatchSize() {
+        double factor = this.options.getDecreaseFactor();
+        this.bulkActions = Math.max(this.options.getMinBulkActions(), (int) (this.bulkActions * factor));
+        this.bulkSizeInBytes = Math.max(this.options.getMinBulkSize().getBytes(), (long) (this.bulkSizeInBytes * factor));
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("bulkActions=%d, bulkSize=%s, concurrentRequests=%d, inFlight=%d, lastLatency=%dms, rejections=%d",
+                bulkActions, new ByteSizeValue(bulkSizeInBytes), concurrentRequests, inFlightRequests,
+                TimeUnit.NANOSECONDS.toMillis(lastLatencyNanos), rejections);
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.onsdigital.elasticutils.client.bulk.adaptive;
+
+import com.github.onsdigital.elasticutils.client.bulk.BulkResponses;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Sits between a BulkProcessor and the client which executes its bulk requests. Each request is
+ * split into batches no larger than the controller currently allows, every batch waits for a
+ * concurrency permit, and its outcome is fed back to the controller. The BulkProcessor sees a
+ * single response per request, with items in their original order, so its listener and backoff
+ * retries work unchanged.
+ */
+public class AdaptiveBulkDispatcher implements BiConsumer<BulkRequest, ActionListener<BulkResponse>> {
+
+    private final BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer;
+    private final AdaptiveBulkController controller;
+
+    public AdaptiveBulkDispatcher(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, AdaptiveBulkController controller) {
+        this.consumer = consumer;
+        this.controller = controller;
+    }
+
+    public AdaptiveBulkController getController() {
+        return controller;
+    }
+
+    @Override
+    public void accept(BulkRequest request, ActionListener<BulkResponse> listener) {
+        List<BulkRequest> batches = this.split(request);
+        if (batches.size() == 1) {
+            this.send(batches.get(0), listener);
+            return;
+        }
+
+        MergingListener merger = new MergingListener(batches, listener);
+        for (int i = 0; i < batches.size(); i++) {
+            this.send(batches.get(i), merger.listenerFor(i));
+        }
+    }
+
+    private void send(BulkRequest batch, ActionListener<BulkResponse> listener) {
+        try {
+            this.controller.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            listener.onFailure(e);
+            return;
+        }
+
+        long start = System.nanoTime();
+        this.consumer.accept(batch, new ActionListener<BulkResponse>() {
+            @Override
+            public void onResponse(BulkResponse response) {
+                long latency = System.nanoTime() - start;
+                controller.release();
+                if (isRejected(response)) {
+                    controller.onRejected(latency);
+                } else {
+                    controller.onCompleted(latency);
+                }
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                long latency = System.nanoTime() - start;
+                controller.release();
+                if (BulkResponses.status(e) == RestStatus.TOO_MANY_REQUESTS) {
+                    controller.onRejected(latency);
+                }
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    List<BulkRequest> split(BulkRequest request) {
+        int maxActions = this.controller.getBulkActions();
+        long maxBytes = this.controller.getBulkSize().getBytes();
+        if (request.numberOfActions() <= maxActions && request.estimatedSizeInBytes() <= maxBytes) {
+            return Collections.singletonList(request);
+        }
+
+        List<DocWriteRequest<?>> requests = BulkResponses.requests(request);
+        List<Object> payloads = request.payloads();
+
+        List<BulkRequest> batches = new ArrayList<>();
+        BulkRequest batch = BulkResponses.emptyCopyOf(request);
+        for (int i = 0; i < requests.size(); i++) {
+            batch.add(requests.get(i), payloads == null ? null : payloads.get(i));
+            if (batch.numberOfActions() >= maxActions || batch.estimatedSizeInBytes() >= maxBytes) {
+                batches.add(batch);
+                batch = BulkResponses.emptyCopyOf(request);
+            }
+        }
+        if (batch.numberOfActions() > 0) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static boolean isRejected(BulkResponse response) {
+        if (!response.hasFailures()) {
+            return false;
+        }
+        for (BulkItemResponse item : response.getItems()) {
+            if (item.isFailed() && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reassembles the responses of a split request. Item ids are renumbered to their position in the
+     * original request, and a batch which failed outright is reported as a failure of each of its items,
+     * unless every batch failed in which case the first exception is reported.
+     */
+    private static class MergingListener {
+
+        private final List<BulkRequest> batches;
+        private final ActionListener<BulkResponse> listener;
+        private final BulkResponse[] responses;
+        private final Exception[] failures;
+        private final AtomicInteger remaining;
+
+        MergingListener(List<BulkRequest> batches, ActionListener<BulkResponse> listener) {
+            this.batches = batches;
+            this.listener = listener;
+            this.responses = new BulkResponse[batches.size()];
+            this.failures = new Exception[batches.size()];
+            this.remaining = new AtomicInteger(batches.size());
+        }
+
+        ActionListener<BulkResponse> listenerFor(int batch) {
+            return ActionListener.wrap(response -> {
+                this.responses[batch] = response;
+                this.onBatchDone();
+            }, e -> {
+                this.failures[batch] = e;
+                this.onBatchDone();
+            });
+        }
+
+        private void onBatchDone() {
+            if (this.remaining.decrementAndGet() == 0) {
+                this.complete();
+            }
+        }
+
+        private void complete() {
+            List<BulkItemResponse> items = new ArrayList<>();
+            Exception firstFailure = null;
+            boolean anySucceeded = false;
+            long tookInMillis = 0;
+
+            for (int i = 0; i < this.batches.size(); i++) {
+                BulkResponse response = this.responses[i];
+                if (response != null) {
+                    anySucceeded = true;
+                    tookInMillis = Math.max(tookInMillis, response.getTook().millis());
+                    for (BulkItemResponse item : response.getItems()) {
+                        items.add(BulkResponses.renumber(item, items.size()));
+                    }
+                } else {
+                    Exception e = this.failures[i];
+                    if (firstFailure == null) {
+                        firstFailure = e;
+                    } else if (firstFailure != e) {
+                        firstFailure.addSuppressed(e);
+                    }
+                    for (DocWriteRequest<?> request : BulkResponses.requests(this.batches.get(i))) {
+                        items.add(BulkResponses.failure(items.size(), request, e));
+                    }
+                }
+            }
+
+            if (!anySucceeded) {
+                this.listener.onFailure(firstFailure);
+            } else {
+                this.listener.onResponse(new BulkResponse(items.toArray(new BulkItemResponse[items.size()]), tookInMillis));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.onsdigital.elasticutils.client.bulk.adaptive;
+
+import com.github.onsdigital.elasticutils.client.bulk.budget.BulkBudget;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+
+/**
+ * Flushes an adaptive BulkProcessor as soon as the requests buffered since its last bulk reach the batch
+ * size the controller currently allows. The BulkProcessor itself is sized to the adaptive maxima, so that
+ * it never flushes a batch smaller than the controller asks for; without this policy a batch would keep
+ * filling up to those maxima after the controller had backed off.
+ *
+ * The policy must be registered as a listener of the processor it flushes, as it counts the buffered
+ * requests from the processor's last beforeBulk.
+ */
+public class AdaptiveFlushPolicy implements BulkProcessor.Listener {
+
+    private final AdaptiveBulkController controller;
+
+    private int bufferedActions;
+    private long bufferedBytes;
+
+    public AdaptiveFlushPolicy(AdaptiveBulkController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Adds the request to the processor, flushing it if the buffered requests reached the current limits
+     */
+    public void add(BulkProcessor bulkProcessor, DocWriteRequest<?> request) {
+        // Counted before adding, as the processor may send the request (and reset the count) as it is added
+        synchronized (this) {
+            this.bufferedActions++;
+            this.bufferedBytes += BulkBudget.sizeOf(request);
+        }
+        bulkProcessor.add(request);
+        if (this.isFull()) {
+            bulkProcessor.flush();
+        }
+    }
+
+    synchronized boolean isFull() {
+        return this.bufferedActions >= this.controller.getBulkActions()
+                || this.bufferedBytes >= this.controller.getBulkSize().getBytes();
+    }
+
+    @Override
+    public synchronized void beforeBulk(long executionId, BulkRequest request) {
+        // The processor hands over its whole buffer on each bulk
+        this.bufferedActions = 0;
+        this.bufferedBytes = 0;
+    }
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+    }
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+    }
+}
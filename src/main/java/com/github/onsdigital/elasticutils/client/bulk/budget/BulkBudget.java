@@ -0,0 +1,266 @@
+package com.github.onsdigital.elasticutils.client.bulk.budget;
+
+import com.github.onsdigital.elasticutils.client.bulk.options.BulkBudgetOptions;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the number of requests, and bytes of source, which have been added to a BulkProcessor
+ * but not yet acknowledged by the cluster. Producers acquire capacity before adding a request and
+ * it is released once the bulk containing it completes (successfully or not), so a slow cluster
+ * pushes back on producers instead of filling the heap.
+ *
+ * A producer which finds the budget exhausted first flushes the BulkProcessor, so documents sitting
+ * in a half-filled batch can never hold capacity indefinitely, then blocks, waits up to a timeout or
+ * is rejected according to the {@link BulkBudgetOptions.OverflowPolicy}.
+ *
+ * Only requests which acquired capacity release it, so requests added straight to the BulkProcessor
+ * pass through without being counted.
+ */
+public class BulkBudget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkBudget.class);
+
+    /**
+     * Matches the per request overhead assumed by {@link BulkRequest#estimatedSizeInBytes()}
+     */
+    private static final int REQUEST_OVERHEAD = 50;
+
+    private final BulkBudgetOptions options;
+    private final BulkRejectionHandler rejectionHandler;
+
+    /**
+     * Bytes held by each request which acquired capacity and has not released it, by identity
+     */
+    private final Map<DocWriteRequest<?>, Long> acquired = new IdentityHashMap<>();
+
+    private long queuedBytes;
+    private int queuedRequests;
+    private long peakQueuedBytes;
+    private int waitingProducers;
+    private long rejectedRequests;
+    private long waitNanos;
+
+    public BulkBudget(BulkBudgetOptions options) {
+        this(options, request -> LOGGER.warn("Bulk budget exhausted, rejected {} request for {}/{}/{}",
+                request.opType(), request.index(), request.type(), request.id()));
+    }
+
+    public BulkBudget(BulkBudgetOptions options, BulkRejectionHandler rejectionHandler) {
+        this.options = options;
+        this.rejectionHandler = rejectionHandler;
+    }
+
+    public BulkBudgetOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Reserves capacity for the request, applying the overflow policy if there is none left. A request which
+     * already holds capacity is admitted without reserving more.
+     * @param flush Flushes any partially filled batch; called before waiting
+     * @return true if capacity was reserved and the request may be added, false if it was rejected
+     */
+    public boolean acquire(DocWriteRequest<?> request, Runnable flush) {
+        long bytes = sizeOf(request);
+        synchronized (this) {
+            if (this.acquired.containsKey(request)) {
+                return true;
+            }
+            if (this.fits(bytes)) {
+                this.take(request, bytes);
+                return true;
+            }
+        }
+
+        if (this.options.getOverflowPolicy() != BulkBudgetOptions.OverflowPolicy.REJECT) {
+            flush.run();
+            if (this.await(request, bytes)) {
+                return true;
+            }
+        }
+
+        synchronized (this) {
+            this.rejectedRequests++;
+        }
+        this.rejectionHandler.rejected(request);
+        return false;
+    }
+
+    private synchronized boolean await(DocWriteRequest<?> request, long bytes) {
+        boolean timed = this.options.getOverflowPolicy() == BulkBudgetOptions.OverflowPolicy.TIMEOUT;
+        long start = System.nanoTime();
+        long deadline = timed ? start + this.options.getTimeout().nanos() : 0L;
+
+        this.waitingProducers++;
+        try {
+            while (!this.fits(bytes)) {
+                if (timed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } else {
+                    this.wait();
+                }
+            }
+            this.take(request, bytes);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            this.waitingProducers--;
+            this.waitNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * A request larger than the whole budget is admitted once nothing else is queued
+     */
+    private boolean fits(long bytes) {
+        if (this.queuedRequests == 0) {
+            return true;
+        }
+        return this.queuedRequests < this.options.getMaxRequests()
+                && this.queuedBytes + bytes <= this.options.getMaxBytes().getBytes();
+    }
+
+    private void take(DocWriteRequest<?> request, long bytes) {
+        this.acquired.put(request, bytes);
+        this.queuedRequests++;
+        this.queuedBytes += bytes;
+        this.peakQueuedBytes = Math.max(this.peakQueuedBytes, this.queuedBytes);
+    }
+
+    /**
+     * Releases the capacity held by the request, if it acquired any
+     */
+    public synchronized void release(DocWriteRequest<?> request) {
+        if (this.free(request)) {
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Releases the capacity held by those requests of the bulk which acquired any
+     */
+    public synchronized void release(BulkRequest request) {
+        boolean released = false;
+        for (DocWriteRequest<?> item : request.requests()) {
+            released |= this.free(item);
+        }
+        if (released) {
+            this.notifyAll();
+        }
+    }
+
+    private boolean free(DocWriteRequest<?> request) {
+        Long bytes = this.acquired.remove(request);
+        if (bytes == null) {
+            return false;
+        }
+        this.queuedRequests--;
+        this.queuedBytes -= bytes;
+        return true;
+    }
+
+    /**
+     * @return The size the request adds to a bulk request, as counted by {@link BulkRequest#estimatedSizeInBytes()}
+     */
+    public static long sizeOf(DocWriteRequest<?> request) {
+        long bytes = REQUEST_OVERHEAD;
+        if (request instanceof IndexRequest) {
+            bytes += ((IndexRequest) request).source().length();
+        } else if (request instanceof UpdateRequest) {
+            UpdateRequest updateRequest = (UpdateRequest) request;
+            if (updateRequest.doc() != null) {
+                bytes += updateRequest.doc().source().length();
+            }
+            if (updateRequest.upsertRequest() != null) {
+                bytes += updateRequest.upsertRequest().source().length();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Wraps the listener so capacity is released once each bulk completes
+     */
+    public BulkProcessor.Listener wrap(BulkProcessor.Listener listener) {
+        return new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+                listener.beforeBulk(executionId, request);
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                try {
+                    listener.afterBulk(executionId, request, response);
+                } finally {
+                    release(request);
+                }
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                try {
+                    listener.afterBulk(executionId, request, failure);
+                } finally {
+                    release(request);
+                }
+            }
+        };
+    }
+
+    // METRICS //
+
+    public synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    public synchronized int getQueuedRequests() {
+        return queuedRequests;
+    }
+
+    public synchronized long getPeakQueuedBytes() {
+        return peakQueuedBytes;
+    }
+
+    /**
+     * Number of producers currently blocked waiting for capacity
+     */
+    public synchronized int getWaitingProducers() {
+        return waitingProducers;
+    }
+
+    public synchronized long getRejectedRequests() {
+        return rejectedRequests;
+    }
+
+    /**
+     * Total time producers have spent blocked waiting for capacity
+     */
+    public synchronized long getWaitTime(TimeUnit unit) {
+        return unit.convert(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("queuedRequests=%d/%d, queuedBytes=%d/%d, peakQueuedBytes=%d, waiting=%d, rejected=%d",
+                queuedRequests, options.getMaxRequests(), queuedBytes, options.getMaxBytes().getBytes(),
+                peakQueuedBytes, waitingProducers, rejectedRequests);
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.onsdigital.elasticutils.client.bulk.budget;
+
+import org.elasticsearch.action.DocWriteRequest;
+
+/**
+ * Called on the producer's thread for every request turned away because the bulk budget was exhausted
+ */
+@FunctionalInterface
+public interface BulkRejectionHandler {
+
+    void rejected(DocWriteRequest<?> request);
+
+}
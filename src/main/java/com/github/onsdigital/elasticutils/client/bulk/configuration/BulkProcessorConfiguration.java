@@ -3,20 +3,51 @@
 
 package com.github.onsdigital.elasticutils.client.bulk.configuration;
 
+import com.github.onsdigital.elasticutils.client.bulk.adaptive.AdaptiveBulkController;
+import com.github.onsdigital.elasticutils.client.bulk.adaptive.AdaptiveBulkDispatcher;
+import com.github.onsdigital.elasticutils.client.bulk.adaptive.AdaptiveFlushPolicy;
+import com.github.onsdigital.elasticutils.client.bulk.budget.BulkBudget;
+import com.github.onsdigital.elasticutils.client.bulk.listener.CompositeBulkProcessorListener;
 import com.github.onsdigital.elasticutils.client.bulk.listener.LoggingBulkProcessorListener;
+import com.github.onsdigital.elasticutils.client.bulk.metrics.BulkMetrics;
+import com.github.onsdigital.elasticutils.client.bulk.metrics.MetricsBulkProcessorListener;
+import com.github.onsdigital.elasticutils.client.bulk.options.AdaptiveBulkOptions;
 import com.github.onsdigital.elasticutils.client.bulk.options.BulkProcessingOptions;
 import com.github.onsdigital.elasticutils.client.bulk.options.BulkProcessingOptionsBuilder;
+import com.github.onsdigital.elasticutils.client.bulk.retry.BulkFailureHandler;
+import com.github.onsdigital.elasticutils.client.bulk.retry.BulkRetryListener;
+import com.github.onsdigital.elasticutils.client.bulk.retry.LoggingBulkFailureHandler;
+import com.github.onsdigital.elasticutils.client.bulk.retry.RetryingBulkConsumer;
 import com.github.onsdigital.elasticutils.client.http.SimpleRestClient;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.client.Client;
-import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+
 public class BulkProcessorConfiguration {
 
     private BulkProcessingOptions options = new BulkProcessingOptionsBuilder().build();
     private BulkProcessor.Listener listener = new LoggingBulkProcessorListener();
+    private AdaptiveBulkController adaptiveController;
+    private BulkBudget bulkBudget;
+    private BulkFailureHandler bulkFailureHandler = new LoggingBulkFailureHandler();
+    private MetricsBulkProcessorListener metricsListener;
+
+    /**
+     * Flush policy of each adaptive processor built from this configuration
+     */
+    private final Map<BulkProcessor, AdaptiveFlushPolicy> flushPolicies = Collections.synchronizedMap(new WeakHashMap<>());
 
     public BulkProcessorConfiguration(BulkProcessingOptions options)
     {
@@ -28,6 +59,18 @@ public class BulkProcessorConfiguration {
         this.listener = listener;
     }
 
+    /**
+     * Adaptive configuration: batch size and concurrency start from the given options and are then tuned,
+     * within the adaptive bounds, from observed bulk latency and rejections. Requests added through a client built
+     * from this configuration, or through {@link #add(BulkProcessor, DocWriteRequest)}, are flushed at the current
+     * batch size; requests added to the BulkProcessor directly are flushed at the adaptive maxima.
+     */
+    public BulkProcessorConfiguration(BulkProcessingOptions options, BulkProcessor.Listener listener, AdaptiveBulkOptions adaptiveOptions) {
+        this(options, listener);
+        this.adaptiveController = new AdaptiveBulkController(adaptiveOptions, options.getBulkActions(),
+                options.getBulkSize(), options.getConcurrentRequests());
+    }
+
     public BulkProcessingOptions getBulkProcessingOptions() {
         return options;
     }
@@ -36,32 +79,158 @@ public class BulkProcessorConfiguration {
         return listener;
     }
 
+    /**
+     * Bounds the data queued or in flight in processors built from this configuration. Clients acquire from
+     * the budget before adding to the BulkProcessor and it is released as each bulk completes.
+     */
+    public BulkProcessorConfiguration setBulkBudget(BulkBudget bulkBudget) {
+        this.bulkBudget = bulkBudget;
+        return this;
+    }
+
+    /**
+     * @return The budget shared by processors built from this configuration, or null if unbounded
+     */
+    public BulkBudget getBulkBudget() {
+        return bulkBudget;
+    }
+
+    /**
+     * Receives items which still failed once rejected items have been retried according to the backoff policy
+     */
+    public BulkProcessorConfiguration setBulkFailureHandler(BulkFailureHandler bulkFailureHandler) {
+        this.bulkFailureHandler = bulkFailureHandler;
+        return this;
+    }
+
+    public BulkFailureHandler getBulkFailureHandler() {
+        return bulkFailureHandler;
+    }
+
+    /**
+     * Records ingest metrics for processors built from this configuration, in addition to the configured listener
+     */
+    public BulkProcessorConfiguration setMetricsListener(MetricsBulkProcessorListener metricsListener) {
+        this.metricsListener = metricsListener;
+        return this;
+    }
+
+    /**
+     * @return The metrics of processors built from this configuration, or null if not recorded
+     */
+    public BulkMetrics getBulkMetrics() {
+        return metricsListener;
+    }
+
+    public boolean isAdaptive() {
+        return adaptiveController != null;
+    }
+
+    /**
+     * @return The controller holding the current adaptive settings, or null if this configuration is not adaptive
+     */
+    public AdaptiveBulkController getAdaptiveBulkController() {
+        return adaptiveController;
+    }
+
+    /**
+     * Adds the request to a processor built from this configuration. Adaptive processors are flushed as soon
+     * as their buffered requests reach the batch size the controller currently allows, rather than the
+     * adaptive maxima the processor is sized to.
+     */
+    public void add(BulkProcessor bulkProcessor, DocWriteRequest<?> request) {
+        AdaptiveFlushPolicy flushPolicy = flushPolicies.get(bulkProcessor);
+        if (flushPolicy == null) {
+            bulkProcessor.add(request);
+        } else {
+            flushPolicy.add(bulkProcessor, request);
+        }
+    }
+
     public BulkProcessor build(final Client client) {
-        return BulkProcessor.builder(client, listener)
-//                .setName(options.getName())
-                .setConcurrentRequests(options.getConcurrentRequests())
-                .setBulkActions(options.getBulkActions())
-                .setBulkSize(options.getBulkSize())
-                .setFlushInterval(options.getFlushInterval())
-                .setBackoffPolicy(options.getBackoffPolicy())
-                .build();
+        return build(client, null);
+    }
+
+    /**
+     * @param clientListener Listener of the client which owns the processor, called before the configured listener
+     */
+    public BulkProcessor build(final Client client, BulkProcessor.Listener clientListener) {
+        return build(client::bulk, client.threadPool(), clientListener);
     }
 
+    /**
+     * Builds a BulkProcessor for the REST client which schedules flushes and retries on the shared {@link BulkThreadPool}
+     */
     public BulkProcessor build(final SimpleRestClient client) {
-        Settings defaultSettings = Settings.builder().put("node.name", "NodeScope").build();
-        return build(client, defaultSettings);
+        return build(client, BulkThreadPool.getInstance());
     }
 
+    /**
+     * @param clientListener Listener of the client which owns the processor, called before the configured listener
+     */
+    public BulkProcessor build(final SimpleRestClient client, BulkProcessor.Listener clientListener) {
+        return build(client::bulkAsync, BulkThreadPool.getInstance(), clientListener);
+    }
+
+    /**
+     * The settings are ignored: a ThreadPool built from them per processor would never be terminated, so the
+     * shared {@link BulkThreadPool} is used instead.
+     * @deprecated use {@link #build(SimpleRestClient)} or {@link #build(SimpleRestClient, ThreadPool)}
+     */
+    @Deprecated
     public BulkProcessor build(final SimpleRestClient client, Settings settings) {
-        ThreadPool threadPool = new ThreadPool(settings);
+        return build(client);
+    }
+
+    public BulkProcessor build(final SimpleRestClient client, ThreadPool threadPool) {
+        return build(client::bulkAsync, threadPool, null);
+    }
+
+    private BulkProcessor build(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, ThreadPool threadPool,
+                                BulkProcessor.Listener clientListener) {
+        BulkProcessor.Listener listener = this.listener;
+        if (clientListener != null) {
+            // The client tracks in-flight requests, so it is called first and a failing listener cannot skip it
+            listener = new CompositeBulkProcessorListener(clientListener, listener);
+        }
+        BulkRetryListener retryListener = BulkRetryListener.NONE;
+        if (metricsListener != null) {
+            listener = new CompositeBulkProcessorListener(metricsListener, listener);
+            retryListener = metricsListener;
+        }
+        if (bulkBudget != null) {
+            listener = bulkBudget.wrap(listener);
+        }
+        BackoffPolicy backoffPolicy = options.getBackoffPolicy() == null ? BackoffPolicy.noBackoff() : options.getBackoffPolicy();
 
-        LoggingBulkProcessorListener listener = new LoggingBulkProcessorListener();
-        BulkProcessor.Builder builder = new BulkProcessor.Builder(client::bulkAsync, listener, threadPool)
-                .setConcurrentRequests(options.getConcurrentRequests())
-                .setBulkActions(options.getBulkActions())
-                .setBulkSize(options.getBulkSize())
-                .setBackoffPolicy(options.getBackoffPolicy());
+        int concurrentRequests = options.getConcurrentRequests();
+        int bulkActions = options.getBulkActions();
+        ByteSizeValue bulkSize = options.getBulkSize();
+        AdaptiveFlushPolicy flushPolicy = null;
+        if (adaptiveController != null) {
+            // The processor is sized to the adaptive maxima: requests added through add(...) are flushed at the
+            // current limits, and batches which still exceed them (e.g. after the limits shrank) are split on dispatch
+            AdaptiveBulkOptions adaptiveOptions = adaptiveController.getOptions();
+            flushPolicy = new AdaptiveFlushPolicy(adaptiveController);
+            listener = new CompositeBulkProcessorListener(flushPolicy, listener);
+            consumer = new AdaptiveBulkDispatcher(consumer, adaptiveController);
+            concurrentRequests = adaptiveOptions.getMaxConcurrentRequests();
+            bulkActions = adaptiveOptions.getMaxBulkActions();
+            bulkSize = adaptiveOptions.getMaxBulkSize();
+        }
+        // Rejected items are retried per item by our own stage, so the BulkProcessor's retry is disabled
+        consumer = new RetryingBulkConsumer(consumer, backoffPolicy, threadPool, bulkFailureHandler, retryListener);
 
-        return builder.build();
+        BulkProcessor bulkProcessor = new BulkProcessor.Builder(consumer, listener, threadPool)
+                .setConcurrentRequests(concurrentRequests)
+                .setBulkActions(bulkActions)
+                .setBulkSize(bulkSize)
+                .setFlushInterval(options.getFlushInterval())
+                .setBackoffPolicy(BackoffPolicy.noBackoff())
+                .build();
+        if (flushPolicy != null) {
+            flushPolicies.put(bulkProcessor, flushPolicy);
+        }
+        return bulkProcessor;
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.github.onsdigital.elasticutils.client.bulk.configuration;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+
+/**
+ * Process wide ThreadPool used by REST BulkProcessors to schedule flushes and backoff retries.
+ * The transport client brings its own ThreadPool; the REST client does not, so rather than
+ * creating a full pool per client every REST BulkProcessor shares this one. It is created on
+ * first use, its threads are daemons and are only started on demand.
+ */
+public class BulkThreadPool {
+
+    private static final String NODE_NAME = "bulk-processor";
+
+    private BulkThreadPool() {
+    }
+
+    public static ThreadPool getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+
+        private static final ThreadPool INSTANCE = new ThreadPool(Settings.builder()
+                .put("node.name", NODE_NAME)
+                .build());
+
+    }
+}
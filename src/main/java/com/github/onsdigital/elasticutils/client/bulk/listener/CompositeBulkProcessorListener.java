@@ -0,0 +1,58 @@
+package com.github.onsdigital.elasticutils.client.bulk.listener;
+
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forwards every callback to each of the given listeners, in order. A listener which throws is logged
+ * and does not stop the callback reaching the listeners after it.
+ */
+public class CompositeBulkProcessorListener implements BulkProcessor.Listener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompositeBulkProcessorListener.class);
+
+    private final List<BulkProcessor.Listener> listeners;
+
+    public CompositeBulkProcessorListener(BulkProcessor.Listener... listeners) {
+        this.listeners = Arrays.asList(listeners);
+    }
+
+    @Override
+    public void beforeBulk(long executionId, BulkRequest request) {
+        for (BulkProcessor.Listener listener : this.listeners) {
+            try {
+                listener.beforeBulk(executionId, request);
+            } catch (RuntimeException e) {
+                LOGGER.error("BulkProcessor listener threw an exception before bulk {}", executionId, e);
+            }
+        }
+    }
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+        for (BulkProcessor.Listener listener : this.listeners) {
+            try {
+                listener.afterBulk(executionId, request, response);
+            } catch (RuntimeException e) {
+                LOGGER.error("BulkProcessor listener threw an exception after bulk {}", executionId, e);
+            }
+        }
+    }
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+        for (BulkProcessor.Listener listener : this.listeners) {
+            try {
+                listener.afterBulk(executionId, request, failure);
+            } catch (RuntimeException e) {
+                LOGGER.error("BulkProcessor listener threw an exception after failed bulk {}", executionId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.onsdigital.elasticutils.client.bulk.load;
+
+import com.github.onsdigital.elasticutils.client.bulk.options.BulkLoadOptions;
+import com.github.onsdigital.elasticutils.client.bulk.options.NdjsonIngestOptions;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
+import com.github.onsdigital.elasticutils.client.type.DocumentType;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Tunes an index for fast ingest for the duration of a bulk load, by disabling refreshes and replicas, and
+ * restores its original settings once the load has drained:
+ *
+ *     try (BulkLoadSession<Doc> session = BulkLoadSession.open(client, "ons")) {
+ *         session.bulk(documentType, documents);
+ *     }
+ *
+ * Files of newline delimited JSON can be loaded with {@link #ingest(Path, DocumentType)}.
+ *
+ * On close the client's BulkProcessor is flushed and awaited, the index refreshed and optionally force
+ * merged (before replicas are restored, so they copy the merged segments), and the original refresh interval
+ * and replica count put back, even if any earlier step failed. Settings which were not set on the index are
+ * reset to their defaults. If the session was opened on an alias, the settings of every index behind it are
+ * recorded and restored separately. Close fails if the bulk requests did not drain in time.
+ *
+ * Other writers to the client's BulkProcessor are drained along with the session's.
+ */
+public class BulkLoadSession<T> implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkLoadSession.class);
+
+    static final String REFRESH_INTERVAL = IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey();
+    static final String NUMBER_OF_REPLICAS = IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+
+    private final ElasticSearchClient<T> client;
+    private final String index;
+    private final BulkLoadOptions options;
+    private final Map<String, Settings> originalSettings;
+
+    private boolean closed;
+
+    private BulkLoadSession(ElasticSearchClient<T> client, String index, BulkLoadOptions options,
+                            Map<String, Settings> originalSettings) {
+        this.client = client;
+        this.index = index;
+        this.options = options;
+        this.originalSettings = originalSettings;
+    }
+
+    public static <T> BulkLoadSession<T> open(ElasticSearchClient<T> client, String index) throws IOException {
+        return open(client, index, BulkLoadOptions.builder().build());
+    }
+
+    /**
+     * Records the current refresh interval and replica count of the index, or of every index behind it if it
+     * is an alias, then applies those of the options
+     */
+    public static <T> BulkLoadSession<T> open(ElasticSearchClient<T> client, String index, BulkLoadOptions options) throws IOException {
+        Set<String> indices = client.getAliasedIndices(index);
+        if (indices.isEmpty()) {
+            indices = Collections.singleton(index);
+        }
+        Map<String, Settings> originalSettings = new LinkedHashMap<>();
+        for (String concreteIndex : indices) {
+            originalSettings.put(concreteIndex, restoreSettings(client.getIndexSettings(concreteIndex)));
+        }
+
+        Settings loadSettings = Settings.builder()
+                .put(REFRESH_INTERVAL, options.getRefreshInterval())
+                .put(NUMBER_OF_REPLICAS, options.getNumberOfReplicas())
+                .build();
+        if (!client.updateIndexSettings(index, loadSettings)) {
+            throw new IOException(String.format("Unable to apply bulk load settings to index %s", index));
+        }
+        LOGGER.info("Bulk load started for index {} {}: {}", index, originalSettings.keySet(), loadSettings.getAsMap());
+        return new BulkLoadSession<>(client, index, options, originalSettings);
+    }
+
+    /**
+     * @return The settings which put back the tuned keys of the given index settings, resetting any that were unset
+     */
+    static Settings restoreSettings(Settings current) {
+        Settings.Builder builder = Settings.builder();
+        for (String key : new String[]{REFRESH_INTERVAL, NUMBER_OF_REPLICAS}) {
+            String value = current.get(key);
+            if (value == null) {
+                builder.putNull(key);
+            } else {
+                builder.put(key, value);
+            }
+        }
+        return builder.build();
+    }
+
+    // BULK //
+
+    public void bulk(DocumentType documentType, T entity) {
+        this.client.bulk(this.index, documentType, entity);
+    }
+
+    public void bulk(DocumentType documentType, List<T> entities) {
+        this.client.bulk(this.index, documentType, entities);
+    }
+
+    public void bulk(DocumentType documentType, Stream<T> entities) {
+        this.client.bulk(this.index, documentType, entities);
+    }
+
+    /**
+     * Indexes a newline delimited JSON file, one document per line, as raw bulk requests which bypass the BulkProcessor
+     */
+    public IngestResult ingest(Path file, DocumentType documentType) throws IOException, InterruptedException {
+        return this.ingest(file, documentType, NdjsonIngestOptions.builder().build());
+    }
+
+    public IngestResult ingest(Path file, DocumentType documentType, NdjsonIngestOptions ingestOptions)
+            throws IOException, InterruptedException {
+        return new NdjsonIngester(this.client, ingestOptions).ingest(file, this.index, documentType);
+    }
+
+    // CLOSE //
+
+    /**
+     * Drains the BulkProcessor, refreshes (and optionally force merges) the index and restores its settings.
+     * Settings are restored even if draining fails.
+     *
+     * @throws IOException If bulk requests were still in flight after the drain timeout, or draining was interrupted
+     * (InterruptedIOException, with the interrupt flag kept); the index is then neither refreshed nor merged
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        try {
+            this.drain();
+            this.client.refresh(this.index);
+            if (this.options.isForceMerge()) {
+                this.client.forceMerge(this.index, this.options.getForceMergeMaxSegments());
+            }
+        } finally {
+            this.restore();
+        }
+    }
+
+    private void drain() throws IOException {
+        boolean drained;
+        try {
+            drained = this.client.awaitFlush(this.options.getDrainTimeout().millis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException failure = new InterruptedIOException(
+                    String.format("Interrupted draining bulk requests for index %s", this.index));
+            failure.initCause(e);
+            throw failure;
+        }
+        if (!drained) {
+            throw new IOException(String.format("Bulk requests for index %s still in flight after %s",
+                    this.index, this.options.getDrainTimeout()));
+        }
+    }
+
+    /**
+     * Restores the settings of every index, rethrowing the first failure once all have been tried
+     */
+    private void restore() throws IOException {
+        IOException failure = null;
+        for (Map.Entry<String, Settings> entry : this.originalSettings.entrySet()) {
+            String concreteIndex = entry.getKey();
+            Settings settings = entry.getValue();
+            try {
+                if (this.client.updateIndexSettings(concreteIndex, settings)) {
+                    LOGGER.info("Bulk load finished for index {}, restored {}", concreteIndex, settings.getAsMap());
+                } else {
+                    LOGGER.error("Unable to restore settings of index {}: {}", concreteIndex, settings.getAsMap());
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public BulkLoadOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * @return The settings restored on close, by concrete index
+     */
+    public Map<String, Settings> getOriginalSettings() {
+        return Collections.unmodifiableMap(originalSettings);
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.onsdigital.elasticutils.client.bulk.load;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Totals of a file ingest.
+ */
+public class IngestResult {
+
+    private final long documents;
+    private final long failedDocuments;
+    private final long rejections;
+    private final long bulkRequests;
+    private final long bytes;
+    private final TimeValue elapsed;
+
+    IngestResult(long documents, long failedDocuments, long rejections, long bulkRequests, long bytes, TimeValue elapsed) {
+        this.documents = documents;
+        this.failedDocuments = failedDocuments;
+        this.rejections = rejections;
+        this.bulkRequests = bulkRequests;
+        this.bytes = bytes;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return The number of documents read from the file and sent, including those which failed
+     */
+    public long getDocuments() {
+        return documents;
+    }
+
+    /**
+     * @return The number of documents which failed, including those still rejected with 429 once retries ran out
+     */
+    public long getFailedDocuments() {
+        return failedDocuments;
+    }
+
+    /**
+     * @return The number of times a document was rejected with 429, whether or not it was then indexed by a retry
+     */
+    public long getRejections() {
+        return rejections;
+    }
+
+    public boolean hasFailures() {
+        return failedDocuments > 0;
+    }
+
+    public long getBulkRequests() {
+        return bulkRequests;
+    }
+
+    /**
+     * @return The size of the file read
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public TimeValue getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d documents (%d failed, %d rejections) in %d bulk requests from %d bytes in %s", documents,
+                failedDocuments, rejections, bulkRequests, bytes, elapsed);
+    }
+}
@@ -0,0 +1,381 @@
+package com.github.onsdigital.elasticutils.client.bulk.load;
+
+import com.github.onsdigital.elasticutils.client.bulk.options.NdjsonIngestOptions;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
+import com.github.onsdigital.elasticutils.client.type.DocumentType;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indexes a newline delimited JSON file, one document per line, without decoding it:
+ *
+ *     IngestResult result = new NdjsonIngester(client).ingest(Paths.get("docs.json"), "ons", documentType);
+ *
+ * The file is memory mapped and split on newlines into bulk sized chunks, each sent as a raw bulk body
+ * through {@link ElasticSearchClient#bulkAsync(BytesReference, String, String)}, bypassing the BulkProcessor.
+ * Large files are split into disjoint regions, one per thread, each of which maps its region a window at a
+ * time and keeps a single bulk request in flight. Document lines are copied once, straight from the mapped
+ * window into a reused body behind their action lines.
+ *
+ * Documents rejected with 429 Too Many Requests are re-sent on their own, following the options' backoff policy,
+ * as the BulkProcessor's retry stage would. Documents which still fail to index are counted in the result; a bulk
+ * request which fails outright aborts the ingest. At most one chunk per thread is held in memory, so the client's
+ * bulk budget is not drawn on.
+ */
+public class NdjsonIngester {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NdjsonIngester.class);
+
+    private static final byte[] INDEX_ACTION = "{\"index\":{}}\n".getBytes(StandardCharsets.UTF_8);
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    private static final int INITIAL_BODY_SIZE = 64 * 1024;
+
+    /**
+     * Sends a raw bulk body, as {@link ElasticSearchClient#bulkAsync(BytesReference, String, String)}
+     */
+    interface BulkSender {
+        CompletableFuture<BulkResponse> send(BytesReference body, String defaultIndex, String defaultType);
+    }
+
+    private final BulkSender sender;
+    private final NdjsonIngestOptions options;
+
+    public NdjsonIngester(ElasticSearchClient<?> client) {
+        this(client, NdjsonIngestOptions.builder().build());
+    }
+
+    public NdjsonIngester(ElasticSearchClient<?> client, NdjsonIngestOptions options) {
+        this(client::bulkAsync, options);
+    }
+
+    NdjsonIngester(BulkSender sender, NdjsonIngestOptions options) {
+        this.sender = sender;
+        this.options = options;
+    }
+
+    public IngestResult ingest(Path file, String index, DocumentType documentType) throws IOException, InterruptedException {
+        if (index == null || documentType == null) {
+            throw new IllegalArgumentException("An index and document type are required");
+        }
+        long start = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = regions(channel, size, this.options.getThreads());
+
+            List<Region> regions = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i < bounds.length - 1; i++) {
+                regions.add(new Region(channel, bounds[i], bounds[i + 1], index, documentType.getType()));
+            }
+            this.execute(regions);
+
+            long documents = 0, failedDocuments = 0, rejections = 0, bulkRequests = 0;
+            for (Region region : regions) {
+                documents += region.documents;
+                failedDocuments += region.failedDocuments;
+                rejections += region.rejections;
+                bulkRequests += region.bulkRequests;
+            }
+            IngestResult result = new IngestResult(documents, failedDocuments, rejections, bulkRequests, size,
+                    TimeValue.timeValueNanos(System.nanoTime() - start));
+            LOGGER.info("Ingested {} into {}/{}: {}", file, index, documentType.getType(), result);
+            return result;
+        }
+    }
+
+    private void execute(List<Region> regions) throws IOException, InterruptedException {
+        if (regions.size() == 1) {
+            regions.get(0).call();
+            return;
+        }
+
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(regions.size(), r -> {
+            Thread thread = new Thread(r, "ndjson-ingest-" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            for (Region region : regions) {
+                completion.submit(region);
+            }
+            // Taken in completion order, so the first failure stops the other regions
+            for (int i = 0; i < regions.size(); i++) {
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Splits the file into at most the given number of regions of roughly equal size, each starting at the start of a line
+     *
+     * @return The offsets of the region boundaries, from 0 to the size of the file
+     */
+    static long[] regions(FileChannel channel, long size, int count) throws IOException {
+        long[] bounds = new long[count + 1];
+        int regions = 0;
+        for (int i = 1; i < count; i++) {
+            long boundary = nextLineStart(channel, size * i / count, size);
+            if (boundary > bounds[regions] && boundary < size) {
+                bounds[++regions] = boundary;
+            }
+        }
+        bounds[++regions] = size;
+        return Arrays.copyOf(bounds, regions + 1);
+    }
+
+    /**
+     * @return The offset of the first line starting at or after the position, or the size of the file if there is none
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Reads and sends one region of the file, reusing a single body for all its bulk requests
+     */
+    private class Region implements Callable<Void> {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final String index;
+        private final String type;
+
+        // Grown to the largest chunk of the region
+        private byte[] body = new byte[(int) Math.min(options.getChunkSize().getBytes(), INITIAL_BODY_SIZE)];
+        private int length;
+        private int chunkDocuments;
+        // Offset of each document's action line in the body
+        private int[] starts = new int[Math.min(options.getChunkDocuments(), 1024)];
+
+        private long documents;
+        private long failedDocuments;
+        private long rejections;
+        private long bulkRequests;
+
+        Region(FileChannel channel, long start, long end, String index, String type) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.index = index;
+            this.type = type;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            long mapSize = options.getMapSize().getBytes();
+            long position = this.start;
+
+            while (position < this.end) {
+                int windowSize = (int) Math.min(mapSize, this.end - position);
+                boolean last = position + windowSize == this.end;
+                MappedByteBuffer window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+
+                int lineStart = 0;
+                for (int i = 0; i < windowSize; i++) {
+                    if (window.get(i) == '\n') {
+                        this.add(window, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                if (last && lineStart < windowSize) {
+                    // No newline after the last line
+                    this.add(window, lineStart, windowSize);
+                    lineStart = windowSize;
+                } else if (lineStart == 0) {
+                    throw new IOException(String.format("Line at offset %d is longer than the map size %s", position,
+                            options.getMapSize()));
+                }
+                // The next window starts from the start of any incomplete line
+                position += lineStart;
+            }
+            this.flush();
+            return null;
+        }
+
+        private void add(ByteBuffer window, int from, int to) throws IOException {
+            if (to > from && window.get(to - 1) == '\r') {
+                to--;
+            }
+            int lineLength = to - from;
+            if (lineLength == 0) {
+                return;
+            }
+
+            int documentLength = INDEX_ACTION.length + lineLength + 1;
+            if (this.chunkDocuments > 0 && (this.length + documentLength > options.getChunkSize().getBytes()
+                    || this.chunkDocuments >= options.getChunkDocuments())) {
+                this.flush();
+            }
+            if (this.length + documentLength > this.body.length) {
+                this.body = Arrays.copyOf(this.body, Math.max(this.body.length * 2, this.length + documentLength));
+            }
+
+            if (this.chunkDocuments == this.starts.length) {
+                this.starts = Arrays.copyOf(this.starts, this.starts.length * 2);
+            }
+            this.starts[this.chunkDocuments] = this.length;
+
+            System.arraycopy(INDEX_ACTION, 0, this.body, this.length, INDEX_ACTION.length);
+            this.length += INDEX_ACTION.length;
+            ByteBuffer line = window.duplicate();
+            line.position(from);
+            line.get(this.body, this.length, lineLength);
+            this.length += lineLength;
+            this.body[this.length++] = '\n';
+            this.chunkDocuments++;
+        }
+
+        /**
+         * Sends the body and waits for its response, re-sending rejected documents until they are indexed or the
+         * backoff policy is exhausted, after which the body can be reused
+         */
+        private void flush() throws IOException {
+            if (this.chunkDocuments == 0) {
+                return;
+            }
+            int sent = this.chunkDocuments;
+            Iterator<TimeValue> backoff = options.getBackoffPolicy().iterator();
+            long failed = 0;
+            String firstFailure = null;
+
+            while (this.chunkDocuments > 0) {
+                BulkItemResponse[] items = this.send().getItems();
+                if (items.length != this.chunkDocuments) {
+                    throw new IOException(String.format("Bulk response holds %d items for %d documents", items.length,
+                            this.chunkDocuments));
+                }
+
+                boolean retry = backoff.hasNext();
+                int rejected = 0;
+                int compacted = 0;
+                for (int i = 0; i < items.length; i++) {
+                    BulkItemResponse item = items[i];
+                    if (!item.isFailed()) {
+                        continue;
+                    }
+                    if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                        this.rejections++;
+                        if (retry) {
+                            compacted = this.moveToEnd(i, rejected++, compacted);
+                            continue;
+                        }
+                    }
+                    failed++;
+                    if (firstFailure == null) {
+                        firstFailure = item.getFailureMessage();
+                    }
+                }
+                this.length = compacted;
+                this.chunkDocuments = rejected;
+
+                if (rejected > 0) {
+                    TimeValue delay = backoff.next();
+                    LOGGER.debug("Re-sending {} rejected documents to {} in {}", rejected, this.index, delay);
+                    try {
+                        Thread.sleep(delay.millis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted awaiting bulk retry");
+                    }
+                }
+            }
+            if (failed > 0) {
+                LOGGER.warn("{} of {} documents failed to index into {}, first failure: {}", failed, sent,
+                        this.index, firstFailure);
+            }
+
+            this.documents += sent;
+            this.failedDocuments += failed;
+        }
+
+        /**
+         * Moves a document to be re-sent down to the end of the documents already kept, in place, as documents are only
+         * ever moved towards the start of the body
+         *
+         * @return The new end of the kept documents
+         */
+        private int moveToEnd(int document, int kept, int keptLength) {
+            int start = this.starts[document];
+            int end = document + 1 < this.chunkDocuments ? this.starts[document + 1] : this.length;
+            System.arraycopy(this.body, start, this.body, keptLength, end - start);
+            this.starts[kept] = keptLength;
+            return keptLength + end - start;
+        }
+
+        private BulkResponse send() throws IOException {
+            this.bulkRequests++;
+            try {
+                return sender.send(new BytesArray(this.body, 0, this.length), this.index, this.type).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted awaiting bulk response");
+            } catch (ExecutionException e) {
+                throw new IOException(String.format("Bulk request of %d documents to index %s failed", this.chunkDocuments,
+                        this.index), e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.onsdigital.elasticutils.client.bulk.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest metrics for a BulkProcessor. Latency is measured from the moment a batch is handed to the
+ * client until its final response, so it includes any time spent retrying rejected items.
+ */
+public interface BulkMetrics {
+
+    /**
+     * Number of completed batches, successful or not
+     */
+    long getBatches();
+
+    /**
+     * Number of batches which failed outright
+     */
+    long getFailedBatches();
+
+    /**
+     * Number of documents successfully indexed, updated or deleted
+     */
+    long getDocuments();
+
+    /**
+     * Estimated size of all completed batches
+     */
+    long getBytes();
+
+    long getFailedItems();
+
+    int getInFlightBatches();
+
+    /**
+     * One minute moving average
+     */
+    double getDocumentsPerSecond();
+
+    /**
+     * One minute moving average
+     */
+    double getBytesPerSecond();
+
+    /**
+     * Number of times rejected items were resubmitted
+     */
+    long getRetries();
+
+    long getBackoffTime(TimeUnit unit);
+
+    long getLatency(double percentile, TimeUnit unit);
+
+    /**
+     * @return A copy of the batch latency histogram, in microseconds
+     */
+    Histogram getLatencyHistogram();
+
+    void reset();
+
+}
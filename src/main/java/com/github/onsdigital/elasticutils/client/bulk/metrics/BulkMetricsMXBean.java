@@ -0,0 +1,42 @@
+package com.github.onsdigital.elasticutils.client.bulk.metrics;
+
+/**
+ * JMX view of {@link BulkMetrics}
+ */
+public interface BulkMetricsMXBean {
+
+    long getBatches();
+
+    long getFailedBatches();
+
+    long getDocuments();
+
+    long getBytes();
+
+    long getFailedItems();
+
+    int getInFlightBatches();
+
+    double getDocumentsPerSecond();
+
+    double getBytesPerSecond();
+
+    long getRetries();
+
+    long getBackoffTimeMillis();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP95Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyP999Millis();
+
+    double getLatencyMaxMillis();
+
+    void reset();
+
+}
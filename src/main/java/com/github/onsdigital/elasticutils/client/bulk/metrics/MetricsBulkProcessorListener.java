@@ -0,0 +1,244 @@
+package com.github.onsdigital.elasticutils.client.bulk.metrics;
+
+import com.github.onsdigital.elasticutils.client.bulk.retry.BulkRetryListener;
+import com.github.onsdigital.elasticutils.util.metrics.EwmaRate;
+import com.github.onsdigital.elasticutils.util.metrics.MBeans;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.unit.TimeValue;
+
+import javax.management.ObjectName;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BulkProcessor.Listener which records ingest metrics instead of logging. Recording is lock free
+ * (LongAdders and a concurrent HdrHistogram), so it can stay enabled in production. Add it to a
+ * {@link com.github.onsdigital.elasticutils.client.bulk.configuration.BulkProcessorConfiguration}
+ * alongside any other listener, and optionally expose it over JMX with {@link #registerMBean(String)}.
+ *
+ * One listener may be shared by several BulkProcessors, each of which numbers its executions from 1, so
+ * batches in flight are tracked by request rather than by execution id.
+ */
+public class MetricsBulkProcessorListener implements BulkProcessor.Listener, BulkRetryListener, BulkMetrics, BulkMetricsMXBean {
+
+    private static final String MBEAN_TYPE = "BulkMetrics";
+
+    /**
+     * Start times of the batches in flight. BulkRequest does not override equals, so requests are keyed by identity.
+     */
+    private final Map<BulkRequest, Long> startTimes = new ConcurrentHashMap<>();
+    private final Histogram latency = new ConcurrentHistogram(3);
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder failedItems = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder backoffNanos = new LongAdder();
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+
+    private final EwmaRate documentsRate = new EwmaRate();
+    private final EwmaRate bytesRate = new EwmaRate();
+
+    private volatile ObjectName objectName;
+
+    // LISTENER //
+
+    @Override
+    public void beforeBulk(long executionId, BulkRequest request) {
+        this.startTimes.put(request, System.nanoTime());
+        this.inFlightBatches.incrementAndGet();
+    }
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+        int failed = 0;
+        if (response.hasFailures()) {
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed()) {
+                    failed++;
+                }
+            }
+        }
+        this.completed(request, request.numberOfActions() - failed, failed);
+    }
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+        this.failedBatches.increment();
+        this.completed(request, 0, request.numberOfActions());
+    }
+
+    private void completed(BulkRequest request, int succeeded, int failed) {
+        Long start = this.startTimes.remove(request);
+        if (start != null) {
+            this.inFlightBatches.decrementAndGet();
+            this.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+
+        long requestBytes = request.estimatedSizeInBytes();
+        this.batches.increment();
+        this.documents.add(succeeded);
+        this.failedItems.add(failed);
+        this.bytes.add(requestBytes);
+        this.documentsRate.mark(succeeded);
+        this.bytesRate.mark(requestBytes);
+    }
+
+    @Override
+    public void onRetry(int numItems, TimeValue delay) {
+        this.retries.increment();
+        this.backoffNanos.add(delay.nanos());
+    }
+
+    // METRICS //
+
+    @Override
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    @Override
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    @Override
+    public long getDocuments() {
+        return documents.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getFailedItems() {
+        return failedItems.sum();
+    }
+
+    @Override
+    public int getInFlightBatches() {
+        return inFlightBatches.get();
+    }
+
+    @Override
+    public double getDocumentsPerSecond() {
+        return documentsRate.getRatePerSecond();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return bytesRate.getRatePerSecond();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getBackoffTime(TimeUnit unit) {
+        return unit.convert(backoffNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getLatency(double percentile, TimeUnit unit) {
+        return unit.convert(latency.getValueAtPercentile(percentile), TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public Histogram getLatencyHistogram() {
+        return latency.copy();
+    }
+
+    /**
+     * Clears all counters, rates and the latency histogram. Batches in flight are still tracked.
+     */
+    @Override
+    public void reset() {
+        latency.reset();
+        batches.reset();
+        failedBatches.reset();
+        documents.reset();
+        bytes.reset();
+        failedItems.reset();
+        retries.reset();
+        backoffNanos.reset();
+        documentsRate.reset();
+        bytesRate.reset();
+    }
+
+    // JMX //
+
+    @Override
+    public long getBackoffTimeMillis() {
+        return this.getBackoffTime(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return toMillis(latency.getMean());
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return toMillis(latency.getValueAtPercentile(50.0));
+    }
+
+    @Override
+    public double getLatencyP95Millis() {
+        return toMillis(latency.getValueAtPercentile(95.0));
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return toMillis(latency.getValueAtPercentile(99.0));
+    }
+
+    @Override
+    public double getLatencyP999Millis() {
+        return toMillis(latency.getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return toMillis(latency.getMaxValue());
+    }
+
+    private static double toMillis(double micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * Registers these metrics with the platform MBeanServer as
+     * com.github.onsdigital.elasticutils:type=BulkMetrics,name="name"
+     */
+    public MetricsBulkProcessorListener registerMBean(String name) {
+        this.unregisterMBean();
+        this.objectName = MBeans.register(MBEAN_TYPE, name, this);
+        return this;
+    }
+
+    public void unregisterMBean() {
+        MBeans.unregister(this.objectName);
+        this.objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("batches=%d, documents=%d, failedItems=%d, inFlight=%d, docs/s=%.1f, p50=%.1fms, p99=%.1fms",
+                getBatches(), getDocuments(), getFailedItems(), getInFlightBatches(), getDocumentsPerSecond(),
+                getLatencyP50Millis(), getLatencyP99Millis());
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.onsdigital.elasticutils.client.bulk.options;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Bounds within which an adaptive bulk processor may tune its batch size and concurrency,
+ * and the round trip latency it aims for.
+ */
+public class AdaptiveBulkOptions {
+
+    private int minBulkActions;
+    private int maxBulkActions;
+    private ByteSizeValue minBulkSize;
+    private ByteSizeValue maxBulkSize;
+    private int minConcurrentRequests;
+    private int maxConcurrentRequests;
+    private TimeValue targetLatency;
+    private double decreaseFactor;
+
+    public AdaptiveBulkOptions(int minBulkActions, int maxBulkActions, ByteSizeValue minBulkSize, ByteSizeValue maxBulkSize,
+                               int minConcurrentRequests, int maxConcurrentRequests, TimeValue targetLatency, double decreaseFactor) {
+        if (minBulkActions < 1 || maxBulkActions < minBulkActions) {
+            throw new IllegalArgumentException("Bulk actions must satisfy 1 <= min <= max");
+        }
+        if (minBulkSize.getBytes() < 1 || maxBulkSize.getBytes() < minBulkSize.getBytes()) {
+            throw new IllegalArgumentException("Bulk size must satisfy 1 <= min <= max");
+        }
+        if (minConcurrentRequests < 1 || maxConcurrentRequests < minConcurrentRequests) {
+            throw new IllegalArgumentException("Concurrent requests must satisfy 1 <= min <= max");
+        }
+        if (decreaseFactor <= 0.0 || decreaseFactor >= 1.0) {
+            throw new IllegalArgumentException("Decrease factor must be between 0 and 1");
+        }
+        this.minBulkActions = minBulkActions;
+        this.maxBulkActions = maxBulkActions;
+        this.minBulkSize = minBulkSize;
+        this.maxBulkSize = maxBulkSize;
+        this.minConcurrentRequests = minConcurrentRequests;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.targetLatency = targetLatency;
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public int getMinBulkActions() {
+        return minBulkActions;
+    }
+
+    public int getMaxBulkActions() {
+        return maxBulkActions;
+    }
+
+    public ByteSizeValue getMinBulkSize() {
+        return minBulkSize;
+    }
+
+    public ByteSizeValue getMaxBulkSize() {
+        return maxBulkSize;
+    }
+
+    public int getMinConcurrentRequests() {
+        return minConcurrentRequests;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public TimeValue getTargetLatency() {
+        return targetLatency;
+    }
+
+    /**
+     * Multiplier applied to batch size (and on rejection, concurrency) when the cluster is overloaded
+     */
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public static AdaptiveBulkOptionsBuilder builder() {
+        return new AdaptiveBulkOptionsBuilder();
+    }
+}
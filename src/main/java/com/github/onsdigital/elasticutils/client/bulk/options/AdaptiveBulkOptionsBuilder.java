@@ -0,0 +1,62 @@
+package com.github.onsdigital.elasticutils.client.bulk.options;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+public class AdaptiveBulkOptionsBuilder {
+
+    private int minBulkActions = 100;
+    private int maxBulkActions = 10000;
+    private ByteSizeValue minBulkSize = new ByteSizeValue(256, ByteSizeUnit.KB);
+    private ByteSizeValue maxBulkSize = new ByteSizeValue(15, ByteSizeUnit.MB);
+    private int minConcurrentRequests = 1;
+    private int maxConcurrentRequests = 4;
+    private TimeValue targetLatency = TimeValue.timeValueSeconds(1);
+    private double decreaseFactor = 0.5;
+
+    public AdaptiveBulkOptionsBuilder setMinBulkActions(int minBulkActions) {
+        this.minBulkActions = minBulkActions;
+        return this;
+    }
+
+    public AdaptiveBulkOptionsBuilder setMaxBulkActions(int maxBulkActions) {
+        this.maxBulkActions = maxBulkActions;
+        return this;
+    }
+
+    public AdaptiveBulkOptionsBuilder setMinBulkSize(ByteSizeValue minBulkSize) {
+        this.minBulkSize = minBulkSize;
+        return this;
+    }
+
+    public AdaptiveBulkOptionsBuilder setMaxBulkSize(ByteSizeValue maxBulkSize) {
+        this.maxBulkSize = maxBulkSize;
+        return this;
+    }
+
+    public AdaptiveBulkOptionsBuilder setMinConcurrentRequests(int minConcurrentRequests) {
+        this.minConcurrentRequests = minConcurrentRequests;
+        return this;
+    }
+
+    public AdaptiveBulkOptionsBuilder setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        return this;
+    }
+
+    public AdaptiveBulkOptionsBuilder setTargetLatency(TimeValue targetLatency) {
+        this.targetLatency = targetLatency;
+        return this;
+    }
+
+    public AdaptiveBulkOptionsBuilder setDecreaseFactor(double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+        return this;
+    }
+
+    public AdaptiveBulkOptions build() {
+        return new AdaptiveBulkOptions(minBulkActions, maxBulkActions, minBulkSize, maxBulkSize,
+                minConcurrentRequests, maxConcurrentRequests, targetLatency, decreaseFactor);
+    }
+}
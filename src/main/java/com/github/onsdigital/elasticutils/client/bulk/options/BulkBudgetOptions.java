@@ -0,0 +1,64 @@
+package com.github.onsdigital.elasticutils.client.bulk.options;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Limits on how much bulk data may be queued or in flight at once, and what happens to a
+ * producer once they are reached.
+ */
+public class BulkBudgetOptions {
+
+    public enum OverflowPolicy {
+        /**
+         * Wait for as long as it takes for capacity to be released
+         */
+        BLOCK,
+        /**
+         * Wait up to the configured timeout, then reject
+         */
+        TIMEOUT,
+        /**
+         * Reject immediately
+         */
+        REJECT
+    }
+
+    private ByteSizeValue maxBytes;
+    private int maxRequests;
+    private OverflowPolicy overflowPolicy;
+    private TimeValue timeout;
+
+    public BulkBudgetOptions(ByteSizeValue maxBytes, int maxRequests, OverflowPolicy overflowPolicy, TimeValue timeout) {
+        if (maxBytes.getBytes() < 1 || maxRequests < 1) {
+            throw new IllegalArgumentException("Bulk budget must allow at least one byte and one request");
+        }
+        if (overflowPolicy == OverflowPolicy.TIMEOUT && timeout == null) {
+            throw new IllegalArgumentException("A timeout is required for the TIMEOUT overflow policy");
+        }
+        this.maxBytes = maxBytes;
+        this.maxRequests = maxRequests;
+        this.overflowPolicy = overflowPolicy;
+        this.timeout = timeout;
+    }
+
+    public ByteSizeValue getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public TimeValue getTimeout() {
+        return timeout;
+    }
+
+    public static BulkBudgetOptionsBuilder builder() {
+        return new BulkBudgetOptionsBuilder();
+    }
+}
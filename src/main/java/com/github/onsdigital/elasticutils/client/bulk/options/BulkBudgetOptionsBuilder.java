@@ -0,0 +1,41 @@
+package com.github.onsdigital.elasticutils.client.bulk.options;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+public class BulkBudgetOptionsBuilder {
+
+    private ByteSizeValue maxBytes = new ByteSizeValue(64, ByteSizeUnit.MB);
+    private int maxRequests = 100000;
+    private BulkBudgetOptions.OverflowPolicy overflowPolicy = BulkBudgetOptions.OverflowPolicy.BLOCK;
+    private TimeValue timeout = null;
+
+    public BulkBudgetOptionsBuilder setMaxBytes(ByteSizeValue maxBytes) {
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    public BulkBudgetOptionsBuilder setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    public BulkBudgetOptionsBuilder setOverflowPolicy(BulkBudgetOptions.OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the TIMEOUT overflow policy with the given timeout
+     */
+    public BulkBudgetOptionsBuilder setTimeout(TimeValue timeout) {
+        this.overflowPolicy = BulkBudgetOptions.OverflowPolicy.TIMEOUT;
+        this.timeout = timeout;
+        return this;
+    }
+
+    public BulkBudgetOptions build() {
+        return new BulkBudgetOptions(maxBytes, maxRequests, overflowPolicy, timeout);
+    }
+}
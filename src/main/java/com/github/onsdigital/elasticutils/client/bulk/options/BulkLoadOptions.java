@@ -0,0 +1,62 @@
+package com.github.onsdigital.elasticutils.client.bulk.options;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Index settings applied for the duration of a bulk load, and what to do once it has drained.
+ */
+public class BulkLoadOptions {
+
+    /**
+     * Disables force merging after the load
+     */
+    public static final int NO_FORCE_MERGE = -1;
+
+    private String refreshInterval;
+    private int numberOfReplicas;
+    private int forceMergeMaxSegments;
+    private TimeValue drainTimeout;
+
+    public BulkLoadOptions(String refreshInterval, int numberOfReplicas, int forceMergeMaxSegments, TimeValue drainTimeout) {
+        if (refreshInterval == null || refreshInterval.isEmpty()) {
+            throw new IllegalArgumentException("A refresh interval is required");
+        }
+        if (numberOfReplicas < 0) {
+            throw new IllegalArgumentException("numberOfReplicas must not be negative");
+        }
+        if (forceMergeMaxSegments == 0 || forceMergeMaxSegments < NO_FORCE_MERGE) {
+            throw new IllegalArgumentException("forceMergeMaxSegments must be positive, or NO_FORCE_MERGE");
+        }
+        if (drainTimeout == null) {
+            throw new IllegalArgumentException("A drain timeout is required");
+        }
+        this.refreshInterval = refreshInterval;
+        this.numberOfReplicas = numberOfReplicas;
+        this.forceMergeMaxSegments = forceMergeMaxSegments;
+        this.drainTimeout = drainTimeout;
+    }
+
+    public String getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public int getNumberOfReplicas() {
+        return numberOfReplicas;
+    }
+
+    public int getForceMergeMaxSegments() {
+        return forceMergeMaxSegments;
+    }
+
+    public boolean isForceMerge() {
+        return forceMergeMaxSegments != NO_FORCE_MERGE;
+    }
+
+    public TimeValue getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    public static BulkLoadOptionsBuilder builder() {
+        return new BulkLoadOptionsBuilder();
+    }
+}
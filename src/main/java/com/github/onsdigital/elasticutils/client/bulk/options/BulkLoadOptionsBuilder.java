@@ -0,0 +1,48 @@
+package com.github.onsdigital.elasticutils.client.bulk.options;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+public class BulkLoadOptionsBuilder {
+
+    private String refreshInterval = "-1";
+    private int numberOfReplicas = 0;
+    private int forceMergeMaxSegments = BulkLoadOptions.NO_FORCE_MERGE;
+    private TimeValue drainTimeout = TimeValue.timeValueMinutes(10);
+
+    /**
+     * Refresh interval during the load, -1 to disable refreshes
+     */
+    public BulkLoadOptionsBuilder setRefreshInterval(String refreshInterval) {
+        this.refreshInterval = refreshInterval;
+        return this;
+    }
+
+    public BulkLoadOptionsBuilder setRefreshInterval(TimeValue refreshInterval) {
+        return this.setRefreshInterval(refreshInterval.getStringRep());
+    }
+
+    public BulkLoadOptionsBuilder setNumberOfReplicas(int numberOfReplicas) {
+        this.numberOfReplicas = numberOfReplicas;
+        return this;
+    }
+
+    /**
+     * Force merges the index down to at most this many segments per shard once the load completes
+     */
+    public BulkLoadOptionsBuilder setForceMergeMaxSegments(int forceMergeMaxSegments) {
+        this.forceMergeMaxSegments = forceMergeMaxSegments;
+        return this;
+    }
+
+    /**
+     * How long to wait for in flight bulk requests before restoring the index settings regardless
+     */
+    public BulkLoadOptionsBuilder setDrainTimeout(TimeValue drainTimeout) {
+        this.drainTimeout = drainTimeout;
+        return this;
+    }
+
+    public BulkLoadOptions build() {
+        return new BulkLoadOptions(refreshInterval, numberOfReplicas, forceMergeMaxSegments, drainTimeout);
+    }
+}
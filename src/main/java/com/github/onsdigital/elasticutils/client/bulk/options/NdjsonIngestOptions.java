@@ -0,0 +1,65 @@
+package com.github.onsdigital.elasticutils.client.bulk.options;
+
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+/**
+ * How a newline delimited JSON file is split into bulk requests, how many threads send them, and how rejected
+ * documents are retried.
+ */
+public class NdjsonIngestOptions {
+
+    private ByteSizeValue chunkSize;
+    private int chunkDocuments;
+    private int threads;
+    private ByteSizeValue mapSize;
+    private BackoffPolicy backoffPolicy;
+
+    public NdjsonIngestOptions(ByteSizeValue chunkSize, int chunkDocuments, int threads, ByteSizeValue mapSize,
+                               BackoffPolicy backoffPolicy) {
+        if (chunkSize == null || chunkSize.getBytes() <= 0 || chunkSize.getBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunkSize must be positive and under 2gb");
+        }
+        if (chunkDocuments < 1) {
+            throw new IllegalArgumentException("chunkDocuments must be positive");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        if (mapSize == null || mapSize.getBytes() <= 0 || mapSize.getBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("mapSize must be positive and under 2gb");
+        }
+        if (backoffPolicy == null) {
+            throw new IllegalArgumentException("backoffPolicy must not be null");
+        }
+        this.chunkSize = chunkSize;
+        this.chunkDocuments = chunkDocuments;
+        this.threads = threads;
+        this.mapSize = mapSize;
+        this.backoffPolicy = backoffPolicy;
+    }
+
+    public ByteSizeValue getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunkDocuments() {
+        return chunkDocuments;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public ByteSizeValue getMapSize() {
+        return mapSize;
+    }
+
+    public BackoffPolicy getBackoffPolicy() {
+        return backoffPolicy;
+    }
+
+    public static NdjsonIngestOptionsBuilder builder() {
+        return new NdjsonIngestOptionsBuilder();
+    }
+}
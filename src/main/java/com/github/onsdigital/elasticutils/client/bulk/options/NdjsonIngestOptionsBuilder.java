@@ -0,0 +1,56 @@
+package com.github.onsdigital.elasticutils.client.bulk.options;
+
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+public class NdjsonIngestOptionsBuilder {
+
+    private ByteSizeValue chunkSize = new ByteSizeValue(5, ByteSizeUnit.MB);
+    private int chunkDocuments = 1000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private ByteSizeValue mapSize = new ByteSizeValue(256, ByteSizeUnit.MB);
+    private BackoffPolicy backoffPolicy = BackoffPolicy.exponentialBackoff();
+
+    /**
+     * Maximum size of each bulk request body. A single document larger than this is sent on its own.
+     */
+    public NdjsonIngestOptionsBuilder setChunkSize(ByteSizeValue chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public NdjsonIngestOptionsBuilder setChunkDocuments(int chunkDocuments) {
+        this.chunkDocuments = chunkDocuments;
+        return this;
+    }
+
+    /**
+     * Number of disjoint regions of the file read and sent concurrently, each with one bulk request in flight
+     */
+    public NdjsonIngestOptionsBuilder setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Size of each window of the file mapped into memory at once. No line may be longer than this.
+     */
+    public NdjsonIngestOptionsBuilder setMapSize(ByteSizeValue mapSize) {
+        this.mapSize = mapSize;
+        return this;
+    }
+
+    /**
+     * Delays between re-sends of documents rejected with 429 Too Many Requests. Documents still rejected once the
+     * policy is exhausted are counted as failed; use {@link BackoffPolicy#noBackoff()} to never re-send them.
+     */
+    public NdjsonIngestOptionsBuilder setBackoffPolicy(BackoffPolicy backoffPolicy) {
+        this.backoffPolicy = backoffPolicy;
+        return this;
+    }
+
+    public NdjsonIngestOptions build() {
+        return new NdjsonIngestOptions(chunkSize, chunkDocuments, threads, mapSize, backoffPolicy);
+    }
+}
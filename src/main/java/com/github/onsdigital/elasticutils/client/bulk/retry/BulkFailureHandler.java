@@ -0,0 +1,16 @@
+package com.github.onsdigital.elasticutils.client.bulk.retry;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+
+/**
+ * Receives every bulk item which failed for good: either the failure was not retryable (e.g. a
+ * mapping error) or the item was still rejected once the backoff policy was exhausted. The original
+ * request is supplied so it can be dead-lettered or resubmitted later.
+ */
+@FunctionalInterface
+public interface BulkFailureHandler {
+
+    void onFailure(DocWriteRequest<?> request, BulkItemResponse.Failure failure);
+
+}
@@ -0,0 +1,15 @@
+package com.github.onsdigital.elasticutils.client.bulk.retry;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Notified each time rejected bulk items are scheduled to be retried
+ */
+@FunctionalInterface
+public interface BulkRetryListener {
+
+    BulkRetryListener NONE = (numItems, delay) -> { };
+
+    void onRetry(int numItems, TimeValue delay);
+
+}
@@ -0,0 +1,17 @@
+package com.github.onsdigital.elasticutils.client.bulk.retry;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class LoggingBulkFailureHandler implements BulkFailureHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingBulkFailureHandler.class);
+
+    @Override
+    public void onFailure(DocWriteRequest<?> request, BulkItemResponse.Failure failure) {
+        LOGGER.error("Bulk {} of {}/{}/{} failed with status {}: {}", request.opType(), request.index(),
+                request.type(), request.id(), failure.getStatus(), failure.getMessage());
+    }
+}
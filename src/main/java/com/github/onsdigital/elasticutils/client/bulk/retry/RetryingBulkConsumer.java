@@ -0,0 +1,190 @@
+package com.github.onsdigital.elasticutils.client.bulk.retry;
+
+import com.github.onsdigital.elasticutils.client.bulk.BulkResponses;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Retries the items of a bulk request which the cluster rejected with 429 (es_rejected_execution_exception),
+ * resubmitting only those items after each backoff delay. Unlike the retry built into the BulkProcessor this
+ * works on the response status, so it also applies to the REST client, and a batch mixing rejections with
+ * other failures still has its rejected items retried.
+ *
+ * The BulkProcessor's listener receives a single response per request, with each item's final outcome in
+ * its original position. Items which still failed are additionally handed to the {@link BulkFailureHandler}.
+ */
+public class RetryingBulkConsumer implements BiConsumer<BulkRequest, ActionListener<BulkResponse>> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryingBulkConsumer.class);
+
+    private final BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer;
+    private final BackoffPolicy backoffPolicy;
+    private final ThreadPool threadPool;
+    private final BulkFailureHandler failureHandler;
+    private final BulkRetryListener retryListener;
+
+    public RetryingBulkConsumer(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, BackoffPolicy backoffPolicy,
+                                ThreadPool threadPool, BulkFailureHandler failureHandler) {
+        this(consumer, backoffPolicy, threadPool, failureHandler, BulkRetryListener.NONE);
+    }
+
+    public RetryingBulkConsumer(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, BackoffPolicy backoffPolicy,
+                                ThreadPool threadPool, BulkFailureHandler failureHandler, BulkRetryListener retryListener) {
+        this.consumer = consumer;
+        this.backoffPolicy = backoffPolicy;
+        this.threadPool = threadPool;
+        this.failureHandler = failureHandler;
+        this.retryListener = retryListener;
+    }
+
+    @Override
+    public void accept(BulkRequest request, ActionListener<BulkResponse> listener) {
+        new RetryContext(request, listener).execute(request, allPositions(request.numberOfActions()));
+    }
+
+    private static int[] allPositions(int size) {
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+
+    private static boolean isRetryable(RestStatus status) {
+        return status == RestStatus.TOO_MANY_REQUESTS;
+    }
+
+    private class RetryContext {
+
+        private final BulkRequest original;
+        private final ActionListener<BulkResponse> listener;
+        private final Iterator<TimeValue> backoff;
+        private final BulkItemResponse[] items;
+        private long tookInMillis;
+        private int attempts;
+
+        RetryContext(BulkRequest original, ActionListener<BulkResponse> listener) {
+            this.original = original;
+            this.listener = listener;
+            this.backoff = backoffPolicy.iterator();
+            this.items = new BulkItemResponse[original.numberOfActions()];
+        }
+
+        /**
+         * @param positions Position in the original request of each item in this request
+         */
+        void execute(BulkRequest request, int[] positions) {
+            this.attempts++;
+            consumer.accept(request, ActionListener.wrap(
+                    response -> this.onResponse(response, positions),
+                    e -> this.onFailure(e, positions)));
+        }
+
+        private void onResponse(BulkResponse response, int[] positions) {
+            this.tookInMillis += response.getTook().millis();
+
+            BulkItemResponse[] responseItems = response.getItems();
+            int[] retry = new int[responseItems.length];
+            int numRetry = 0;
+            for (int i = 0; i < responseItems.length; i++) {
+                int position = positions[i];
+                BulkItemResponse item = responseItems[i];
+                this.items[position] = BulkResponses.renumber(item, position);
+                if (item.isFailed() && isRetryable(item.getFailure().getStatus())) {
+                    retry[numRetry++] = position;
+                }
+            }
+
+            if (numRetry > 0 && this.backoff.hasNext()) {
+                this.scheduleRetry(Arrays.copyOf(retry, numRetry));
+            } else {
+                this.finish();
+            }
+        }
+
+        private void onFailure(Exception e, int[] positions) {
+            if (isRetryable(BulkResponses.status(e)) && this.backoff.hasNext()) {
+                this.scheduleRetry(positions);
+            } else if (this.attempts == 1) {
+                // Nothing reached the cluster; report the failure of the whole request as before
+                this.reportFailures(positions, e);
+                this.listener.onFailure(e);
+            } else {
+                List<DocWriteRequest<?>> requests = BulkResponses.requests(this.original);
+                for (int position : positions) {
+                    this.items[position] = BulkResponses.failure(position, requests.get(position), e);
+                }
+                this.finish();
+            }
+        }
+
+        private void scheduleRetry(int[] positions) {
+            List<DocWriteRequest<?>> requests = BulkResponses.requests(this.original);
+            List<Object> payloads = this.original.payloads();
+
+            BulkRequest retryRequest = BulkResponses.emptyCopyOf(this.original);
+            for (int position : positions) {
+                retryRequest.add(requests.get(position), payloads == null ? null : payloads.get(position));
+            }
+
+            TimeValue delay = this.backoff.next();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Retrying {} rejected bulk items in {}", positions.length, delay);
+            }
+            retryListener.onRetry(positions.length, delay);
+            try {
+                threadPool.schedule(delay, ThreadPool.Names.GENERIC, () -> this.execute(retryRequest, positions));
+            } catch (Exception e) {
+                // The thread pool is shutting down
+                for (int position : positions) {
+                    this.items[position] = BulkResponses.failure(position, requests.get(position), e);
+                }
+                this.finish();
+            }
+        }
+
+        private void finish() {
+            List<DocWriteRequest<?>> requests = BulkResponses.requests(this.original);
+            for (int position = 0; position < this.items.length; position++) {
+                BulkItemResponse item = this.items[position];
+                if (item.isFailed()) {
+                    notifyFailure(requests.get(position), item.getFailure());
+                }
+            }
+            this.listener.onResponse(new BulkResponse(this.items, this.tookInMillis));
+        }
+
+        private void reportFailures(int[] positions, Exception e) {
+            List<DocWriteRequest<?>> requests = BulkResponses.requests(this.original);
+            for (int position : positions) {
+                DocWriteRequest<?> request = requests.get(position);
+                notifyFailure(request, new BulkItemResponse.Failure(request.index(), request.type(), request.id(), e));
+            }
+        }
+    }
+
+    /**
+     * A failing handler must not stop the BulkProcessor's listener from being called
+     */
+    private void notifyFailure(DocWriteRequest<?> request, BulkItemResponse.Failure failure) {
+        try {
+            this.failureHandler.onFailure(request, failure);
+        } catch (Exception e) {
+            LOGGER.error("Bulk failure handler threw an exception", e);
+        }
+    }
+}
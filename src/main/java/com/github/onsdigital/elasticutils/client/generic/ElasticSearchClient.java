@@ -5,14 +5,26 @@ import com.github.onsdigital.elasticutils.action.delete.SimpleDeleteRequestBuild
 import com.github.onsdigital.elasticutils.action.index.SimpleIndexRequestBuilder;
 import com.github.onsdigital.elasticutils.action.search.SimpleSearchRequestBuilder;
 import com.github.onsdigital.elasticutils.client.DefaultSearchClient;
+import com.github.onsdigital.elasticutils.client.bulk.budget.BulkBudget;
+import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkProcessorConfiguration;
 import com.github.onsdigital.elasticutils.client.pipeline.Pipeline;
 import com.github.onsdigital.elasticutils.client.type.DocumentType;
 import com.github.onsdigital.elasticutils.util.JsonUtils;
+import com.github.onsdigital.elasticutils.util.SerializerRegistry;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.slf4j.Logger;
@@ -20,8 +32,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
@@ -33,6 +51,11 @@ public abstract class ElasticSearchClient<T> implements DefaultSearchClient<T> {
 
     protected static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchClient.class);
 
+    private final List<IndexWriteListener> writeListeners = new CopyOnWriteArrayList<>();
+
+    private final Object bulkLock = new Object();
+    private int inFlightBulkRequests;
+
     // INDEX //
 
     @Override
@@ -50,18 +73,24 @@ public abstract class ElasticSearchClient<T> implements DefaultSearchClient<T> {
         bulk(index, documentType, entities, XContentType.JSON);
     }
 
+    /**
+     * Serializes the entities as the given content type, e.g. SMILE for smaller and cheaper to parse bulk
+     * requests. Over HTTP, Elasticsearch 6.0 only accepts JSON or SMILE bulk bodies, so the REST client
+     * rejects any other content type.
+     */
     public void bulk(String index, DocumentType documentType, Stream<T> entities, XContentType contentType) {
         this.bulk(index, documentType, entities, contentType, JsonInclude.Include.USE_DEFAULTS);
     }
 
     public void bulk(String index, DocumentType documentType, Stream<T> entities,
                      XContentType contentType, JsonInclude.Include include) {
-        BulkProcessor bulkProcessor = this.getBulkProcessor();
+        BulkProcessor bulkProcessor = this.getBulkProcessor(contentType);
+        SerializerRegistry serializers = this.getSerializerRegistry().forContentType(contentType);
         entities
-                .map(x -> JsonUtils.convertJsonToBytes(x, include))
+                .map(x -> JsonUtils.convertJsonToBytes(x, serializers.writerForValue(x, include)))
                 .filter(x -> x.isPresent())
                 .map(x -> createIndexRequest(index, documentType, x.get(), contentType))
-                .forEach(bulkProcessor::add);
+                .forEach(x -> this.addToBulk(bulkProcessor, x));
     }
 
     public void addToBulk(IndexRequest indexRequest) {
@@ -73,8 +102,41 @@ public abstract class ElasticSearchClient<T> implements DefaultSearchClient<T> {
     }
 
     public void addToBulk(Stream<IndexRequest> indexRequests) {
-        BulkProcessor bulkProcessor = this.getBulkProcessor();
-        indexRequests.forEach(bulkProcessor::add);
+        indexRequests.forEach(x -> this.addToBulk(this.getBulkProcessor(x.getContentType()), x));
+    }
+
+    /**
+     * Adds the request to the BulkProcessor once the bulk budget (if any) has capacity for it.
+     * Requests rejected by the budget are handed to its rejection handler and dropped.
+     *
+     * Write listeners are notified once per index as each bulk completes (see {@link #bulkWriteListener()}),
+     * not as each document is queued.
+     */
+    private void addToBulk(BulkProcessor bulkProcessor, IndexRequest indexRequest) {
+        BulkBudget bulkBudget = this.getBulkBudget();
+        if (bulkBudget == null) {
+            this.add(bulkProcessor, indexRequest);
+            return;
+        }
+
+        if (bulkBudget.acquire(indexRequest, bulkProcessor::flush)) {
+            try {
+                this.add(bulkProcessor, indexRequest);
+            } catch (RuntimeException e) {
+                bulkBudget.release(indexRequest);
+                throw e;
+            }
+        }
+    }
+
+    private void add(BulkProcessor bulkProcessor, IndexRequest indexRequest) {
+        BulkProcessorConfiguration configuration = this.getBulkProcessorConfiguration();
+        if (configuration == null) {
+            bulkProcessor.add(indexRequest);
+        } else {
+            // Flushes adaptive processors at their current batch size
+            configuration.add(bulkProcessor, indexRequest);
+        }
     }
 
     protected IndexRequest createIndexRequest(String index, DocumentType documentType, byte[] messageBytes, XContentType xContentType) {
@@ -97,22 +159,190 @@ public abstract class ElasticSearchClient<T> implements DefaultSearchClient<T> {
 
     public abstract BulkProcessor getBulkProcessor();
 
+    /**
+     * @return The BulkProcessor buffering index requests of the given content type. A bulk request can only
+     * carry one content type over HTTP, so clients which cannot mix them keep a processor per content type.
+     * @throws IllegalArgumentException if the client cannot send bulk requests of the content type
+     */
+    protected BulkProcessor getBulkProcessor(XContentType contentType) {
+        return this.getBulkProcessor();
+    }
+
+    /**
+     * @return Every BulkProcessor this client has built, so all of them are flushed and closed
+     */
+    protected Collection<BulkProcessor> getBulkProcessors() {
+        return Collections.singletonList(this.getBulkProcessor());
+    }
+
+    /**
+     * Sends a newline delimited bulk body as it is, bypassing the BulkProcessor. Actions without an _index or
+     * _type use the given defaults.
+     */
+    public abstract CompletableFuture<BulkResponse> bulkAsync(BytesReference body, String defaultIndex, String defaultType);
+
+    /**
+     * Configuration the BulkProcessors were built from, or null if they are added to directly
+     */
+    protected BulkProcessorConfiguration getBulkProcessorConfiguration() {
+        return null;
+    }
+
+    /**
+     * Budget bounding the data queued in the BulkProcessor, or null if unbounded
+     */
+    protected BulkBudget getBulkBudget() {
+        return null;
+    }
+
+    /**
+     * Registry used to serialize entities for bulk indexing. Override to supply a custom ObjectMapper.
+     */
+    protected SerializerRegistry getSerializerRegistry() {
+        return SerializerRegistry.getInstance();
+    }
+
     // SEARCH //
 
     public abstract SearchResponse search(SearchRequest request) throws IOException;
 
+    public abstract CompletableFuture<SearchResponse> searchAsync(SearchRequest request);
+
+    /**
+     * Executes several independent searches in one round trip using _msearch
+     */
+    public abstract MultiSearchResponse multiSearch(MultiSearchRequest request) throws IOException;
+
+    public abstract CompletableFuture<MultiSearchResponse> multiSearchAsync(MultiSearchRequest request);
+
     public abstract SearchResponse searchScroll(SearchScrollRequest request) throws IOException;
 
+    public abstract CompletableFuture<SearchResponse> searchScrollAsync(SearchScrollRequest request);
+
+    public abstract ClearScrollResponse clearScroll(ClearScrollRequest request) throws IOException;
+
     // DELETE //
 
     public abstract boolean dropIndex(String index) throws IOException;
 
+    public abstract CompletableFuture<Boolean> dropIndexAsync(String index);
+
     // ADMIN //
 
     public abstract boolean indexExists(String index);
 
     public abstract boolean createIndex(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping);
 
+    public abstract CompletableFuture<Boolean> createIndexAsync(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping);
+
+    /**
+     * @return The settings of the index (or of the first index an alias resolves to), with flat keys such as index.refresh_interval
+     */
+    public abstract Settings getIndexSettings(String index) throws IOException;
+
+    /**
+     * Updates dynamic index settings. A setting with a null value (see Settings.Builder#putNull) is reset to its default.
+     */
+    public abstract boolean updateIndexSettings(String index, Settings settings) throws IOException;
+
+    public abstract void refresh(String index) throws IOException;
+
+    public abstract void forceMerge(String index, int maxNumSegments) throws IOException;
+
+    /**
+     * @return The concrete indices the alias points to, empty if the alias does not exist
+     */
+    public abstract Set<String> getAliasedIndices(String alias) throws IOException;
+
+    /**
+     * Atomically points the alias at the index, removing it from the given indices in the same request
+     */
+    public abstract boolean swapAlias(String alias, String index, Collection<String> fromIndices) throws IOException;
+
+    // WRITE LISTENERS //
+
+    public void addWriteListener(IndexWriteListener listener) {
+        this.writeListeners.add(listener);
+    }
+
+    public void removeWriteListener(IndexWriteListener listener) {
+        this.writeListeners.remove(listener);
+    }
+
+    /**
+     * Notifies the write listeners that this client wrote to the given index. A failing listener is logged
+     * and does not affect the write or the other listeners.
+     */
+    protected void notifyWrite(String index) {
+        for (IndexWriteListener listener : this.writeListeners) {
+            try {
+                listener.onWrite(index);
+            } catch (RuntimeException e) {
+                LOGGER.error("Index write listener threw an exception", e);
+            }
+        }
+    }
+
+    /**
+     * BulkProcessor listener notifying the write listeners of each index a bulk request wrote to once it
+     * completes. Clients pass it to the {@link com.github.onsdigital.elasticutils.client.bulk.configuration.BulkProcessorConfiguration}
+     * when building their BulkProcessor.
+     */
+    protected BulkProcessor.Listener bulkWriteListener() {
+        return new BulkWriteListener();
+    }
+
+    private class BulkWriteListener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            synchronized (bulkLock) {
+                inFlightBulkRequests++;
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            this.completed();
+            this.notifyWrites(request);
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            this.completed();
+            // Part of the request may still have been applied
+            this.notifyWrites(request);
+        }
+
+        private void completed() {
+            synchronized (bulkLock) {
+                inFlightBulkRequests--;
+                bulkLock.notifyAll();
+            }
+        }
+
+        private void notifyWrites(BulkRequest request) {
+            if (writeListeners.isEmpty()) {
+                return;
+            }
+            Set<String> indices = new HashSet<>();
+            for (DocWriteRequest<?> docWriteRequest : request.requests()) {
+                indices.add(docWriteRequest.index());
+            }
+            indices.forEach(ElasticSearchClient.this::notifyWrite);
+        }
+    }
+
+    // ASYNC //
+
+    /**
+     * Adapts an ActionListener onto a CompletableFuture, so async operations can be composed without
+     * tying up a caller thread for the round trip.
+     */
+    protected static <R> ActionListener<R> listenerFor(CompletableFuture<R> future) {
+        return ActionListener.wrap(future::complete, future::completeExceptionally);
+    }
+
     // BUILDERS //
 
     @Override
@@ -134,12 +364,40 @@ public abstract class ElasticSearchClient<T> implements DefaultSearchClient<T> {
 
     @Override
     public void flush() {
-        this.getBulkProcessor().flush();
+        this.getBulkProcessors().forEach(BulkProcessor::flush);
+    }
+
+    /**
+     * Flushes the BulkProcessor and waits for every bulk request in flight to complete, without closing it.
+     * Requests are only tracked by processors built with {@link #bulkWriteListener()}.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitFlush(long timeout, TimeUnit unit) throws InterruptedException {
+        // Flushing calls beforeBulk for any buffered requests before returning
+        this.flush();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this.bulkLock) {
+            while (this.inFlightBulkRequests > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this.bulkLock, remaining);
+            }
+        }
+        return true;
     }
 
     @Override
     public synchronized boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
-        return this.getBulkProcessor().awaitClose(timeout, unit);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean closed = true;
+        for (BulkProcessor bulkProcessor : this.getBulkProcessors()) {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            closed &= bulkProcessor.awaitClose(remaining, TimeUnit.NANOSECONDS);
+        }
+        return closed;
     }
 
     @Override
@@ -1,39 +1,56 @@
 package com.github.onsdigital.elasticutils.client.generic;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.onsdigital.elasticutils.util.DeserializerRegistry;
+import com.github.onsdigital.elasticutils.util.XContentFormats;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
 
 /**
  * @author sullid (David Sullivan) on 29/11/2017
  * @project dp-elasticutils
  */
-public class ElasticSearchResponse<T> {
+public class ElasticSearchResponse<T> implements Iterable<T> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchResponse.class);
-    private  ObjectMapper mapper;
+    private ObjectReader reader;
 
     private SearchResponse response;
     private Class<T> returnClass;
 
     public ElasticSearchResponse(SearchResponse response, Class<T> returnClass) {
-        this(response, new ObjectMapper(), returnClass);
+        this(response, DeserializerRegistry.getInstance().readerFor(returnClass), returnClass);
     }
 
     public ElasticSearchResponse(SearchResponse response, ObjectMapper mapper, Class<T> returnClass) {
+        this(response, mapper.readerFor(returnClass), returnClass);
+    }
+
+    public ElasticSearchResponse(SearchResponse response, ObjectReader reader, Class<T> returnClass) {
         this.response = response;
-        this.mapper = mapper;
+        this.reader = reader;
         this.returnClass = returnClass;
     }
 
     public void setMapper(ObjectMapper mapper) {
-        this.mapper = mapper;
+        this.reader = mapper.readerFor(this.returnClass);
     }
 
     public SearchResponse getResponse() {
@@ -44,20 +61,94 @@ public class ElasticSearchResponse<T> {
         return this.response.getHits();
     }
 
+    /**
+     * Eagerly deserializes every hit. Hits which fail to deserialize are logged and skipped.
+     */
     public List<T> entities() {
-        List<T> results = new LinkedList<>();
-
-        SearchHits searchHits = this.getSearchHits();
+        SearchHit[] hits = this.getSearchHits().getHits();
+        List<T> results = new ArrayList<>(hits.length);
 
-        searchHits.forEach(hit -> {
-            try {
-                results.add(this.mapper.readValue(hit.getSourceAsString(), returnClass));
-            } catch (IOException e) {
-                LOGGER.error("Error unmarshalling from json", e);
+        for (SearchHit hit : hits) {
+            T entity = this.decode(hit);
+            if (entity != null) {
+                results.add(entity);
             }
-        });
+        }
 
         return results;
     }
 
+    /**
+     * Lazily deserializes hits as the stream is consumed, so short-circuiting operations such as
+     * findFirst or limit only pay for the hits they touch. Hits which fail to deserialize are
+     * logged and skipped.
+     */
+    public Stream<T> stream() {
+        return Arrays.stream(this.getSearchHits().getHits())
+                .map(this::decode)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return this.stream().iterator();
+    }
+
+    /**
+     * Random access view of the hits which deserializes each hit on first access and keeps the result.
+     * The returned list is unmodifiable and not thread safe. Unlike {@link #entities()}, a hit which
+     * fails to deserialize throws an UncheckedIOException when accessed.
+     */
+    public List<T> lazyEntities() {
+        return new LazyEntityList();
+    }
+
+    private T decode(SearchHit hit) {
+        try {
+            return this.readSource(hit);
+        } catch (IOException e) {
+            LOGGER.error("Error unmarshalling from json", e);
+            return null;
+        }
+    }
+
+    /**
+     * Parses the hit straight from its source bytes, without going through an intermediate String. Sources
+     * indexed as SMILE or CBOR are decoded in their own format.
+     */
+    private T readSource(SearchHit hit) throws IOException {
+        BytesReference source = hit.getSourceRef();
+        if (source == null) {
+            throw new IOException(String.format("No _source returned for hit %s", hit.getId()));
+        }
+        BytesRef bytes = source.toBytesRef();
+        return XContentFormats.readValue(this.reader, bytes);
+    }
+
+    private class LazyEntityList extends AbstractList<T> implements RandomAccess {
+
+        private final SearchHit[] hits = getSearchHits().getHits();
+        private final Object[] entities = new Object[hits.length];
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Object entity = this.entities[index];
+            if (entity == null) {
+                try {
+                    entity = readSource(this.hits[index]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                this.entities[index] = entity;
+            }
+            return (T) entity;
+        }
+
+        @Override
+        public int size() {
+            return this.hits.length;
+        }
+    }
+
 }
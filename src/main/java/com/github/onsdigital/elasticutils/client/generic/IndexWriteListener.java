@@ -0,0 +1,12 @@
+package com.github.onsdigital.elasticutils.client.generic;
+
+/**
+ * Notified when an ElasticSearchClient writes to an index: once per index as each bulk request completes,
+ * and when a document is indexed or an index dropped directly.
+ */
+@FunctionalInterface
+public interface IndexWriteListener {
+
+    void onWrite(String index);
+
+}
@@ -0,0 +1,525 @@
+package com.github.onsdigital.elasticutils.client.generic;
+
+import com.github.onsdigital.elasticutils.client.bulk.budget.BulkBudget;
+import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkProcessorConfiguration;
+import com.github.onsdigital.elasticutils.client.metrics.ClientOperation;
+import com.github.onsdigital.elasticutils.client.metrics.OperationMetricsRegistry;
+import com.github.onsdigital.elasticutils.client.metrics.OperationSample;
+import com.github.onsdigital.elasticutils.client.type.DocumentType;
+import com.github.onsdigital.elasticutils.util.SerializerRegistry;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates any ElasticSearchClient, recording an {@link OperationSample} for every search, scroll, get,
+ * multi get, index, raw bulk, createIndex, dropIndex and indexExists call (sync or async) to an {@link OperationMetricsRegistry}.
+ * Samples are tagged with the target index and a query label; use {@link #labelled(String)} to obtain a
+ * view of the same client which tags its samples differently, e.g.
+ *
+ *     InstrumentedSearchClient<Doc> client = new InstrumentedSearchClient<>(restClient, registry);
+ *     client.labelled("autocomplete").search(request);
+ *
+ * Labelled views share the underlying client, so shutting down any of them shuts down all of them.
+ */
+public class InstrumentedSearchClient<T> extends ElasticSearchClient<T> {
+
+    public static final String DEFAULT_LABEL = "default";
+
+    private static final String ALL_INDICES = "_all";
+    private static final String UNKNOWN_INDEX = "_unknown";
+    static final int MAX_TRACKED_SCROLLS = 10000;
+
+    private final ElasticSearchClient<T> delegate;
+    private final OperationMetricsRegistry registry;
+    private final String label;
+
+    /**
+     * Index of the search which opened each live scroll, so scroll pages can be tagged with it.
+     * Scrolls which are never cleared are evicted least recently used first.
+     */
+    private final Map<String, String> scrollIndices;
+
+    public InstrumentedSearchClient(ElasticSearchClient<T> delegate, OperationMetricsRegistry registry) {
+        this(delegate, registry, DEFAULT_LABEL, Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return this.size() > MAX_TRACKED_SCROLLS;
+            }
+        }));
+    }
+
+    private InstrumentedSearchClient(ElasticSearchClient<T> delegate, OperationMetricsRegistry registry, String label,
+                                     Map<String, String> scrollIndices) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.label = label;
+        this.scrollIndices = scrollIndices;
+    }
+
+    /**
+     * @return A view of this client whose samples are tagged with the given label
+     */
+    public InstrumentedSearchClient<T> labelled(String label) {
+        return new InstrumentedSearchClient<>(this.delegate, this.registry, label, this.scrollIndices);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public ElasticSearchClient<T> getDelegate() {
+        return delegate;
+    }
+
+    // WRITE LISTENERS //
+
+    /**
+     * Listeners are registered with the delegate, so they also see writes made through it directly
+     */
+    @Override
+    public void addWriteListener(IndexWriteListener listener) {
+        this.delegate.addWriteListener(listener);
+    }
+
+    @Override
+    public void removeWriteListener(IndexWriteListener listener) {
+        this.delegate.removeWriteListener(listener);
+    }
+
+    @Override
+    protected void notifyWrite(String index) {
+        this.delegate.notifyWrite(index);
+    }
+
+    // INDEX //
+
+    @Override
+    public BulkProcessor getBulkProcessor() {
+        return this.delegate.getBulkProcessor();
+    }
+
+    @Override
+    protected BulkProcessor getBulkProcessor(XContentType contentType) {
+        return this.delegate.getBulkProcessor(contentType);
+    }
+
+    @Override
+    protected Collection<BulkProcessor> getBulkProcessors() {
+        return this.delegate.getBulkProcessors();
+    }
+
+    @Override
+    protected BulkProcessorConfiguration getBulkProcessorConfiguration() {
+        return this.delegate.getBulkProcessorConfiguration();
+    }
+
+    @Override
+    protected BulkBudget getBulkBudget() {
+        return this.delegate.getBulkBudget();
+    }
+
+    @Override
+    protected SerializerRegistry getSerializerRegistry() {
+        return this.delegate.getSerializerRegistry();
+    }
+
+    @Override
+    public IndexResponse index(IndexRequest request) throws IOException {
+        long start = System.nanoTime();
+        try {
+            IndexResponse response = this.delegate.index(request);
+            this.recordIndex(request, start, false);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            this.recordIndex(request, start, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<IndexResponse> indexAsync(IndexRequest request) {
+        long start = System.nanoTime();
+        CompletableFuture<IndexResponse> future = this.delegate.indexAsync(request);
+        future.whenComplete((response, e) -> this.recordIndex(request, start, e != null));
+        return future;
+    }
+
+    private void recordIndex(IndexRequest request, long start, boolean failed) {
+        long bytes = request.source() == null ? OperationSample.NOT_AVAILABLE : request.source().length();
+        this.record(ClientOperation.INDEX, request.index(), start, OperationSample.NOT_AVAILABLE,
+                OperationSample.NOT_AVAILABLE, bytes, failed);
+    }
+
+    @Override
+    public CompletableFuture<BulkResponse> bulkAsync(BytesReference body, String defaultIndex, String defaultType) {
+        String index = defaultIndex == null ? UNKNOWN_INDEX : defaultIndex;
+        long start = System.nanoTime();
+        CompletableFuture<BulkResponse> future = this.delegate.bulkAsync(body, defaultIndex, defaultType);
+        future.whenComplete((response, e) -> {
+            if (response == null) {
+                this.recordFailure(ClientOperation.BULK, index, start);
+            } else {
+                this.record(ClientOperation.BULK, index, start, response.getTook().millis(), response.getItems().length,
+                        body.length(), response.hasFailures());
+            }
+        });
+        return future;
+    }
+
+    // GET //
+
+    @Override
+    public GetResponse get(GetRequest request) throws IOException {
+        long start = System.nanoTime();
+        try {
+            GetResponse response = this.delegate.get(request);
+            this.recordGet(request, start, response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            this.recordFailure(ClientOperation.GET, request.index(), start);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<GetResponse> getAsync(GetRequest request) {
+        long start = System.nanoTime();
+        CompletableFuture<GetResponse> future = this.delegate.getAsync(request);
+        future.whenComplete((response, e) -> {
+            if (response != null) {
+                this.recordGet(request, start, response);
+            } else {
+                this.recordFailure(ClientOperation.GET, request.index(), start);
+            }
+        });
+        return future;
+    }
+
+    private void recordGet(GetRequest request, long start, GetResponse response) {
+        BytesReference source = response.isExists() ? response.getSourceAsBytesRef() : null;
+        this.record(ClientOperation.GET, request.index(), start, OperationSample.NOT_AVAILABLE,
+                response.isExists() ? 1 : 0, source == null ? 0 : source.length(), false);
+    }
+
+    @Override
+    public MultiGetResponse multiGet(MultiGetRequest request) throws IOException {
+        String index = indexOf(request);
+        long start = System.nanoTime();
+        try {
+            MultiGetResponse response = this.delegate.multiGet(request);
+            this.recordMultiGet(index, start, response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            this.recordFailure(ClientOperation.MULTI_GET, index, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<MultiGetResponse> multiGetAsync(MultiGetRequest request) {
+        String index = indexOf(request);
+        long start = System.nanoTime();
+        CompletableFuture<MultiGetResponse> future = this.delegate.multiGetAsync(request);
+        future.whenComplete((response, e) -> {
+            if (response != null) {
+                this.recordMultiGet(index, start, response);
+            } else {
+                this.recordFailure(ClientOperation.MULTI_GET, index, start);
+            }
+        });
+        return future;
+    }
+
+    private void recordMultiGet(String index, long start, MultiGetResponse response) {
+        long found = 0;
+        long bytes = 0;
+        boolean failed = false;
+        for (MultiGetItemResponse item : response.getResponses()) {
+            if (item.isFailed()) {
+                failed = true;
+            } else if (item.getResponse().isExists()) {
+                found++;
+                BytesReference source = item.getResponse().getSourceAsBytesRef();
+                bytes += source == null ? 0 : source.length();
+            }
+        }
+        this.record(ClientOperation.MULTI_GET, index, start, OperationSample.NOT_AVAILABLE, found, bytes, failed);
+    }
+
+    private static String indexOf(MultiGetRequest request) {
+        Set<String> indices = new LinkedHashSet<>();
+        for (MultiGetRequest.Item item : request.getItems()) {
+            indices.add(item.index());
+        }
+        return String.join(",", indices);
+    }
+
+    // SEARCH //
+
+    @Override
+    public SearchResponse search(SearchRequest request) throws IOException {
+        String index = indexOf(request);
+        long start = System.nanoTime();
+        try {
+            SearchResponse response = this.delegate.search(request);
+            this.recordSearch(ClientOperation.SEARCH, index, start, response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            this.recordFailure(ClientOperation.SEARCH, index, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
+        String index = indexOf(request);
+        long start = System.nanoTime();
+        CompletableFuture<SearchResponse> future = this.delegate.searchAsync(request);
+        future.whenComplete((response, e) -> this.completed(ClientOperation.SEARCH, index, start, response));
+        return future;
+    }
+
+    /**
+     * Records a search sample per search in the request, each with the time of the whole round trip
+     */
+    @Override
+    public MultiSearchResponse multiSearch(MultiSearchRequest request) throws IOException {
+        long start = System.nanoTime();
+        try {
+            MultiSearchResponse response = this.delegate.multiSearch(request);
+            this.recordMultiSearch(request, start, response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            this.recordMultiSearch(request, start, null);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<MultiSearchResponse> multiSearchAsync(MultiSearchRequest request) {
+        long start = System.nanoTime();
+        CompletableFuture<MultiSearchResponse> future = this.delegate.multiSearchAsync(request);
+        future.whenComplete((response, e) -> this.recordMultiSearch(request, start, response));
+        return future;
+    }
+
+    private void recordMultiSearch(MultiSearchRequest request, long start, MultiSearchResponse response) {
+        List<SearchRequest> requests = request.requests();
+        for (int i = 0; i < requests.size(); i++) {
+            MultiSearchResponse.Item item = response == null ? null : response.getResponses()[i];
+            if (item == null || item.isFailure()) {
+                this.recordFailure(ClientOperation.SEARCH, indexOf(requests.get(i)), start);
+            } else {
+                this.recordSearch(ClientOperation.SEARCH, indexOf(requests.get(i)), start, item.getResponse());
+            }
+        }
+    }
+
+    @Override
+    public SearchResponse searchScroll(SearchScrollRequest request) throws IOException {
+        String index = this.scrollIndices.getOrDefault(request.scrollId(), UNKNOWN_INDEX);
+        long start = System.nanoTime();
+        try {
+            SearchResponse response = this.delegate.searchScroll(request);
+            this.recordSearch(ClientOperation.SCROLL, index, start, response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            this.recordFailure(ClientOperation.SCROLL, index, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<SearchResponse> searchScrollAsync(SearchScrollRequest request) {
+        String index = this.scrollIndices.getOrDefault(request.scrollId(), UNKNOWN_INDEX);
+        long start = System.nanoTime();
+        CompletableFuture<SearchResponse> future = this.delegate.searchScrollAsync(request);
+        future.whenComplete((response, e) -> this.completed(ClientOperation.SCROLL, index, start, response));
+        return future;
+    }
+
+    @Override
+    public ClearScrollResponse clearScroll(ClearScrollRequest request) throws IOException {
+        if (request.getScrollIds() != null) {
+            request.getScrollIds().forEach(this.scrollIndices::remove);
+        }
+        return this.delegate.clearScroll(request);
+    }
+
+    private void completed(ClientOperation operation, String index, long start, SearchResponse response) {
+        if (response != null) {
+            this.recordSearch(operation, index, start, response);
+        } else {
+            this.recordFailure(operation, index, start);
+        }
+    }
+
+    private void recordSearch(ClientOperation operation, String index, long start, SearchResponse response) {
+        long clientNanos = System.nanoTime() - start;
+
+        if (response.getScrollId() != null) {
+            this.scrollIndices.put(response.getScrollId(), index);
+        }
+
+        SearchHit[] hits = response.getHits().getHits();
+        long bytes = 0;
+        for (SearchHit hit : hits) {
+            BytesReference source = hit.getSourceRef();
+            if (source != null) {
+                bytes += source.length();
+            }
+        }
+        this.registry.record(new OperationSample(operation, index, this.label, clientNanos,
+                response.getTook().millis(), hits.length, bytes, false));
+    }
+
+    private void recordFailure(ClientOperation operation, String index, long start) {
+        this.record(operation, index, start, OperationSample.NOT_AVAILABLE, OperationSample.NOT_AVAILABLE,
+                OperationSample.NOT_AVAILABLE, true);
+    }
+
+    private static String indexOf(SearchRequest request) {
+        String[] indices = request.indices();
+        return indices == null || indices.length == 0 ? ALL_INDICES : String.join(",", indices);
+    }
+
+    // ADMIN //
+
+    @Override
+    public boolean dropIndex(String index) throws IOException {
+        long start = System.nanoTime();
+        try {
+            boolean dropped = this.delegate.dropIndex(index);
+            this.recordAdmin(ClientOperation.DROP_INDEX, index, start, false);
+            return dropped;
+        } catch (IOException | RuntimeException e) {
+            this.recordAdmin(ClientOperation.DROP_INDEX, index, start, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dropIndexAsync(String index) {
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> future = this.delegate.dropIndexAsync(index);
+        future.whenComplete((dropped, e) -> this.recordAdmin(ClientOperation.DROP_INDEX, index, start, e != null));
+        return future;
+    }
+
+    @Override
+    public boolean indexExists(String index) {
+        long start = System.nanoTime();
+        try {
+            boolean exists = this.delegate.indexExists(index);
+            this.recordAdmin(ClientOperation.INDEX_EXISTS, index, start, false);
+            return exists;
+        } catch (RuntimeException e) {
+            this.recordAdmin(ClientOperation.INDEX_EXISTS, index, start, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean createIndex(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping) {
+        long start = System.nanoTime();
+        try {
+            boolean created = this.delegate.createIndex(index, documentType, settings, mapping);
+            this.recordAdmin(ClientOperation.CREATE_INDEX, index, start, !created);
+            return created;
+        } catch (RuntimeException e) {
+            this.recordAdmin(ClientOperation.CREATE_INDEX, index, start, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createIndexAsync(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping) {
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> future = this.delegate.createIndexAsync(index, documentType, settings, mapping);
+        future.whenComplete((created, e) -> this.recordAdmin(ClientOperation.CREATE_INDEX, index, start,
+                e != null || !created));
+        return future;
+    }
+
+    @Override
+    public Settings getIndexSettings(String index) throws IOException {
+        return this.delegate.getIndexSettings(index);
+    }
+
+    @Override
+    public boolean updateIndexSettings(String index, Settings settings) throws IOException {
+        return this.delegate.updateIndexSettings(index, settings);
+    }
+
+    @Override
+    public void refresh(String index) throws IOException {
+        this.delegate.refresh(index);
+    }
+
+    @Override
+    public void forceMerge(String index, int maxNumSegments) throws IOException {
+        this.delegate.forceMerge(index, maxNumSegments);
+    }
+
+    @Override
+    public Set<String> getAliasedIndices(String alias) throws IOException {
+        return this.delegate.getAliasedIndices(alias);
+    }
+
+    @Override
+    public boolean swapAlias(String alias, String index, Collection<String> fromIndices) throws IOException {
+        return this.delegate.swapAlias(alias, index, fromIndices);
+    }
+
+    private void recordAdmin(ClientOperation operation, String index, long start, boolean failed) {
+        this.record(operation, index, start, OperationSample.NOT_AVAILABLE, OperationSample.NOT_AVAILABLE,
+                OperationSample.NOT_AVAILABLE, failed);
+    }
+
+    private void record(ClientOperation operation, String index, long start, long tookMillis, long hits, long bytes,
+                        boolean failed) {
+        long clientNanos = System.nanoTime() - start;
+        this.registry.record(new OperationSample(operation, index, this.label, clientNanos, tookMillis, hits, bytes, failed));
+    }
+
+    // SHUTDOWN //
+
+    @Override
+    public boolean awaitFlush(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.delegate.awaitFlush(timeout, unit);
+    }
+
+    @Override
+    public void shutdown() throws IOException {
+        this.delegate.shutdown();
+    }
+}
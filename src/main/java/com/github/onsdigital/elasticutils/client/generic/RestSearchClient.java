@@ -1,7 +1,9 @@
 package com.github.onsdigital.elasticutils.client.generic;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.onsdigital.elasticutils.client.Host;
+import com.github.onsdigital.elasticutils.client.bulk.budget.BulkBudget;
 import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkProcessorConfiguration;
 import com.github.onsdigital.elasticutils.client.http.SimpleRestClient;
 import com.github.onsdigital.elasticutils.client.type.DocumentType;
@@ -11,23 +13,44 @@ import org.apache.http.HttpStatus;
 import org.apache.http.entity.ContentType;
 import org.apache.http.nio.entity.NStringEntity;
 import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.main.MainResponse;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.xpack.common.http.HttpMethod;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author sullid (David Sullivan) on 29/11/2017
@@ -38,26 +61,118 @@ public class RestSearchClient<T> extends ElasticSearchClient<T> {
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
     private SimpleRestClient client;
+    private final BulkProcessorConfiguration configuration;
     private final BulkProcessor bulkProcessor;
+    private final BulkBudget bulkBudget;
+
+    /**
+     * Processors for content types other than JSON, built on first use
+     */
+    private final Map<XContentType, BulkProcessor> bulkProcessors = new EnumMap<>(XContentType.class);
 
     public RestSearchClient(SimpleRestClient client, final BulkProcessorConfiguration configuration) {
         this.client = client;
-        this.bulkProcessor = configuration.build(this.client);
+        this.configuration = configuration;
+        this.bulkProcessor = configuration.build(this.client, this.bulkWriteListener());
+        this.bulkBudget = configuration.getBulkBudget();
     }
 
     // INDEX //
 
+    /**
+     * @return The BulkProcessor for JSON index requests
+     */
     @Override
     public BulkProcessor getBulkProcessor() {
         return this.bulkProcessor;
     }
 
+    /**
+     * The REST bulk API rejects a request mixing JSON and SMILE items, and any CBOR or YAML item, so each of
+     * JSON and SMILE is buffered by its own processor and other content types are refused before they are queued.
+     */
+    @Override
+    protected BulkProcessor getBulkProcessor(XContentType contentType) {
+        if (contentType == null || contentType == XContentType.JSON) {
+            return this.bulkProcessor;
+        }
+        if (contentType != XContentType.SMILE) {
+            throw new IllegalArgumentException(String.format("Bulk requests over HTTP must be JSON or SMILE, not %s",
+                    contentType));
+        }
+        synchronized (this.bulkProcessors) {
+            return this.bulkProcessors.computeIfAbsent(contentType,
+                    type -> this.configuration.build(this.client, this.bulkWriteListener()));
+        }
+    }
+
+    @Override
+    protected Collection<BulkProcessor> getBulkProcessors() {
+        List<BulkProcessor> bulkProcessors = new ArrayList<>();
+        bulkProcessors.add(this.bulkProcessor);
+        synchronized (this.bulkProcessors) {
+            bulkProcessors.addAll(this.bulkProcessors.values());
+        }
+        return bulkProcessors;
+    }
+
+    @Override
+    protected BulkProcessorConfiguration getBulkProcessorConfiguration() {
+        return this.configuration;
+    }
+
+    @Override
+    protected BulkBudget getBulkBudget() {
+        return this.bulkBudget;
+    }
+
     @Override
     public IndexResponse index(IndexRequest request) throws IOException {
         IndexResponse response = this.client.index(request);
+        this.notifyWrite(request.index());
         return response;
     }
 
+    @Override
+    public CompletableFuture<IndexResponse> indexAsync(IndexRequest request) {
+        CompletableFuture<IndexResponse> future = new CompletableFuture<>();
+        this.client.indexAsync(request, listenerFor(future));
+        return future.whenComplete((response, e) -> this.notifyWrite(request.index()));
+    }
+
+    @Override
+    public CompletableFuture<BulkResponse> bulkAsync(BytesReference body, String defaultIndex, String defaultType) {
+        CompletableFuture<BulkResponse> future = new CompletableFuture<>();
+        this.client.bulkAsync(body, defaultIndex, defaultType, listenerFor(future));
+        return future.whenComplete((response, e) -> this.notifyWrite(defaultIndex));
+    }
+
+    // GET //
+
+    @Override
+    public GetResponse get(GetRequest request) throws IOException {
+        return this.client.get(request);
+    }
+
+    @Override
+    public CompletableFuture<GetResponse> getAsync(GetRequest request) {
+        CompletableFuture<GetResponse> future = new CompletableFuture<>();
+        this.client.getAsync(request, listenerFor(future));
+        return future;
+    }
+
+    @Override
+    public MultiGetResponse multiGet(MultiGetRequest request) throws IOException {
+        return this.client.multiGet(request);
+    }
+
+    @Override
+    public CompletableFuture<MultiGetResponse> multiGetAsync(MultiGetRequest request) {
+        CompletableFuture<MultiGetResponse> future = new CompletableFuture<>();
+        this.client.multiGetAsync(request, listenerFor(future));
+        return future;
+    }
+
     // SEARCH //
 
     @Override
@@ -66,11 +181,42 @@ public class RestSearchClient<T> extends ElasticSearchClient<T> {
         return response;
     }
 
+    @Override
+    public CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        this.client.searchAsync(request, listenerFor(future));
+        return future;
+    }
+
+    @Override
+    public MultiSearchResponse multiSearch(MultiSearchRequest request) throws IOException {
+        return this.client.multiSearch(request);
+    }
+
+    @Override
+    public CompletableFuture<MultiSearchResponse> multiSearchAsync(MultiSearchRequest request) {
+        CompletableFuture<MultiSearchResponse> future = new CompletableFuture<>();
+        this.client.multiSearchAsync(request, listenerFor(future));
+        return future;
+    }
+
     @Override
     public SearchResponse searchScroll(SearchScrollRequest request) throws IOException {
         return this.client.searchScroll(request);
     }
 
+    @Override
+    public CompletableFuture<SearchResponse> searchScrollAsync(SearchScrollRequest request) {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        this.client.searchScrollAsync(request, listenerFor(future));
+        return future;
+    }
+
+    @Override
+    public ClearScrollResponse clearScroll(ClearScrollRequest request) throws IOException {
+        return this.client.clearScroll(request);
+    }
+
     // DELETE //
 
     @Override
@@ -79,9 +225,17 @@ public class RestSearchClient<T> extends ElasticSearchClient<T> {
 
         String endpoint = endpoint(index);
         Response response = client.performRequest(HttpMethod.DELETE.method(), endpoint);
+        this.notifyWrite(index);
         return response.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
     }
 
+    @Override
+    public CompletableFuture<Boolean> dropIndexAsync(String index) {
+        String endpoint = endpoint(index);
+        return this.performRequestAsync(HttpMethod.DELETE.method(), endpoint, null)
+                .whenComplete((dropped, e) -> this.notifyWrite(index));
+    }
+
     // MISC //
 
     public MainResponse info() throws IOException {
@@ -134,15 +288,8 @@ public class RestSearchClient<T> extends ElasticSearchClient<T> {
         String endpoint = endpoint(index);
         Map<String, String> params = Collections.emptyMap();
 
-        Map<String, Object> content = new HashMap<>();
-        content.put("mappings", new HashMap<String, Object>() {{
-            put(documentType.getType(), mapping);
-        }});
-        content.put("settings", settings.getAsMap());
         try {
-            String jsonString = MAPPER.writeValueAsString(content);
-
-            HttpEntity httpEntity = new NStringEntity(jsonString, ContentType.APPLICATION_JSON);
+            HttpEntity httpEntity = createIndexEntity(documentType, settings, mapping);
             Response response = client.performRequest(HttpMethod.PUT.method(), endpoint, params, httpEntity);
             return response.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
         } catch (IOException e) {
@@ -151,8 +298,139 @@ public class RestSearchClient<T> extends ElasticSearchClient<T> {
         }
     }
 
+    @Override
+    public CompletableFuture<Boolean> createIndexAsync(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping) {
+        String endpoint = endpoint(index);
+        try {
+            HttpEntity httpEntity = createIndexEntity(documentType, settings, mapping);
+            return this.performRequestAsync(HttpMethod.PUT.method(), endpoint, httpEntity);
+        } catch (IOException e) {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    @Override
+    public Settings getIndexSettings(String index) throws IOException {
+        Map<String, String> params = Collections.singletonMap("flat_settings", "true");
+        Response response = this.getLowLevelClient().performRequest(HttpMethod.GET.method(), endpoint(index, "_settings"), params);
+
+        // {"concrete_index": {"settings": {"index.refresh_interval": "1s", ...}}}
+        Map<String, Map<String, Map<String, Object>>> content = MAPPER.readValue(response.getEntity().getContent(),
+                new TypeReference<Map<String, Map<String, Map<String, Object>>>>() {});
+        Settings.Builder builder = Settings.builder();
+        if (!content.isEmpty()) {
+            Map<String, Object> settings = content.values().iterator().next().get("settings");
+            settings.forEach((key, value) -> builder.put(key, String.valueOf(value)));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean updateIndexSettings(String index, Settings settings) throws IOException {
+        Map<String, Object> content = new HashMap<>();
+        for (String key : settings.keySet()) {
+            content.put(key, settings.get(key));
+        }
+        HttpEntity httpEntity = new NStringEntity(MAPPER.writeValueAsString(content), ContentType.APPLICATION_JSON);
+
+        Response response = this.getLowLevelClient().performRequest(HttpMethod.PUT.method(), endpoint(index, "_settings"),
+                Collections.emptyMap(), httpEntity);
+        return response.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
+    }
+
+    @Override
+    public void refresh(String index) throws IOException {
+        this.getLowLevelClient().performRequest(HttpMethod.POST.method(), endpoint(index, "_refresh"));
+    }
+
+    @Override
+    public void forceMerge(String index, int maxNumSegments) throws IOException {
+        Map<String, String> params = Collections.singletonMap("max_num_segments", String.valueOf(maxNumSegments));
+        this.getLowLevelClient().performRequest(HttpMethod.POST.method(), endpoint(index, "_forcemerge"), params);
+    }
+
+    @Override
+    public Set<String> getAliasedIndices(String alias) throws IOException {
+        Response response;
+        try {
+            response = this.getLowLevelClient().performRequest(HttpMethod.GET.method(), endpoint("_alias", alias));
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return Collections.emptySet();
+            }
+            throw e;
+        }
+
+        // {"concrete_index": {"aliases": {"alias": {}}}}
+        Map<String, Object> content = MAPPER.readValue(response.getEntity().getContent(),
+                new TypeReference<Map<String, Object>>() {});
+        return new HashSet<>(content.keySet());
+    }
+
+    @Override
+    public boolean swapAlias(String alias, String index, Collection<String> fromIndices) throws IOException {
+        List<Map<String, Object>> actions = new ArrayList<>(fromIndices.size() + 1);
+        for (String fromIndex : fromIndices) {
+            actions.add(aliasAction("remove", fromIndex, alias));
+        }
+        actions.add(aliasAction("add", index, alias));
+
+        String json = MAPPER.writeValueAsString(Collections.singletonMap("actions", actions));
+        HttpEntity httpEntity = new NStringEntity(json, ContentType.APPLICATION_JSON);
+
+        Response response = this.getLowLevelClient().performRequest(HttpMethod.POST.method(), endpoint("_aliases"),
+                Collections.emptyMap(), httpEntity);
+        this.notifyWrite(alias);
+        return response.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
+    }
+
+    private static Map<String, Object> aliasAction(String action, String index, String alias) {
+        Map<String, String> target = new HashMap<>();
+        target.put("index", index);
+        target.put("alias", alias);
+        return Collections.singletonMap(action, target);
+    }
+
+    private static HttpEntity createIndexEntity(DocumentType documentType, Settings settings, Map<String, Object> mapping) throws IOException {
+        Map<String, Object> content = new HashMap<>();
+        content.put("mappings", new HashMap<String, Object>() {{
+            put(documentType.getType(), mapping);
+        }});
+        content.put("settings", settings.getAsMap());
+
+        String jsonString = MAPPER.writeValueAsString(content);
+        return new NStringEntity(jsonString, ContentType.APPLICATION_JSON);
+    }
+
+    /**
+     * Performs a low level request without blocking, completing with whether the response status was 200 OK
+     */
+    private CompletableFuture<Boolean> performRequestAsync(String method, String endpoint, HttpEntity httpEntity) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        this.getLowLevelClient().performRequestAsync(method, endpoint, Collections.emptyMap(), httpEntity, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                future.complete(response.getStatusLine().getStatusCode() == HttpStatus.SC_OK);
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                future.completeExceptionally(exception);
+            }
+        });
+        return future;
+    }
+
     @Override
     public void shutdown() throws IOException {
+        // The bulk processors' flush tasks run on a shared ThreadPool, so they must be stopped explicitly
+        try {
+            this.awaitClose(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         this.client.close();
     }
 
@@ -1,27 +1,52 @@
 package com.github.onsdigital.elasticutils.client.generic;
 
 import com.github.onsdigital.elasticutils.client.Host;
+import com.github.onsdigital.elasticutils.client.bulk.budget.BulkBudget;
 import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkProcessorConfiguration;
 import com.github.onsdigital.elasticutils.client.type.DocumentType;
 import com.github.onsdigital.elasticutils.util.ElasticSearchHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesResponse;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexResponse;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsResponse;
 import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.client.AdminClient;
 import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * @author sullid (David Sullivan) on 29/11/2017
@@ -30,11 +55,15 @@ import java.util.Map;
 public class TransportSearchClient<T> extends ElasticSearchClient<T> {
 
     private TransportClient client;
+    private final BulkProcessorConfiguration configuration;
     private final BulkProcessor bulkProcessor;
+    private final BulkBudget bulkBudget;
 
     public TransportSearchClient(TransportClient client, final BulkProcessorConfiguration configuration) {
         this.client = client;
-        this.bulkProcessor = configuration.build(this.client);
+        this.configuration = configuration;
+        this.bulkProcessor = configuration.build(this.client, this.bulkWriteListener());
+        this.bulkBudget = configuration.getBulkBudget();
     }
 
     // INDEX //
@@ -44,12 +73,66 @@ public class TransportSearchClient<T> extends ElasticSearchClient<T> {
         return this.bulkProcessor;
     }
 
+    @Override
+    protected BulkProcessorConfiguration getBulkProcessorConfiguration() {
+        return this.configuration;
+    }
+
+    @Override
+    protected BulkBudget getBulkBudget() {
+        return this.bulkBudget;
+    }
+
     @Override
     public IndexResponse index(IndexRequest request) throws IOException {
         IndexResponse response = this.client.index(request).actionGet();
+        this.notifyWrite(request.index());
         return response;
     }
 
+    @Override
+    public CompletableFuture<IndexResponse> indexAsync(IndexRequest request) {
+        return execute((ActionListener<IndexResponse> listener) -> this.client.index(request, listener))
+                .whenComplete((response, e) -> this.notifyWrite(request.index()));
+    }
+
+    @Override
+    public CompletableFuture<BulkResponse> bulkAsync(BytesReference body, String defaultIndex, String defaultType) {
+        BulkRequest request;
+        try {
+            // Sources are slices of the body, so are not decoded
+            request = new BulkRequest().add(body, defaultIndex, defaultType, XContentType.JSON);
+        } catch (IOException e) {
+            CompletableFuture<BulkResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return execute((ActionListener<BulkResponse> listener) -> this.client.bulk(request, listener))
+                .whenComplete((response, e) -> this.notifyWrite(defaultIndex));
+    }
+
+    // GET //
+
+    @Override
+    public GetResponse get(GetRequest request) {
+        return this.client.get(request).actionGet();
+    }
+
+    @Override
+    public CompletableFuture<GetResponse> getAsync(GetRequest request) {
+        return execute(listener -> this.client.get(request, listener));
+    }
+
+    @Override
+    public MultiGetResponse multiGet(MultiGetRequest request) {
+        return this.client.multiGet(request).actionGet();
+    }
+
+    @Override
+    public CompletableFuture<MultiGetResponse> multiGetAsync(MultiGetRequest request) {
+        return execute(listener -> this.client.multiGet(request, listener));
+    }
+
     // SEARCH //
 
     @Override
@@ -58,11 +141,36 @@ public class TransportSearchClient<T> extends ElasticSearchClient<T> {
         return response;
     }
 
+    @Override
+    public CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
+        return execute(listener -> this.client.search(request, listener));
+    }
+
+    @Override
+    public MultiSearchResponse multiSearch(MultiSearchRequest request) {
+        return this.client.multiSearch(request).actionGet();
+    }
+
+    @Override
+    public CompletableFuture<MultiSearchResponse> multiSearchAsync(MultiSearchRequest request) {
+        return execute(listener -> this.client.multiSearch(request, listener));
+    }
+
     @Override
     public SearchResponse searchScroll(SearchScrollRequest request) throws IOException {
         return this.client.searchScroll(request).actionGet();
     }
 
+    @Override
+    public CompletableFuture<SearchResponse> searchScrollAsync(SearchScrollRequest request) {
+        return execute(listener -> this.client.searchScroll(request, listener));
+    }
+
+    @Override
+    public ClearScrollResponse clearScroll(ClearScrollRequest request) {
+        return this.client.clearScroll(request).actionGet();
+    }
+
     // DELETE //
 
     @Override
@@ -70,9 +178,34 @@ public class TransportSearchClient<T> extends ElasticSearchClient<T> {
         DeleteIndexRequest request = new DeleteIndexRequest()
                 .indices(index);
         DeleteIndexResponse response = this.admin().indices().delete(request).actionGet();
+        this.notifyWrite(index);
         return response.isAcknowledged();
     }
 
+    @Override
+    public CompletableFuture<Boolean> dropIndexAsync(String index) {
+        DeleteIndexRequest request = new DeleteIndexRequest()
+                .indices(index);
+        return execute((ActionListener<DeleteIndexResponse> listener) -> this.admin().indices().delete(request, listener))
+                .whenComplete((response, e) -> this.notifyWrite(index))
+                .thenApply(DeleteIndexResponse::isAcknowledged);
+    }
+
+    /**
+     * Sends a request through the client's listener API. The transport client can fail a request before sending it
+     * (e.g. with NoNodeAvailableException) by throwing rather than by calling the listener, so that failure
+     * completes the future too.
+     */
+    private static <R> CompletableFuture<R> execute(Consumer<ActionListener<R>> request) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            request.accept(listenerFor(future));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     // ADMIN //
 
     @Override
@@ -84,12 +217,74 @@ public class TransportSearchClient<T> extends ElasticSearchClient<T> {
 
     @Override
     public boolean createIndex(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping) {
-        CreateIndexRequest request = new CreateIndexRequest()
+        CreateIndexRequest request = createIndexRequest(index, documentType, settings, mapping);
+        CreateIndexResponse response = this.admin().indices().create(request).actionGet();
+        return response.isAcknowledged();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createIndexAsync(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping) {
+        CreateIndexRequest request = createIndexRequest(index, documentType, settings, mapping);
+        return execute((ActionListener<CreateIndexResponse> listener) -> this.admin().indices().create(request, listener))
+                .thenApply(CreateIndexResponse::isAcknowledged);
+    }
+
+    @Override
+    public Settings getIndexSettings(String index) {
+        GetSettingsResponse response = this.admin().indices().prepareGetSettings(index).get();
+        Iterator<Settings> settings = response.getIndexToSettings().valuesIt();
+        return settings.hasNext() ? settings.next() : Settings.EMPTY;
+    }
+
+    @Override
+    public boolean updateIndexSettings(String index, Settings settings) {
+        UpdateSettingsResponse response = this.admin().indices().prepareUpdateSettings(index)
+                .setSettings(settings)
+                .get();
+        return response.isAcknowledged();
+    }
+
+    @Override
+    public void refresh(String index) {
+        this.admin().indices().prepareRefresh(index).get();
+    }
+
+    @Override
+    public void forceMerge(String index, int maxNumSegments) {
+        this.admin().indices().prepareForceMerge(index)
+                .setMaxNumSegments(maxNumSegments)
+                .get();
+    }
+
+    @Override
+    public Set<String> getAliasedIndices(String alias) {
+        GetAliasesResponse response = this.admin().indices().prepareGetAliases(alias).get();
+        Set<String> indices = new HashSet<>();
+        response.getAliases().forEach(cursor -> {
+            if (!cursor.value.isEmpty()) {
+                indices.add(cursor.key);
+            }
+        });
+        return indices;
+    }
+
+    @Override
+    public boolean swapAlias(String alias, String index, Collection<String> fromIndices) {
+        IndicesAliasesRequestBuilder request = this.admin().indices().prepareAliases();
+        for (String fromIndex : fromIndices) {
+            request.removeAlias(fromIndex, alias);
+        }
+        request.addAlias(index, alias);
+        IndicesAliasesResponse response = request.get();
+        this.notifyWrite(alias);
+        return response.isAcknowledged();
+    }
+
+    private static CreateIndexRequest createIndexRequest(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping) {
+        return new CreateIndexRequest()
                 .index(index)
                 .settings(settings)
                 .mapping(documentType.getType(), mapping);
-        CreateIndexResponse response = this.admin().indices().create(request).actionGet();
-        return response.isAcknowledged();
     }
 
     public AdminClient admin() {
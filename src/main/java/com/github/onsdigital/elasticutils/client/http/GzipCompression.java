@@ -0,0 +1,215 @@
+package com.github.onsdigital.elasticutils.client.http;
+
+import com.github.onsdigital.elasticutils.client.http.options.CompressionOptions;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHeader;
+import org.elasticsearch.client.Request;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzips request bodies and unwraps gzipped responses for a {@link SimpleRestClient}.
+ *
+ * Bodies are deflated straight out of the request entity by pooled encoders, each holding a Deflater and an
+ * output buffer which are reused across requests, so compressing a bulk request allocates only the compressed
+ * body itself. A buffer grown past {@link GzipEncoder#MAX_POOLED_BUFFER_SIZE} by a large body is dropped before
+ * its encoder goes back to the pool, so the pool does not hold on to the largest bodies ever sent.
+ * Responses are inflated lazily as they are parsed.
+ */
+public class GzipCompression {
+
+    public static final String GZIP = "gzip";
+
+    private static final Header ACCEPT_GZIP = new BasicHeader(HttpHeaders.ACCEPT_ENCODING, GZIP);
+
+    private final CompressionOptions options;
+    private final BlockingQueue<GzipEncoder> encoders;
+
+    private final LongAdder compressedRequests = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+
+    public GzipCompression(CompressionOptions options) {
+        this.options = options;
+        this.encoders = new ArrayBlockingQueue<>(Math.max(1, options.getPoolSize()));
+    }
+
+    public CompressionOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * @return The request with its body gzipped, or the request itself if its body is too small or already encoded
+     */
+    public Request compress(Request request) throws IOException {
+        HttpEntity entity = request.getEntity();
+        if (!this.options.isCompressRequests() || entity == null || entity.getContentEncoding() != null
+                || entity.getContentLength() < Math.max(this.options.getMinRequestSize(), 1)) {
+            return request;
+        }
+
+        ByteArrayEntity compressed = new ByteArrayEntity(this.compress(entity));
+        compressed.setContentType(entity.getContentType());
+        compressed.setContentEncoding(GZIP);
+
+        this.compressedRequests.increment();
+        this.uncompressedBytes.add(entity.getContentLength());
+        this.compressedBytes.add(compressed.getContentLength());
+        return new Request(request.getMethod(), request.getEndpoint(), request.getParameters(), compressed);
+    }
+
+    private byte[] compress(HttpEntity entity) throws IOException {
+        GzipEncoder encoder = this.encoders.poll();
+        if (encoder == null) {
+            encoder = new GzipEncoder(this.options.getLevel());
+        }
+        boolean reusable = false;
+        try {
+            byte[] compressed = encoder.encode(entity);
+            reusable = this.options.getPoolSize() > 0;
+            encoder.trim();
+            return compressed;
+        } finally {
+            // An encoder which failed part way is discarded rather than pooled
+            if (!reusable || !this.encoders.offer(encoder)) {
+                encoder.end();
+            }
+        }
+    }
+
+    /**
+     * Adds Accept-Encoding: gzip to the request headers, if compressed responses are accepted
+     */
+    public Header[] withAcceptEncoding(Header... headers) {
+        if (!this.options.isAcceptCompressedResponses()) {
+            return headers;
+        }
+        Header[] withAcceptEncoding = Arrays.copyOf(headers, headers.length + 1);
+        withAcceptEncoding[headers.length] = ACCEPT_GZIP;
+        return withAcceptEncoding;
+    }
+
+    /**
+     * @return An entity inflating the given one as it is read if it is gzipped, otherwise the entity itself
+     */
+    public static HttpEntity decompress(HttpEntity entity) {
+        if (entity != null && entity.getContentEncoding() != null
+                && GZIP.equalsIgnoreCase(entity.getContentEncoding().getValue())) {
+            return new GzipDecompressingEntity(entity);
+        }
+        return entity;
+    }
+
+    // STATS //
+
+    public long getCompressedRequests() {
+        return compressedRequests.sum();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * Writes the gzip member format (RFC 1952) around a raw deflate stream
+     */
+    static class GzipEncoder extends OutputStream {
+
+        private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+        static final int INITIAL_BUFFER_SIZE = 8192;
+        static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        private int count;
+
+        GzipEncoder(int level) {
+            this.deflater = new Deflater(level, true);
+        }
+
+        byte[] encode(HttpEntity entity) throws IOException {
+            this.deflater.reset();
+            this.crc.reset();
+            this.count = 0;
+
+            this.append(HEADER, 0, HEADER.length);
+            entity.writeTo(this);
+            this.deflater.finish();
+            while (!this.deflater.finished()) {
+                this.deflate();
+            }
+            this.appendInt((int) this.crc.getValue());
+            this.appendInt((int) this.deflater.getBytesRead());
+            return Arrays.copyOf(this.buffer, this.count);
+        }
+
+        @Override
+        public void write(int b) {
+            this.write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.crc.update(b, off, len);
+            this.deflater.setInput(b, off, len);
+            while (!this.deflater.needsInput()) {
+                this.deflate();
+            }
+        }
+
+        private void deflate() {
+            this.ensureCapacity(1);
+            this.count += this.deflater.deflate(this.buffer, this.count, this.buffer.length - this.count);
+        }
+
+        private void appendInt(int i) {
+            // Little endian
+            this.append(new byte[] { (byte) i, (byte) (i >> 8), (byte) (i >> 16), (byte) (i >> 24) }, 0, 4);
+        }
+
+        private void append(byte[] b, int off, int len) {
+            this.ensureCapacity(len);
+            System.arraycopy(b, off, this.buffer, this.count, len);
+            this.count += len;
+        }
+
+        private void ensureCapacity(int len) {
+            if (this.buffer.length - this.count < len) {
+                this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.count + len));
+            }
+        }
+
+        /**
+         * Replaces a buffer grown past MAX_POOLED_BUFFER_SIZE with a new one of the initial size
+         */
+        void trim() {
+            if (this.buffer.length > MAX_POOLED_BUFFER_SIZE) {
+                this.buffer = new byte[INITIAL_BUFFER_SIZE];
+            }
+        }
+
+        int getBufferSize() {
+            return this.buffer.length;
+        }
+
+        void end() {
+            this.deflater.end();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.github.onsdigital.elasticutils.client.http;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkThreadPool;
+import com.github.onsdigital.elasticutils.client.http.options.RestClusterOptions;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads a RestClient's traffic over the nodes of a cluster, preferring the fastest and evicting those
+ * which fail.
+ *
+ * The 6.0 RestClient round robins over its hosts and offers no per request hook, so routing works on the
+ * host set instead: every node's latency to the response headers is tracked as a moving average by HTTP
+ * interceptors, and only live nodes within {@link RestClusterOptions#getLatencyTolerance()} of the fastest
+ * are handed to {@link RestClient#setHosts(HttpHost...)}. Nodes out of rotation have their latency decayed
+ * on every refresh so they are eventually tried again.
+ *
+ * A node is evicted as soon as the RestClient reports it failed (a connection error or a 502, 503 or 504),
+ * and probed once its backoff, which doubles with every failure, has elapsed. Probes go through the options'
+ * HttpClientConfigCallback, so they use the same TLS and credentials as requests. If every node is dead all are
+ * kept in rotation, leaving the RestClient to retry them.
+ *
+ * With sniffing enabled the hosts are replaced by the HTTP publish addresses from /_nodes/http.
+ */
+public class HostMonitor extends RestClient.FailureListener implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostMonitor.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String START_ATTRIBUTE = HostMonitor.class.getName() + ".start";
+    private static final double DECAY_FACTOR = 0.5;
+
+    @FunctionalInterface
+    public interface HostProbe {
+        /**
+         * @return true if the host is able to serve requests
+         */
+        boolean probe(HttpHost host);
+    }
+
+    private final RestClusterOptions options;
+    private final ThreadPool threadPool;
+    private final HostProbe probe;
+    private final LongSupplier nanoClock;
+    private final Map<HttpHost, HostStats> stats = new ConcurrentHashMap<>();
+
+    private volatile List<HttpHost> activeHosts = Collections.emptyList();
+    private volatile RestClient restClient;
+    private ThreadPool.Cancellable refreshTask;
+    private ThreadPool.Cancellable sniffTask;
+
+    public HostMonitor(RestClusterOptions options) {
+        this(options, BulkThreadPool.getInstance());
+    }
+
+    public HostMonitor(RestClusterOptions options, ThreadPool threadPool) {
+        this(options, threadPool, host -> ping(host, options));
+    }
+
+    public HostMonitor(RestClusterOptions options, ThreadPool threadPool, HostProbe probe) {
+        this(options, threadPool, probe, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock Source of the time at which hosts fail and are due to be probed
+     */
+    HostMonitor(RestClusterOptions options, ThreadPool threadPool, HostProbe probe, LongSupplier nanoClock) {
+        this.options = options;
+        this.threadPool = threadPool;
+        this.probe = probe;
+        this.nanoClock = nanoClock;
+        options.getHosts().forEach(host -> this.stats.put(host, new HostStats(host)));
+    }
+
+    /**
+     * Installs the failure listener and latency interceptors. The builder's HttpClientConfigCallback is replaced;
+     * set any other customisation with {@link com.github.onsdigital.elasticutils.client.http.options.RestClusterOptionsBuilder#setHttpClientConfigCallback}.
+     */
+    public RestClientBuilder configure(RestClientBuilder builder) {
+        RestClientBuilder.HttpClientConfigCallback callback = this.options.getHttpClientConfigCallback();
+        return builder
+                .setFailureListener(this)
+                .setHttpClientConfigCallback(httpClientBuilder -> {
+                    httpClientBuilder
+                            .addInterceptorLast((HttpRequestInterceptor) (request, context) ->
+                                    context.setAttribute(START_ATTRIBUTE, System.nanoTime()))
+                            .addInterceptorLast((HttpResponseInterceptor) (response, context) ->
+                                    this.onResponse(response.getStatusLine().getStatusCode(), context));
+                    return callback == null ? httpClientBuilder : callback.customizeHttpClient(httpClientBuilder);
+                });
+    }
+
+    /**
+     * Starts routing the client built from {@link #configure(RestClientBuilder)}
+     */
+    public synchronized void start(RestClient restClient) {
+        this.restClient = restClient;
+        if (this.options.isSniff()) {
+            this.sniff();
+            this.sniffTask = this.threadPool.scheduleWithFixedDelay(this::sniff, this.options.getSniffInterval(),
+                    ThreadPool.Names.GENERIC);
+        } else {
+            this.select();
+        }
+        this.refreshTask = this.threadPool.scheduleWithFixedDelay(this::refresh, this.options.getRefreshInterval(),
+                ThreadPool.Names.GENERIC);
+    }
+
+    // TRACKING //
+
+    private void onResponse(int statusCode, HttpContext context) {
+        Object start = context.getAttribute(START_ATTRIBUTE);
+        HttpHost host = HttpClientContext.adapt(context).getTargetHost();
+        HostStats hostStats = host == null ? null : this.stats.get(host);
+        if (!(start instanceof Long) || hostStats == null) {
+            return;
+        }
+        // Retryable server errors are reported to onFailure
+        if (statusCode != HttpStatus.SC_BAD_GATEWAY && statusCode != HttpStatus.SC_SERVICE_UNAVAILABLE
+                && statusCode != HttpStatus.SC_GATEWAY_TIMEOUT) {
+            hostStats.onResponse(System.nanoTime() - (Long) start, this.options.getLatencyAlpha());
+        }
+    }
+
+    /**
+     * Called by the RestClient when a request to the host fails
+     */
+    @Override
+    public void onFailure(HttpHost host) {
+        HostStats hostStats = this.stats.get(host);
+        if (hostStats == null) {
+            return;
+        }
+        this.markFailed(hostStats);
+        LOGGER.warn("Evicted {} after {} consecutive failures", host, hostStats.getConsecutiveFailures());
+        this.select();
+    }
+
+    private void markFailed(HostStats hostStats) {
+        hostStats.onFailure(this.nanoClock.getAsLong(), this.options.getDeadHostInitialBackoff().nanos(),
+                this.options.getDeadHostMaxBackoff().nanos());
+    }
+
+    // SELECTION //
+
+    /**
+     * Probes dead hosts whose backoff has elapsed, decays the latency of hosts out of rotation and re-ranks
+     */
+    public void refresh() {
+        try {
+            long now = this.nanoClock.getAsLong();
+            List<HttpHost> active = this.activeHosts;
+            for (HostStats hostStats : this.stats.values()) {
+                if (hostStats.isRetryDue(now)) {
+                    if (this.probe.probe(hostStats.getHost())) {
+                        hostStats.revive();
+                        LOGGER.info("Revived {}", hostStats.getHost());
+                    } else {
+                        this.markFailed(hostStats);
+                    }
+                } else if (!hostStats.isDead() && !active.contains(hostStats.getHost())) {
+                    hostStats.decay(DECAY_FACTOR);
+                }
+            }
+            this.select();
+        } catch (Exception e) {
+            LOGGER.warn("Error refreshing hosts", e);
+        }
+    }
+
+    synchronized void select() {
+        List<HttpHost> selected = selectHosts(this.stats.values(), this.options.getLatencyTolerance(),
+                this.options.getMinActiveHosts());
+        if (selected.isEmpty() || selected.equals(this.activeHosts)) {
+            return;
+        }
+        this.activeHosts = Collections.unmodifiableList(selected);
+        if (this.restClient != null) {
+            this.restClient.setHosts(selected.toArray(new HttpHost[selected.size()]));
+        }
+        LOGGER.info("Routing requests to {}", selected);
+    }
+
+    /**
+     * Live hosts which are unmeasured or within the tolerance of the fastest, topped up with the next fastest
+     * live hosts to at least minActiveHosts. All hosts if none are live.
+     */
+    static List<HttpHost> selectHosts(Collection<HostStats> hosts, double tolerance, int minActiveHosts) {
+        List<HostStats> live = hosts.stream()
+                .filter(hostStats -> !hostStats.isDead())
+                .sorted(Comparator.comparingDouble(HostMonitor::rank))
+                .collect(Collectors.toList());
+        if (live.isEmpty()) {
+            return hosts.stream().map(HostStats::getHost).sorted(Comparator.comparing(HttpHost::toString))
+                    .collect(Collectors.toList());
+        }
+
+        double fastest = live.stream().mapToDouble(HostStats::getLatencyNanos)
+                .filter(latency -> !Double.isNaN(latency))
+                .min()
+                .orElse(Double.NaN);
+
+        List<HttpHost> selected = new ArrayList<>();
+        for (HostStats hostStats : live) {
+            double latency = hostStats.getLatencyNanos();
+            if (Double.isNaN(latency) || Double.isNaN(fastest) || latency <= fastest * tolerance
+                    || selected.size() < minActiveHosts) {
+                selected.add(hostStats.getHost());
+            }
+        }
+        selected.sort(Comparator.comparing(HttpHost::toString));
+        return selected;
+    }
+
+    /**
+     * Unmeasured hosts rank first, so they are always selected
+     */
+    private static double rank(HostStats hostStats) {
+        double latency = hostStats.getLatencyNanos();
+        return Double.isNaN(latency) ? -1.0 : latency;
+    }
+
+    // SNIFFING //
+
+    /**
+     * Replaces the hosts with the HTTP publish address of every node in the cluster
+     */
+    public void sniff() {
+        try {
+            Response response = this.restClient.performRequest("GET", "/_nodes/http");
+            Set<HttpHost> sniffed = parseNodes(MAPPER.readValue(response.getEntity().getContent(),
+                    new TypeReference<Map<String, Object>>() {}), this.options.getHosts().get(0).getSchemeName());
+            if (sniffed.isEmpty()) {
+                LOGGER.warn("No HTTP nodes found by sniffing, keeping {}", this.stats.keySet());
+                return;
+            }
+            sniffed.forEach(host -> this.stats.computeIfAbsent(host, HostStats::new));
+            this.stats.keySet().retainAll(sniffed);
+            this.select();
+        } catch (Exception e) {
+            LOGGER.warn("Error sniffing hosts", e);
+            if (this.activeHosts.isEmpty()) {
+                this.select();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Set<HttpHost> parseNodes(Map<String, Object> content, String scheme) {
+        Set<HttpHost> hosts = new LinkedHashSet<>();
+        Map<String, Object> nodes = (Map<String, Object>) content.getOrDefault("nodes", Collections.emptyMap());
+        for (Object node : nodes.values()) {
+            Map<String, Object> http = (Map<String, Object>) ((Map<String, Object>) node).get("http");
+            if (http == null || http.get("publish_address") == null) {
+                // Node has HTTP disabled
+                continue;
+            }
+            String address = String.valueOf(http.get("publish_address"));
+            // Addresses may be given as hostname/ip:port
+            int slash = address.lastIndexOf('/');
+            hosts.add(HttpHost.create(scheme + "://" + address.substring(slash + 1)));
+        }
+        return hosts;
+    }
+
+    /**
+     * Sends GET / with a RestClient for the host alone, built with the options' HttpClientConfigCallback and connect
+     * timeout. The client is closed after the probe, which is cheap enough as hosts are only probed after a backoff.
+     *
+     * @return true if the host responds without a server error
+     */
+    static boolean ping(HttpHost host, RestClusterOptions options) {
+        int timeoutMillis = (int) options.getConnectTimeout().millis();
+        RestClientBuilder builder = RestClient.builder(host)
+                .setMaxRetryTimeoutMillis(2 * timeoutMillis)
+                .setRequestConfigCallback(requestConfigBuilder -> requestConfigBuilder
+                        .setConnectTimeout(timeoutMillis)
+                        .setSocketTimeout(timeoutMillis));
+        if (options.getHttpClientConfigCallback() != null) {
+            builder.setHttpClientConfigCallback(options.getHttpClientConfigCallback());
+        }
+
+        try (RestClient client = builder.build()) {
+            Response response = client.performRequest("GET", "/");
+            return response.getStatusLine().getStatusCode() < HttpStatus.SC_INTERNAL_SERVER_ERROR;
+        } catch (ResponseException e) {
+            return e.getResponse().getStatusLine().getStatusCode() < HttpStatus.SC_INTERNAL_SERVER_ERROR;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // STATS //
+
+    public List<HttpHost> getActiveHosts() {
+        return activeHosts;
+    }
+
+    public Map<HttpHost, HostStats> getHostStats() {
+        Map<HttpHost, HostStats> snapshot = new LinkedHashMap<>();
+        this.stats.values().stream()
+                .sorted(Comparator.comparing(hostStats -> hostStats.getHost().toString()))
+                .forEach(hostStats -> snapshot.put(hostStats.getHost(), hostStats));
+        return snapshot;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.refreshTask != null) {
+            this.refreshTask.cancel();
+        }
+        if (this.sniffTask != null) {
+            this.sniffTask.cancel();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.onsdigital.elasticutils.client.http;
+
+import org.apache.http.HttpHost;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Health and moving average latency of a single node, as tracked by a {@link HostMonitor}.
+ */
+public class HostStats {
+
+    private final HttpHost host;
+
+    private double latencyNanos = Double.NaN;
+    private long requests;
+    private long failures;
+    private int consecutiveFailures;
+    private long retryAtNanos;
+    private boolean dead;
+
+    HostStats(HttpHost host) {
+        this.host = host;
+    }
+
+    synchronized void onResponse(long latencyNanos, double alpha) {
+        this.requests++;
+        this.consecutiveFailures = 0;
+        if (Double.isNaN(this.latencyNanos)) {
+            this.latencyNanos = latencyNanos;
+        } else {
+            this.latencyNanos += alpha * (latencyNanos - this.latencyNanos);
+        }
+    }
+
+    /**
+     * Marks the host dead until its backoff, which doubles with every consecutive failure, has elapsed
+     */
+    synchronized void onFailure(long nowNanos, long initialBackoffNanos, long maxBackoffNanos) {
+        this.failures++;
+        this.consecutiveFailures++;
+        int doublings = Math.min(this.consecutiveFailures - 1, 30);
+        long backoff = Math.min(maxBackoffNanos, initialBackoffNanos << doublings);
+        if (backoff < 0) {
+            backoff = maxBackoffNanos;
+        }
+        this.retryAtNanos = nowNanos + backoff;
+        this.dead = true;
+    }
+
+    /**
+     * Brings a dead host back into rotation, forgetting its latency so it is measured afresh
+     */
+    synchronized void revive() {
+        this.dead = false;
+        this.consecutiveFailures = 0;
+        this.latencyNanos = Double.NaN;
+    }
+
+    /**
+     * Decays the latency of a host receiving no traffic, so it is eventually tried again
+     */
+    synchronized void decay(double factor) {
+        this.latencyNanos *= factor;
+    }
+
+    synchronized boolean isRetryDue(long nowNanos) {
+        return this.dead && nowNanos - this.retryAtNanos >= 0;
+    }
+
+    public HttpHost getHost() {
+        return host;
+    }
+
+    public synchronized boolean isDead() {
+        return dead;
+    }
+
+    /**
+     * @return The moving average latency to the response headers, NaN if not yet measured
+     */
+    public synchronized double getLatency(TimeUnit unit) {
+        return this.latencyNanos / unit.toNanos(1);
+    }
+
+    synchronized double getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: %s, latency=%.1fms, requests=%d, failures=%d", host, dead ? "dead" : "live",
+                latencyNanos / 1e6, requests, failures);
+    }
+}
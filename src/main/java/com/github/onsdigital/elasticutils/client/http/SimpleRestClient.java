@@ -3,14 +3,60 @@ package com.github.onsdigital.elasticutils.client.http;
 import com.github.onsdigital.elasticutils.action.delete.SimpleDeleteRequestBuilder;
 import com.github.onsdigital.elasticutils.action.index.SimpleIndexRequestBuilder;
 import com.github.onsdigital.elasticutils.action.search.SimpleSearchRequestBuilder;
+import com.github.onsdigital.elasticutils.client.http.options.CompressionOptions;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeader;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken;
 
 /**
  * @author sullid (David Sullivan) on 29/11/2017
@@ -19,10 +65,27 @@ import java.util.List;
  * Simple class to expose index/search/delete request builders
  */
 public class SimpleRestClient extends RestHighLevelClient {
+
+    private HostMonitor hostMonitor;
+    private volatile GzipCompression compression;
+    private volatile Header acceptHeader;
+
     public SimpleRestClient(RestClientBuilder restClientBuilder) {
         super(restClientBuilder);
     }
 
+    /**
+     * Routes requests over the builder's hosts with the monitor, which is stopped when the client is closed
+     */
+    public SimpleRestClient(RestClientBuilder restClientBuilder, HostMonitor hostMonitor) {
+        this(hostMonitor.configure(restClientBuilder).build(), restClient -> {
+            hostMonitor.close();
+            restClient.close();
+        }, Collections.emptyList());
+        this.hostMonitor = hostMonitor;
+        hostMonitor.start(this.getLowLevelClient());
+    }
+
     protected SimpleRestClient(RestClientBuilder restClientBuilder, List<NamedXContentRegistry.Entry> namedXContentEntries) {
         super(restClientBuilder, namedXContentEntries);
     }
@@ -31,6 +94,39 @@ public class SimpleRestClient extends RestHighLevelClient {
         super(restClient, doClose, namedXContentEntries);
     }
 
+    /**
+     * @return The monitor routing this client's requests, or null if it talks to its hosts round robin
+     */
+    public HostMonitor getHostMonitor() {
+        return hostMonitor;
+    }
+
+    /**
+     * Gzips request bodies and accepts gzipped responses on every high level request, as configured by the options.
+     * Pass null to turn compression off.
+     */
+    public SimpleRestClient setCompression(CompressionOptions options) {
+        this.compression = options == null ? null : new GzipCompression(options);
+        return this;
+    }
+
+    /**
+     * @return The compression in use, with its statistics, or null if requests are sent uncompressed
+     */
+    public GzipCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Asks Elasticsearch to answer high level requests in the given format rather than JSON. SMILE responses are
+     * smaller and cheaper to parse, and their hit sources are decoded as SMILE by
+     * {@link com.github.onsdigital.elasticutils.client.generic.ElasticSearchResponse}. Pass null for JSON.
+     */
+    public SimpleRestClient setResponseContentType(XContentType contentType) {
+        this.acceptHeader = contentType == null ? null : new BasicHeader(HttpHeaders.ACCEPT, contentType.mediaTypeWithoutParameters());
+        return this;
+    }
+
     public SimpleIndexRequestBuilder prepareIndex() {
         return new SimpleIndexRequestBuilder();
     }
@@ -46,4 +142,336 @@ public class SimpleRestClient extends RestHighLevelClient {
     public SimpleDeleteRequestBuilder prepareDelete(String index, String type, String id) {
         return new SimpleDeleteRequestBuilder(index, type, id);
     }
+
+    // ENCODING //
+
+    @Override
+    protected <Req extends ActionRequest, Resp> Resp performRequest(Req request, CheckedFunction<Req, Request, IOException> requestConverter,
+                                                                    CheckedFunction<Response, Resp, IOException> responseConverter,
+                                                                    Set<Integer> ignores, Header... headers) throws IOException {
+        return super.performRequest(request, this.encoding(requestConverter), responseConverter, ignores,
+                this.encodingHeaders(headers));
+    }
+
+    @Override
+    protected <Req extends ActionRequest, Resp> void performRequestAsync(Req request, CheckedFunction<Req, Request, IOException> requestConverter,
+                                                                         CheckedFunction<Response, Resp, IOException> responseConverter,
+                                                                         ActionListener<Resp> listener, Set<Integer> ignores, Header... headers) {
+        super.performRequestAsync(request, this.encoding(requestConverter), responseConverter, listener, ignores,
+                this.encodingHeaders(headers));
+    }
+
+    private <Req> CheckedFunction<Req, Request, IOException> encoding(CheckedFunction<Req, Request, IOException> requestConverter) {
+        GzipCompression compression = this.compression;
+        if (compression == null) {
+            return requestConverter;
+        }
+        return r -> compression.compress(requestConverter.apply(r));
+    }
+
+    private Header[] encodingHeaders(Header... headers) {
+        GzipCompression compression = this.compression;
+        if (compression != null) {
+            headers = compression.withAcceptEncoding(headers);
+        }
+        Header accept = this.acceptHeader;
+        if (accept != null) {
+            headers = Arrays.copyOf(headers, headers.length + 1);
+            headers[headers.length - 1] = accept;
+        }
+        return headers;
+    }
+
+    /**
+     * Responses (including errors) are parsed here; gzipped bodies are inflated as the parser reads them
+     */
+    @Override
+    protected <Resp> Resp parseEntity(HttpEntity entity, CheckedFunction<XContentParser, Resp, IOException> entityParser) throws IOException {
+        return super.parseEntity(GzipCompression.decompress(entity), entityParser);
+    }
+
+    // BULK //
+
+    /**
+     * Executes a newline delimited bulk body as it is, without parsing it into a BulkRequest first
+     */
+    public BulkResponse bulk(BytesReference body, String defaultIndex, String defaultType, Header... headers) throws IOException {
+        return performRequestAndParseEntity(new RawBulkRequest(body, defaultIndex, defaultType), SimpleRestClient::rawBulkRequest,
+                BulkResponse::fromXContent, Collections.emptySet(), headers);
+    }
+
+    public void bulkAsync(BytesReference body, String defaultIndex, String defaultType, ActionListener<BulkResponse> listener,
+                          Header... headers) {
+        performRequestAsyncAndParseEntity(new RawBulkRequest(body, defaultIndex, defaultType), SimpleRestClient::rawBulkRequest,
+                BulkResponse::fromXContent, listener, Collections.emptySet(), headers);
+    }
+
+    static Request rawBulkRequest(RawBulkRequest bulkRequest) {
+        // A default type only applies within a default index
+        String endpoint = Strings.hasLength(bulkRequest.index) ?
+                endpoint(bulkRequest.index, bulkRequest.type, "_bulk") : endpoint("_bulk");
+
+        // The body is sent from the bytes it was given, with no copy
+        BytesRef body = bulkRequest.body.toBytesRef();
+        HttpEntity entity = new ByteArrayEntity(body.bytes, body.offset, body.length, ContentType.create("application/x-ndjson"));
+        return new Request(HttpPost.METHOD_NAME, endpoint, Collections.emptyMap(), entity);
+    }
+
+    /**
+     * Joins the non empty parts into an endpoint, percent encoding each as a path segment
+     */
+    static String endpoint(String... parts) {
+        StringJoiner joiner = new StringJoiner("/", "/", "");
+        for (String part : parts) {
+            if (Strings.hasLength(part)) {
+                try {
+                    joiner.add(new URI(null, null, null, -1, "/" + part, null, null).getRawPath().substring(1));
+                } catch (URISyntaxException e) {
+                    throw new IllegalArgumentException(String.format("Invalid endpoint part: %s", part), e);
+                }
+            }
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Carries a raw body through the high level client's request execution
+     */
+    static final class RawBulkRequest extends ActionRequest {
+
+        private final BytesReference body;
+        private final String index;
+        private final String type;
+
+        RawBulkRequest(BytesReference body, String index, String type) {
+            this.body = body;
+            this.index = index;
+            this.type = type;
+        }
+
+        @Override
+        public ActionRequestValidationException validate() {
+            return null;
+        }
+    }
+
+    // MULTI GET //
+
+    /**
+     * Executes a multi get request using the _mget API, which the 6.0 high level client does not expose
+     */
+    public MultiGetResponse multiGet(MultiGetRequest multiGetRequest, Header... headers) throws IOException {
+        return performRequestAndParseEntity(multiGetRequest, SimpleRestClient::multiGetRequest,
+                SimpleRestClient::parseMultiGetResponse, Collections.emptySet(), headers);
+    }
+
+    public void multiGetAsync(MultiGetRequest multiGetRequest, ActionListener<MultiGetResponse> listener, Header... headers) {
+        performRequestAsyncAndParseEntity(multiGetRequest, SimpleRestClient::multiGetRequest,
+                SimpleRestClient::parseMultiGetResponse, listener, Collections.emptySet(), headers);
+    }
+
+    static Request multiGetRequest(MultiGetRequest multiGetRequest) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        if (multiGetRequest.preference() != null) {
+            parameters.put("preference", multiGetRequest.preference());
+        }
+        if (!multiGetRequest.realtime()) {
+            parameters.put("realtime", "false");
+        }
+        if (multiGetRequest.refresh()) {
+            parameters.put("refresh", "true");
+        }
+
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject().startArray("docs");
+        for (MultiGetRequest.Item item : multiGetRequest.getItems()) {
+            builder.startObject()
+                    .field("_index", item.index())
+                    .field("_type", item.type())
+                    .field("_id", item.id());
+            if (item.routing() != null) {
+                builder.field("routing", item.routing());
+            }
+            if (item.parent() != null) {
+                builder.field("parent", item.parent());
+            }
+            if (item.storedFields() != null) {
+                builder.array("stored_fields", item.storedFields());
+            }
+            if (item.fetchSourceContext() != null) {
+                builder.field("_source");
+                item.fetchSourceContext().toXContent(builder, ToXContent.EMPTY_PARAMS);
+            }
+            builder.endObject();
+        }
+        builder.endArray().endObject();
+
+        HttpEntity entity = new ByteArrayEntity(BytesReference.toBytes(builder.bytes()), ContentType.APPLICATION_JSON);
+        return new Request(HttpPost.METHOD_NAME, "/_mget", parameters, entity);
+    }
+
+    static MultiGetResponse parseMultiGetResponse(XContentParser parser) throws IOException {
+        List<MultiGetItemResponse> items = new ArrayList<>();
+
+        ensureExpectedToken(XContentParser.Token.START_OBJECT, parser.nextToken(), parser::getTokenLocation);
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            ensureExpectedToken(XContentParser.Token.FIELD_NAME, token, parser::getTokenLocation);
+            String field = parser.currentName();
+            token = parser.nextToken();
+            if ("docs".equals(field) && token == XContentParser.Token.START_ARRAY) {
+                while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                    items.add(parseMultiGetItem(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new MultiGetResponse(items.toArray(new MultiGetItemResponse[items.size()]));
+    }
+
+    /**
+     * Each doc is either a get result or an error, which GetResponse cannot parse, so the doc is copied
+     * and checked for an error before being parsed as a get result
+     */
+    private static MultiGetItemResponse parseMultiGetItem(XContentParser parser) throws IOException {
+        ensureExpectedToken(XContentParser.Token.START_OBJECT, parser.currentToken(), parser::getTokenLocation);
+        XContentBuilder copy = XContentFactory.contentBuilder(parser.contentType()).copyCurrentStructure(parser);
+        BytesReference doc = copy.bytes();
+
+        String index = null;
+        String type = null;
+        String id = null;
+        try (XContentParser docParser = XContentHelper.createParser(NamedXContentRegistry.EMPTY, doc, copy.contentType())) {
+            docParser.nextToken();
+            while (docParser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                String field = docParser.currentName();
+                if ("error".equals(field)) {
+                    ElasticsearchException failure = ElasticsearchException.failureFromXContent(docParser);
+                    return new MultiGetItemResponse(null, new MultiGetResponse.Failure(index, type, id, failure));
+                }
+                docParser.nextToken();
+                if ("_index".equals(field)) {
+                    index = docParser.text();
+                } else if ("_type".equals(field)) {
+                    type = docParser.text();
+                } else if ("_id".equals(field)) {
+                    id = docParser.text();
+                } else {
+                    docParser.skipChildren();
+                }
+            }
+        }
+
+        try (XContentParser docParser = XContentHelper.createParser(NamedXContentRegistry.EMPTY, doc, copy.contentType())) {
+            return new MultiGetItemResponse(GetResponse.fromXContent(docParser), null);
+        }
+    }
+
+    // MULTI SEARCH //
+
+    /**
+     * Executes a multi search request using the _msearch API, which the 6.0 high level client does not expose
+     */
+    public MultiSearchResponse multiSearch(MultiSearchRequest multiSearchRequest, Header... headers) throws IOException {
+        return performRequestAndParseEntity(multiSearchRequest, SimpleRestClient::multiSearchRequest,
+                this::parseMultiSearchResponse, Collections.emptySet(), headers);
+    }
+
+    public void multiSearchAsync(MultiSearchRequest multiSearchRequest, ActionListener<MultiSearchResponse> listener, Header... headers) {
+        performRequestAsyncAndParseEntity(multiSearchRequest, SimpleRestClient::multiSearchRequest,
+                this::parseMultiSearchResponse, listener, Collections.emptySet(), headers);
+    }
+
+    static Request multiSearchRequest(MultiSearchRequest multiSearchRequest) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        if (multiSearchRequest.maxConcurrentSearchRequests() > 0) {
+            parameters.put("max_concurrent_searches", String.valueOf(multiSearchRequest.maxConcurrentSearchRequests()));
+        }
+
+        // Newline delimited header and body per search
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (SearchRequest request : multiSearchRequest.requests()) {
+            XContentBuilder header = XContentFactory.jsonBuilder().startObject();
+            if (request.indices() != null && request.indices().length > 0) {
+                header.array("index", request.indices());
+            }
+            if (request.types() != null && request.types().length > 0) {
+                header.array("type", request.types());
+            }
+            if (request.searchType() != null) {
+                header.field("search_type", request.searchType().name().toLowerCase(Locale.ROOT));
+            }
+            if (request.routing() != null) {
+                header.field("routing", request.routing());
+            }
+            if (request.preference() != null) {
+                header.field("preference", request.preference());
+            }
+            if (request.requestCache() != null) {
+                header.field("request_cache", request.requestCache());
+            }
+            header.endObject();
+            header.bytes().writeTo(body);
+            body.write('\n');
+
+            XContentBuilder source = XContentFactory.jsonBuilder();
+            if (request.source() != null) {
+                request.source().toXContent(source, ToXContent.EMPTY_PARAMS);
+            } else {
+                source.startObject().endObject();
+            }
+            source.bytes().writeTo(body);
+            body.write('\n');
+        }
+
+        HttpEntity entity = new ByteArrayEntity(body.toByteArray(), ContentType.create("application/x-ndjson"));
+        return new Request(HttpPost.METHOD_NAME, "/_msearch", parameters, entity);
+    }
+
+    MultiSearchResponse parseMultiSearchResponse(XContentParser parser) throws IOException {
+        List<MultiSearchResponse.Item> items = new ArrayList<>();
+
+        ensureExpectedToken(XContentParser.Token.START_OBJECT, parser.nextToken(), parser::getTokenLocation);
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            ensureExpectedToken(XContentParser.Token.FIELD_NAME, token, parser::getTokenLocation);
+            String field = parser.currentName();
+            token = parser.nextToken();
+            if ("responses".equals(field) && token == XContentParser.Token.START_ARRAY) {
+                while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                    items.add(this.parseMultiSearchItem(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new MultiSearchResponse(items.toArray(new MultiSearchResponse.Item[items.size()]));
+    }
+
+    /**
+     * Each response is either a search response or an error. The 6.0 SearchResponse parser can only start
+     * from the beginning of a document, so each response is copied out and parsed on its own, with this
+     * client's registry so aggregations and suggestions are understood.
+     */
+    private MultiSearchResponse.Item parseMultiSearchItem(XContentParser parser) throws IOException {
+        ensureExpectedToken(XContentParser.Token.START_OBJECT, parser.currentToken(), parser::getTokenLocation);
+        XContentBuilder copy = XContentFactory.contentBuilder(parser.contentType()).copyCurrentStructure(parser);
+        BytesReference item = copy.bytes();
+
+        try (XContentParser itemParser = XContentHelper.createParser(NamedXContentRegistry.EMPTY, item, copy.contentType())) {
+            itemParser.nextToken();
+            while (itemParser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                if ("error".equals(itemParser.currentName())) {
+                    return new MultiSearchResponse.Item(null, ElasticsearchException.failureFromXContent(itemParser));
+                }
+                itemParser.nextToken();
+                itemParser.skipChildren();
+            }
+        }
+
+        HttpEntity entity = new ByteArrayEntity(BytesReference.toBytes(item),
+                ContentType.create(copy.contentType().mediaTypeWithoutParameters()));
+        return new MultiSearchResponse.Item(parseEntity(entity, SearchResponse::fromXContent), null);
+    }
 }
@@ -0,0 +1,63 @@
+package com.github.onsdigital.elasticutils.client.http.options;
+
+import java.util.zip.Deflater;
+
+/**
+ * Gzip compression of the HTTP traffic of a {@link com.github.onsdigital.elasticutils.client.http.SimpleRestClient}.
+ */
+public class CompressionOptions {
+
+    private boolean compressRequests;
+    private int minRequestSize;
+    private int level;
+    private boolean acceptCompressedResponses;
+    private int poolSize;
+
+    public CompressionOptions(boolean compressRequests, int minRequestSize, int level, boolean acceptCompressedResponses,
+                              int poolSize) {
+        if (minRequestSize < 0) {
+            throw new IllegalArgumentException("minRequestSize must not be negative");
+        }
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("level must be -1 or in [0, 9]");
+        }
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("poolSize must not be negative");
+        }
+        this.compressRequests = compressRequests;
+        this.minRequestSize = minRequestSize;
+        this.level = level;
+        this.acceptCompressedResponses = acceptCompressedResponses;
+        this.poolSize = poolSize;
+    }
+
+    public boolean isCompressRequests() {
+        return compressRequests;
+    }
+
+    /**
+     * @return Request bodies smaller than this many bytes are sent as they are
+     */
+    public int getMinRequestSize() {
+        return minRequestSize;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public boolean isAcceptCompressedResponses() {
+        return acceptCompressedResponses;
+    }
+
+    /**
+     * @return The number of idle compressors kept for reuse
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public static CompressionOptionsBuilder builder() {
+        return new CompressionOptionsBuilder();
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.onsdigital.elasticutils.client.http.options;
+
+import java.util.zip.Deflater;
+
+public class CompressionOptionsBuilder {
+
+    private boolean compressRequests = true;
+    private int minRequestSize = 1024;
+    private int level = Deflater.BEST_SPEED;
+    private boolean acceptCompressedResponses = true;
+    private int poolSize = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Gzip request bodies of at least minRequestSize bytes. Bulk bodies are mostly repeated field names and
+     * typically shrink several fold.
+     */
+    public CompressionOptionsBuilder setCompressRequests(boolean compressRequests) {
+        this.compressRequests = compressRequests;
+        return this;
+    }
+
+    public CompressionOptionsBuilder setMinRequestSize(int minRequestSize) {
+        this.minRequestSize = minRequestSize;
+        return this;
+    }
+
+    /**
+     * Deflater level used for request bodies; the default favours speed over ratio
+     */
+    public CompressionOptionsBuilder setLevel(int level) {
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * Send Accept-Encoding: gzip, so Elasticsearch (with http.compression enabled) compresses its responses
+     */
+    public CompressionOptionsBuilder setAcceptCompressedResponses(boolean acceptCompressedResponses) {
+        this.acceptCompressedResponses = acceptCompressedResponses;
+        return this;
+    }
+
+    public CompressionOptionsBuilder setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+        return this;
+    }
+
+    public CompressionOptions build() {
+        return new CompressionOptions(compressRequests, minRequestSize, level, acceptCompressedResponses, poolSize);
+    }
+}
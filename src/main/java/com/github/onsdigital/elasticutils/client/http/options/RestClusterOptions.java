@@ -0,0 +1,133 @@
+package com.github.onsdigital.elasticutils.client.http.options;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The nodes a REST client talks to, how they are discovered and how traffic is spread between them.
+ */
+public class RestClusterOptions {
+
+    private List<HttpHost> hosts;
+    private boolean sniff;
+    private TimeValue sniffInterval;
+    private TimeValue refreshInterval;
+    private double latencyTolerance;
+    private int minActiveHosts;
+    private double latencyAlpha;
+    private TimeValue deadHostInitialBackoff;
+    private TimeValue deadHostMaxBackoff;
+    private TimeValue connectTimeout;
+    private TimeValue socketTimeout;
+    private TimeValue maxRetryTimeout;
+    private RestClientBuilder.HttpClientConfigCallback httpClientConfigCallback;
+    private CompressionOptions compression;
+
+    public RestClusterOptions(List<HttpHost> hosts, boolean sniff, TimeValue sniffInterval, TimeValue refreshInterval,
+                              double latencyTolerance, int minActiveHosts, double latencyAlpha,
+                              TimeValue deadHostInitialBackoff, TimeValue deadHostMaxBackoff, TimeValue connectTimeout,
+                              TimeValue socketTimeout, TimeValue maxRetryTimeout,
+                              RestClientBuilder.HttpClientConfigCallback httpClientConfigCallback,
+                              CompressionOptions compression) {
+        if (hosts == null || hosts.isEmpty()) {
+            throw new IllegalArgumentException("At least one host is required");
+        }
+        if (latencyTolerance < 1.0) {
+            throw new IllegalArgumentException("latencyTolerance must be at least 1");
+        }
+        if (minActiveHosts < 1) {
+            throw new IllegalArgumentException("minActiveHosts must be positive");
+        }
+        if (latencyAlpha <= 0.0 || latencyAlpha > 1.0) {
+            throw new IllegalArgumentException("latencyAlpha must be in (0, 1]");
+        }
+        if (deadHostMaxBackoff.nanos() < deadHostInitialBackoff.nanos()) {
+            throw new IllegalArgumentException("deadHostMaxBackoff must be at least deadHostInitialBackoff");
+        }
+        this.hosts = Collections.unmodifiableList(new ArrayList<>(hosts));
+        this.sniff = sniff;
+        this.sniffInterval = sniffInterval;
+        this.refreshInterval = refreshInterval;
+        this.latencyTolerance = latencyTolerance;
+        this.minActiveHosts = minActiveHosts;
+        this.latencyAlpha = latencyAlpha;
+        this.deadHostInitialBackoff = deadHostInitialBackoff;
+        this.deadHostMaxBackoff = deadHostMaxBackoff;
+        this.connectTimeout = connectTimeout;
+        this.socketTimeout = socketTimeout;
+        this.maxRetryTimeout = maxRetryTimeout;
+        this.httpClientConfigCallback = httpClientConfigCallback;
+        this.compression = compression;
+    }
+
+    /**
+     * @return The seed hosts, replaced by the cluster's HTTP nodes once sniffed
+     */
+    public List<HttpHost> getHosts() {
+        return hosts;
+    }
+
+    public boolean isSniff() {
+        return sniff;
+    }
+
+    public TimeValue getSniffInterval() {
+        return sniffInterval;
+    }
+
+    public TimeValue getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public int getMinActiveHosts() {
+        return minActiveHosts;
+    }
+
+    public double getLatencyAlpha() {
+        return latencyAlpha;
+    }
+
+    public TimeValue getDeadHostInitialBackoff() {
+        return deadHostInitialBackoff;
+    }
+
+    public TimeValue getDeadHostMaxBackoff() {
+        return deadHostMaxBackoff;
+    }
+
+    public TimeValue getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public TimeValue getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public TimeValue getMaxRetryTimeout() {
+        return maxRetryTimeout;
+    }
+
+    public RestClientBuilder.HttpClientConfigCallback getHttpClientConfigCallback() {
+        return httpClientConfigCallback;
+    }
+
+    /**
+     * @return How HTTP traffic is compressed, or null if it is not
+     */
+    public CompressionOptions getCompression() {
+        return compression;
+    }
+
+    public static RestClusterOptionsBuilder builder() {
+        return new RestClusterOptionsBuilder();
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.onsdigital.elasticutils.client.http.options;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RestClusterOptionsBuilder {
+
+    private List<HttpHost> hosts = new ArrayList<>();
+    private boolean sniff = false;
+    private TimeValue sniffInterval = TimeValue.timeValueMinutes(5);
+    private TimeValue refreshInterval = TimeValue.timeValueSeconds(5);
+    private double latencyTolerance = 2.0;
+    private int minActiveHosts = 1;
+    private double latencyAlpha = 0.3;
+    private TimeValue deadHostInitialBackoff = TimeValue.timeValueSeconds(1);
+    private TimeValue deadHostMaxBackoff = TimeValue.timeValueMinutes(1);
+    private TimeValue connectTimeout = TimeValue.timeValueSeconds(5);
+    private TimeValue socketTimeout = TimeValue.timeValueSeconds(60);
+    private TimeValue maxRetryTimeout = TimeValue.timeValueSeconds(60);
+    private RestClientBuilder.HttpClientConfigCallback httpClientConfigCallback = null;
+    private CompressionOptions compression = null;
+
+    public RestClusterOptionsBuilder setHosts(HttpHost... hosts) {
+        this.hosts = new ArrayList<>(Arrays.asList(hosts));
+        return this;
+    }
+
+    public RestClusterOptionsBuilder addHost(String hostName, int port) {
+        this.hosts.add(new HttpHost(hostName, port));
+        return this;
+    }
+
+    /**
+     * Periodically replaces the hosts with the HTTP publish addresses of every node in the cluster
+     */
+    public RestClusterOptionsBuilder setSniff(boolean sniff) {
+        this.sniff = sniff;
+        return this;
+    }
+
+    public RestClusterOptionsBuilder setSniffInterval(TimeValue sniffInterval) {
+        this.sniffInterval = sniffInterval;
+        return this;
+    }
+
+    /**
+     * How often hosts are re-ranked by latency and dead hosts due a retry are probed
+     */
+    public RestClusterOptionsBuilder setRefreshInterval(TimeValue refreshInterval) {
+        this.refreshInterval = refreshInterval;
+        return this;
+    }
+
+    /**
+     * Hosts whose latency is within this multiple of the fastest host's receive traffic
+     */
+    public RestClusterOptionsBuilder setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+        return this;
+    }
+
+    /**
+     * The number of live hosts kept in rotation however slow they are
+     */
+    public RestClusterOptionsBuilder setMinActiveHosts(int minActiveHosts) {
+        this.minActiveHosts = minActiveHosts;
+        return this;
+    }
+
+    /**
+     * Weight of the latest sample in each host's moving average latency
+     */
+    public RestClusterOptionsBuilder setLatencyAlpha(double latencyAlpha) {
+        this.latencyAlpha = latencyAlpha;
+        return this;
+    }
+
+    /**
+     * A failed host is probed after the initial backoff, doubling after every further failure up to the maximum
+     */
+    public RestClusterOptionsBuilder setDeadHostBackoff(TimeValue initialBackoff, TimeValue maxBackoff) {
+        this.deadHostInitialBackoff = initialBackoff;
+        this.deadHostMaxBackoff = maxBackoff;
+        return this;
+    }
+
+    public RestClusterOptionsBuilder setConnectTimeout(TimeValue connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public RestClusterOptionsBuilder setSocketTimeout(TimeValue socketTimeout) {
+        this.socketTimeout = socketTimeout;
+        return this;
+    }
+
+    public RestClusterOptionsBuilder setMaxRetryTimeout(TimeValue maxRetryTimeout) {
+        this.maxRetryTimeout = maxRetryTimeout;
+        return this;
+    }
+
+    /**
+     * Further customises the HTTP client (e.g. credentials or TLS), after the host monitor has installed its interceptors
+     */
+    public RestClusterOptionsBuilder setHttpClientConfigCallback(RestClientBuilder.HttpClientConfigCallback httpClientConfigCallback) {
+        this.httpClientConfigCallback = httpClientConfigCallback;
+        return this;
+    }
+
+    /**
+     * Gzip request bodies and responses, trading client and node CPU for bandwidth
+     */
+    public RestClusterOptionsBuilder setCompression(CompressionOptions compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    public RestClusterOptions build() {
+        return new RestClusterOptions(hosts, sniff, sniffInterval, refreshInterval, latencyTolerance, minActiveHosts,
+                latencyAlpha, deadHostInitialBackoff, deadHostMaxBackoff, connectTimeout, socketTimeout, maxRetryTimeout,
+                httpClientConfigCallback, compression);
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.onsdigital.elasticutils.client.metrics;
+
+public enum ClientOperation {
+
+    SEARCH("search"),
+    SCROLL("scroll"),
+    GET("get"),
+    MULTI_GET("mget"),
+    INDEX("index"),
+    BULK("bulk"),
+    CREATE_INDEX("create_index"),
+    DROP_INDEX("drop_index"),
+    INDEX_EXISTS("index_exists");
+
+    private final String name;
+
+    ClientOperation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.onsdigital.elasticutils.client.metrics;
+
+import com.github.onsdigital.elasticutils.util.metrics.MBeans;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In process registry keeping an {@link OperationStats} per operation, index and label. When JMX is
+ * enabled each one is registered as
+ * com.github.onsdigital.elasticutils:type=OperationStats,operation=...,index=...,label=...
+ * the first time it is seen.
+ */
+public class HistogramOperationMetricsRegistry implements OperationMetricsRegistry {
+
+    private static final String MBEAN_TYPE = "OperationStats";
+
+    private final Map<Key, OperationStats> stats = new ConcurrentHashMap<>();
+    private final List<ObjectName> objectNames = new CopyOnWriteArrayList<>();
+    private final boolean jmx;
+
+    public HistogramOperationMetricsRegistry() {
+        this(false);
+    }
+
+    public HistogramOperationMetricsRegistry(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+    @Override
+    public void record(OperationSample sample) {
+        Key key = new Key(sample.getOperation(), sample.getIndex(), sample.getLabel());
+        OperationStats operationStats = this.stats.get(key);
+        if (operationStats == null) {
+            operationStats = this.stats.computeIfAbsent(key, this::create);
+        }
+        operationStats.record(sample);
+    }
+
+    private OperationStats create(Key key) {
+        OperationStats operationStats = new OperationStats(key.operation, key.index, key.label);
+        if (this.jmx) {
+            Map<String, String> properties = new LinkedHashMap<>();
+            properties.put("operation", key.operation.getName());
+            properties.put("index", String.valueOf(key.index));
+            properties.put("label", String.valueOf(key.label));
+            ObjectName objectName = MBeans.register(MBEAN_TYPE, properties, operationStats);
+            if (objectName != null) {
+                this.objectNames.add(objectName);
+            }
+        }
+        return operationStats;
+    }
+
+    /**
+     * @return The stats for the given operation, index and label, or null if none have been recorded
+     */
+    public OperationStats getStats(ClientOperation operation, String index, String label) {
+        return this.stats.get(new Key(operation, index, label));
+    }
+
+    public Collection<OperationStats> getAllStats() {
+        return new ArrayList<>(this.stats.values());
+    }
+
+    public List<OperationStats> getStats(ClientOperation operation) {
+        List<OperationStats> matching = new ArrayList<>();
+        for (OperationStats operationStats : this.stats.values()) {
+            if (operationStats.getOperation() == operation) {
+                matching.add(operationStats);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Unregisters every OperationStats MBean registered by this registry. Recording carries on in process.
+     */
+    public void unregisterMBeans() {
+        for (ObjectName objectName : this.objectNames) {
+            MBeans.unregister(objectName);
+        }
+        this.objectNames.clear();
+    }
+
+    private static class Key {
+
+        private final ClientOperation operation;
+        private final String index;
+        private final String label;
+
+        Key(ClientOperation operation, String index, String label) {
+            this.operation = operation;
+            this.index = index;
+            this.label = label;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return operation == key.operation &&
+                    Objects.equals(index, key.index) &&
+                    Objects.equals(label, key.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operation, index, label);
+        }
+    }
+}
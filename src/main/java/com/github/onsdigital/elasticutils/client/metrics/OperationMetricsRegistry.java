@@ -0,0 +1,13 @@
+package com.github.onsdigital.elasticutils.client.metrics;
+
+/**
+ * Receives a sample for every instrumented client operation. Implement this to forward samples to
+ * an existing metrics library; {@link HistogramOperationMetricsRegistry} keeps them in process.
+ * Called on the thread which completed the operation, so implementations must be thread safe and cheap.
+ */
+@FunctionalInterface
+public interface OperationMetricsRegistry {
+
+    void record(OperationSample sample);
+
+}
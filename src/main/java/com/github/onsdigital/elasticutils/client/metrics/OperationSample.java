@@ -0,0 +1,79 @@
+package com.github.onsdigital.elasticutils.client.metrics;
+
+/**
+ * Measurement of a single client operation. Comparing the client side wall time with the server
+ * side took time separates network and (de)serialization cost from cluster cost.
+ */
+public class OperationSample {
+
+    public static final long NOT_AVAILABLE = -1L;
+
+    private final ClientOperation operation;
+    private final String index;
+    private final String label;
+    private final long clientNanos;
+    private final long tookMillis;
+    private final long hits;
+    private final long bytes;
+    private final boolean failed;
+
+    public OperationSample(ClientOperation operation, String index, String label, long clientNanos, long tookMillis,
+                           long hits, long bytes, boolean failed) {
+        this.operation = operation;
+        this.index = index;
+        this.label = label;
+        this.clientNanos = clientNanos;
+        this.tookMillis = tookMillis;
+        this.hits = hits;
+        this.bytes = bytes;
+        this.failed = failed;
+    }
+
+    public ClientOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Index (or comma separated indices) targeted by the operation. Scroll pages are tagged with the index
+     * of the search which opened the scroll.
+     */
+    public String getIndex() {
+        return index;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Wall time measured by the client, including network and (de)serialization
+     */
+    public long getClientNanos() {
+        return clientNanos;
+    }
+
+    /**
+     * Time reported by the cluster, or {@link #NOT_AVAILABLE} for operations which do not report it
+     */
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    /**
+     * Number of hits returned, or {@link #NOT_AVAILABLE}
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Document source bytes returned by a search or sent by an index request, or {@link #NOT_AVAILABLE}
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+}
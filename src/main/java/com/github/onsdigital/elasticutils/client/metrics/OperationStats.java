@@ -0,0 +1,150 @@
+package com.github.onsdigital.elasticutils.client.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated samples for one operation, index and label: client wall time and server took time
+ * histograms, plus hit, byte and failure counters.
+ */
+public class OperationStats implements OperationStatsMXBean {
+
+    private final ClientOperation operation;
+    private final String index;
+    private final String label;
+
+    private final Histogram clientMicros = new ConcurrentHistogram(3);
+    private final Histogram tookMillis = new ConcurrentHistogram(3);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public OperationStats(ClientOperation operation, String index, String label) {
+        this.operation = operation;
+        this.index = index;
+        this.label = label;
+    }
+
+    void record(OperationSample sample) {
+        this.count.increment();
+        this.clientMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(sample.getClientNanos()));
+        if (sample.isFailed()) {
+            this.failures.increment();
+        }
+        if (sample.getTookMillis() >= 0) {
+            this.tookMillis.recordValue(sample.getTookMillis());
+        }
+        if (sample.getHits() > 0) {
+            this.hits.add(sample.getHits());
+        }
+        if (sample.getBytes() > 0) {
+            this.bytes.add(sample.getBytes());
+        }
+    }
+
+    public ClientOperation getOperation() {
+        return operation;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return A copy of the client wall time histogram, in microseconds
+     */
+    public Histogram getClientHistogram() {
+        return clientMicros.copy();
+    }
+
+    /**
+     * @return A copy of the server took time histogram, in milliseconds
+     */
+    public Histogram getTookHistogram() {
+        return tookMillis.copy();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getClientMeanMillis() {
+        return clientMicros.getMean() / 1000.0;
+    }
+
+    @Override
+    public double getClientP50Millis() {
+        return clientMicros.getValueAtPercentile(50.0) / 1000.0;
+    }
+
+    @Override
+    public double getClientP99Millis() {
+        return clientMicros.getValueAtPercentile(99.0) / 1000.0;
+    }
+
+    @Override
+    public double getClientMaxMillis() {
+        return clientMicros.getMaxValue() / 1000.0;
+    }
+
+    @Override
+    public double getTookMeanMillis() {
+        return tookMillis.getMean();
+    }
+
+    @Override
+    public double getTookP50Millis() {
+        return tookMillis.getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public double getTookP99Millis() {
+        return tookMillis.getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public double getTookMaxMillis() {
+        return tookMillis.getMaxValue();
+    }
+
+    @Override
+    public void reset() {
+        clientMicros.reset();
+        tookMillis.reset();
+        count.reset();
+        failures.reset();
+        hits.reset();
+        bytes.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[index=%s, label=%s, count=%d, client p50=%.1fms, took p50=%.1fms]",
+                operation.getName(), index, label, getCount(), getClientP50Millis(), getTookP50Millis());
+    }
+}
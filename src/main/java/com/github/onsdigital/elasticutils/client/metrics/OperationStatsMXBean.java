@@ -0,0 +1,34 @@
+package com.github.onsdigital.elasticutils.client.metrics;
+
+/**
+ * JMX view of the {@link OperationStats} for one operation, index and label
+ */
+public interface OperationStatsMXBean {
+
+    long getCount();
+
+    long getFailures();
+
+    long getHits();
+
+    long getBytes();
+
+    double getClientMeanMillis();
+
+    double getClientP50Millis();
+
+    double getClientP99Millis();
+
+    double getClientMaxMillis();
+
+    double getTookMeanMillis();
+
+    double getTookP50Millis();
+
+    double getTookP99Millis();
+
+    double getTookMaxMillis();
+
+    void reset();
+
+}
@@ -0,0 +1,34 @@
+package com.github.onsdigital.elasticutils.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Registry of pre-resolved ObjectReaders keyed by target class, the read side counterpart of
+ * {@link SerializerRegistry}. Readers are immutable and thread safe, so one instance per class
+ * is shared by every search response.
+ */
+public class DeserializerRegistry {
+
+    private static final DeserializerRegistry INSTANCE = new DeserializerRegistry(new ObjectMapper());
+
+    private final ClassValue<ObjectReader> readers;
+
+    public DeserializerRegistry(ObjectMapper mapper) {
+        this.readers = new ClassValue<ObjectReader>() {
+            @Override
+            protected ObjectReader computeValue(Class<?> type) {
+                return mapper.readerFor(type);
+            }
+        };
+    }
+
+    public static DeserializerRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public ObjectReader readerFor(Class<?> type) {
+        return this.readers.get(type);
+    }
+
+}
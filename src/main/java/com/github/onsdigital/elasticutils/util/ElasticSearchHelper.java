@@ -4,14 +4,15 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.onsdigital.elasticutils.client.Host;
 import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkProcessorConfiguration;
+import com.github.onsdigital.elasticutils.client.bulk.options.AdaptiveBulkOptions;
 import com.github.onsdigital.elasticutils.client.bulk.options.BulkProcessingOptions;
 import com.github.onsdigital.elasticutils.client.generic.RestSearchClient;
+import com.github.onsdigital.elasticutils.client.http.HostMonitor;
 import com.github.onsdigital.elasticutils.client.http.SimpleRestClient;
+import com.github.onsdigital.elasticutils.client.http.options.RestClusterOptions;
 import org.apache.commons.io.IOUtils;
-import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.client.config.RequestConfig;
-import org.apache.http.message.BasicHeader;
 import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
@@ -31,6 +32,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
 
@@ -91,11 +93,8 @@ public class ElasticSearchHelper {
 
         LOGGER.info("Attempting to make HTTP connection to ES database: {} {}", hostName, http_port);
 
-        // Set some basic headers for all requests
-        BasicHeader[] headers = { new BasicHeader(HttpHeaders.CONTENT_TYPE, "application/json") };
-
-        RestClientBuilder builder = RestClient.builder(new HttpHost(hostName, http_port))
-                        .setDefaultHeaders(headers);
+        // No default Content-Type header, as it would replace the entity's own: bulk bodies may be SMILE or ndjson
+        RestClientBuilder builder = RestClient.builder(new HttpHost(hostName, http_port));
 
         SimpleRestClient client = new SimpleRestClient(builder);
 
@@ -103,6 +102,38 @@ public class ElasticSearchHelper {
         return client;
     }
 
+    /**
+     *
+     * @param hosts Nodes of the cluster
+     * @return Client spreading requests over the nodes, preferring the fastest and evicting failed nodes
+     */
+    public static SimpleRestClient getRestClient(HttpHost... hosts) {
+        return getRestClient(RestClusterOptions.builder().setHosts(hosts).build());
+    }
+
+    /**
+     *
+     * @param options Nodes of the cluster, discovery and routing options
+     * @return Client routed by a {@link HostMonitor}
+     */
+    public static SimpleRestClient getRestClient(RestClusterOptions options) {
+
+        LOGGER.info("Attempting to make HTTP connection to ES cluster: {}", options.getHosts());
+
+        List<HttpHost> hosts = options.getHosts();
+        RestClientBuilder builder = RestClient.builder(hosts.toArray(new HttpHost[hosts.size()]))
+                .setRequestConfigCallback(requestConfigBuilder -> requestConfigBuilder
+                        .setConnectTimeout((int) options.getConnectTimeout().millis())
+                        .setSocketTimeout((int) options.getSocketTimeout().millis()))
+                .setMaxRetryTimeoutMillis((int) options.getMaxRetryTimeout().millis());
+
+        SimpleRestClient client = new SimpleRestClient(builder, new HostMonitor(options))
+                .setCompression(options.getCompression());
+
+        LOGGER.info("Successfully made HTTP connection to ES cluster: {}", client.getHostMonitor().getActiveHosts());
+        return client;
+    }
+
     public static SimpleRestClient getRestClientWithTimeout(String hostName, int http_port) {
         int connectTimeout = 5000;
         int socketTimeout = 60000;
@@ -112,15 +143,15 @@ public class ElasticSearchHelper {
 
     public static SimpleRestClient getRestClientWithTimeout(String hostName, int http_port, int connectTimeout,
                                                             int socketTimeout, int maxRetryTimeoutMillis) {
-        RestClientBuilder builder = RestClient.builder(new HttpHost("localhost", 9200))
+        RestClientBuilder builder = RestClient.builder(new HttpHost(hostName, http_port))
                 .setRequestConfigCallback(new RestClientBuilder.RequestConfigCallback() {
                     @Override
                     public RequestConfig.Builder customizeRequestConfig(RequestConfig.Builder requestConfigBuilder) {
-                        return requestConfigBuilder.setConnectTimeout(5000)
-                                .setSocketTimeout(60000);
+                        return requestConfigBuilder.setConnectTimeout(connectTimeout)
+                                .setSocketTimeout(socketTimeout);
                     }
                 })
-                .setMaxRetryTimeoutMillis(60000);
+                .setMaxRetryTimeoutMillis(maxRetryTimeoutMillis);
         SimpleRestClient client = new SimpleRestClient(builder);
         return client;
     }
@@ -287,6 +318,26 @@ public class ElasticSearchHelper {
         return bulkProcessorConfiguration;
     }
 
+    /**
+     *
+     * @return Configuration object from which to build a BulkProcessor which tunes its batch size and
+     * concurrency to the cluster's current load, starting from the default configuration
+     */
+    public static BulkProcessorConfiguration getAdaptiveBulkProcessorConfiguration() {
+        return getAdaptiveBulkProcessorConfiguration(AdaptiveBulkOptions.builder().build());
+    }
+
+    /**
+     *
+     * @param adaptiveOptions Bounds within which batch size and concurrency are tuned
+     * @return Configuration object from which to build an adaptive BulkProcessor
+     */
+    public static BulkProcessorConfiguration getAdaptiveBulkProcessorConfiguration(AdaptiveBulkOptions adaptiveOptions) {
+        BulkProcessorConfiguration defaultConfiguration = getDefaultBulkProcessorConfiguration();
+        return new BulkProcessorConfiguration(defaultConfiguration.getBulkProcessingOptions(),
+                defaultConfiguration.getBulkProcessorListener(), adaptiveOptions);
+    }
+
     /**
      *
      * @param path Path to the system resource
@@ -1,7 +1,7 @@
 package com.github.onsdigital.elasticutils.util;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,29 +17,22 @@ public class JsonUtils {
 
     private static Logger LOGGER = LoggerFactory.getLogger(JsonUtils.class);
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final SerializerRegistry SERIALIZERS = SerializerRegistry.getInstance();
 
     public static <T> Optional<byte[]> convertJsonToBytes(T entity) {
-        try {
-            return Optional.empty().of(MAPPER.writeValueAsBytes(entity));
-        } catch(Exception e) {
-            if(LOGGER.isErrorEnabled()) {
-                LOGGER.error(String.format("Failed to convert entity %s to byte array", entity), e);
-            }
-        }
-        return Optional.empty();
+        return convertJsonToBytes(entity, JsonInclude.Include.USE_DEFAULTS);
     }
 
     public static <T> Optional<byte[]> convertJsonToBytes(T entity, JsonInclude.Include include) {
-        try {
-            if (include.equals(JsonInclude.Include.USE_DEFAULTS)) {
-                return Optional.empty().of(MAPPER.writeValueAsBytes(entity));
-            } else {
-                ObjectMapper customMapper = new ObjectMapper();
-                customMapper.setSerializationInclusion(include);
-                return Optional.empty().of(customMapper.writeValueAsBytes(entity));
-            }
+        return convertJsonToBytes(entity, SERIALIZERS.writerForValue(entity, include));
+    }
 
+    /**
+     * Serializes the entity with a pre-resolved writer (see {@link SerializerRegistry})
+     */
+    public static <T> Optional<byte[]> convertJsonToBytes(T entity, ObjectWriter writer) {
+        try {
+            return Optional.of(writer.writeValueAsBytes(entity));
         } catch(Exception e) {
             if(LOGGER.isErrorEnabled()) {
                 LOGGER.error(String.format("Failed to convert entity %s to byte array", entity), e);
@@ -0,0 +1,129 @@
+package com.github.onsdigital.elasticutils.util;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the _source fields each class reads, worked out from its Jackson bean description, so searches
+ * can fetch only those fields rather than whole documents. Fields are top level properties (a nested object is
+ * fetched whole) by their JSON name, optionally restricted to a {@link com.fasterxml.jackson.annotation.JsonView}.
+ *
+ * Classes which can take any property (a @JsonAnySetter, a Map or an abstract or polymorphic type), or which read
+ * properties under other names than their own (a @JsonUnwrapped or @JsonAlias property), cannot be projected, and
+ * have no includes.
+ */
+public class ProjectionRegistry {
+
+    private static final ProjectionRegistry INSTANCE = new ProjectionRegistry(new ObjectMapper());
+
+    /**
+     * Cache key for projections without a view, where every property is read
+     */
+    private static final class NoView {}
+
+    private final DeserializationConfig config;
+    private final ClassValue<Map<Class<?>, Optional<String[]>>> includes = new ClassValue<Map<Class<?>, Optional<String[]>>>() {
+        @Override
+        protected Map<Class<?>, Optional<String[]>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    public ProjectionRegistry(ObjectMapper mapper) {
+        this.config = mapper.getDeserializationConfig();
+    }
+
+    public static ProjectionRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return The fields read by the class, or null if it cannot be projected
+     */
+    public String[] includesFor(Class<?> type) {
+        return this.includesFor(type, null);
+    }
+
+    /**
+     * @return The fields read by the class in the given view (or every view, if null), or null if it cannot be projected
+     */
+    public String[] includesFor(Class<?> type, Class<?> view) {
+        return this.includes.get(type)
+                .computeIfAbsent(view == null ? NoView.class : view, key -> Optional.ofNullable(this.resolve(type, view)))
+                .orElse(null);
+    }
+
+    private String[] resolve(Class<?> type, Class<?> view) {
+        JavaType javaType = this.config.constructType(type);
+        if (javaType.isAbstract() || javaType.isContainerType() || javaType.isJavaLangObject()) {
+            return null;
+        }
+        BeanDescription description = this.config.introspect(javaType);
+        if (description.findAnySetterAccessor() != null || description.getClassInfo().hasAnnotation(JsonTypeInfo.class)) {
+            return null;
+        }
+
+        boolean defaultViewInclusion = this.config.isEnabled(MapperFeature.DEFAULT_VIEW_INCLUSION);
+        List<String> fields = new ArrayList<>();
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            if (!property.couldDeserialize()) {
+                continue;
+            }
+            if (this.readsOtherNames(property)) {
+                return null;
+            }
+            if (inView(property.findViews(), view, defaultViewInclusion)) {
+                fields.add(property.getName());
+            }
+        }
+        // Empty includes would fetch the whole source anyway
+        return fields.isEmpty() ? null : fields.toArray(new String[fields.size()]);
+    }
+
+    /**
+     * An unwrapped property reads its value's fields from the top level of the source, and an aliased property
+     * also reads the fields named by its aliases
+     */
+    private boolean readsOtherNames(BeanPropertyDefinition property) {
+        AnnotationIntrospector introspector = this.config.getAnnotationIntrospector();
+        for (AnnotatedMember member : new AnnotatedMember[]{property.getField(), property.getSetter(), property.getConstructorParameter()}) {
+            if (member == null) {
+                continue;
+            }
+            List<PropertyName> aliases = introspector.findPropertyAliases(member);
+            if (introspector.findUnwrappingNameTransformer(member) != null || (aliases != null && !aliases.isEmpty())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean inView(Class<?>[] views, Class<?> view, boolean defaultViewInclusion) {
+        if (view == null) {
+            return true;
+        }
+        if (views == null) {
+            return defaultViewInclusion;
+        }
+        for (Class<?> propertyView : views) {
+            if (propertyView.isAssignableFrom(view)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
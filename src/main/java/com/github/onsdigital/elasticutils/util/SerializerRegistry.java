@@ -0,0 +1,103 @@
+package com.github.onsdigital.elasticutils.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Registry of pre-resolved ObjectWriters keyed by (entity class, inclusion policy).
+ * The first lookup for a class resolves its serializer, after which every entity of that
+ * class is written without touching the mapper's serializer caches again.
+ *
+ * Writers produce the format of the mapper's factory (JSON unless configured otherwise);
+ * {@link #forContentType(XContentType)} gives the registry writing the same entities as SMILE, CBOR or YAML.
+ */
+public class SerializerRegistry {
+
+    private static final SerializerRegistry INSTANCE = new SerializerRegistry(new ObjectMapper());
+
+    private final XContentType contentType;
+    private final Map<JsonInclude.Include, ClassValue<ObjectWriter>> writers = new EnumMap<>(JsonInclude.Include.class);
+    private final Map<XContentType, SerializerRegistry> formats = new ConcurrentHashMap<>();
+
+    public SerializerRegistry(ObjectMapper mapper) {
+        this(XContentFormats.contentType(mapper.getFactory()), includeMappers(mapper));
+    }
+
+    private SerializerRegistry(XContentType contentType, Map<JsonInclude.Include, ObjectMapper> includeMappers) {
+        this(contentType, (type, include) -> includeMappers.get(include).writerFor(type));
+    }
+
+    /**
+     * Derives the writers from those of another registry, rebound to the factory of the content type
+     */
+    private SerializerRegistry(SerializerRegistry registry, XContentType contentType) {
+        this(contentType, (type, include) -> registry.writerFor(type, include).with(XContentFormats.factory(contentType)));
+    }
+
+    private SerializerRegistry(XContentType contentType, BiFunction<Class<?>, JsonInclude.Include, ObjectWriter> writerFactory) {
+        this.contentType = contentType;
+        for (JsonInclude.Include include : JsonInclude.Include.values()) {
+            this.writers.put(include, new ClassValue<ObjectWriter>() {
+                @Override
+                protected ObjectWriter computeValue(Class<?> type) {
+                    return writerFactory.apply(type, include);
+                }
+            });
+        }
+    }
+
+    private static Map<JsonInclude.Include, ObjectMapper> includeMappers(ObjectMapper mapper) {
+        Map<JsonInclude.Include, ObjectMapper> includeMappers = new EnumMap<>(JsonInclude.Include.class);
+        for (JsonInclude.Include include : JsonInclude.Include.values()) {
+            // USE_DEFAULTS keeps whatever inclusion the supplied mapper was configured with
+            includeMappers.put(include, include == JsonInclude.Include.USE_DEFAULTS ?
+                    mapper : mapper.copy().setSerializationInclusion(include));
+        }
+        return includeMappers;
+    }
+
+    public static SerializerRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return The content type written by this registry's writers
+     */
+    public XContentType getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return A registry whose writers produce the given content type, with the same configuration as this one's
+     */
+    public SerializerRegistry forContentType(XContentType contentType) {
+        if (contentType == this.contentType) {
+            return this;
+        }
+        return this.formats.computeIfAbsent(contentType, type -> new SerializerRegistry(this, type));
+    }
+
+    public ObjectWriter writerFor(Class<?> type) {
+        return writerFor(type, JsonInclude.Include.USE_DEFAULTS);
+    }
+
+    public ObjectWriter writerFor(Class<?> type, JsonInclude.Include include) {
+        return this.writers.get(include).get(type);
+    }
+
+    /**
+     * Returns the writer for the runtime class of the entity, so subclass properties are not dropped
+     */
+    public ObjectWriter writerForValue(Object entity, JsonInclude.Include include) {
+        Class<?> type = entity == null ? Object.class : entity.getClass();
+        return writerFor(type, include);
+    }
+
+}
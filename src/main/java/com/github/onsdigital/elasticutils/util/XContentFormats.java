@@ -0,0 +1,109 @@
+package com.github.onsdigital.elasticutils.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORConstants;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Maps Elasticsearch content types to the Jackson factories which read and write them, so entities can be
+ * indexed as SMILE or CBOR rather than JSON, and document sources decoded whatever format they were stored in.
+ */
+public class XContentFormats {
+
+    private static final Map<XContentType, JsonFactory> FACTORIES = new EnumMap<>(XContentType.class);
+
+    static {
+        // Configured as Elasticsearch configures its own SMILE factory
+        SmileFactory smileFactory = new SmileFactory();
+        smileFactory.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, false);
+
+        FACTORIES.put(XContentType.JSON, new JsonFactory());
+        FACTORIES.put(XContentType.SMILE, smileFactory);
+        FACTORIES.put(XContentType.CBOR, new CBORFactory());
+        FACTORIES.put(XContentType.YAML, new YAMLFactory());
+    }
+
+    private XContentFormats() {}
+
+    public static JsonFactory factory(XContentType contentType) {
+        return FACTORIES.get(contentType);
+    }
+
+    /**
+     * @return The content type the factory writes
+     */
+    public static XContentType contentType(JsonFactory factory) {
+        for (Map.Entry<XContentType, JsonFactory> entry : FACTORIES.entrySet()) {
+            if (entry.getValue().getFormatName().equals(factory.getFormatName())) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unsupported format %s", factory.getFormatName()));
+    }
+
+    /**
+     * Detects the content type from the leading bytes, as Elasticsearch does
+     *
+     * @return The content type of the bytes, or null if it cannot be detected
+     */
+    public static XContentType detect(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return null;
+        }
+        byte first = bytes[offset];
+        if (first == '{') {
+            return XContentType.JSON;
+        }
+        if (length > 2 && first == SmileConstants.HEADER_BYTE_1 && bytes[offset + 1] == SmileConstants.HEADER_BYTE_2
+                && bytes[offset + 2] == SmileConstants.HEADER_BYTE_3) {
+            return XContentType.SMILE;
+        }
+        if (length > 2 && first == '-' && bytes[offset + 1] == '-' && bytes[offset + 2] == '-') {
+            return XContentType.YAML;
+        }
+        // A CBOR map, or the self-describe tag (0xd9d9f7) which may precede it
+        if (CBORConstants.hasMajorType(CBORConstants.MAJOR_TYPE_OBJECT, first)) {
+            return XContentType.CBOR;
+        }
+        if (length > 2 && (first & 0xFF) == 0xD9 && (bytes[offset + 1] & 0xFF) == 0xD9 && (bytes[offset + 2] & 0xFF) == 0xF7) {
+            return XContentType.CBOR;
+        }
+        // JSON after leading whitespace, or a UTF-8 byte order mark
+        int start = offset;
+        if (length > 3 && (first & 0xFF) == 0xEF && (bytes[offset + 1] & 0xFF) == 0xBB && (bytes[offset + 2] & 0xFF) == 0xBF) {
+            start += 3;
+        }
+        for (int i = start; i < offset + length; i++) {
+            if (bytes[i] == '{') {
+                return XContentType.JSON;
+            }
+            if (!Character.isWhitespace(bytes[i])) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the document source with the reader, switched to the format of the source if it is not the reader's own.
+     * Sources are returned as they were indexed by the transport client, but always as JSON over HTTP.
+     */
+    public static <T> T readValue(ObjectReader reader, BytesRef source) throws IOException {
+        XContentType contentType = detect(source.bytes, source.offset, source.length);
+        if (contentType != null && !reader.getFactory().getFormatName().equals(factory(contentType).getFormatName())) {
+            reader = reader.with(factory(contentType));
+        }
+        return reader.readValue(source.bytes, source.offset, source.length);
+    }
+}
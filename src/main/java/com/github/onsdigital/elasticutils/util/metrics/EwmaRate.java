@@ -0,0 +1,65 @@
+package com.github.onsdigital.elasticutils.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One minute exponentially weighted moving average of a rate (as used by the Unix load average),
+ * updated in five second ticks. Marking is lock free; ticks are applied lazily by whichever thread
+ * first notices that a tick is due, so no background thread is needed.
+ */
+public class EwmaRate {
+
+    private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+    private static final double ALPHA = 1.0 - Math.exp(-5.0 / 60.0);
+
+    private final LongAdder uncounted = new LongAdder();
+    private final AtomicLong lastTick = new AtomicLong(System.nanoTime());
+
+    private volatile boolean initialised;
+    private volatile double ratePerNano;
+
+    public void mark(long n) {
+        this.tickIfNecessary();
+        this.uncounted.add(n);
+    }
+
+    public double getRatePerSecond() {
+        this.tickIfNecessary();
+        return this.ratePerNano * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Discards the average and any marks since the last tick, as if the rate had just been created
+     */
+    public synchronized void reset() {
+        this.uncounted.reset();
+        this.lastTick.set(System.nanoTime());
+        this.ratePerNano = 0;
+        this.initialised = false;
+    }
+
+    private void tickIfNecessary() {
+        long oldTick = this.lastTick.get();
+        long age = System.nanoTime() - oldTick;
+        if (age > TICK_INTERVAL) {
+            long newTick = oldTick + age - age % TICK_INTERVAL;
+            if (this.lastTick.compareAndSet(oldTick, newTick)) {
+                for (long i = age / TICK_INTERVAL; i > 0; i--) {
+                    this.tick();
+                }
+            }
+        }
+    }
+
+    private synchronized void tick() {
+        double instantRate = (double) this.uncounted.sumThenReset() / TICK_INTERVAL;
+        if (this.initialised) {
+            this.ratePerNano += ALPHA * (instantRate - this.ratePerNano);
+        } else {
+            this.ratePerNano = instantRate;
+            this.initialised = true;
+        }
+    }
+}
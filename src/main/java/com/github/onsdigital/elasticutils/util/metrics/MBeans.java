@@ -0,0 +1,69 @@
+package com.github.onsdigital.elasticutils.util.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registers metrics beans with the platform MBeanServer under the
+ * "com.github.onsdigital.elasticutils" domain. Registration failures are logged rather than thrown,
+ * as metrics must never stop a client from working.
+ */
+public class MBeans {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MBeans.class);
+
+    public static final String DOMAIN = "com.github.onsdigital.elasticutils";
+
+    private MBeans() {
+    }
+
+    /**
+     * @return The name the bean was registered under, or null if registration failed
+     */
+    public static ObjectName register(String type, String name, Object bean) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("name", name);
+        return register(type, properties, bean);
+    }
+
+    /**
+     * Registers the bean with the given key properties in addition to its type. Values are quoted.
+     * @return The name the bean was registered under, or null if registration failed
+     */
+    public static ObjectName register(String type, Map<String, String> properties, Object bean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            StringBuilder name = new StringBuilder(DOMAIN).append(":type=").append(type);
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                name.append(',').append(property.getKey()).append('=').append(ObjectName.quote(property.getValue()));
+            }
+            ObjectName objectName = new ObjectName(name.toString());
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+            return objectName;
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register {} MBean {}", type, properties, e);
+            return null;
+        }
+    }
+
+    public static void unregister(ObjectName objectName) {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOGGER.warn("Unable to unregister MBean {}", objectName, e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.onsdigital.elasticutils.util.reindex;
+
+import com.github.onsdigital.elasticutils.client.bulk.options.BulkLoadOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+
+/**
+ * How a {@link Reindexer} reads the source, loads the new index and retires the old one.
+ */
+public class ReindexOptions {
+
+    private String sourceIndex;
+    private QueryBuilder query;
+    private int slices;
+    private int scrollSize;
+    private TimeValue scrollKeepAlive;
+    private BulkLoadOptions bulkLoadOptions;
+    private boolean verifyCount;
+    private boolean deleteOldIndices;
+    private boolean registerMBean;
+
+    public ReindexOptions(String sourceIndex, QueryBuilder query, int slices, int scrollSize, TimeValue scrollKeepAlive,
+                          BulkLoadOptions bulkLoadOptions, boolean verifyCount, boolean deleteOldIndices, boolean registerMBean) {
+        if (query == null || scrollKeepAlive == null || bulkLoadOptions == null) {
+            throw new IllegalArgumentException("A query, scroll keep alive and bulk load options are required");
+        }
+        if (slices < 1 || scrollSize < 1) {
+            throw new IllegalArgumentException("slices and scrollSize must be positive");
+        }
+        this.sourceIndex = sourceIndex;
+        this.query = query;
+        this.slices = slices;
+        this.scrollSize = scrollSize;
+        this.scrollKeepAlive = scrollKeepAlive;
+        this.bulkLoadOptions = bulkLoadOptions;
+        this.verifyCount = verifyCount;
+        this.deleteOldIndices = deleteOldIndices;
+        this.registerMBean = registerMBean;
+    }
+
+    /**
+     * @return The index to copy from, or null to copy from the indices currently behind the alias
+     */
+    public String getSourceIndex() {
+        return sourceIndex;
+    }
+
+    public QueryBuilder getQuery() {
+        return query;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    public int getScrollSize() {
+        return scrollSize;
+    }
+
+    public TimeValue getScrollKeepAlive() {
+        return scrollKeepAlive;
+    }
+
+    public BulkLoadOptions getBulkLoadOptions() {
+        return bulkLoadOptions;
+    }
+
+    public boolean isVerifyCount() {
+        return verifyCount;
+    }
+
+    public boolean isDeleteOldIndices() {
+        return deleteOldIndices;
+    }
+
+    public boolean isRegisterMBean() {
+        return registerMBean;
+    }
+
+    public static ReindexOptionsBuilder builder() {
+        return new ReindexOptionsBuilder();
+    }
+}
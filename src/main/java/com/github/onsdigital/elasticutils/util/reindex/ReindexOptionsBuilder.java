@@ -0,0 +1,88 @@
+package com.github.onsdigital.elasticutils.util.reindex;
+
+import com.github.onsdigital.elasticutils.client.bulk.options.BulkLoadOptions;
+import com.github.onsdigital.elasticutils.util.search.SlicedScrollReader;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+
+public class ReindexOptionsBuilder {
+
+    private String sourceIndex = null;
+    private QueryBuilder query = QueryBuilders.matchAllQuery();
+    private int slices = SlicedScrollReader.DEFAULT_SLICES;
+    private int scrollSize = 1000;
+    private TimeValue scrollKeepAlive = TimeValue.timeValueMinutes(5);
+    private BulkLoadOptions bulkLoadOptions = BulkLoadOptions.builder().build();
+    private boolean verifyCount = true;
+    private boolean deleteOldIndices = true;
+    private boolean registerMBean = false;
+
+    /**
+     * Copies from the given index (or alias) rather than from the indices behind the alias being moved
+     */
+    public ReindexOptionsBuilder setSourceIndex(String sourceIndex) {
+        this.sourceIndex = sourceIndex;
+        return this;
+    }
+
+    /**
+     * Only copies the documents matching the query
+     */
+    public ReindexOptionsBuilder setQuery(QueryBuilder query) {
+        this.query = query;
+        return this;
+    }
+
+    public ReindexOptionsBuilder setSlices(int slices) {
+        this.slices = slices;
+        return this;
+    }
+
+    public ReindexOptionsBuilder setScrollSize(int scrollSize) {
+        this.scrollSize = scrollSize;
+        return this;
+    }
+
+    public ReindexOptionsBuilder setScrollKeepAlive(TimeValue scrollKeepAlive) {
+        this.scrollKeepAlive = scrollKeepAlive;
+        return this;
+    }
+
+    /**
+     * Settings applied to the new index while it is loaded
+     */
+    public ReindexOptionsBuilder setBulkLoadOptions(BulkLoadOptions bulkLoadOptions) {
+        this.bulkLoadOptions = bulkLoadOptions;
+        return this;
+    }
+
+    /**
+     * Refuses to move the alias if the new index holds fewer documents than were sent to it
+     */
+    public ReindexOptionsBuilder setVerifyCount(boolean verifyCount) {
+        this.verifyCount = verifyCount;
+        return this;
+    }
+
+    /**
+     * Deletes the indices the alias pointed to once it has moved, rather than keeping them
+     */
+    public ReindexOptionsBuilder setDeleteOldIndices(boolean deleteOldIndices) {
+        this.deleteOldIndices = deleteOldIndices;
+        return this;
+    }
+
+    /**
+     * Registers the progress of each run as a JMX bean named after the alias
+     */
+    public ReindexOptionsBuilder setRegisterMBean(boolean registerMBean) {
+        this.registerMBean = registerMBean;
+        return this;
+    }
+
+    public ReindexOptions build() {
+        return new ReindexOptions(sourceIndex, query, slices, scrollSize, scrollKeepAlive, bulkLoadOptions,
+                verifyCount, deleteOldIndices, registerMBean);
+    }
+}
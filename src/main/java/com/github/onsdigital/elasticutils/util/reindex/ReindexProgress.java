@@ -0,0 +1,186 @@
+package com.github.onsdigital.elasticutils.util.reindex;
+
+import com.github.onsdigital.elasticutils.util.metrics.EwmaRate;
+import com.github.onsdigital.elasticutils.util.metrics.MBeans;
+
+import javax.management.ObjectName;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress and throughput of a single {@link Reindexer} run, safe to read while it runs.
+ *
+ * Indexed documents are those handed to the client's BulkProcessor; bulk item failures are reported by the
+ * client's bulk listener, and caught before the alias moves when the document count is verified.
+ */
+public class ReindexProgress implements ReindexProgressMXBean {
+
+    public enum Phase {
+        CREATING,
+        COPYING,
+        DRAINING,
+        VERIFYING,
+        SWAPPING,
+        RETIRING,
+        DONE,
+        FAILED
+    }
+
+    private final String alias;
+    private final String targetIndex;
+    private final long startNanos = System.nanoTime();
+
+    private volatile Phase phase = Phase.CREATING;
+    private volatile long totalDocuments = -1;
+    private volatile long endNanos;
+
+    private final LongAdder read = new LongAdder();
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final EwmaRate rate = new EwmaRate();
+
+    private ObjectName objectName;
+
+    public ReindexProgress(String alias, String targetIndex) {
+        this.alias = alias;
+        this.targetIndex = targetIndex;
+    }
+
+    // RECORDING //
+
+    void setPhase(Phase phase) {
+        this.phase = phase;
+        if (phase == Phase.DONE || phase == Phase.FAILED) {
+            this.endNanos = System.nanoTime();
+        }
+    }
+
+    void setTotalDocuments(long totalDocuments) {
+        this.totalDocuments = totalDocuments;
+    }
+
+    void read() {
+        this.read.increment();
+        this.rate.mark(1);
+    }
+
+    void indexed() {
+        this.indexed.increment();
+    }
+
+    void skipped() {
+        this.skipped.increment();
+    }
+
+    void failed() {
+        this.failed.increment();
+    }
+
+    // JMX //
+
+    public ReindexProgress registerMBean() {
+        this.objectName = MBeans.register("Reindex", this.alias, this);
+        return this;
+    }
+
+    public void unregisterMBean() {
+        MBeans.unregister(this.objectName);
+        this.objectName = null;
+    }
+
+    // PROGRESS //
+
+    @Override
+    public String getAlias() {
+        return alias;
+    }
+
+    @Override
+    public String getTargetIndex() {
+        return targetIndex;
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    @Override
+    public String getPhase() {
+        return phase.name();
+    }
+
+    public boolean isFinished() {
+        return phase == Phase.DONE || phase == Phase.FAILED;
+    }
+
+    /**
+     * @return The number of source documents matching the query, or -1 until they have been counted
+     */
+    @Override
+    public long getTotalDocuments() {
+        return totalDocuments;
+    }
+
+    @Override
+    public long getReadDocuments() {
+        return read.sum();
+    }
+
+    @Override
+    public long getIndexedDocuments() {
+        return indexed.sum();
+    }
+
+    /**
+     * @return The number of documents the transform dropped
+     */
+    @Override
+    public long getSkippedDocuments() {
+        return skipped.sum();
+    }
+
+    /**
+     * @return The number of documents which could not be read or transformed
+     */
+    @Override
+    public long getFailedDocuments() {
+        return failed.sum();
+    }
+
+    @Override
+    public double getPercentComplete() {
+        long total = this.totalDocuments;
+        if (total <= 0) {
+            return total == 0 ? 100.0 : 0.0;
+        }
+        return Math.min(100.0, 100.0 * this.getReadDocuments() / total);
+    }
+
+    /**
+     * @return One minute moving average of the documents read per second
+     */
+    @Override
+    public double getDocumentsPerSecond() {
+        return rate.getRatePerSecond();
+    }
+
+    @Override
+    public double getMeanDocumentsPerSecond() {
+        long elapsed = this.getElapsedMillis();
+        return elapsed == 0 ? 0.0 : 1000.0 * this.getReadDocuments() / elapsed;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        long end = this.isFinished() ? this.endNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - this.startNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s -> %s: phase=%s, read=%d/%d (%.1f%%), indexed=%d, skipped=%d, failed=%d, rate=%.0f/s",
+                alias, targetIndex, getPhase(), getReadDocuments(), getTotalDocuments(), getPercentComplete(),
+                getIndexedDocuments(), getSkippedDocuments(), getFailedDocuments(), getDocumentsPerSecond());
+    }
+}
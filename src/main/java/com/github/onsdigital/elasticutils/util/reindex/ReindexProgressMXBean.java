@@ -0,0 +1,32 @@
+package com.github.onsdigital.elasticutils.util.reindex;
+
+/**
+ * JMX view of {@link ReindexProgress}
+ */
+public interface ReindexProgressMXBean {
+
+    String getAlias();
+
+    String getTargetIndex();
+
+    String getPhase();
+
+    long getTotalDocuments();
+
+    long getReadDocuments();
+
+    long getIndexedDocuments();
+
+    long getSkippedDocuments();
+
+    long getFailedDocuments();
+
+    double getPercentComplete();
+
+    double getDocumentsPerSecond();
+
+    double getMeanDocumentsPerSecond();
+
+    long getElapsedMillis();
+
+}
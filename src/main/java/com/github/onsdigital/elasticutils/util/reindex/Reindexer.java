@@ -0,0 +1,280 @@
+package com.github.onsdigital.elasticutils.util.reindex;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.onsdigital.elasticutils.action.index.SimpleIndexRequestBuilder;
+import com.github.onsdigital.elasticutils.client.bulk.load.BulkLoadSession;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
+import com.github.onsdigital.elasticutils.client.type.DocumentType;
+import com.github.onsdigital.elasticutils.util.DeserializerRegistry;
+import com.github.onsdigital.elasticutils.util.JsonUtils;
+import com.github.onsdigital.elasticutils.util.SerializerRegistry;
+import com.github.onsdigital.elasticutils.util.XContentFormats;
+import com.github.onsdigital.elasticutils.util.search.SlicedScrollReader;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Rebuilds the index behind an alias without readers ever seeing a partial index:
+ *
+ *  1. creates a new versioned index (alias_timestamp) with the given settings and mapping
+ *  2. copies the source, by default the indices currently behind the alias, into it using parallel sliced
+ *     scrolls, passing each document through the transform, within a {@link BulkLoadSession}
+ *  3. drains the client's BulkProcessor, failing if it does not drain in time, then (optionally) checks the
+ *     new index holds every document sent
+ *  4. atomically moves the alias to the new index, and deletes the indices it pointed to
+ *
+ * If any step before the alias moves fails, the new index is deleted and the alias left untouched.
+ * Document ids and routing are preserved. Without a transform, sources are copied byte for byte; with one,
+ * they are deserialized, transformed (null drops the document) and serialized with the default registries.
+ *
+ * Progress is available from {@link #getProgress()} (and JMX, if enabled) while a run is in flight.
+ */
+public class Reindexer<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Reindexer.class);
+
+    private static final String ROUTING = "_routing";
+
+    private final ElasticSearchClient<T> client;
+    private final ObjectReader reader;
+    private final ReindexOptions options;
+
+    private volatile ReindexProgress progress;
+
+    public Reindexer(ElasticSearchClient<T> client, Class<T> returnClass) {
+        this(client, returnClass, ReindexOptions.builder().build());
+    }
+
+    public Reindexer(ElasticSearchClient<T> client, Class<T> returnClass, ReindexOptions options) {
+        this.client = client;
+        this.reader = DeserializerRegistry.getInstance().readerFor(returnClass);
+        this.options = options;
+    }
+
+    /**
+     * Copies the documents unchanged
+     */
+    public ReindexProgress reindex(String alias, DocumentType documentType, Settings settings,
+                                   Map<String, Object> mapping) throws IOException, InterruptedException {
+        return this.reindex(alias, documentType, settings, mapping, null);
+    }
+
+    /**
+     * Rebuilds the alias, blocking until the alias has moved (or the rebuild failed)
+     *
+     * @param transform Applied to every document; returning null drops it
+     * @return The progress of the completed run
+     */
+    public ReindexProgress reindex(String alias, DocumentType documentType, Settings settings, Map<String, Object> mapping,
+                                   Function<T, T> transform) throws IOException, InterruptedException {
+        Set<String> oldIndices = this.client.getAliasedIndices(alias);
+        if (oldIndices.isEmpty() && this.client.indexExists(alias)) {
+            throw new IllegalStateException(String.format("%s is an index, not an alias; it must be removed before an alias of that name can be created", alias));
+        }
+
+        String[] source;
+        if (this.options.getSourceIndex() != null) {
+            source = new String[]{this.options.getSourceIndex()};
+        } else if (!oldIndices.isEmpty()) {
+            source = oldIndices.toArray(new String[oldIndices.size()]);
+        } else {
+            throw new IllegalStateException(String.format("Alias %s does not exist and no source index was given", alias));
+        }
+
+        String index = this.newIndexName(alias);
+        ReindexProgress progress = new ReindexProgress(alias, index);
+        if (this.options.isRegisterMBean()) {
+            progress.registerMBean();
+        }
+        this.progress = progress;
+
+        LOGGER.info("Reindexing alias {} from {} into {}", alias, String.join(",", source), index);
+        if (!this.client.createIndex(index, documentType, settings, mapping)) {
+            progress.setPhase(ReindexProgress.Phase.FAILED);
+            throw new IOException(String.format("Unable to create index %s", index));
+        }
+
+        boolean swapped = false;
+        try {
+            progress.setTotalDocuments(this.count(source, this.options.getQuery()));
+            progress.setPhase(ReindexProgress.Phase.COPYING);
+            BulkLoadSession<T> session = BulkLoadSession.open(this.client, index, this.options.getBulkLoadOptions());
+            try {
+                this.copy(source, index, documentType, transform, progress);
+            } catch (Throwable e) {
+                closeAfterFailure(session, e);
+                throw e;
+            }
+            // Closing the session drains the BulkProcessor, refreshes the index and restores its settings. It fails
+            // if bulk requests are still in flight, so the alias never moves to an index which is still being written.
+            progress.setPhase(ReindexProgress.Phase.DRAINING);
+            session.close();
+
+            if (this.options.isVerifyCount()) {
+                progress.setPhase(ReindexProgress.Phase.VERIFYING);
+                long count = this.count(new String[]{index}, QueryBuilders.matchAllQuery());
+                if (count < progress.getIndexedDocuments()) {
+                    throw new IOException(String.format("Index %s holds %d of the %d documents sent to it, not moving alias %s",
+                            index, count, progress.getIndexedDocuments(), alias));
+                }
+            }
+
+            progress.setPhase(ReindexProgress.Phase.SWAPPING);
+            if (!this.client.swapAlias(alias, index, oldIndices)) {
+                throw new IOException(String.format("Unable to move alias %s to index %s", alias, index));
+            }
+            swapped = true;
+        } finally {
+            if (!swapped) {
+                progress.setPhase(ReindexProgress.Phase.FAILED);
+                this.dropQuietly(index);
+                LOGGER.error("Reindex of alias {} failed: {}", alias, progress);
+            }
+        }
+
+        if (this.options.isDeleteOldIndices()) {
+            progress.setPhase(ReindexProgress.Phase.RETIRING);
+            // The alias has moved, so failing to delete an old index must not fail the reindex
+            oldIndices.forEach(this::dropQuietly);
+        }
+
+        progress.setPhase(ReindexProgress.Phase.DONE);
+        LOGGER.info("Reindex of alias {} complete: {}", alias, progress);
+        return progress;
+    }
+
+    /**
+     * @return The name of the new index for the alias. Override for a different versioning scheme.
+     */
+    protected String newIndexName(String alias) {
+        return String.format("%s_%d", alias, System.currentTimeMillis());
+    }
+
+    private void copy(String[] source, String index, DocumentType documentType, Function<T, T> transform,
+                      ReindexProgress progress) throws IOException, InterruptedException {
+        SearchRequest request = this.client.prepareSearch(source)
+                .setQuery(this.options.getQuery())
+                .setSize(this.options.getScrollSize())
+                .setScroll(this.options.getScrollKeepAlive())
+                // Index order is the cheapest order to scroll in
+                .addSort("_doc", SortOrder.ASC)
+                .request();
+
+        SlicedScrollReader.forEachHit(this.client, request, this.options.getSlices(), (sliceId, hit) -> {
+            progress.read();
+            IndexRequest indexRequest;
+            try {
+                indexRequest = this.indexRequest(index, documentType, hit, transform);
+            } catch (IOException | RuntimeException e) {
+                progress.failed();
+                LOGGER.warn("Unable to copy document {} into index {}", hit.getId(), index, e);
+                return;
+            }
+
+            if (indexRequest == null) {
+                progress.skipped();
+            } else {
+                this.client.addToBulk(indexRequest);
+                progress.indexed();
+            }
+        });
+    }
+
+    /**
+     * @return The request copying the hit into the index, or null if the transform dropped it
+     */
+    private IndexRequest indexRequest(String index, DocumentType documentType, SearchHit hit, Function<T, T> transform) throws IOException {
+        BytesReference source = hit.getSourceRef();
+        if (source == null) {
+            throw new IOException(String.format("No _source returned for hit %s", hit.getId()));
+        }
+
+        BytesRef ref = source.toBytesRef();
+        XContentType contentType = XContentFormats.detect(ref.bytes, ref.offset, ref.length);
+        if (contentType == null) {
+            contentType = XContentType.JSON;
+        }
+
+        byte[] bytes;
+        if (transform == null) {
+            bytes = BytesReference.toBytes(source);
+        } else {
+            T entity = transform.apply(XContentFormats.readValue(this.reader, ref));
+            if (entity == null) {
+                return null;
+            }
+            // Transformed documents are written back in the format they were read in
+            Optional<byte[]> serialized = JsonUtils.convertJsonToBytes(entity, SerializerRegistry.getInstance()
+                    .forContentType(contentType).writerForValue(entity, JsonInclude.Include.USE_DEFAULTS));
+            if (!serialized.isPresent()) {
+                throw new IOException(String.format("Unable to serialize document %s", hit.getId()));
+            }
+            bytes = serialized.get();
+        }
+
+        SimpleIndexRequestBuilder builder = this.client.prepareIndex()
+                .setIndex(index)
+                .setType(documentType.getType())
+                .setId(hit.getId())
+                .setSource(bytes, contentType);
+
+        DocumentField routing = hit.field(ROUTING);
+        if (routing != null) {
+            builder.setRouting(String.valueOf(routing.getValue()));
+        }
+        return builder.request();
+    }
+
+    private static void closeAfterFailure(BulkLoadSession<?> session, Throwable failure) {
+        try {
+            session.close();
+        } catch (IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private long count(String[] indices, QueryBuilder query) throws IOException {
+        SearchRequest request = this.client.prepareSearch(indices)
+                .setQuery(query)
+                .setSize(0)
+                .request();
+        return this.client.search(request).getHits().getTotalHits();
+    }
+
+    private void dropQuietly(String index) {
+        try {
+            this.client.dropIndex(index);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to delete index {}", index, e);
+        }
+    }
+
+    /**
+     * @return The progress of the run in flight, or of the last run; null if nothing has run
+     */
+    public ReindexProgress getProgress() {
+        return progress;
+    }
+
+    public ReindexOptions getOptions() {
+        return options;
+    }
+}
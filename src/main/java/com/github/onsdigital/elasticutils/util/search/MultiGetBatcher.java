@@ -0,0 +1,129 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkThreadPool;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single document gets into multi get requests. A batch is sent once it holds
+ * maxBatchSize distinct documents, or maxDelay after its first get, whichever comes first, so each get
+ * waits at most maxDelay longer than it would on its own. Gets for the same document within a batch
+ * share one item. Batching is done by a {@link RequestBatcher}.
+ *
+ * The delay is scheduled on the shared {@link BulkThreadPool} unless a ThreadPool is given.
+ */
+public class MultiGetBatcher {
+
+    private final RequestBatcher<Key, GetResponse, MultiGetResponse> batcher;
+
+    public MultiGetBatcher(ElasticSearchClient<?> client, int maxBatchSize, TimeValue maxDelay) {
+        this(client::multiGetAsync, maxBatchSize, maxDelay, BulkThreadPool.getInstance());
+    }
+
+    public MultiGetBatcher(ElasticSearchClient<?> client, int maxBatchSize, TimeValue maxDelay, ThreadPool threadPool) {
+        this(client::multiGetAsync, maxBatchSize, maxDelay, threadPool);
+    }
+
+    MultiGetBatcher(Function<MultiGetRequest, CompletableFuture<MultiGetResponse>> multiGet, int maxBatchSize,
+                    TimeValue maxDelay, ThreadPool threadPool) {
+        this.batcher = new RequestBatcher<Key, GetResponse, MultiGetResponse>(maxBatchSize, maxDelay, threadPool) {
+            @Override
+            protected CompletableFuture<MultiGetResponse> execute(List<Key> keys) {
+                MultiGetRequest request = new MultiGetRequest();
+                keys.forEach(key -> request.add(key.index, key.type, key.id));
+                return multiGet.apply(request);
+            }
+
+            @Override
+            protected int size(MultiGetResponse response) {
+                return response.getResponses().length;
+            }
+
+            @Override
+            protected void complete(MultiGetResponse response, int item, CompletableFuture<GetResponse> future) {
+                MultiGetItemResponse itemResponse = response.getResponses()[item];
+                if (itemResponse.isFailed()) {
+                    future.completeExceptionally(itemResponse.getFailure().getFailure());
+                } else {
+                    future.complete(itemResponse.getResponse());
+                }
+            }
+        };
+    }
+
+    /**
+     * Queues a get of the document, completing with its GetResponse (which may not exist) or with the
+     * failure of its item or of the whole multi get request
+     */
+    public CompletableFuture<GetResponse> get(String index, String type, String id) {
+        return this.batcher.add(new Key(index, type, id));
+    }
+
+    /**
+     * Sends any pending gets immediately
+     */
+    public void flush() {
+        this.batcher.flush();
+    }
+
+    // STATS //
+
+    public long getGets() {
+        return this.batcher.getQueued();
+    }
+
+    public long getBatches() {
+        return this.batcher.getBatches();
+    }
+
+    /**
+     * @return The mean number of distinct documents per multi get request
+     */
+    public double getMeanBatchSize() {
+        return this.batcher.getMeanBatchSize();
+    }
+
+    public int getMaxBatchSize() {
+        return this.batcher.getMaxBatchSize();
+    }
+
+    public TimeValue getMaxDelay() {
+        return this.batcher.getMaxDelay();
+    }
+
+    private static class Key {
+
+        private final String index;
+        private final String type;
+        private final String id;
+
+        Key(String index, String type, String id) {
+            this.index = index;
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(index, key.index) && Objects.equals(type, key.type) && Objects.equals(id, key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(index, type, id);
+        }
+    }
+}
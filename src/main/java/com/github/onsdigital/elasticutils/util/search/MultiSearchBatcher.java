@@ -0,0 +1,121 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.onsdigital.elasticutils.action.search.SimpleSearchRequestBuilder;
+import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkThreadPool;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchResponse;
+import com.github.onsdigital.elasticutils.util.DeserializerRegistry;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Groups independent searches into _msearch requests, handing each caller its own typed response.
+ *
+ * Explicitly, queue the searches and flush once:
+ *
+ *     MultiSearchBatcher<Doc> batcher = new MultiSearchBatcher<>(client, Doc.class);
+ *     CompletableFuture<ElasticSearchResponse<Doc>> news = batcher.add(client.prepareSearch("news").setQuery(...));
+ *     CompletableFuture<ElasticSearchResponse<Doc>> data = batcher.add(client.prepareSearch("data").setQuery(...));
+ *     batcher.flush();
+ *
+ * Or within a time window, where a batch is sent once it holds maxBatchSize searches or maxDelay after its
+ * first search, whichever comes first. The delay is scheduled on the shared {@link BulkThreadPool} unless a
+ * ThreadPool is given. Batching is done by a {@link RequestBatcher}.
+ */
+public class MultiSearchBatcher<T> {
+
+    private final RequestBatcher<Search, ElasticSearchResponse<T>, MultiSearchResponse> batcher;
+
+    /**
+     * Explicit batching: searches are only sent by {@link #flush()}
+     */
+    public MultiSearchBatcher(ElasticSearchClient<T> client, Class<T> returnClass) {
+        this(client::multiSearchAsync, returnClass, Integer.MAX_VALUE, null, null);
+    }
+
+    public MultiSearchBatcher(ElasticSearchClient<T> client, Class<T> returnClass, int maxBatchSize, TimeValue maxDelay) {
+        this(client::multiSearchAsync, returnClass, maxBatchSize, maxDelay, BulkThreadPool.getInstance());
+    }
+
+    public MultiSearchBatcher(ElasticSearchClient<T> client, Class<T> returnClass, int maxBatchSize, TimeValue maxDelay,
+                              ThreadPool threadPool) {
+        this(client::multiSearchAsync, returnClass, maxBatchSize, maxDelay, threadPool);
+    }
+
+    MultiSearchBatcher(Function<MultiSearchRequest, CompletableFuture<MultiSearchResponse>> multiSearch, Class<T> returnClass,
+                       int maxBatchSize, TimeValue maxDelay, ThreadPool threadPool) {
+        ObjectReader reader = DeserializerRegistry.getInstance().readerFor(returnClass);
+        this.batcher = new RequestBatcher<Search, ElasticSearchResponse<T>, MultiSearchResponse>(maxBatchSize, maxDelay, threadPool) {
+            @Override
+            protected CompletableFuture<MultiSearchResponse> execute(List<Search> searches) {
+                MultiSearchRequest request = new MultiSearchRequest();
+                searches.forEach(search -> request.add(search.request));
+                return multiSearch.apply(request);
+            }
+
+            @Override
+            protected int size(MultiSearchResponse response) {
+                return response.getResponses().length;
+            }
+
+            @Override
+            protected void complete(MultiSearchResponse response, int item, CompletableFuture<ElasticSearchResponse<T>> future) {
+                MultiSearchResponse.Item itemResponse = response.getResponses()[item];
+                if (itemResponse.isFailure()) {
+                    future.completeExceptionally(itemResponse.getFailure());
+                } else {
+                    future.complete(new ElasticSearchResponse<>(itemResponse.getResponse(), reader, returnClass));
+                }
+            }
+        };
+    }
+
+    public CompletableFuture<ElasticSearchResponse<T>> add(SimpleSearchRequestBuilder builder) {
+        return this.add(builder.request());
+    }
+
+    /**
+     * Queues the search, completing with its response or with the failure of that search or of the whole
+     * multi search request
+     */
+    public CompletableFuture<ElasticSearchResponse<T>> add(SearchRequest request) {
+        return this.batcher.add(new Search(request));
+    }
+
+    /**
+     * Sends any queued searches as one multi search request
+     */
+    public void flush() {
+        this.batcher.flush();
+    }
+
+    // STATS //
+
+    public long getSearches() {
+        return this.batcher.getQueued();
+    }
+
+    public long getBatches() {
+        return this.batcher.getBatches();
+    }
+
+    /**
+     * Every search is sent, even if an equal search is queued in the same batch, so Search keeps identity equality
+     */
+    private static class Search {
+
+        private final SearchRequest request;
+
+        Search(SearchRequest request) {
+            this.request = request;
+        }
+    }
+}
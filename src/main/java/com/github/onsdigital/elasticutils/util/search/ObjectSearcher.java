@@ -1,16 +1,39 @@
 package com.github.onsdigital.elasticutils.util.search;
 
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.onsdigital.elasticutils.action.search.SimpleSearchRequestBuilder;
 import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
 import com.github.onsdigital.elasticutils.client.generic.ElasticSearchResponse;
 import com.github.onsdigital.elasticutils.client.type.DefaultDocumentTypes;
 import com.github.onsdigital.elasticutils.client.type.DocumentType;
+import com.github.onsdigital.elasticutils.util.DeserializerRegistry;
+import com.github.onsdigital.elasticutils.util.ProjectionRegistry;
+import com.github.onsdigital.elasticutils.util.XContentFormats;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
 /**
  * @author sullid (David Sullivan) on 13/12/2017
@@ -18,9 +41,18 @@ import java.util.List;
  */
 public class ObjectSearcher<T> {
 
+    public static final int DEFAULT_SCROLL_SIZE = 1000;
+    public static final TimeValue DEFAULT_SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+    public static final int DEFAULT_MULTI_GET_CHUNK_SIZE = 500;
+    public static final int DEFAULT_MULTI_GET_CONCURRENCY = 4;
+
     private ElasticSearchClient<T> searchClient;
     private String index;
     private Class<T> returnClass;
+    private ObjectReader reader;
+    private SearchResultCache<T> cache;
+    private MultiGetBatcher getBatcher;
+    private String[] sourceIncludes;
 
     public ObjectSearcher(ElasticSearchClient<T> searchClient, ElasticSearchIndex index, Class<T> returnClass) {
         this(searchClient, index.getIndexName(), returnClass);
@@ -30,19 +62,216 @@ public class ObjectSearcher<T> {
         this.searchClient = searchClient;
         this.index = index;
         this.returnClass = returnClass;
+        this.reader = DeserializerRegistry.getInstance().readerFor(returnClass);
+    }
+
+    /**
+     * Caches the results of {@link #search(SearchRequest)} (and so of search(QueryBuilder, DocumentType)).
+     * Entries are invalidated when this searcher's client writes to the index they were searched from.
+     * Scroll requests are never cached. Pass null to remove the cache.
+     */
+    public ObjectSearcher<T> setCache(SearchResultCache<T> cache) {
+        if (this.cache != null) {
+            this.searchClient.removeWriteListener(this.cache);
+        }
+        this.cache = cache;
+        if (cache != null) {
+            this.searchClient.addWriteListener(cache);
+        }
+        return this;
+    }
+
+    public SearchResultCache<T> getCache() {
+        return cache;
+    }
+
+    /**
+     * Coalesces concurrent findOne calls into multi get requests of up to maxBatchSize documents, each
+     * call waiting at most maxDelay longer than it would on its own. Pass a maxBatchSize of 0 to disable.
+     *
+     * @see MultiGetBatcher
+     */
+    public ObjectSearcher<T> setGetBatching(int maxBatchSize, TimeValue maxDelay) {
+        return this.setGetBatcher(maxBatchSize > 0 ? new MultiGetBatcher(this.searchClient, maxBatchSize, maxDelay) : null);
+    }
+
+    /**
+     * Shares a batcher between searchers, so lookups against different indices can be coalesced together
+     */
+    public ObjectSearcher<T> setGetBatcher(MultiGetBatcher getBatcher) {
+        if (this.getBatcher != null) {
+            this.getBatcher.flush();
+        }
+        this.getBatcher = getBatcher;
+        return this;
+    }
+
+    public MultiGetBatcher getGetBatcher() {
+        return getBatcher;
+    }
+
+    /**
+     * Fetches only the _source fields the return class maps (see {@link ProjectionRegistry}), rather than whole
+     * documents, on every search and non batched get this searcher builds. Requests passed to
+     * {@link #search(SearchRequest)} or {@link #stream(SearchRequest)} are sent as they are.
+     */
+    public ObjectSearcher<T> setProjection(boolean projection) {
+        this.reader = DeserializerRegistry.getInstance().readerFor(this.returnClass);
+        this.sourceIncludes = projection ? ProjectionRegistry.getInstance().includesFor(this.returnClass) : null;
+        return this;
+    }
+
+    /**
+     * As {@link #setProjection(boolean)}, fetching and reading only the properties in the given JsonView
+     */
+    public ObjectSearcher<T> setProjection(Class<?> view) {
+        this.reader = DeserializerRegistry.getInstance().readerFor(this.returnClass).withView(view);
+        this.sourceIncludes = ProjectionRegistry.getInstance().includesFor(this.returnClass, view);
+        return this;
+    }
+
+    /**
+     * @return The _source fields fetched, or null if whole documents are
+     */
+    public String[] getSourceIncludes() {
+        return sourceIncludes;
+    }
+
+    private SimpleSearchRequestBuilder project(SimpleSearchRequestBuilder builder) {
+        if (this.sourceIncludes != null) {
+            builder.setFetchSource(this.sourceIncludes, null);
+        }
+        return builder;
+    }
+
+    private FetchSourceContext fetchSourceContext() {
+        return this.sourceIncludes == null ? null : new FetchSourceContext(true, this.sourceIncludes, Strings.EMPTY_ARRAY);
     }
 
     public T findOne(String id) throws IOException {
         return this.findOne(id, DefaultDocumentTypes.DOCUMENT);
     }
 
+    /**
+     * Realtime get of the document with the given id, routed to the one shard holding it (the result cache
+     * is not used). The searcher's index must be a concrete index or an alias of a single index.
+     */
     public T findOne(String id, DocumentType documentType) throws IOException {
-        QueryBuilder qb = QueryBuilders.termQuery("_id", id);
-        List<T> results = this.search(qb, documentType);
-        if (results.size() != 1) {
-            throw new RuntimeException(String.format("Found duplicate ids for id and document type: %s:%s", id, documentType.getType()));
+        if (this.getBatcher != null) {
+            return await(this.findOneAsync(id, documentType));
+        }
+        GetResponse response = this.searchClient.get(this.getRequest(id, documentType));
+        return this.readFound(id, documentType, response);
+    }
+
+    /**
+     * As {@link #findOne(String, DocumentType)}, completing once the document has been fetched. Uses the
+     * get batcher if one is set.
+     */
+    public CompletableFuture<T> findOneAsync(String id, DocumentType documentType) {
+        CompletableFuture<GetResponse> response = this.getBatcher != null ?
+                this.getBatcher.get(this.index, documentType.getType(), id) :
+                this.searchClient.getAsync(this.getRequest(id, documentType));
+        return response.thenApply(getResponse -> {
+            try {
+                return this.readFound(id, documentType, getResponse);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private GetRequest getRequest(String id, DocumentType documentType) {
+        return new GetRequest(this.index, documentType.getType(), id).fetchSourceContext(this.fetchSourceContext());
+    }
+
+    private T readFound(String id, DocumentType documentType, GetResponse response) throws IOException {
+        if (!response.isExists()) {
+            throw new RuntimeException(String.format("No document found for id and document type: %s:%s", id, documentType.getType()));
+        }
+        return this.read(id, response.getSourceAsBytesRef());
+    }
+
+    public List<T> findMany(Collection<String> ids) throws IOException {
+        return this.findMany(ids, DefaultDocumentTypes.DOCUMENT);
+    }
+
+    public List<T> findMany(Collection<String> ids, DocumentType documentType) throws IOException {
+        return this.findMany(ids, documentType, DEFAULT_MULTI_GET_CHUNK_SIZE, DEFAULT_MULTI_GET_CONCURRENCY);
+    }
+
+    /**
+     * Fetches the documents with the given ids using multi get requests of at most chunkSize ids, with up to
+     * concurrency requests in flight at once. Results are in the order of the ids; ids which do not exist
+     * are skipped.
+     *
+     * @throws IllegalArgumentException If chunkSize or concurrency is not positive
+     */
+    public List<T> findMany(Collection<String> ids, DocumentType documentType, int chunkSize, int concurrency) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        List<String> idList = new ArrayList<>(ids);
+        List<T> results = new ArrayList<>(idList.size());
+        Deque<CompletableFuture<MultiGetResponse>> inFlight = new ArrayDeque<>(concurrency);
+        FetchSourceContext fetchSourceContext = this.fetchSourceContext();
+
+        for (int from = 0; from < idList.size(); from += chunkSize) {
+            if (inFlight.size() >= concurrency) {
+                this.collect(await(inFlight.poll()), results);
+            }
+            MultiGetRequest request = new MultiGetRequest();
+            for (String id : idList.subList(from, Math.min(from + chunkSize, idList.size()))) {
+                request.add(new MultiGetRequest.Item(this.index, documentType.getType(), id)
+                        .fetchSourceContext(fetchSourceContext));
+            }
+            inFlight.add(this.searchClient.multiGetAsync(request));
         }
-        return results.get(0);
+        while (!inFlight.isEmpty()) {
+            this.collect(await(inFlight.poll()), results);
+        }
+        return results;
+    }
+
+    private void collect(MultiGetResponse response, List<T> results) throws IOException {
+        for (MultiGetItemResponse item : response.getResponses()) {
+            if (item.isFailed()) {
+                throw new IOException(String.format("Failed to get document %s", item.getId()), item.getFailure().getFailure());
+            }
+            GetResponse getResponse = item.getResponse();
+            if (getResponse.isExists()) {
+                results.add(this.read(getResponse.getId(), getResponse.getSourceAsBytesRef()));
+            }
+        }
+    }
+
+    private static <R> R await(CompletableFuture<R> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for get response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private T read(String id, BytesReference source) throws IOException {
+        if (source == null) {
+            throw new IOException(String.format("No _source returned for document %s", id));
+        }
+        return XContentFormats.readValue(this.reader, source.toBytesRef());
     }
 
     public List<T> search() throws IOException {
@@ -50,18 +279,79 @@ public class ObjectSearcher<T> {
     }
 
     public List<T> search(QueryBuilder qb, DocumentType documentType) throws IOException {
-        SearchRequest request = searchClient.prepareSearch(this.index)
+        SearchRequest request = this.project(searchClient.prepareSearch(this.index)
                 .setTypes(documentType.getType())
-                .setQuery(qb)
+                .setQuery(qb))
                 .request();
         return this.search(request);
     }
 
     public List<T> search(SearchRequest request) throws IOException {
+        if (this.cache != null && request.scroll() == null) {
+            return this.cache.get(request, () -> this.execute(request));
+        }
+        return this.execute(request);
+    }
+
+    private List<T> execute(SearchRequest request) throws IOException {
         SearchResponse response = this.searchClient.search(request);
-        ElasticSearchResponse<T> elasticSearchResponse = new ElasticSearchResponse<>(response, this.returnClass);
+        ElasticSearchResponse<T> elasticSearchResponse = new ElasticSearchResponse<>(response, this.reader, this.returnClass);
 
         return elasticSearchResponse.entities();
     }
 
+    /**
+     * Streams every document matching the query using a scroll, prefetching the next page in the
+     * background. The stream should be closed (try-with-resources) if it is not fully consumed,
+     * so that the scroll context is released.
+     */
+    public Stream<T> stream(QueryBuilder qb, DocumentType documentType) throws IOException {
+        return this.stream(qb, documentType, DEFAULT_SCROLL_SIZE, DEFAULT_SCROLL_KEEP_ALIVE);
+    }
+
+    public Stream<T> stream(QueryBuilder qb, DocumentType documentType, int pageSize, TimeValue keepAlive) throws IOException {
+        SearchRequest request = this.project(searchClient.prepareSearch(this.index)
+                .setTypes(documentType.getType())
+                .setQuery(qb)
+                .setSize(pageSize)
+                .setScroll(keepAlive))
+                .request();
+        return this.stream(request);
+    }
+
+    /**
+     * Streams every hit of the given scroll request. The request must have a scroll keep alive set.
+     */
+    public Stream<T> stream(SearchRequest request) throws IOException {
+        return new ScrollIterator<>(this.searchClient, request, this.reader, this.returnClass).stream();
+    }
+
+    /**
+     * Streams every document matching the query using parallel sliced scrolls.
+     *
+     * @see SlicedScrollReader
+     */
+    public Stream<T> parallelStream(QueryBuilder qb, DocumentType documentType, int slices) {
+        SearchRequest request = this.project(searchClient.prepareSearch(this.index)
+                .setTypes(documentType.getType())
+                .setQuery(qb)
+                .setSize(DEFAULT_SCROLL_SIZE)
+                .setScroll(DEFAULT_SCROLL_KEEP_ALIVE))
+                .request();
+        return new SlicedScrollReader<>(this.searchClient, this.reader, this.returnClass).stream(request, slices);
+    }
+
+    /**
+     * Deep pagination over the documents matching the query using search_after.
+     *
+     * @see SearchAfterPaginator
+     */
+    public SearchAfterPaginator<T> paginator(QueryBuilder qb, DocumentType documentType, int pageSize) {
+        SimpleSearchRequestBuilder builder = this.project(searchClient.prepareSearch(this.index)
+                .setTypes(documentType.getType())
+                .setQuery(qb)
+                .setSize(pageSize));
+        return new SearchAfterPaginator<>(this.searchClient, builder, this.reader, this.returnClass);
+    }
+
 }
@@ -0,0 +1,176 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queues items and sends them as one request per batch, handing every caller the result of its own item.
+ * A batch is sent once it holds maxBatchSize distinct items, maxDelay after its first item (if a delay is
+ * given) or on {@link #flush()}, whichever comes first. Items with equal keys within a batch share one slot.
+ *
+ * If the batch request fails, its response does not hold one result per item, or reading a result throws,
+ * every caller still waiting is failed rather than left hanging.
+ *
+ * @param <K> The item queued by each caller
+ * @param <V> The result handed to each caller
+ * @param <R> The response to a whole batch, holding the results in the order of the items
+ */
+abstract class RequestBatcher<K, V, R> {
+
+    private final int maxBatchSize;
+    private final TimeValue maxDelay;
+    private final ThreadPool threadPool;
+
+    private Map<K, List<CompletableFuture<V>>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder items = new LongAdder();
+
+    /**
+     * @param maxDelay Null to send batches only when full or flushed
+     */
+    RequestBatcher(int maxBatchSize, TimeValue maxDelay, ThreadPool threadPool) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.threadPool = threadPool;
+    }
+
+    /**
+     * Sends the items as one request
+     */
+    protected abstract CompletableFuture<R> execute(List<K> items);
+
+    /**
+     * @return The number of results in the response
+     */
+    protected abstract int size(R response);
+
+    /**
+     * Completes the future with the result of the given item of the response
+     */
+    protected abstract void complete(R response, int item, CompletableFuture<V> future);
+
+    CompletableFuture<V> add(K item) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        Map<K, List<CompletableFuture<V>>> batch = null;
+        boolean schedule = false;
+
+        synchronized (this) {
+            this.pending.computeIfAbsent(item, key -> new ArrayList<>(1)).add(future);
+            if (this.pending.size() >= this.maxBatchSize) {
+                batch = this.pending;
+                this.pending = new LinkedHashMap<>();
+            } else if (this.maxDelay != null && !this.flushScheduled) {
+                this.flushScheduled = true;
+                schedule = true;
+            }
+        }
+        this.queued.increment();
+
+        if (batch != null) {
+            this.send(batch);
+        } else if (schedule) {
+            try {
+                this.threadPool.schedule(this.maxDelay, ThreadPool.Names.GENERIC, this::flush);
+            } catch (Exception e) {
+                // The thread pool is shutting down; don't leave the batch waiting
+                this.flush();
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Sends any pending items immediately
+     */
+    void flush() {
+        Map<K, List<CompletableFuture<V>>> batch;
+        synchronized (this) {
+            this.flushScheduled = false;
+            batch = this.pending;
+            this.pending = new LinkedHashMap<>();
+        }
+        if (!batch.isEmpty()) {
+            this.send(batch);
+        }
+    }
+
+    private void send(Map<K, List<CompletableFuture<V>>> batch) {
+        List<K> keys = new ArrayList<>(batch.keySet());
+        List<List<CompletableFuture<V>>> waiting = new ArrayList<>(batch.values());
+        this.batches.increment();
+        this.items.add(keys.size());
+
+        CompletableFuture<R> response;
+        try {
+            response = this.execute(keys);
+        } catch (RuntimeException e) {
+            failAll(waiting, e);
+            return;
+        }
+
+        response.whenComplete((batchResponse, e) -> {
+            if (e != null) {
+                failAll(waiting, e);
+                return;
+            }
+            try {
+                int size = this.size(batchResponse);
+                if (size != waiting.size()) {
+                    throw new IllegalStateException(String.format("Batch response holds %d results for %d items",
+                            size, waiting.size()));
+                }
+                for (int i = 0; i < waiting.size(); i++) {
+                    for (CompletableFuture<V> future : waiting.get(i)) {
+                        this.complete(batchResponse, i, future);
+                    }
+                }
+            } catch (Throwable t) {
+                // Futures completed before the failure keep their result
+                failAll(waiting, t);
+            }
+        });
+    }
+
+    private static <V> void failAll(List<List<CompletableFuture<V>>> waiting, Throwable failure) {
+        waiting.forEach(futures -> futures.forEach(future -> future.completeExceptionally(failure)));
+    }
+
+    // STATS //
+
+    long getQueued() {
+        return queued.sum();
+    }
+
+    long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return The mean number of distinct items per batch
+     */
+    double getMeanBatchSize() {
+        long batches = this.getBatches();
+        return batches == 0 ? 0.0 : (double) items.sum() / batches;
+    }
+
+    int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    TimeValue getMaxDelay() {
+        return maxDelay;
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchResponse;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over every hit of a scroll search. While the caller consumes page N, page N+1 is
+ * fetched asynchronously by the client so network wait overlaps with processing. The scroll context
+ * is cleared once the scroll is exhausted or the iterator is closed.
+ */
+public class ScrollIterator<T> implements Iterator<T>, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScrollIterator.class);
+
+    private final ElasticSearchClient<?> searchClient;
+    private final Function<SearchResponse, Iterator<T>> pageReader;
+    private final TimeValue keepAlive;
+
+    private String scrollId;
+    private long totalHits;
+    private long fetchedHits;
+    private Iterator<T> current = Collections.emptyIterator();
+    private CompletableFuture<SearchResponse> next;
+    private boolean closed;
+
+    /**
+     * Executes the initial search synchronously; the request must have a scroll keep alive set.
+     */
+    public ScrollIterator(ElasticSearchClient<T> searchClient, SearchRequest request, ObjectReader reader,
+                          Class<T> returnClass) throws IOException {
+        this(searchClient, request, response -> new ElasticSearchResponse<>(response, reader, returnClass).iterator());
+    }
+
+    private ScrollIterator(ElasticSearchClient<?> searchClient, SearchRequest request,
+                           Function<SearchResponse, Iterator<T>> pageReader) throws IOException {
+        if (request.scroll() == null) {
+            throw new IllegalArgumentException("SearchRequest must have a scroll keep alive set");
+        }
+        this.searchClient = searchClient;
+        this.pageReader = pageReader;
+        this.keepAlive = request.scroll().keepAlive();
+
+        try {
+            this.accept(searchClient.search(request));
+        } catch (IOException | RuntimeException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Iterates over the raw hits of the scroll, for callers which need their ids or metadata as well as their source
+     */
+    public static ScrollIterator<SearchHit> hits(ElasticSearchClient<?> searchClient, SearchRequest request) throws IOException {
+        return new ScrollIterator<>(searchClient, request, response -> Arrays.asList(response.getHits().getHits()).iterator());
+    }
+
+    private void accept(SearchResponse response) {
+        this.scrollId = response.getScrollId();
+        this.totalHits = response.getHits().getTotalHits();
+
+        int numHits = response.getHits().getHits().length;
+        this.fetchedHits += numHits;
+        this.current = this.pageReader.apply(response);
+
+        if (numHits > 0 && this.fetchedHits < this.totalHits) {
+            this.prefetch();
+        } else {
+            this.next = null;
+        }
+    }
+
+    private void prefetch() {
+        SearchScrollRequest request = new SearchScrollRequest(this.scrollId).scroll(this.keepAlive);
+        this.next = this.searchClient.searchScrollAsync(request);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!this.current.hasNext()) {
+            if (this.closed || this.next == null) {
+                this.close();
+                return false;
+            }
+            this.accept(this.awaitNext());
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.current.next();
+    }
+
+    private SearchResponse awaitNext() {
+        try {
+            return this.next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.close();
+            throw new IllegalStateException("Interrupted while waiting for the next scroll page", e);
+        } catch (ExecutionException e) {
+            this.close();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Wraps this iterator in a sequential Stream which clears the scroll when closed
+     */
+    public Stream<T> stream() {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.current = Collections.emptyIterator();
+
+        if (this.next != null) {
+            this.next.cancel(true);
+            this.next = null;
+        }
+
+        if (this.scrollId != null) {
+            ClearScrollRequest request = new ClearScrollRequest();
+            request.addScrollId(this.scrollId);
+            try {
+                this.searchClient.clearScroll(request);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to clear scroll context", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.onsdigital.elasticutils.action.search.SimpleSearchRequestBuilder;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchResponse;
+import com.github.onsdigital.elasticutils.util.DeserializerRegistry;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Deep pagination using search_after rather than from/size, so fetching page 500 costs the cluster
+ * the same as fetching page 1. A unique tiebreak sort is appended to the request automatically, and
+ * every page carries an opaque cursor which can be handed to clients and used to resume later
+ * (e.g. by a "next page" endpoint).
+ *
+ * The builder's request is copied when the paginator is created and never modified, and each page is
+ * fetched with a further copy, so a single paginator can serve concurrent callers.
+ */
+public class SearchAfterPaginator<T> {
+
+    /**
+     * Unique per document and sortable on both Elasticsearch 5.x and 6.x
+     */
+    public static final String DEFAULT_TIEBREAK_FIELD = "_uid";
+
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ElasticSearchClient<T> searchClient;
+    private final SearchRequest request;
+    private final ObjectReader reader;
+    private final Class<T> returnClass;
+
+    public SearchAfterPaginator(ElasticSearchClient<T> searchClient, SimpleSearchRequestBuilder builder, Class<T> returnClass) {
+        this(searchClient, builder, returnClass, DEFAULT_TIEBREAK_FIELD);
+    }
+
+    public SearchAfterPaginator(ElasticSearchClient<T> searchClient, SimpleSearchRequestBuilder builder, Class<T> returnClass,
+                                String tiebreakField) {
+        this(searchClient, builder, DeserializerRegistry.getInstance().readerFor(returnClass), returnClass, tiebreakField);
+    }
+
+    /**
+     * @param reader Reader for the hits' sources, e.g. one restricted to a JSON view
+     */
+    public SearchAfterPaginator(ElasticSearchClient<T> searchClient, SimpleSearchRequestBuilder builder, ObjectReader reader,
+                                Class<T> returnClass) {
+        this(searchClient, builder, reader, returnClass, DEFAULT_TIEBREAK_FIELD);
+    }
+
+    public SearchAfterPaginator(ElasticSearchClient<T> searchClient, SimpleSearchRequestBuilder builder, ObjectReader reader,
+                                Class<T> returnClass, String tiebreakField) {
+        this.searchClient = searchClient;
+        this.reader = reader;
+        this.returnClass = returnClass;
+
+        SearchRequest original = builder.request();
+        if (original.source() != null && original.source().from() > 0) {
+            throw new IllegalArgumentException("search_after cannot be combined with from > 0");
+        }
+        this.request = SearchRequests.copy(original, withTiebreakSort(original, tiebreakField));
+    }
+
+    /**
+     * Copies the request's source with the tiebreak sort appended, leaving the original untouched
+     */
+    private static SearchSourceBuilder withTiebreakSort(SearchRequest request, String tiebreakField) {
+        List<SortBuilder<?>> sorts = request.source() == null ? null : request.source().sorts();
+        if (sorts == null) {
+            // Keep relevance ordering when the caller did not ask for a sort
+            return SearchRequests.copySource(request)
+                    .sort(SortBuilders.scoreSort())
+                    .sort(tiebreakField, SortOrder.ASC);
+        }
+        for (SortBuilder<?> sort : sorts) {
+            if (sort instanceof FieldSortBuilder && tiebreakField.equals(((FieldSortBuilder) sort).getFieldName())) {
+                return SearchRequests.copySource(request);
+            }
+        }
+        // A shallow copy would share, and so append to, the original's sort list
+        try {
+            return SearchRequests.deepCopySource(request).sort(tiebreakField, SortOrder.ASC);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to copy search source", e);
+        }
+    }
+
+    public Page<T> firstPage() throws IOException {
+        return this.page(null);
+    }
+
+    public Page<T> nextPage(Page<T> page) throws IOException {
+        if (!page.hasNext()) {
+            throw new NoSuchElementException("No more pages");
+        }
+        return this.page(page.getCursor());
+    }
+
+    /**
+     * Fetches the page following the given cursor, or the first page if the cursor is null
+     */
+    public Page<T> page(String cursor) throws IOException {
+        SearchSourceBuilder source = SearchRequests.copySource(this.request);
+        if (cursor != null) {
+            source.searchAfter(decodeCursor(cursor));
+        }
+
+        SearchRequest request = SearchRequests.copy(this.request, source);
+        SearchResponse response = this.searchClient.search(request);
+        ElasticSearchResponse<T> elasticSearchResponse = new ElasticSearchResponse<>(response, this.reader, this.returnClass);
+
+        int size = source.size() < 0 ? DEFAULT_PAGE_SIZE : source.size();
+        SearchHit[] hits = response.getHits().getHits();
+
+        String nextCursor = null;
+        if (hits.length > 0 && hits.length >= size) {
+            nextCursor = encodeCursor(hits[hits.length - 1].getSortValues());
+        }
+        return new Page<>(elasticSearchResponse, nextCursor);
+    }
+
+    /**
+     * Lazily walks every page, starting after the given cursor (or at the first page if null)
+     */
+    public Stream<T> stream(String cursor) {
+        Iterator<Page<T>> pages = new Iterator<Page<T>>() {
+
+            private String nextCursor = cursor;
+            private boolean first = true;
+
+            @Override
+            public boolean hasNext() {
+                return this.first || this.nextCursor != null;
+            }
+
+            @Override
+            public Page<T> next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    Page<T> page = SearchAfterPaginator.this.page(this.nextCursor);
+                    this.first = false;
+                    this.nextCursor = page.getCursor();
+                    return page;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        Spliterator<Page<T>> spliterator = Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false)
+                .flatMap(page -> page.getResponse().stream());
+    }
+
+    public Stream<T> stream() {
+        return this.stream(null);
+    }
+
+    static String encodeCursor(Object[] sortValues) throws IOException {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(sortValues));
+    }
+
+    static Object[] decodeCursor(String cursor) throws IOException {
+        try {
+            return MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), Object[].class);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(String.format("Invalid cursor: %s", cursor), e);
+        }
+    }
+
+    public static class Page<T> {
+
+        private final ElasticSearchResponse<T> response;
+        private final String cursor;
+
+        Page(ElasticSearchResponse<T> response, String cursor) {
+            this.response = response;
+            this.cursor = cursor;
+        }
+
+        public ElasticSearchResponse<T> getResponse() {
+            return response;
+        }
+
+        public List<T> getEntities() {
+            return response.entities();
+        }
+
+        /**
+         * Opaque token identifying the position after the last hit of this page, or null if this is the last page
+         */
+        public String getCursor() {
+            return cursor;
+        }
+
+        public boolean hasNext() {
+            return cursor != null;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Utility methods for deriving new SearchRequests from a template request
+ */
+final class SearchRequests {
+
+    private SearchRequests() {}
+
+    /**
+     * Shallow copy of the request's source, whose slice and search_after can be set without affecting the original.
+     * The copy shares the original's sort list, so sorts must not be added to it if the original has any.
+     */
+    static SearchSourceBuilder copySource(SearchRequest request) {
+        SearchSourceBuilder source = request.source() == null ? new SearchSourceBuilder() : request.source();
+        return source.copyWithNewSlice(source.slice());
+    }
+
+    /**
+     * Deep copy of the request's source, made by serializing it, which can be modified in any way without affecting
+     * the original. Queries and aggregations registered by search plugins cannot be copied.
+     */
+    static SearchSourceBuilder deepCopySource(SearchRequest request) throws IOException {
+        if (request.source() == null) {
+            return new SearchSourceBuilder();
+        }
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            request.source().writeTo(out);
+            return new SearchSourceBuilder(new NamedWriteableAwareStreamInput(out.bytes().streamInput(), Registry.INSTANCE));
+        }
+    }
+
+    /**
+     * Copies the request options onto a new request with the given source
+     */
+    static SearchRequest copy(SearchRequest request, SearchSourceBuilder source) {
+        return new SearchRequest(request.indices(), source)
+                .types(request.types())
+                .scroll(request.scroll())
+                .searchType(request.searchType())
+                .routing(request.routing())
+                .preference(request.preference())
+                .indicesOptions(request.indicesOptions())
+                .requestCache(request.requestCache());
+    }
+
+    /**
+     * Built on first use, as registering every query, aggregation and sort is not free
+     */
+    private static final class Registry {
+
+        private static final NamedWriteableRegistry INSTANCE = new NamedWriteableRegistry(
+                new SearchModule(Settings.EMPTY, false, Collections.emptyList()).getNamedWriteables());
+    }
+}
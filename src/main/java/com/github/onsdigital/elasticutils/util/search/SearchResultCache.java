@@ -0,0 +1,245 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.github.onsdigital.elasticutils.client.generic.IndexWriteListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, time limited LRU cache of search results, keyed on the serialized request (indices, types,
+ * routing, preference, search type, indices options, request cache flag and source). Attach it to an {@link ObjectSearcher} with
+ * {@link ObjectSearcher#setCache(SearchResultCache)}; entries for an index are then invalidated whenever the
+ * searcher's client writes to that index.
+ *
+ * Writes made by other clients are not seen, nor are writes to the concrete index behind an alias, so the
+ * TTL bounds how stale a result can be. Cached entities are shared between callers and must not be modified.
+ */
+public class SearchResultCache<T> implements IndexWriteListener {
+
+    private static final String ALL_INDICES = "_all";
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, CachedResults<T>> entries;
+
+    /**
+     * Incremented by every invalidation, so a search which was in flight when one of its indices changed is not
+     * cached. Guarded by entries, as are the generations below.
+     */
+    private long generation;
+
+    /**
+     * Generation of the last write to each index written to
+     */
+    private final Map<String, Long> writeGenerations = new HashMap<>();
+
+    /**
+     * Generation of the last {@link #invalidateAll()}
+     */
+    private long invalidateAllGeneration;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public SearchResultCache(int maxEntries, TimeValue ttl) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.nanos();
+        this.entries = new LinkedHashMap<String, CachedResults<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResults<T>> eldest) {
+                if (size() > SearchResultCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        List<T> load() throws IOException;
+    }
+
+    /**
+     * Returns the cached results of the request, or loads and caches them
+     */
+    public List<T> get(SearchRequest request, Loader<T> loader) throws IOException {
+        String key = keyOf(request);
+        long now = System.nanoTime();
+        long generation;
+
+        synchronized (this.entries) {
+            CachedResults<T> entry = this.entries.get(key);
+            if (entry != null) {
+                if (now - entry.created < this.ttlNanos) {
+                    this.hits.increment();
+                    return new ArrayList<>(entry.results);
+                }
+                this.entries.remove(key);
+                this.expirations.increment();
+            }
+            generation = this.generation;
+        }
+
+        this.misses.increment();
+        List<T> results = loader.load();
+
+        synchronized (this.entries) {
+            if (!this.writtenSince(request.indices(), generation)) {
+                this.entries.put(key, new CachedResults<>(request.indices(), new ArrayList<>(results), now));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return Whether any of the indices was written to (or the whole cache invalidated) after the given generation
+     */
+    private boolean writtenSince(String[] indices, long generation) {
+        if (this.generation == generation) {
+            return false;
+        }
+        if (this.invalidateAllGeneration > generation) {
+            return true;
+        }
+        for (Map.Entry<String, Long> write : this.writeGenerations.entrySet()) {
+            if (write.getValue() > generation && targets(indices, write.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String keyOf(SearchRequest request) {
+        StringBuilder key = new StringBuilder()
+                .append(Arrays.toString(request.indices()))
+                .append('|').append(Arrays.toString(request.types()))
+                .append('|').append(request.routing())
+                .append('|').append(request.preference())
+                .append('|').append(request.searchType())
+                .append('|').append(request.indicesOptions())
+                .append('|').append(request.requestCache());
+        if (request.source() != null) {
+            key.append('|').append(request.source().toString());
+        }
+        return key.toString();
+    }
+
+    // INVALIDATION //
+
+    /**
+     * Invalidates every entry whose request targeted the given index, directly or by wildcard
+     */
+    @Override
+    public void onWrite(String index) {
+        synchronized (this.entries) {
+            this.writeGenerations.put(index, ++this.generation);
+            Iterator<CachedResults<T>> iterator = this.entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (targets(iterator.next().indices, index)) {
+                    iterator.remove();
+                    this.invalidations.increment();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (this.entries) {
+            this.invalidateAllGeneration = ++this.generation;
+            this.invalidations.add(this.entries.size());
+            this.entries.clear();
+        }
+    }
+
+    private static boolean targets(String[] indices, String index) {
+        if (indices == null || indices.length == 0) {
+            return true;
+        }
+        for (String pattern : indices) {
+            if (ALL_INDICES.equals(pattern) || Regex.simpleMatch(pattern, index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // STATS //
+
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hits = this.getHits();
+        long total = hits + this.getMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public long getTtl(TimeUnit unit) {
+        return unit.convert(this.ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d, hits=%d, misses=%d, hitRate=%.2f, evictions=%d, expirations=%d, invalidations=%d",
+                size(), getHits(), getMisses(), getHitRate(), getEvictions(), getExpirations(), getInvalidations());
+    }
+
+    private static class CachedResults<T> {
+
+        private final String[] indices;
+        private final List<T> results;
+        private final long created;
+
+        CachedResults(String[] indices, List<T> results, long created) {
+            this.indices = indices;
+            this.results = results;
+            this.created = created;
+        }
+    }
+}
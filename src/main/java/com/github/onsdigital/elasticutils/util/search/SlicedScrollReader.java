@@ -0,0 +1,241 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchClient;
+import com.github.onsdigital.elasticutils.util.DeserializerRegistry;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads every hit of a scroll search using N sliced scrolls in parallel. Each slice is an
+ * independent {@link ScrollIterator} (with its own page prefetch) which is consumed and decoded
+ * on its own worker, so exports scale with the number of cores and shards rather than being
+ * bound by a single scroll cursor. Choosing a number of slices equal to the number of shards
+ * of the index is usually the most efficient.
+ */
+public class SlicedScrollReader<T> {
+
+    public static final int DEFAULT_SLICES = Runtime.getRuntime().availableProcessors();
+
+    private final ElasticSearchClient<T> searchClient;
+    private final ObjectReader reader;
+    private final Class<T> returnClass;
+
+    public SlicedScrollReader(ElasticSearchClient<T> searchClient, Class<T> returnClass) {
+        this(searchClient, DeserializerRegistry.getInstance().readerFor(returnClass), returnClass);
+    }
+
+    public SlicedScrollReader(ElasticSearchClient<T> searchClient, ObjectReader reader, Class<T> returnClass) {
+        this.searchClient = searchClient;
+        this.reader = reader;
+        this.returnClass = returnClass;
+    }
+
+    public Stream<T> stream(SearchRequest request) {
+        return this.stream(request, DEFAULT_SLICES);
+    }
+
+    /**
+     * Merges all slices into a single parallel Stream. Slices are consumed by the common ForkJoinPool;
+     * use {@link #forEachSlice(SearchRequest, int, SliceConsumer)} to run every slice on a dedicated thread.
+     * The request must have a scroll keep alive set.
+     *
+     * Each slice is opened when the stream first reads from it, so short-circuiting operations such as
+     * findFirst or limit stop opening and reading slices once they have their result. Close the stream
+     * (e.g. with try-with-resources) to clear the scroll contexts of slices which were not read to the end.
+     */
+    public Stream<T> stream(SearchRequest request, int slices) {
+        checkRequest(request, slices);
+        List<ScrollIterator<T>> opened = new CopyOnWriteArrayList<>();
+        IntFunction<ScrollIterator<T>> openSlice = sliceId -> {
+            ScrollIterator<T> iterator = this.openSlice(request, sliceId, slices);
+            opened.add(iterator);
+            return iterator;
+        };
+        return StreamSupport.stream(new SliceSpliterator<>(openSlice, 0, slices), true)
+                .onClose(() -> opened.forEach(ScrollIterator::close));
+    }
+
+    /**
+     * Runs every slice on its own thread, handing each hit to the consumer on the thread which decoded it.
+     * Blocks until all slices are exhausted. If a slice fails the remaining slices are cancelled (interrupted)
+     * as soon as the failure is seen, and the failure is rethrown.
+     */
+    public void forEachSlice(SearchRequest request, int slices, SliceConsumer<T> consumer) throws IOException, InterruptedException {
+        checkRequest(request, slices);
+        forEachSlice(slices, sliceId -> this.openSlice(request, sliceId, slices), consumer);
+    }
+
+    /**
+     * As {@link #forEachSlice(SearchRequest, int, SliceConsumer)}, handing over the raw hits rather than
+     * decoded entities, so their ids and metadata are available
+     */
+    public static void forEachHit(ElasticSearchClient<?> searchClient, SearchRequest request, int slices,
+                                  SliceConsumer<SearchHit> consumer) throws IOException, InterruptedException {
+        checkRequest(request, slices);
+        forEachSlice(slices, sliceId -> {
+            try {
+                return ScrollIterator.hits(searchClient, sliceRequest(request, sliceId, slices));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, consumer);
+    }
+
+    static <E> void forEachSlice(int slices, IntFunction<ScrollIterator<E>> openSlice, SliceConsumer<E> consumer)
+            throws IOException, InterruptedException {
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(slices, r -> {
+            Thread thread = new Thread(r, "sliced-scroll-" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < slices; i++) {
+                final int sliceId = i;
+                completion.submit(() -> {
+                    try (ScrollIterator<E> iterator = openSlice.apply(sliceId)) {
+                        while (iterator.hasNext()) {
+                            consumer.accept(sliceId, iterator.next());
+                        }
+                    }
+                }, null);
+            }
+
+            // Taken in completion order, so the first failure cancels the slices still running
+            for (int i = 0; i < slices; i++) {
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) cause).getCause();
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ScrollIterator<T> openSlice(SearchRequest request, int sliceId, int slices) {
+        try {
+            return new ScrollIterator<>(this.searchClient, sliceRequest(request, sliceId, slices), this.reader, this.returnClass);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies the request, restricting it to a single slice
+     */
+    static SearchRequest sliceRequest(SearchRequest request, int sliceId, int slices) {
+        if (slices == 1) {
+            // Elasticsearch rejects slice requests with max < 2
+            return request;
+        }
+        SearchSourceBuilder source = SearchRequests.copySource(request)
+                .slice(new SliceBuilder(sliceId, slices));
+        return SearchRequests.copy(request, source);
+    }
+
+    private static void checkRequest(SearchRequest request, int slices) {
+        if (request.scroll() == null) {
+            throw new IllegalArgumentException("SearchRequest must have a scroll keep alive set");
+        }
+        if (slices < 1) {
+            throw new IllegalArgumentException("Number of slices must be at least 1");
+        }
+    }
+
+    /**
+     * Reads slices one after another, opening each on first use. Splits hand over whole slices, so every
+     * slice is read by a single thread.
+     */
+    static class SliceSpliterator<E> implements Spliterator<E> {
+
+        private final IntFunction<? extends Iterator<E>> openSlice;
+        private int nextSlice;
+        private int endSlice;
+        private Iterator<E> current;
+
+        SliceSpliterator(IntFunction<? extends Iterator<E>> openSlice, int fromSlice, int toSlice) {
+            this.openSlice = openSlice;
+            this.nextSlice = fromSlice;
+            this.endSlice = toSlice;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            while (true) {
+                if (this.current == null) {
+                    if (this.nextSlice >= this.endSlice) {
+                        return false;
+                    }
+                    this.current = this.openSlice.apply(this.nextSlice++);
+                }
+                if (this.current.hasNext()) {
+                    action.accept(this.current.next());
+                    return true;
+                }
+                this.current = null;
+            }
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            // Once a slice is being read, only the slices after it can be handed over
+            int remaining = this.endSlice - this.nextSlice;
+            if (remaining < (this.current == null ? 2 : 1)) {
+                return null;
+            }
+            int split = this.current == null ? this.nextSlice + remaining / 2 : this.nextSlice;
+            SliceSpliterator<E> suffix = new SliceSpliterator<>(this.openSlice, split, this.endSlice);
+            this.endSlice = split;
+            return suffix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.NONNULL;
+        }
+    }
+
+    @FunctionalInterface
+    public interface SliceConsumer<T> {
+
+        void accept(int sliceId, T entity);
+
+    }
+}
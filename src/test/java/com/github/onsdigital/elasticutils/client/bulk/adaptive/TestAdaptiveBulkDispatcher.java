@@ -0,0 +1,153 @@
+package com.github.onsdigital.elasticutils.client.bulk.adaptive;
+
+import com.github.onsdigital.elasticutils.client.bulk.BulkResponses;
+import com.github.onsdigital.elasticutils.client.bulk.options.AdaptiveBulkOptions;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for adaptive bulk batching. No Elasticsearch required.
+ */
+public class TestAdaptiveBulkDispatcher {
+
+    private static final AdaptiveBulkOptions OPTIONS = AdaptiveBulkOptions.builder()
+            .setMinBulkActions(10)
+            .setMaxBulkActions(210)
+            .setMinBulkSize(new ByteSizeValue(1, ByteSizeUnit.KB))
+            .setMaxBulkSize(new ByteSizeValue(10, ByteSizeUnit.MB))
+            .setMinConcurrentRequests(1)
+            .setMaxConcurrentRequests(4)
+            .setTargetLatency(TimeValue.timeValueSeconds(10))
+            .build();
+
+    private static BulkRequest bulkRequest(int numActions) {
+        BulkRequest request = new BulkRequest();
+        for (int i = 0; i < numActions; i++) {
+            request.add(new IndexRequest("test", "document", String.valueOf(i)).source("{}", XContentType.JSON));
+        }
+        return request;
+    }
+
+    /**
+     * Acknowledges every item, rejecting the item with the given id (if any) with a 429
+     */
+    private static BiConsumer<BulkRequest, ActionListener<BulkResponse>> cluster(String rejectedId) {
+        return (request, listener) -> {
+            List<DocWriteRequest<?>> requests = BulkResponses.requests(request);
+            BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+            for (int i = 0; i < items.length; i++) {
+                DocWriteRequest<?> item = requests.get(i);
+                if (item.id().equals(rejectedId)) {
+                    BulkItemResponse.Failure failure = new BulkItemResponse.Failure(item.index(), item.type(), item.id(),
+                            new EsRejectedExecutionException("rejected"));
+                    items[i] = new BulkItemResponse(i, item.opType(), failure);
+                } else {
+                    IndexResponse response = new IndexResponse(new ShardId("test", "_na_", 0), item.type(), item.id(), 1, 1, 1, true);
+                    items[i] = new BulkItemResponse(i, item.opType(), response);
+                }
+            }
+            listener.onResponse(new BulkResponse(items, 1));
+        };
+    }
+
+    private static BulkResponse execute(AdaptiveBulkDispatcher dispatcher, BulkRequest request) {
+        AtomicReference<BulkResponse> result = new AtomicReference<>();
+        dispatcher.accept(request, ActionListener.wrap(result::set, e -> {
+            throw new AssertionError(e);
+        }));
+        return result.get();
+    }
+
+    @Test
+    public void testSplitsAndMergesInOrder() {
+        AdaptiveBulkController controller = new AdaptiveBulkController(OPTIONS, 10, OPTIONS.getMaxBulkSize(), 1);
+        AdaptiveBulkDispatcher dispatcher = new AdaptiveBulkDispatcher(cluster(null), controller);
+
+        assertEquals(3, dispatcher.split(bulkRequest(25)).size());
+
+        BulkResponse response = execute(dispatcher, bulkRequest(25));
+        assertEquals(25, response.getItems().length);
+        for (int i = 0; i < 25; i++) {
+            assertEquals(i, response.getItems()[i].getItemId());
+            assertEquals(String.valueOf(i), response.getItems()[i].getId());
+        }
+        assertEquals(0, controller.getInFlightRequests());
+    }
+
+    @Test
+    public void testAdditiveIncrease() {
+        AdaptiveBulkController controller = new AdaptiveBulkController(OPTIONS, 10, OPTIONS.getMaxBulkSize(), 1);
+        AdaptiveBulkDispatcher dispatcher = new AdaptiveBulkDispatcher(cluster(null), controller);
+
+        execute(dispatcher, bulkRequest(5));
+        assertEquals(20, controller.getBulkActions());
+
+        for (int i = 0; i < 19; i++) {
+            execute(dispatcher, bulkRequest(5));
+        }
+        assertEquals(OPTIONS.getMaxBulkActions(), controller.getBulkActions());
+
+        // Only once batches are at their largest is concurrency increased
+        assertEquals(1, controller.getConcurrentRequests());
+        execute(dispatcher, bulkRequest(5));
+        assertEquals(2, controller.getConcurrentRequests());
+    }
+
+    @Test
+    public void testMultiplicativeDecreaseOnRejection() {
+        AdaptiveBulkController controller = new AdaptiveBulkController(OPTIONS, 200, OPTIONS.getMaxBulkSize(), 4);
+        AdaptiveBulkDispatcher dispatcher = new AdaptiveBulkDispatcher(cluster("3"), controller);
+
+        BulkResponse response = execute(dispatcher, bulkRequest(5));
+        assertTrue(response.hasFailures());
+        assertEquals(RestStatus.TOO_MANY_REQUESTS, response.getItems()[3].getFailure().getStatus());
+        assertFalse(response.getItems()[2].isFailed());
+
+        assertEquals(100, controller.getBulkActions());
+        assertEquals(2, controller.getConcurrentRequests());
+        assertEquals(1, controller.getRejections());
+    }
+
+    @Test
+    public void testFailedBatchReportedPerItem() {
+        AdaptiveBulkController controller = new AdaptiveBulkController(OPTIONS, 10, OPTIONS.getMaxBulkSize(), 1);
+        BiConsumer<BulkRequest, ActionListener<BulkResponse>> cluster = cluster(null);
+        AdaptiveBulkDispatcher dispatcher = new AdaptiveBulkDispatcher((request, listener) -> {
+            if (request.requests().get(0).id().equals("10")) {
+                listener.onFailure(new EsRejectedExecutionException("rejected"));
+            } else {
+                cluster.accept(request, listener);
+            }
+        }, controller);
+
+        BulkResponse response = execute(dispatcher, bulkRequest(25));
+        assertEquals(25, response.getItems().length);
+        assertFalse(response.getItems()[9].isFailed());
+        assertTrue(response.getItems()[10].isFailed());
+        assertTrue(response.getItems()[19].isFailed());
+        assertEquals(RestStatus.TOO_MANY_REQUESTS, response.getItems()[15].getFailure().getStatus());
+        assertFalse(response.getItems()[20].isFailed());
+    }
+
+}
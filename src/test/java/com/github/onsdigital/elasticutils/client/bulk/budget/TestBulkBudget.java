@@ -0,0 +1,119 @@
+package com.github.onsdigital.elasticutils.client.bulk.budget;
+
+import com.github.onsdigital.elasticutils.client.bulk.listener.LoggingBulkProcessorListener;
+import com.github.onsdigital.elasticutils.client.bulk.options.BulkBudgetOptions;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for bulk ingestion backpressure. No Elasticsearch required.
+ */
+public class TestBulkBudget {
+
+    private static final Runnable NO_FLUSH = () -> { };
+
+    private static IndexRequest indexRequest(String id) {
+        return new IndexRequest("test", "document", id).source("{\"name\":\"" + id + "\"}", XContentType.JSON);
+    }
+
+    @Test
+    public void testRejectPolicy() {
+        List<DocWriteRequest<?>> rejected = new ArrayList<>();
+        BulkBudget budget = new BulkBudget(BulkBudgetOptions.builder()
+                .setMaxRequests(2)
+                .setOverflowPolicy(BulkBudgetOptions.OverflowPolicy.REJECT)
+                .build(), rejected::add);
+
+        AtomicInteger flushes = new AtomicInteger();
+        IndexRequest first = indexRequest("1");
+        IndexRequest second = indexRequest("2");
+        assertTrue(budget.acquire(first, flushes::incrementAndGet));
+        assertTrue(budget.acquire(second, flushes::incrementAndGet));
+        assertFalse(budget.acquire(indexRequest("3"), flushes::incrementAndGet));
+
+        assertEquals(1, rejected.size());
+        assertEquals("3", rejected.get(0).id());
+        assertEquals(0, flushes.get());
+        assertEquals(2, budget.getQueuedRequests());
+        assertEquals(1, budget.getRejectedRequests());
+
+        BulkRequest bulkRequest = new BulkRequest().add(first).add(second);
+        budget.release(bulkRequest);
+        assertEquals(0, budget.getQueuedRequests());
+        assertEquals(0, budget.getQueuedBytes());
+    }
+
+    @Test
+    public void testTimeoutPolicyFlushesThenRejects() {
+        IndexRequest request = indexRequest("1");
+        BulkBudget budget = new BulkBudget(BulkBudgetOptions.builder()
+                .setMaxBytes(new ByteSizeValue(BulkBudget.sizeOf(request)))
+                .setTimeout(TimeValue.timeValueMillis(20))
+                .build(), x -> { });
+
+        AtomicBoolean flushed = new AtomicBoolean();
+        assertTrue(budget.acquire(request, NO_FLUSH));
+        assertFalse(budget.acquire(indexRequest("2"), () -> flushed.set(true)));
+        assertTrue(flushed.get());
+        assertTrue(budget.getWaitTime(TimeUnit.MILLISECONDS) >= 20);
+    }
+
+    @Test
+    public void testBlockPolicyResumesOnRelease() throws InterruptedException {
+        BulkBudget budget = new BulkBudget(BulkBudgetOptions.builder().setMaxRequests(1).build());
+        IndexRequest first = indexRequest("1");
+        assertTrue(budget.acquire(first, NO_FLUSH));
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            if (budget.acquire(indexRequest("2"), NO_FLUSH)) {
+                acquired.countDown();
+            }
+        });
+        producer.start();
+
+        assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+        assertEquals(1, budget.getWaitingProducers());
+
+        budget.release(first);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        producer.join();
+        assertEquals(1, budget.getQueuedRequests());
+        assertEquals(0, budget.getWaitingProducers());
+    }
+
+    @Test
+    public void testOnlyReleasesAcquiredRequests() {
+        BulkBudget budget = new BulkBudget(BulkBudgetOptions.builder().setMaxRequests(2).build());
+        IndexRequest acquired = indexRequest("1");
+        assertTrue(budget.acquire(acquired, NO_FLUSH));
+        assertTrue(budget.acquire(acquired, NO_FLUSH));
+        assertEquals(1, budget.getQueuedRequests());
+
+        // A request added straight to the BulkProcessor shares the bulk with one which acquired capacity
+        BulkRequest bulkRequest = new BulkRequest().add(acquired).add(indexRequest("2"));
+        budget.wrap(new LoggingBulkProcessorListener()).afterBulk(1, bulkRequest, new IllegalStateException("failed"));
+        assertEquals(0, budget.getQueuedRequests());
+        assertEquals(0, budget.getQueuedBytes());
+
+        budget.release(bulkRequest);
+        assertEquals(0, budget.getQueuedRequests());
+        assertEquals(0, budget.getQueuedBytes());
+    }
+}
@@ -0,0 +1,217 @@
+package com.github.onsdigital.elasticutils.client.bulk.configuration;
+
+import com.github.onsdigital.elasticutils.client.bulk.listener.CompositeBulkProcessorListener;
+import com.github.onsdigital.elasticutils.client.bulk.options.AdaptiveBulkOptions;
+import com.github.onsdigital.elasticutils.client.bulk.options.BulkProcessingOptionsBuilder;
+import com.github.onsdigital.elasticutils.client.generic.RestSearchClient;
+import com.github.onsdigital.elasticutils.client.http.SimpleRestClient;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for REST BulkProcessors built from a configuration, against a local stand-in HTTP server.
+ * No Elasticsearch required.
+ */
+public class TestBulkProcessorConfiguration {
+
+    private static final String BULK_RESPONSE = "{\"took\":1,\"errors\":false,\"items\":[{\"index\":{\"_index\":\"ons\","
+            + "\"_type\":\"document\",\"_id\":\"1\",\"_version\":1,\"result\":\"created\","
+            + "\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},\"_seq_no\":0,\"_primary_term\":1,\"status\":201}}]}";
+
+    private HttpServer server;
+    private SimpleRestClient client;
+    private final AtomicInteger bulkRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        // Stands in for a node, accepting every bulk request
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/", exchange -> {
+            if (exchange.getRequestURI().getPath().endsWith("/_bulk")) {
+                this.bulkRequests.incrementAndGet();
+            }
+            byte[] body = BULK_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.start();
+        this.client = new SimpleRestClient(RestClient.builder(new HttpHost("localhost", this.server.getAddress().getPort())));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.client.close();
+        this.server.stop(0);
+    }
+
+    private static BulkProcessorConfiguration configuration(TimeValue flushInterval, BulkProcessor.Listener listener) {
+        return new BulkProcessorConfiguration(new BulkProcessingOptionsBuilder()
+                .setBulkActions(1000)
+                .setFlushInterval(flushInterval)
+                .build(), listener);
+    }
+
+    private static IndexRequest indexRequest() {
+        return new IndexRequest("ons", "document", "1").source("{\"n\":1}", XContentType.JSON);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testRestProcessorsFlushOnSharedThreadPool() throws Exception {
+        ThreadRecorder listener = new ThreadRecorder(2);
+        BulkProcessorConfiguration configuration = configuration(TimeValue.timeValueMillis(50), listener);
+
+        BulkProcessor processor = configuration.build(this.client);
+        // Settings no longer create a dedicated pool per processor
+        BulkProcessor deprecated = configuration.build(this.client, Settings.builder().put("node.name", "dedicated").build());
+        try {
+            processor.add(indexRequest());
+            deprecated.add(indexRequest());
+
+            // Neither processor reaches its bulk actions, so both are flushed by the scheduled task
+            assertTrue(listener.flushed.await(10, TimeUnit.SECONDS));
+            assertEquals(2, listener.threads.size());
+            for (String thread : listener.threads) {
+                assertTrue(thread, thread.contains("[bulk-processor]"));
+            }
+        } finally {
+            processor.close();
+            deprecated.close();
+        }
+    }
+
+    @Test
+    public void testShutdownFlushesAndClosesBulkProcessor() throws Exception {
+        BulkProcessorConfiguration configuration = configuration(TimeValue.timeValueHours(1), new ThreadRecorder(1));
+        RestSearchClient<Object> searchClient = new RestSearchClient<>(this.client, configuration);
+
+        BulkProcessor processor = searchClient.getBulkProcessor();
+        processor.add(indexRequest());
+        assertEquals(0, this.bulkRequests.get());
+
+        searchClient.shutdown();
+
+        // The pending request is sent rather than dropped, and the processor's flush task is stopped
+        assertEquals(1, this.bulkRequests.get());
+        try {
+            processor.add(indexRequest());
+            fail("Expected the bulk processor to be closed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFailingListenerDoesNotStopClientTrackingBulks() throws Exception {
+        ThreadRecorder recorder = new ThreadRecorder(1);
+        BulkProcessor.Listener failing = new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+                throw new IllegalStateException("beforeBulk");
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                throw new IllegalStateException("afterBulk");
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                throw new IllegalStateException("afterBulk");
+            }
+        };
+        BulkProcessorConfiguration configuration = configuration(TimeValue.timeValueHours(1),
+                new CompositeBulkProcessorListener(failing, recorder));
+        RestSearchClient<Object> searchClient = new RestSearchClient<>(this.client, configuration);
+        try {
+            searchClient.addToBulk(indexRequest());
+
+            // The client's own listener still saw the bulk complete, and so did the listener after the failing one
+            assertTrue(searchClient.awaitFlush(10, TimeUnit.SECONDS));
+            assertTrue(recorder.flushed.await(10, TimeUnit.SECONDS));
+        } finally {
+            searchClient.shutdown();
+        }
+    }
+
+    @Test
+    public void testAdaptiveProcessorFlushesAtCurrentBatchSize() throws Exception {
+        ThreadRecorder listener = new ThreadRecorder(1);
+        BulkProcessorConfiguration configuration = new BulkProcessorConfiguration(new BulkProcessingOptionsBuilder()
+                .setBulkActions(2)
+                .setFlushInterval(TimeValue.timeValueHours(1))
+                .build(), listener, AdaptiveBulkOptions.builder()
+                .setMinBulkActions(1)
+                .setMaxBulkActions(1000)
+                .build());
+
+        BulkProcessor processor = configuration.build(this.client);
+        try {
+            configuration.add(processor, indexRequest());
+            assertEquals(0, this.bulkRequests.get());
+
+            // The processor is sized to the maximum of 1000, but the controller currently allows batches of 2
+            configuration.add(processor, indexRequest());
+            assertTrue(listener.flushed.await(10, TimeUnit.SECONDS));
+            assertEquals(1, this.bulkRequests.get());
+        } finally {
+            processor.close();
+        }
+    }
+
+    /**
+     * Records the thread each bulk request is sent from
+     */
+    private static class ThreadRecorder implements BulkProcessor.Listener {
+
+        private final List<String> threads = new CopyOnWriteArrayList<>();
+        private final CountDownLatch flushed;
+
+        ThreadRecorder(int bulks) {
+            this.flushed = new CountDownLatch(bulks);
+        }
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            this.threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            this.flushed.countDown();
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            this.flushed.countDown();
+        }
+    }
+}
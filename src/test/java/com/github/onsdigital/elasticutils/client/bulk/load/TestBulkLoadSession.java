@@ -0,0 +1,152 @@
+package com.github.onsdigital.elasticutils.client.bulk.load;
+
+import com.github.onsdigital.elasticutils.client.bulk.options.BulkLoadOptions;
+import com.github.onsdigital.elasticutils.client.generic.StubSearchClient;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the bulk load settings. No Elasticsearch required.
+ */
+public class TestBulkLoadSession {
+
+    @Test
+    public void testRestoresOriginalSettings() {
+        Settings current = Settings.builder()
+                .put(BulkLoadSession.REFRESH_INTERVAL, "30s")
+                .put(BulkLoadSession.NUMBER_OF_REPLICAS, 2)
+                .put("index.number_of_shards", 5)
+                .build();
+
+        Settings restore = BulkLoadSession.restoreSettings(current);
+        assertEquals(2, restore.size());
+        assertEquals("30s", restore.get(BulkLoadSession.REFRESH_INTERVAL));
+        assertEquals("2", restore.get(BulkLoadSession.NUMBER_OF_REPLICAS));
+    }
+
+    @Test
+    public void testResetsUnsetSettings() {
+        Settings current = Settings.builder()
+                .put(BulkLoadSession.NUMBER_OF_REPLICAS, 1)
+                .build();
+
+        Settings restore = BulkLoadSession.restoreSettings(current);
+        assertTrue(restore.keySet().contains(BulkLoadSession.REFRESH_INTERVAL));
+        assertNull(restore.get(BulkLoadSession.REFRESH_INTERVAL));
+        assertEquals("1", restore.get(BulkLoadSession.NUMBER_OF_REPLICAS));
+    }
+
+    @Test
+    public void testDefaultOptions() {
+        BulkLoadOptions options = BulkLoadOptions.builder().build();
+        assertEquals("-1", options.getRefreshInterval());
+        assertEquals(0, options.getNumberOfReplicas());
+        assertFalse(options.isForceMerge());
+
+        assertTrue(BulkLoadOptions.builder().setForceMergeMaxSegments(1).build().isForceMerge());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsZeroSegments() {
+        BulkLoadOptions.builder().setForceMergeMaxSegments(0).build();
+    }
+
+    @Test
+    public void testRestoresEveryIndexBehindAlias() throws IOException {
+        SettingsClient client = new SettingsClient(true);
+        client.aliases.put("ons", new HashSet<>(Arrays.asList("ons_1", "ons_2")));
+        client.settings.put("ons_1", Settings.builder().put(BulkLoadSession.REFRESH_INTERVAL, "30s").build());
+        client.settings.put("ons_2", Settings.builder().put(BulkLoadSession.REFRESH_INTERVAL, "5s").build());
+
+        BulkLoadSession<Object> session = BulkLoadSession.open(client, "ons");
+        assertEquals(2, session.getOriginalSettings().size());
+        session.close();
+
+        assertEquals(Arrays.asList("ons", "ons_1", "ons_2"), client.sortedUpdatedIndices());
+        assertEquals("30s", client.updates.get("ons_1").get(BulkLoadSession.REFRESH_INTERVAL));
+        assertEquals("5s", client.updates.get("ons_2").get(BulkLoadSession.REFRESH_INTERVAL));
+        assertEquals(Collections.singletonList("ons"), client.refreshed);
+    }
+
+    @Test
+    public void testCloseFailsIfNotDrained() throws IOException {
+        SettingsClient client = new SettingsClient(false);
+        client.settings.put("ons", Settings.builder().put(BulkLoadSession.REFRESH_INTERVAL, "30s").build());
+
+        BulkLoadSession<Object> session = BulkLoadSession.open(client, "ons");
+        try {
+            session.close();
+            fail("Expected close to fail while bulk requests are in flight");
+        } catch (IOException e) {
+            // Settings are restored regardless, but the undrained index is not refreshed
+            assertEquals("30s", client.updates.get("ons").get(BulkLoadSession.REFRESH_INTERVAL));
+            assertTrue(client.refreshed.isEmpty());
+        }
+    }
+
+    /**
+     * Records the settings written to each index, replacing each with the last written
+     */
+    private static class SettingsClient extends StubSearchClient<Object> {
+
+        final Map<String, Set<String>> aliases = new HashMap<>();
+        final Map<String, Settings> settings = new HashMap<>();
+        final Map<String, Settings> updates = new LinkedHashMap<>();
+        final List<String> refreshed = new ArrayList<>();
+        private final boolean drains;
+
+        SettingsClient(boolean drains) {
+            this.drains = drains;
+        }
+
+        List<String> sortedUpdatedIndices() {
+            List<String> indices = new ArrayList<>(this.updates.keySet());
+            Collections.sort(indices);
+            return indices;
+        }
+
+        @Override
+        public Set<String> getAliasedIndices(String alias) {
+            return this.aliases.getOrDefault(alias, Collections.emptySet());
+        }
+
+        @Override
+        public Settings getIndexSettings(String index) {
+            return this.settings.getOrDefault(index, Settings.EMPTY);
+        }
+
+        @Override
+        public boolean updateIndexSettings(String index, Settings settings) {
+            this.updates.put(index, settings);
+            return true;
+        }
+
+        @Override
+        public boolean awaitFlush(long timeout, TimeUnit unit) {
+            return this.drains;
+        }
+
+        @Override
+        public void refresh(String index) {
+            this.refreshed.add(index);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.github.onsdigital.elasticutils.client.bulk.load;
+
+import com.github.onsdigital.elasticutils.client.bulk.options.NdjsonIngestOptions;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for splitting newline delimited JSON files into raw bulk bodies. No Elasticsearch required.
+ */
+public class TestNdjsonIngester {
+
+    private static final String ACTION = "{\"index\":{}}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Records the documents of each body sent, failing those which ask to and rejecting "busy" documents with 429
+     * the given number of times
+     */
+    private static class CapturingSender implements NdjsonIngester.BulkSender {
+
+        private final List<List<String>> bodies = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String, Integer> rejections = new ConcurrentHashMap<>();
+        private final int busyRejections;
+
+        CapturingSender() {
+            this(0);
+        }
+
+        CapturingSender(int busyRejections) {
+            this.busyRejections = busyRejections;
+        }
+
+        @Override
+        public CompletableFuture<BulkResponse> send(BytesReference body, String defaultIndex, String defaultType) {
+            String[] lines = body.utf8ToString().split("\n", -1);
+            assertEquals("Body must end with a newline", "", lines[lines.length - 1]);
+
+            List<String> documents = new ArrayList<>();
+            BulkItemResponse[] items = new BulkItemResponse[lines.length / 2];
+            for (int i = 0; i < items.length; i++) {
+                assertEquals(ACTION, lines[2 * i]);
+                String document = lines[2 * i + 1];
+                documents.add(document);
+                if (document.contains("fail")) {
+                    items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                            new BulkItemResponse.Failure(defaultIndex, defaultType, null, new IllegalArgumentException("mapping")));
+                } else if (document.contains("busy") && this.rejections.merge(document, 1, Integer::sum) <= this.busyRejections) {
+                    items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                            new BulkItemResponse.Failure(defaultIndex, defaultType, null, new EsRejectedExecutionException("busy")));
+                } else {
+                    items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                            new IndexResponse(new ShardId(defaultIndex, "_na_", 0), defaultType, String.valueOf(i), 1, 1, 1, true));
+                }
+            }
+            this.bodies.add(documents);
+            return CompletableFuture.completedFuture(new BulkResponse(items, 1));
+        }
+
+        List<String> documents() {
+            List<String> documents = new ArrayList<>();
+            synchronized (this.bodies) {
+                this.bodies.forEach(documents::addAll);
+            }
+            Collections.sort(documents);
+            return documents;
+        }
+    }
+
+    @Test
+    public void testSendsEveryLineOnceWithinChunkLimits() throws Exception {
+        List<String> expected = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            String document = String.format("{\"id\":%d,\"name\":\"document %d\"}", i, i);
+            expected.add(document);
+            content.append(document).append('\n');
+        }
+        Collections.sort(expected);
+        Path file = this.write(content.toString());
+
+        for (int threads : new int[]{1, 4}) {
+            CapturingSender sender = new CapturingSender();
+            NdjsonIngestOptions options = NdjsonIngestOptions.builder()
+                    .setChunkDocuments(40)
+                    .setChunkSize(new ByteSizeValue(1, ByteSizeUnit.KB))
+                    .setThreads(threads)
+                    .setMapSize(new ByteSizeValue(256, ByteSizeUnit.BYTES))
+                    .build();
+
+            IngestResult result = new NdjsonIngester(sender, options).ingest(file, "ons", () -> "document");
+
+            assertEquals(expected, sender.documents());
+            assertEquals(500, result.getDocuments());
+            assertEquals(sender.bodies.size(), result.getBulkRequests());
+            assertEquals(Files.size(file), result.getBytes());
+            for (List<String> body : sender.bodies) {
+                assertTrue(body.size() <= 40);
+                int size = body.stream().mapToInt(document -> ACTION.length() + document.length() + 2).sum();
+                assertTrue(size <= 1024);
+            }
+        }
+    }
+
+    @Test
+    public void testLineEndings() throws Exception {
+        Path file = this.write("{\"a\":1}\r\n\r\n{\"fail\":2}\n\n{\"c\":3}");
+        CapturingSender sender = new CapturingSender();
+
+        IngestResult result = new NdjsonIngester(sender, NdjsonIngestOptions.builder().setThreads(1).build())
+                .ingest(file, "ons", () -> "document");
+
+        assertEquals(3, result.getDocuments());
+        assertEquals(1, result.getFailedDocuments());
+        assertEquals(1, result.getBulkRequests());
+        assertEquals("[{\"a\":1}, {\"c\":3}, {\"fail\":2}]", sender.documents().toString());
+    }
+
+    @Test
+    public void testRegionsStartOnLines() throws Exception {
+        Path file = this.write("{\"a\":1}\n{\"b\":22}\n{\"c\":333}\n");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = NdjsonIngester.regions(channel, size, 3);
+            assertEquals(0, bounds[0]);
+            assertEquals(size, bounds[bounds.length - 1]);
+            for (long bound : bounds) {
+                assertTrue(bound == 0 || bound == size || Files.readAllBytes(file)[(int) bound - 1] == '\n');
+            }
+
+            // More regions than lines
+            assertEquals(4, NdjsonIngester.regions(channel, size, 64).length);
+        }
+    }
+
+    @Test
+    public void testLineLongerThanMapSize() throws Exception {
+        Path file = this.write("{\"a\":\"" + String.join("", Collections.nCopies(100, "x")) + "\"}\n");
+        NdjsonIngestOptions options = NdjsonIngestOptions.builder()
+                .setThreads(1)
+                .setMapSize(new ByteSizeValue(64, ByteSizeUnit.BYTES))
+                .build();
+        try {
+            new NdjsonIngester(new CapturingSender(), options).ingest(file, "ons", () -> "document");
+            fail("Expected the line to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("longer than the map size"));
+        }
+    }
+
+    @Test
+    public void testResendsOnlyRejectedDocuments() throws Exception {
+        Path file = this.write("{\"a\":1}\n{\"busy\":2}\n{\"fail\":3}\n{\"busy\":4}\n{\"e\":5}\n");
+        CapturingSender sender = new CapturingSender(2);
+        NdjsonIngestOptions options = NdjsonIngestOptions.builder()
+                .setThreads(1)
+                .setBackoffPolicy(BackoffPolicy.constantBackoff(TimeValue.timeValueMillis(1), 3))
+                .build();
+
+        IngestResult result = new NdjsonIngester(sender, options).ingest(file, "ons", () -> "document");
+
+        assertEquals(5, result.getDocuments());
+        assertEquals(1, result.getFailedDocuments());
+        assertEquals(4, result.getRejections());
+        assertEquals(3, result.getBulkRequests());
+        // Each re-send holds only the rejected documents, in order
+        assertEquals(Arrays.asList("{\"busy\":2}", "{\"busy\":4}"), sender.bodies.get(1));
+        assertEquals(sender.bodies.get(1), sender.bodies.get(2));
+    }
+
+    @Test
+    public void testCountsDocumentsStillRejectedAsFailed() throws Exception {
+        Path file = this.write("{\"a\":1}\n{\"busy\":2}\n");
+        CapturingSender sender = new CapturingSender(Integer.MAX_VALUE);
+        NdjsonIngestOptions options = NdjsonIngestOptions.builder()
+                .setThreads(1)
+                .setBackoffPolicy(BackoffPolicy.constantBackoff(TimeValue.timeValueMillis(1), 2))
+                .build();
+
+        IngestResult result = new NdjsonIngester(sender, options).ingest(file, "ons", () -> "document");
+
+        assertEquals(2, result.getDocuments());
+        assertEquals(1, result.getFailedDocuments());
+        assertEquals(3, result.getRejections());
+        assertEquals(3, result.getBulkRequests());
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = this.folder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
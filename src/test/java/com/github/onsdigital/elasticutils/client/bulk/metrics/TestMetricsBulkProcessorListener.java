@@ -0,0 +1,117 @@
+package com.github.onsdigital.elasticutils.client.bulk.metrics;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the bulk ingest metrics. No Elasticsearch required.
+ */
+public class TestMetricsBulkProcessorListener {
+
+    private static BulkRequest bulkRequest(int numActions) {
+        BulkRequest request = new BulkRequest();
+        for (int i = 0; i < numActions; i++) {
+            request.add(new IndexRequest("test", "document", String.valueOf(i)).source("{}", XContentType.JSON));
+        }
+        return request;
+    }
+
+    private static BulkResponse bulkResponse(BulkRequest request, int numFailed) {
+        BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+        for (int i = 0; i < items.length; i++) {
+            if (i < numFailed) {
+                items[i] = new BulkItemResponse(i, IndexRequest.OpType.INDEX, new BulkItemResponse.Failure("test", "document",
+                        String.valueOf(i), new MapperParsingException("failed to parse")));
+            } else {
+                items[i] = new BulkItemResponse(i, IndexRequest.OpType.INDEX,
+                        new IndexResponse(new ShardId("test", "_na_", 0), "document", String.valueOf(i), 1, 1, 1, true));
+            }
+        }
+        return new BulkResponse(items, 1);
+    }
+
+    @Test
+    public void testRecordsBatches() throws InterruptedException {
+        MetricsBulkProcessorListener metrics = new MetricsBulkProcessorListener();
+
+        BulkRequest first = bulkRequest(10);
+        BulkRequest second = bulkRequest(5);
+        metrics.beforeBulk(1, first);
+        metrics.beforeBulk(2, second);
+        assertEquals(2, metrics.getInFlightBatches());
+
+        Thread.sleep(5);
+        metrics.afterBulk(1, first, bulkResponse(first, 2));
+        metrics.afterBulk(2, second, new IOException("connection reset"));
+        metrics.onRetry(2, TimeValue.timeValueMillis(50));
+
+        assertEquals(0, metrics.getInFlightBatches());
+        assertEquals(2, metrics.getBatches());
+        assertEquals(1, metrics.getFailedBatches());
+        assertEquals(8, metrics.getDocuments());
+        assertEquals(7, metrics.getFailedItems());
+        assertEquals(first.estimatedSizeInBytes() + second.estimatedSizeInBytes(), metrics.getBytes());
+        assertEquals(1, metrics.getRetries());
+        assertEquals(50, metrics.getBackoffTime(TimeUnit.MILLISECONDS));
+        assertEquals(2, metrics.getLatencyHistogram().getTotalCount());
+        assertTrue(metrics.getLatency(100.0, TimeUnit.MILLISECONDS) >= 5);
+
+        metrics.reset();
+        assertEquals(0, metrics.getBatches());
+        assertEquals(0, metrics.getLatencyHistogram().getTotalCount());
+        assertEquals(0.0, metrics.getDocumentsPerSecond(), 0.0);
+        assertEquals(0.0, metrics.getBytesPerSecond(), 0.0);
+    }
+
+    @Test
+    public void testSharedByProcessors() throws InterruptedException {
+        MetricsBulkProcessorListener metrics = new MetricsBulkProcessorListener();
+
+        // Each processor numbers its executions from 1
+        BulkRequest first = bulkRequest(2);
+        BulkRequest second = bulkRequest(3);
+        metrics.beforeBulk(1, first);
+        Thread.sleep(20);
+        metrics.beforeBulk(1, second);
+        assertEquals(2, metrics.getInFlightBatches());
+
+        metrics.afterBulk(1, first, bulkResponse(first, 0));
+        metrics.afterBulk(1, second, bulkResponse(second, 0));
+
+        assertEquals(0, metrics.getInFlightBatches());
+        assertEquals(2, metrics.getLatencyHistogram().getTotalCount());
+        assertTrue(metrics.getLatency(100.0, TimeUnit.MILLISECONDS) >= 20);
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        MetricsBulkProcessorListener metrics = new MetricsBulkProcessorListener().registerMBean("test");
+        try {
+            BulkRequest request = bulkRequest(3);
+            metrics.beforeBulk(1, request);
+            metrics.afterBulk(1, request, bulkResponse(request, 0));
+
+            ObjectName name = new ObjectName("com.github.onsdigital.elasticutils:type=BulkMetrics,name=\"test\"");
+            assertEquals(3L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Documents"));
+        } finally {
+            metrics.unregisterMBean();
+        }
+    }
+
+}
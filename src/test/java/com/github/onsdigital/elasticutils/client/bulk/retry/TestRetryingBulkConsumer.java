@@ -0,0 +1,184 @@
+package com.github.onsdigital.elasticutils.client.bulk.retry;
+
+import com.github.onsdigital.elasticutils.client.bulk.BulkResponses;
+import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkThreadPool;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for per item bulk retries. No Elasticsearch required.
+ */
+public class TestRetryingBulkConsumer {
+
+    private static final BackoffPolicy BACKOFF = BackoffPolicy.constantBackoff(TimeValue.timeValueMillis(1), 3);
+
+    private static BulkRequest bulkRequest(int numActions) {
+        BulkRequest request = new BulkRequest();
+        for (int i = 0; i < numActions; i++) {
+            request.add(new IndexRequest("test", "document", String.valueOf(i)).source("{}", XContentType.JSON));
+        }
+        return request;
+    }
+
+    /**
+     * Rejects document "1" the given number of times and always fails document "2" with a mapping error
+     */
+    private static BiConsumer<BulkRequest, ActionListener<BulkResponse>> cluster(int rejections, AtomicInteger attempts) {
+        return (request, listener) -> {
+            attempts.incrementAndGet();
+            List<DocWriteRequest<?>> requests = BulkResponses.requests(request);
+            BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+            for (int i = 0; i < items.length; i++) {
+                DocWriteRequest<?> item = requests.get(i);
+                Exception failure = null;
+                if (item.id().equals("1") && attempts.get() <= rejections) {
+                    failure = new EsRejectedExecutionException("rejected");
+                } else if (item.id().equals("2")) {
+                    failure = new MapperParsingException("failed to parse");
+                }
+
+                if (failure != null) {
+                    items[i] = new BulkItemResponse(i, item.opType(),
+                            new BulkItemResponse.Failure(item.index(), item.type(), item.id(), failure));
+                } else {
+                    IndexResponse response = new IndexResponse(new ShardId("test", "_na_", 0), item.type(), item.id(), 1, 1, 1, true);
+                    items[i] = new BulkItemResponse(i, item.opType(), response);
+                }
+            }
+            listener.onResponse(new BulkResponse(items, 1));
+        };
+    }
+
+    /**
+     * The exception the REST client raises when a node replies with the given status
+     */
+    private static ResponseException responseException(int status) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        try (RestClient client = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build()) {
+            client.performRequest("POST", "/_bulk");
+            throw new AssertionError("Expected status " + status);
+        } catch (ResponseException e) {
+            return e;
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static BulkResponse execute(RetryingBulkConsumer consumer, BulkRequest request) throws Exception {
+        CompletableFuture<BulkResponse> future = new CompletableFuture<>();
+        consumer.accept(request, ActionListener.wrap(future::complete, future::completeExceptionally));
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRetriesOnlyRejectedItems() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Map<String, RestStatus> permanentFailures = new ConcurrentHashMap<>();
+        RetryingBulkConsumer consumer = new RetryingBulkConsumer(cluster(2, attempts), BACKOFF, BulkThreadPool.getInstance(),
+                (request, failure) -> permanentFailures.put(request.id(), failure.getStatus()));
+
+        BulkResponse response = execute(consumer, bulkRequest(4));
+
+        assertEquals(3, attempts.get());
+        assertEquals(4, response.getItems().length);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, response.getItems()[i].getItemId());
+            assertEquals(String.valueOf(i), response.getItems()[i].getId());
+        }
+        assertFalse(response.getItems()[1].isFailed());
+        assertTrue(response.getItems()[2].isFailed());
+
+        assertEquals(1, permanentFailures.size());
+        assertEquals(RestStatus.BAD_REQUEST, permanentFailures.get("2"));
+    }
+
+    @Test
+    public void testSurfacesItemsStillRejectedAfterBackoff() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Map<String, RestStatus> permanentFailures = new ConcurrentHashMap<>();
+        RetryingBulkConsumer consumer = new RetryingBulkConsumer(cluster(Integer.MAX_VALUE, attempts), BACKOFF,
+                BulkThreadPool.getInstance(), (request, failure) -> permanentFailures.put(request.id(), failure.getStatus()));
+
+        BulkResponse response = execute(consumer, bulkRequest(3));
+
+        assertEquals(4, attempts.get());
+        assertTrue(response.getItems()[1].isFailed());
+        assertEquals(RestStatus.TOO_MANY_REQUESTS, permanentFailures.get("1"));
+        assertEquals(RestStatus.BAD_REQUEST, permanentFailures.get("2"));
+        assertFalse(permanentFailures.containsKey("0"));
+    }
+
+    @Test
+    public void testRetriesRequestRejectedOverRest() throws Exception {
+        ResponseException rejection = responseException(429);
+        AtomicInteger attempts = new AtomicInteger();
+        RetryingBulkConsumer consumer = new RetryingBulkConsumer((request, listener) -> {
+            if (attempts.incrementAndGet() == 1) {
+                listener.onFailure(rejection);
+            } else {
+                cluster(0, new AtomicInteger()).accept(request, listener);
+            }
+        }, BACKOFF, BulkThreadPool.getInstance(), (request, failure) -> { });
+
+        BulkResponse response = execute(consumer, bulkRequest(2));
+
+        assertEquals(2, attempts.get());
+        assertFalse(response.hasFailures());
+    }
+
+    @Test
+    public void testDoesNotRetryOtherRestFailures() throws Exception {
+        ResponseException notFound = responseException(404);
+        AtomicInteger attempts = new AtomicInteger();
+        RetryingBulkConsumer consumer = new RetryingBulkConsumer((request, listener) -> {
+            attempts.incrementAndGet();
+            listener.onFailure(notFound);
+        }, BACKOFF, BulkThreadPool.getInstance(), (request, failure) -> { });
+
+        try {
+            execute(consumer, bulkRequest(2));
+            fail("Expected the bulk request to fail");
+        } catch (ExecutionException e) {
+            assertEquals(notFound, e.getCause());
+        }
+        assertEquals(1, attempts.get());
+    }
+}
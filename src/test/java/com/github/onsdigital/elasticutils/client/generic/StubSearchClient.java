@@ -0,0 +1,189 @@
+package com.github.onsdigital.elasticutils.client.generic;
+
+import com.github.onsdigital.elasticutils.client.type.DocumentType;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ElasticSearchClient for unit tests which supports nothing. Tests override the operations they exercise.
+ */
+public class StubSearchClient<T> extends ElasticSearchClient<T> {
+
+    /**
+     * @return A response holding the given JSON sources as hits with ids 0, 1, ...
+     */
+    public static SearchResponse searchResponse(String scrollId, long totalHits, String... sources) {
+        SearchHit[] hits = new SearchHit[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            hits[i] = new SearchHit(i, String.valueOf(i), new Text("document"), Collections.emptyMap())
+                    .sourceRef(new BytesArray(sources[i].getBytes(StandardCharsets.UTF_8)));
+        }
+        InternalSearchResponse internalResponse = new InternalSearchResponse(new SearchHits(hits, totalHits, 1.0f),
+                null, null, null, false, null, 1);
+        return new SearchResponse(internalResponse, scrollId, 1, 1, 0, 1L, ShardSearchFailure.EMPTY_ARRAY);
+    }
+
+    @Override
+    public BulkProcessor getBulkProcessor() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IndexResponse index(IndexRequest request) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<IndexResponse> indexAsync(IndexRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<BulkResponse> bulkAsync(BytesReference body, String defaultIndex, String defaultType) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GetResponse get(GetRequest request) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<GetResponse> getAsync(GetRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public MultiGetResponse multiGet(MultiGetRequest request) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<MultiGetResponse> multiGetAsync(MultiGetRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SearchResponse search(SearchRequest request) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public MultiSearchResponse multiSearch(MultiSearchRequest request) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<MultiSearchResponse> multiSearchAsync(MultiSearchRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SearchResponse searchScroll(SearchScrollRequest request) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<SearchResponse> searchScrollAsync(SearchScrollRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClearScrollResponse clearScroll(ClearScrollRequest request) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean dropIndex(String index) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dropIndexAsync(String index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean indexExists(String index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean createIndex(String index, DocumentType documentType, Settings settings, Map<String, Object> mapping) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createIndexAsync(String index, DocumentType documentType, Settings settings,
+                                                       Map<String, Object> mapping) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Settings getIndexSettings(String index) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean updateIndexSettings(String index, Settings settings) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void refresh(String index) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void forceMerge(String index, int maxNumSegments) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<String> getAliasedIndices(String alias) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean swapAlias(String alias, String index, Collection<String> fromIndices) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
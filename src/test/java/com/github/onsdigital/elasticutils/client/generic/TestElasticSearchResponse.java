@@ -0,0 +1,114 @@
+package com.github.onsdigital.elasticutils.client.generic;
+
+import com.github.onsdigital.elasticutils.client.type.DefaultDocumentTypes;
+import com.github.onsdigital.elasticutils.models.GeoLocation;
+import com.github.onsdigital.elasticutils.util.JsonUtils;
+import com.github.onsdigital.elasticutils.util.SerializerRegistry;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.junit.Test;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for decoding hits from an in-memory SearchResponse. No Elasticsearch required.
+ */
+public class TestElasticSearchResponse {
+
+    private static SearchResponse searchResponse(byte[]... sources) {
+        SearchHit[] hits = new SearchHit[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            hits[i] = new SearchHit(i, String.valueOf(i), new Text(DefaultDocumentTypes.DOCUMENT.getType()), Collections.emptyMap())
+                    .sourceRef(new BytesArray(sources[i]));
+        }
+        InternalSearchResponse internalResponse = new InternalSearchResponse(new SearchHits(hits, hits.length, 1.0f),
+                null, null, null, false, null, 1);
+        return new SearchResponse(internalResponse, null, 1, 1, 0, 1L, ShardSearchFailure.EMPTY_ARRAY);
+    }
+
+    private static byte[] source(String geoId) {
+        return source(geoId, XContentType.JSON);
+    }
+
+    private static byte[] source(String geoId, XContentType contentType) {
+        return JsonUtils.convertJsonToBytes(new GeoLocation(geoId, 51.566407, -3.027560),
+                SerializerRegistry.getInstance().forContentType(contentType).writerFor(GeoLocation.class)).get();
+    }
+
+    @Test
+    public void testViewsAgree() {
+        SearchResponse response = searchResponse(source("a"), source("b"), source("c"));
+        ElasticSearchResponse<GeoLocation> elasticSearchResponse = new ElasticSearchResponse<>(response, GeoLocation.class);
+
+        List<String> eager = elasticSearchResponse.entities().stream().map(GeoLocation::getGeoId).collect(Collectors.toList());
+        List<String> streamed = elasticSearchResponse.stream().map(GeoLocation::getGeoId).collect(Collectors.toList());
+        List<String> lazy = elasticSearchResponse.lazyEntities().stream().map(GeoLocation::getGeoId).collect(Collectors.toList());
+
+        assertEquals(eager, streamed);
+        assertEquals(eager, lazy);
+        assertEquals("b", elasticSearchResponse.lazyEntities().get(1).getGeoId());
+    }
+
+    @Test
+    public void testBinarySources() {
+        // e.g. documents indexed as SMILE or CBOR, fetched with the transport client
+        SearchResponse response = searchResponse(source("a", XContentType.SMILE), source("b"), source("c", XContentType.CBOR));
+        ElasticSearchResponse<GeoLocation> elasticSearchResponse = new ElasticSearchResponse<>(response, GeoLocation.class);
+
+        List<String> geoIds = elasticSearchResponse.entities().stream().map(GeoLocation::getGeoId).collect(Collectors.toList());
+        assertEquals(Arrays.asList("a", "b", "c"), geoIds);
+    }
+
+    @Test
+    public void testSourcesAtNonZeroOffset() {
+        // e.g. sources sliced out of a larger network buffer, so their BytesRef starts part way into the array
+        byte[] source = source("a");
+        byte[] padded = new byte[source.length + 10];
+        System.arraycopy(source, 0, padded, 7, source.length);
+
+        SearchResponse response = searchResponse(source("b"));
+        response.getHits().getAt(0).sourceRef(new BytesArray(padded, 7, source.length));
+        ElasticSearchResponse<GeoLocation> elasticSearchResponse = new ElasticSearchResponse<>(response, GeoLocation.class);
+
+        assertEquals(7, response.getHits().getAt(0).getSourceRef().toBytesRef().offset);
+        assertEquals("a", elasticSearchResponse.entities().get(0).getGeoId());
+        assertEquals("a", elasticSearchResponse.lazyEntities().get(0).getGeoId());
+    }
+
+    @Test
+    public void testInvalidHits() {
+        byte[] invalid = "{\"geoId\":".getBytes(StandardCharsets.UTF_8);
+        SearchResponse response = searchResponse(source("a"), invalid, source("c"));
+        ElasticSearchResponse<GeoLocation> elasticSearchResponse = new ElasticSearchResponse<>(response, GeoLocation.class);
+
+        // Eager and streamed views skip hits which cannot be deserialized
+        assertEquals(2, elasticSearchResponse.entities().size());
+        assertEquals(2, elasticSearchResponse.stream().count());
+
+        // The lazy view keeps positions aligned with the hits, so only fails when the bad hit is touched
+        List<GeoLocation> lazy = elasticSearchResponse.lazyEntities();
+        assertEquals(3, lazy.size());
+        assertEquals("c", lazy.get(2).getGeoId());
+        try {
+            lazy.get(1);
+            fail("Expected UncheckedIOException");
+        } catch (UncheckedIOException e) {
+            // expected
+        }
+    }
+
+}
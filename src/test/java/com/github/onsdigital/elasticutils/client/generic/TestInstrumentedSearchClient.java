@@ -0,0 +1,203 @@
+package com.github.onsdigital.elasticutils.client.generic;
+
+import com.github.onsdigital.elasticutils.client.metrics.ClientOperation;
+import com.github.onsdigital.elasticutils.client.metrics.OperationSample;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the samples recorded by the instrumented client, against a stub client. No Elasticsearch required.
+ */
+public class TestInstrumentedSearchClient {
+
+    private static final String SOURCE = "{\"n\":1}";
+
+    private final List<OperationSample> samples = Collections.synchronizedList(new ArrayList<>());
+    private final ScrollingClient delegate = new ScrollingClient();
+    private final InstrumentedSearchClient<Object> client = new InstrumentedSearchClient<>(this.delegate, this.samples::add);
+
+    private OperationSample lastSample() {
+        return this.samples.get(this.samples.size() - 1);
+    }
+
+    @Test
+    public void testRecordsSearchSample() throws IOException {
+        this.client.search(new SearchRequest("ons"));
+
+        OperationSample sample = this.lastSample();
+        assertEquals(ClientOperation.SEARCH, sample.getOperation());
+        assertEquals("ons", sample.getIndex());
+        assertEquals(InstrumentedSearchClient.DEFAULT_LABEL, sample.getLabel());
+        assertEquals(1, sample.getHits());
+        assertEquals(SOURCE.length(), sample.getBytes());
+        assertFalse(sample.isFailed());
+    }
+
+    @Test
+    public void testTagsScrollPagesWithIndexOfOpeningSearch() throws IOException {
+        String scrollId = this.client.search(new SearchRequest("ons")).getScrollId();
+
+        this.client.searchScroll(new SearchScrollRequest(scrollId));
+        assertEquals(ClientOperation.SCROLL, this.lastSample().getOperation());
+        assertEquals("ons", this.lastSample().getIndex());
+
+        // Cleared scrolls are no longer tracked
+        ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+        clearScrollRequest.addScrollId(scrollId);
+        this.client.clearScroll(clearScrollRequest);
+        this.client.searchScroll(new SearchScrollRequest(scrollId));
+        assertEquals("_unknown", this.lastSample().getIndex());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedScrolls() throws IOException {
+        String oldest = this.client.search(new SearchRequest("oldest")).getScrollId();
+        String used = this.client.search(new SearchRequest("used")).getScrollId();
+        for (int i = 2; i < InstrumentedSearchClient.MAX_TRACKED_SCROLLS; i++) {
+            this.client.search(new SearchRequest("ons"));
+        }
+        // Reading a page keeps the scroll tracked
+        this.client.searchScroll(new SearchScrollRequest(used));
+
+        // One more scroll than can be tracked
+        this.client.search(new SearchRequest("newest"));
+
+        this.client.searchScroll(new SearchScrollRequest(oldest));
+        assertEquals("_unknown", this.lastSample().getIndex());
+        this.client.searchScroll(new SearchScrollRequest(used));
+        assertEquals("used", this.lastSample().getIndex());
+    }
+
+    @Test
+    public void testRecordsSamplePerMultiSearchItem() throws IOException {
+        MultiSearchRequest request = new MultiSearchRequest()
+                .add(new SearchRequest("first"))
+                .add(new SearchRequest("second"));
+
+        this.client.multiSearch(request);
+
+        assertEquals(2, this.samples.size());
+        assertEquals("first", this.samples.get(0).getIndex());
+        assertFalse(this.samples.get(0).isFailed());
+        assertEquals(1, this.samples.get(0).getHits());
+        assertEquals("second", this.samples.get(1).getIndex());
+        assertTrue(this.samples.get(1).isFailed());
+    }
+
+    @Test
+    public void testRecordsFailures() throws Exception {
+        try {
+            this.client.search(new SearchRequest("missing"));
+            fail("Expected the search to fail");
+        } catch (IOException e) {
+            // rethrown after recording
+        }
+        assertTrue(this.lastSample().isFailed());
+        assertEquals("missing", this.lastSample().getIndex());
+        assertEquals(OperationSample.NOT_AVAILABLE, this.lastSample().getHits());
+
+        CompletableFuture<SearchResponse> future = this.client.searchAsync(new SearchRequest("missing"));
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(2, this.samples.size());
+        assertTrue(this.lastSample().isFailed());
+
+        // Every item of a multi search which failed outright
+        this.delegate.failMultiSearch = true;
+        try {
+            this.client.multiSearch(new MultiSearchRequest().add(new SearchRequest("first")).add(new SearchRequest("second")));
+            fail("Expected the multi search to fail");
+        } catch (IOException e) {
+            // rethrown after recording
+        }
+        assertEquals(4, this.samples.size());
+        assertTrue(this.samples.get(2).isFailed());
+        assertTrue(this.samples.get(3).isFailed());
+    }
+
+    @Test
+    public void testLabelledViewsTagSamples() throws IOException {
+        InstrumentedSearchClient<Object> autocomplete = this.client.labelled("autocomplete");
+
+        String scrollId = autocomplete.search(new SearchRequest("ons")).getScrollId();
+        assertEquals("autocomplete", this.lastSample().getLabel());
+        assertEquals("autocomplete", autocomplete.getLabel());
+
+        // Views share the scrolls they track
+        this.client.searchScroll(new SearchScrollRequest(scrollId));
+        assertEquals(InstrumentedSearchClient.DEFAULT_LABEL, this.lastSample().getLabel());
+        assertEquals("ons", this.lastSample().getIndex());
+        assertEquals(this.delegate, autocomplete.getDelegate());
+    }
+
+    /**
+     * Opens a new scroll for every search. Searches of "missing" and multi search items for "second" fail.
+     */
+    private static class ScrollingClient extends StubSearchClient<Object> {
+
+        private int scrolls;
+        private boolean failMultiSearch;
+
+        @Override
+        public SearchResponse search(SearchRequest request) throws IOException {
+            if ("missing".equals(request.indices()[0])) {
+                throw new IOException("no such index");
+            }
+            return searchResponse("scroll-" + this.scrolls++, 1, SOURCE);
+        }
+
+        @Override
+        public CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
+            CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+            try {
+                future.complete(this.search(request));
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        @Override
+        public SearchResponse searchScroll(SearchScrollRequest request) {
+            return searchResponse(request.scrollId(), 1, SOURCE);
+        }
+
+        @Override
+        public ClearScrollResponse clearScroll(ClearScrollRequest request) {
+            return new ClearScrollResponse(true, request.getScrollIds().size());
+        }
+
+        @Override
+        public MultiSearchResponse multiSearch(MultiSearchRequest request) throws IOException {
+            if (this.failMultiSearch) {
+                throw new IOException("connection refused");
+            }
+            List<SearchRequest> requests = request.requests();
+            MultiSearchResponse.Item[] items = new MultiSearchResponse.Item[requests.size()];
+            for (int i = 0; i < items.length; i++) {
+                if ("second".equals(requests.get(i).indices()[0])) {
+                    items[i] = new MultiSearchResponse.Item(null, new IOException("no such index"));
+                } else {
+                    items[i] = new MultiSearchResponse.Item(searchResponse(null, 1, SOURCE), null);
+                }
+            }
+            return new MultiSearchResponse(items);
+        }
+    }
+}
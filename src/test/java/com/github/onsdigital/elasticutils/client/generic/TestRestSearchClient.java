@@ -0,0 +1,265 @@
+package com.github.onsdigital.elasticutils.client.generic;
+
+import com.github.onsdigital.elasticutils.client.http.SimpleRestClient;
+import com.github.onsdigital.elasticutils.util.ElasticSearchHelper;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the REST client's bulk processors and async API, against a local stand-in HTTP server.
+ * No Elasticsearch required.
+ */
+public class TestRestSearchClient {
+
+    private static final String SEARCH_RESPONSE = "{\"_scroll_id\":\"scroll-2\",\"took\":1,\"timed_out\":false,"
+            + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+            + "\"hits\":{\"total\":1,\"max_score\":1.0,\"hits\":["
+            + "{\"_index\":\"ons\",\"_type\":\"document\",\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"n\":1}}]}}";
+
+    private static final String INDEX_RESPONSE = "{\"_index\":\"ons\",\"_type\":\"document\",\"_id\":\"1\","
+            + "\"_version\":1,\"result\":\"created\",\"_shards\":{\"total\":2,\"successful\":1,\"failed\":0},"
+            + "\"_seq_no\":0,\"_primary_term\":1}";
+
+    private static final String BULK_RESPONSE = "{\"took\":1,\"errors\":false,\"items\":[{\"index\":"
+            + "{\"_index\":\"ons\",\"_type\":\"document\",\"_id\":\"1\",\"_version\":1,\"result\":\"created\","
+            + "\"_shards\":{\"total\":2,\"successful\":1,\"failed\":0},\"status\":201}}]}";
+
+    private static final String ERROR_RESPONSE = "{\"error\":{\"type\":\"index_not_found_exception\","
+            + "\"reason\":\"no such index\"},\"status\":404}";
+
+    private HttpServer server;
+    private final Map<String, Reply> replies = new HashMap<>();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, String> contentTypes = new ConcurrentHashMap<>();
+    private RestSearchClient<Object> searchClient;
+
+    private static class Reply {
+
+        private final int status;
+        private final String body;
+
+        Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        // Stands in for a node, replying to "METHOD /path" as set in replies, and with 500 otherwise
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/", exchange -> {
+            String request = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+            this.requests.add(request);
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (contentType != null) {
+                this.contentTypes.put(request, contentType);
+            }
+            Reply reply = this.replies.getOrDefault(request, new Reply(500, "{}"));
+            byte[] body = reply.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(reply.status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.start();
+
+        HttpHost host = new HttpHost("localhost", this.server.getAddress().getPort());
+        SimpleRestClient client = new SimpleRestClient(RestClient.builder(host));
+        this.searchClient = new RestSearchClient<>(client, ElasticSearchHelper.getDefaultBulkProcessorConfiguration());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.searchClient.shutdown();
+        this.server.stop(0);
+    }
+
+    private void reply(String request, int status, String body) {
+        this.replies.put(request, new Reply(status, body));
+    }
+
+    private static <R> R await(CompletableFuture<R> future) throws Exception {
+        return future.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return The exception the future completed with
+     */
+    private static Throwable awaitFailure(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Expected the future to fail");
+    }
+
+    @Test
+    public void testBulkProcessorPerContentType() {
+        BulkProcessor json = this.searchClient.getBulkProcessor(XContentType.JSON);
+        BulkProcessor smile = this.searchClient.getBulkProcessor(XContentType.SMILE);
+
+        assertSame(this.searchClient.getBulkProcessor(), json);
+        assertSame(json, this.searchClient.getBulkProcessor(null));
+        assertNotSame(json, smile);
+        assertSame(smile, this.searchClient.getBulkProcessor(XContentType.SMILE));
+        assertEquals(2, this.searchClient.getBulkProcessors().size());
+    }
+
+    @Test
+    public void testRejectsContentTypesTheBulkApiCannotRead() {
+        for (XContentType contentType : new XContentType[]{XContentType.CBOR, XContentType.YAML}) {
+            try {
+                this.searchClient.bulk("ons", () -> "document", Stream.of(new Object()), contentType);
+                fail("Expected " + contentType + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // Refused before anything was queued
+            }
+        }
+        assertEquals(1, this.searchClient.getBulkProcessors().size());
+    }
+
+    @Test
+    public void testSmileBulkIsSentAsSmile() throws Exception {
+        this.reply("POST /_bulk", 200, BULK_RESPONSE);
+        HttpHost host = new HttpHost("localhost", this.server.getAddress().getPort());
+
+        // Both factories, as any default Content-Type header would replace the entity's own
+        SimpleRestClient[] clients = {
+                ElasticSearchHelper.getRestClient(host.getHostName(), host.getPort()),
+                ElasticSearchHelper.getRestClient(host)
+        };
+        for (SimpleRestClient client : clients) {
+            this.contentTypes.clear();
+            RestSearchClient<Object> searchClient = new RestSearchClient<>(client,
+                    ElasticSearchHelper.getDefaultBulkProcessorConfiguration());
+            try {
+                searchClient.bulk("ons", () -> "document", Stream.of(Collections.singletonMap("n", 1)),
+                        XContentType.SMILE);
+                assertTrue(searchClient.awaitFlush(10, TimeUnit.SECONDS));
+            } finally {
+                searchClient.shutdown();
+            }
+
+            assertEquals(XContentType.SMILE.mediaTypeWithoutParameters(), this.contentTypes.get("POST /_bulk"));
+        }
+    }
+
+    @Test
+    public void testSearchAsync() throws Exception {
+        this.reply("GET /ons/_search", 200, SEARCH_RESPONSE);
+
+        SearchResponse response = await(this.searchClient.searchAsync(new SearchRequest("ons")));
+
+        assertEquals(1, response.getHits().getTotalHits());
+        assertEquals("{\"n\":1}", response.getHits().getAt(0).getSourceAsString());
+    }
+
+    @Test
+    public void testSearchAsyncPropagatesErrorStatus() throws Exception {
+        Throwable failure = awaitFailure(this.searchClient.searchAsync(new SearchRequest("ons")));
+
+        assertTrue(failure instanceof ElasticsearchStatusException);
+        assertEquals(RestStatus.INTERNAL_SERVER_ERROR, ((ElasticsearchStatusException) failure).status());
+    }
+
+    @Test
+    public void testSearchScrollAsync() throws Exception {
+        this.reply("GET /_search/scroll", 200, SEARCH_RESPONSE);
+
+        SearchResponse response = await(this.searchClient.searchScrollAsync(new SearchScrollRequest("scroll-1")));
+
+        assertEquals("scroll-2", response.getScrollId());
+    }
+
+    @Test
+    public void testIndexAsync() throws Exception {
+        this.reply("PUT /ons/document/1", 201, INDEX_RESPONSE);
+
+        IndexResponse response = await(this.searchClient.indexAsync(new IndexRequest("ons", "document", "1")
+                .source("{\"n\":1}", XContentType.JSON)));
+
+        assertEquals(RestStatus.CREATED, response.status());
+        assertEquals(1, response.getVersion());
+    }
+
+    @Test
+    public void testCreateIndexAsync() throws Exception {
+        this.reply("PUT /ons", 200, "{\"acknowledged\":true}");
+
+        assertTrue(await(this.searchClient.createIndexAsync("ons", () -> "document", Settings.EMPTY,
+                Collections.emptyMap())));
+    }
+
+    @Test
+    public void testCompletesWithFalseForOtherSuccessStatus() throws Exception {
+        this.reply("PUT /ons", 202, "{}");
+
+        assertFalse(await(this.searchClient.createIndexAsync("ons", () -> "document", Settings.EMPTY,
+                Collections.emptyMap())));
+    }
+
+    @Test
+    public void testDropIndexAsync() throws Exception {
+        this.reply("DELETE /ons", 200, "{\"acknowledged\":true}");
+
+        assertTrue(await(this.searchClient.dropIndexAsync("ons")));
+        assertEquals(Collections.singletonList("DELETE /ons"), this.requests);
+    }
+
+    @Test
+    public void testDropIndexAsyncPropagatesFailure() throws Exception {
+        this.reply("DELETE /missing", 404, ERROR_RESPONSE);
+
+        Throwable failure = awaitFailure(this.searchClient.dropIndexAsync("missing"));
+
+        assertTrue(failure instanceof ResponseException);
+        assertEquals(404, ((ResponseException) failure).getResponse().getStatusLine().getStatusCode());
+    }
+
+    @Test
+    public void testPropagatesConnectionFailure() throws Exception {
+        this.server.stop(0);
+
+        assertTrue(awaitFailure(this.searchClient.dropIndexAsync("ons")) instanceof IOException);
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.onsdigital.elasticutils.client.generic;
+
+import com.github.onsdigital.elasticutils.util.ElasticSearchHelper;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.transport.client.PreBuiltTransportClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the transport client's async API, using a client with no nodes to connect to.
+ * No Elasticsearch required.
+ */
+public class TestTransportSearchClient {
+
+    private TransportSearchClient<Object> searchClient;
+
+    @Before
+    public void setUp() {
+        TransportClient client = new PreBuiltTransportClient(Settings.EMPTY);
+        this.searchClient = new TransportSearchClient<>(client, ElasticSearchHelper.getDefaultBulkProcessorConfiguration());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.searchClient.shutdown();
+    }
+
+    /**
+     * @return The exception the future completed with
+     */
+    private static Throwable awaitFailure(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Expected the future to fail");
+    }
+
+    @Test
+    public void testListenerForCompletesFuture() throws Exception {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        ElasticSearchClient.listenerFor(future).onResponse("response");
+        assertEquals("response", future.get());
+
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        IOException failure = new IOException("failure");
+        ElasticSearchClient.listenerFor(failed).onFailure(failure);
+        assertSame(failure, awaitFailure(failed));
+    }
+
+    @Test
+    public void testAsyncRequestsPropagateFailure() throws Exception {
+        assertTrue(awaitFailure(this.searchClient.searchAsync(new SearchRequest("ons")))
+                instanceof NoNodeAvailableException);
+        assertTrue(awaitFailure(this.searchClient.searchScrollAsync(new SearchScrollRequest("scroll-1")))
+                instanceof NoNodeAvailableException);
+        assertTrue(awaitFailure(this.searchClient.indexAsync(new IndexRequest("ons", "document", "1")
+                .source("{\"n\":1}", XContentType.JSON))) instanceof NoNodeAvailableException);
+        assertTrue(awaitFailure(this.searchClient.createIndexAsync("ons", () -> "document", Settings.EMPTY,
+                Collections.emptyMap())) instanceof NoNodeAvailableException);
+        assertTrue(awaitFailure(this.searchClient.dropIndexAsync("ons")) instanceof NoNodeAvailableException);
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.onsdigital.elasticutils.client.http;
+
+import com.github.onsdigital.elasticutils.client.http.options.CompressionOptions;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for gzip compression of REST traffic, end to end against a local stand-in HTTP server.
+ * No Elasticsearch required.
+ */
+public class TestGzipCompression {
+
+    private static final String SEARCH_RESPONSE = "{\"took\":3,\"timed_out\":false," +
+            "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}," +
+            "\"hits\":{\"total\":42,\"max_score\":null,\"hits\":[]}}";
+
+    private HttpServer server;
+    private SimpleRestClient client;
+
+    @After
+    public void tearDown() throws IOException {
+        if (this.client != null) {
+            this.client.close();
+        }
+        if (this.server != null) {
+            this.server.stop(0);
+        }
+    }
+
+    @Test
+    public void testCompressedBodiesRoundTripWithPooledEncoders() throws IOException {
+        GzipCompression compression = new GzipCompression(CompressionOptions.builder()
+                .setMinRequestSize(100)
+                .setPoolSize(1)
+                .build());
+
+        Random random = new Random(0);
+        // Bodies beyond the encoder's initial buffer, reusing the pooled encoder each time
+        for (int size : new int[] { 100, 50000, 1000, 200000 }) {
+            StringBuilder body = new StringBuilder();
+            while (body.length() < size) {
+                body.append("{\"index\":{\"_id\":\"").append(random.nextInt()).append("\"}}\n");
+            }
+            byte[] bytes = body.substring(0, size).getBytes(StandardCharsets.UTF_8);
+
+            Request compressed = compression.compress(request(bytes));
+            assertEquals("gzip", compressed.getEntity().getContentEncoding().getValue());
+            assertEquals("application/json", ContentType.get(compressed.getEntity()).getMimeType());
+            assertArrayEquals(bytes, gunzip(EntityUtils.toByteArray(compressed.getEntity())));
+        }
+        assertEquals(4, compression.getCompressedRequests());
+        assertTrue(compression.getCompressedBytes() < compression.getUncompressedBytes());
+
+        // Small bodies are sent as they are
+        Request small = request(new byte[99]);
+        assertSame(small, compression.compress(small));
+    }
+
+    @Test
+    public void testPooledEncoderDropsOversizedBuffer() throws IOException {
+        GzipCompression.GzipEncoder encoder = new GzipCompression.GzipEncoder(6);
+
+        // Random bytes do not compress, so the buffer grows to hold the whole body
+        byte[] large = new byte[2 * GzipCompression.GzipEncoder.MAX_POOLED_BUFFER_SIZE];
+        new Random(0).nextBytes(large);
+        assertArrayEquals(large, gunzip(encoder.encode(new ByteArrayEntity(large))));
+        assertTrue(encoder.getBufferSize() > GzipCompression.GzipEncoder.MAX_POOLED_BUFFER_SIZE);
+
+        encoder.trim();
+        assertEquals(GzipCompression.GzipEncoder.INITIAL_BUFFER_SIZE, encoder.getBufferSize());
+
+        // Buffers within the cap are kept for reuse
+        byte[] medium = new byte[64 * 1024];
+        new Random(1).nextBytes(medium);
+        assertArrayEquals(medium, gunzip(encoder.encode(new ByteArrayEntity(medium))));
+        int grown = encoder.getBufferSize();
+        encoder.trim();
+        assertEquals(grown, encoder.getBufferSize());
+        encoder.end();
+    }
+
+    @Test
+    public void testSearchOverCompressedConnection() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/", exchange -> {
+            byte[] requestBody = readAll(exchange.getRequestBody());
+            boolean gzippedRequest = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            boolean acceptsGzip = "gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            String query = new String(gzippedRequest ? gunzip(requestBody) : requestBody, StandardCharsets.UTF_8);
+
+            byte[] body = SEARCH_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            int status = gzippedRequest && acceptsGzip && query.contains("match_all") ? 200 : 400;
+            if (acceptsGzip) {
+                body = gzip(body);
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.start();
+
+        this.client = new SimpleRestClient(RestClient.builder(new HttpHost("localhost", this.server.getAddress().getPort())))
+                .setCompression(CompressionOptions.builder().setMinRequestSize(0).build());
+
+        SearchResponse response = this.client.search(new SearchRequest("test")
+                .source(new SearchSourceBuilder().query(QueryBuilders.matchAllQuery())));
+
+        assertEquals(42, response.getHits().getTotalHits());
+        assertEquals(1, this.client.getCompression().getCompressedRequests());
+    }
+
+    private static Request request(byte[] body) {
+        return new Request("POST", "/_bulk", Collections.emptyMap(), new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        return readAll(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,256 @@
+package com.github.onsdigital.elasticutils.client.http;
+
+import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkThreadPool;
+import com.github.onsdigital.elasticutils.client.http.options.RestClusterOptions;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for host selection, with synthetic latencies and a manual clock, and against local stand-in
+ * HTTP servers. No Elasticsearch required.
+ */
+public class TestHostMonitor {
+
+    private static final HttpHost A = new HttpHost("a", 9200);
+    private static final HttpHost B = new HttpHost("b", 9200);
+    private static final HttpHost C = new HttpHost("c", 9200);
+    private static final HttpHost D = new HttpHost("d", 9200);
+
+    private static final long BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final List<StandInNode> nodes = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleRestClient client;
+
+    private class StandInNode {
+
+        private final HttpServer server;
+        private final HttpHost host;
+        private volatile boolean healthy = true;
+        private volatile String nodesResponse = "{}";
+
+        StandInNode() throws IOException {
+            this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            this.server.setExecutor(Executors.newCachedThreadPool());
+            this.server.createContext("/", exchange -> {
+                String path = exchange.getRequestURI().getPath();
+                byte[] body = (path.startsWith("/_nodes") ? this.nodesResponse : "{}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(this.healthy ? 200 : 503, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            this.server.start();
+            this.host = new HttpHost("localhost", this.server.getAddress().getPort());
+            nodes.add(this);
+        }
+    }
+
+    private SimpleRestClient client(RestClusterOptions options, HostMonitor monitor) {
+        List<HttpHost> hosts = options.getHosts();
+        this.client = new SimpleRestClient(RestClient.builder(hosts.toArray(new HttpHost[hosts.size()]))
+                .setMaxRetryTimeoutMillis(10000), monitor);
+        return this.client;
+    }
+
+    private HostMonitor monitor(RestClusterOptions options, HostMonitor.HostProbe probe) {
+        return new HostMonitor(options, BulkThreadPool.getInstance(), probe, this.clock::get);
+    }
+
+    private static RestClusterOptions options(HttpHost... hosts) {
+        return RestClusterOptions.builder()
+                .setHosts(hosts)
+                .setRefreshInterval(TimeValue.timeValueHours(1))
+                .setDeadHostBackoff(TimeValue.timeValueNanos(BACKOFF_NANOS), TimeValue.timeValueMinutes(1))
+                .build();
+    }
+
+    private static HostStats stats(HttpHost host, double latencyMillis) {
+        HostStats hostStats = new HostStats(host);
+        hostStats.onResponse((long) (latencyMillis * 1e6), 1.0);
+        return hostStats;
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (this.client != null) {
+            this.client.close();
+        }
+        this.nodes.forEach(node -> node.server.stop(0));
+    }
+
+    @Test
+    public void testSelectsHostsWithinToleranceOfFastest() {
+        List<HostStats> hosts = Arrays.asList(stats(A, 1.0), stats(B, 1.5), stats(C, 5.0), new HostStats(D));
+
+        // Unmeasured hosts are always tried
+        assertEquals(Arrays.asList(A, B, D), HostMonitor.selectHosts(hosts, 2.0, 1));
+        assertEquals(Arrays.asList(A, B, C, D), HostMonitor.selectHosts(hosts, 5.0, 1));
+    }
+
+    @Test
+    public void testTopsUpToMinActiveHosts() {
+        List<HostStats> hosts = Arrays.asList(stats(A, 1.0), stats(B, 10.0), stats(C, 5.0));
+
+        assertEquals(Collections.singletonList(A), HostMonitor.selectHosts(hosts, 2.0, 1));
+        // The next fastest fills the gap
+        assertEquals(Arrays.asList(A, C), HostMonitor.selectHosts(hosts, 2.0, 2));
+    }
+
+    @Test
+    public void testSelectsEveryHostWhenAllAreDead() {
+        HostStats a = stats(A, 1.0);
+        HostStats b = stats(B, 1.0);
+        a.onFailure(0, BACKOFF_NANOS, BACKOFF_NANOS);
+        b.onFailure(0, BACKOFF_NANOS, BACKOFF_NANOS);
+
+        assertEquals(Arrays.asList(A, B), HostMonitor.selectHosts(Arrays.asList(b, a), 2.0, 1));
+        // Dead hosts are left out as soon as any host is live
+        assertEquals(Collections.singletonList(C), HostMonitor.selectHosts(Arrays.asList(b, a, stats(C, 10.0)), 2.0, 1));
+    }
+
+    @Test
+    public void testEvictsFailedHostsAndProbesThemWithBackoff() {
+        AtomicBoolean healthy = new AtomicBoolean(false);
+        AtomicInteger probes = new AtomicInteger();
+        HostMonitor monitor = this.monitor(options(A, B), host -> {
+            probes.incrementAndGet();
+            return healthy.get();
+        });
+        monitor.select();
+        assertEquals(Arrays.asList(A, B), monitor.getActiveHosts());
+
+        monitor.onFailure(A);
+        assertTrue(monitor.getHostStats().get(A).isDead());
+        assertEquals(Collections.singletonList(B), monitor.getActiveHosts());
+
+        // Not probed until the backoff has elapsed
+        this.clock.addAndGet(BACKOFF_NANOS - 1);
+        monitor.refresh();
+        assertEquals(0, probes.get());
+
+        // A failed probe doubles the backoff
+        this.clock.addAndGet(1);
+        monitor.refresh();
+        assertEquals(1, probes.get());
+        assertEquals(2, monitor.getHostStats().get(A).getConsecutiveFailures());
+
+        this.clock.addAndGet(BACKOFF_NANOS);
+        monitor.refresh();
+        assertEquals(1, probes.get());
+
+        healthy.set(true);
+        this.clock.addAndGet(BACKOFF_NANOS);
+        monitor.refresh();
+        assertEquals(2, probes.get());
+        assertFalse(monitor.getHostStats().get(A).isDead());
+        assertEquals(Arrays.asList(A, B), monitor.getActiveHosts());
+    }
+
+    @Test
+    public void testDecaysHostsOutOfRotationUntilTriedAgain() {
+        HostMonitor monitor = this.monitor(options(A, B), host -> true);
+        monitor.getHostStats().get(A).onResponse(TimeUnit.MILLISECONDS.toNanos(1), 1.0);
+        monitor.getHostStats().get(B).onResponse(TimeUnit.MILLISECONDS.toNanos(10), 1.0);
+        monitor.select();
+        assertEquals(Collections.singletonList(A), monitor.getActiveHosts());
+
+        // 10ms -> 5ms -> 2.5ms, still more than twice as slow as A
+        monitor.refresh();
+        monitor.refresh();
+        assertEquals(Collections.singletonList(A), monitor.getActiveHosts());
+
+        // 1.25ms
+        monitor.refresh();
+        assertEquals(Arrays.asList(A, B), monitor.getActiveHosts());
+    }
+
+    @Test
+    public void testPingUsesHttpClientConfigCallback() throws Exception {
+        StandInNode node = new StandInNode();
+        AtomicInteger configured = new AtomicInteger();
+        RestClusterOptions options = RestClusterOptions.builder()
+                .setHosts(node.host)
+                .setHttpClientConfigCallback(httpClientBuilder -> {
+                    configured.incrementAndGet();
+                    return httpClientBuilder;
+                })
+                .build();
+
+        assertTrue(HostMonitor.ping(node.host, options));
+        assertEquals(1, configured.get());
+
+        node.healthy = false;
+        assertFalse(HostMonitor.ping(node.host, options));
+    }
+
+    @Test
+    public void testEvictsFailingNodeAndProbesItBack() throws Exception {
+        StandInNode failing = new StandInNode();
+        StandInNode other = new StandInNode();
+        RestClusterOptions options = options(failing.host, other.host);
+        HostMonitor monitor = this.monitor(options, host -> HostMonitor.ping(host, options));
+        SimpleRestClient client = this.client(options, monitor);
+
+        // Requests to the failing node are retried on the other, and it is evicted
+        failing.healthy = false;
+        for (int i = 0; i < 4; i++) {
+            client.getLowLevelClient().performRequest("GET", "/");
+        }
+        assertTrue(monitor.getHostStats().get(failing.host).isDead());
+        assertEquals(Collections.singletonList(other.host), monitor.getActiveHosts());
+
+        failing.healthy = true;
+        this.clock.addAndGet(BACKOFF_NANOS);
+        monitor.refresh();
+        assertEquals(new HashSet<>(Arrays.asList(failing.host, other.host)), new HashSet<>(monitor.getActiveHosts()));
+    }
+
+    @Test
+    public void testSniffsNodes() throws Exception {
+        StandInNode seed = new StandInNode();
+        StandInNode first = new StandInNode();
+        StandInNode second = new StandInNode();
+        seed.nodesResponse = String.format("{\"nodes\": {"
+                + "\"a\": {\"http\": {\"publish_address\": \"localhost/127.0.0.1:%d\"}},"
+                + "\"b\": {\"http\": {\"publish_address\": \"127.0.0.1:%d\"}},"
+                + "\"c\": {\"roles\": [\"master\"]}}}", first.host.getPort(), second.host.getPort());
+
+        RestClusterOptions options = RestClusterOptions.builder()
+                .setHosts(seed.host)
+                .setSniff(true)
+                .build();
+        SimpleRestClient client = this.client(options, new HostMonitor(options));
+
+        assertEquals(new HashSet<>(Arrays.asList(new HttpHost("127.0.0.1", first.host.getPort()),
+                new HttpHost("127.0.0.1", second.host.getPort()))), new HashSet<>(client.getHostMonitor().getActiveHosts()));
+        for (int i = 0; i < 4; i++) {
+            client.getLowLevelClient().performRequest("GET", "/");
+        }
+        assertEquals(4, client.getHostMonitor().getHostStats().values().stream().mapToLong(HostStats::getRequests).sum());
+    }
+}
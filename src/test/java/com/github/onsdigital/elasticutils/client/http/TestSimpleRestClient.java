@@ -0,0 +1,128 @@
+package com.github.onsdigital.elasticutils.client.http;
+
+import org.apache.http.HttpHost;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the _mget and _msearch request conversion and response parsing. No Elasticsearch required.
+ */
+public class TestSimpleRestClient {
+
+    @Test
+    public void testMultiGetRequest() throws Exception {
+        MultiGetRequest multiGetRequest = new MultiGetRequest()
+                .add(new MultiGetRequest.Item("ons", "document", "1").routing("r"))
+                .add("ons", "document", "2")
+                .realtime(false);
+
+        Request request = SimpleRestClient.multiGetRequest(multiGetRequest);
+
+        assertEquals("POST", request.getMethod());
+        assertEquals("/_mget", request.getEndpoint());
+        assertEquals("false", request.getParameters().get("realtime"));
+        assertEquals("{\"docs\":[{\"_index\":\"ons\",\"_type\":\"document\",\"_id\":\"1\",\"routing\":\"r\"},"
+                + "{\"_index\":\"ons\",\"_type\":\"document\",\"_id\":\"2\"}]}", EntityUtils.toString(request.getEntity()));
+    }
+
+    @Test
+    public void testParseMultiGetResponse() throws Exception {
+        String json = "{\"docs\":["
+                + "{\"_index\":\"ons\",\"_type\":\"document\",\"_id\":\"1\",\"_version\":3,\"found\":true,\"_source\":{\"name\":\"a\"}},"
+                + "{\"_index\":\"ons\",\"_type\":\"document\",\"_id\":\"2\",\"found\":false},"
+                + "{\"_index\":\"missing\",\"_type\":\"document\",\"_id\":\"3\",\"error\":{\"type\":\"index_not_found_exception\","
+                + "\"reason\":\"no such index\",\"index\":\"missing\"}}"
+                + "]}";
+
+        MultiGetResponse response;
+        try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY, json)) {
+            response = SimpleRestClient.parseMultiGetResponse(parser);
+        }
+
+        assertEquals(3, response.getResponses().length);
+
+        assertTrue(response.getResponses()[0].getResponse().isExists());
+        assertEquals(3, response.getResponses()[0].getResponse().getVersion());
+        assertEquals("{\"name\":\"a\"}", response.getResponses()[0].getResponse().getSourceAsString());
+
+        assertFalse(response.getResponses()[1].isFailed());
+        assertFalse(response.getResponses()[1].getResponse().isExists());
+
+        assertTrue(response.getResponses()[2].isFailed());
+        assertEquals("3", response.getResponses()[2].getId());
+        assertTrue(response.getResponses()[2].getFailure().getMessage().contains("no such index"));
+    }
+
+    @Test
+    public void testMultiSearchRequest() throws Exception {
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest()
+                .add(new SearchRequest("ons").types("document")
+                        .source(new SearchSourceBuilder().query(QueryBuilders.termQuery("name", "a")).size(5)))
+                .add(new SearchRequest("other").preference("_local"));
+
+        Request request = SimpleRestClient.multiSearchRequest(multiSearchRequest);
+
+        assertEquals("POST", request.getMethod());
+        assertEquals("/_msearch", request.getEndpoint());
+        assertEquals("{\"index\":[\"ons\"],\"type\":[\"document\"],\"search_type\":\"query_then_fetch\"}\n"
+                + "{\"size\":5,\"query\":{\"term\":{\"name\":{\"value\":\"a\",\"boost\":1.0}}}}\n"
+                + "{\"index\":[\"other\"],\"search_type\":\"query_then_fetch\",\"preference\":\"_local\"}\n"
+                + "{}\n", EntityUtils.toString(request.getEntity()));
+    }
+
+    @Test
+    public void testRawBulkRequestEndpoint() {
+        BytesArray body = new BytesArray("{\"index\":{}}\n{}\n");
+
+        assertEquals("/ons/document/_bulk",
+                SimpleRestClient.rawBulkRequest(new SimpleRestClient.RawBulkRequest(body, "ons", "document")).getEndpoint());
+        assertEquals("/ons/_bulk",
+                SimpleRestClient.rawBulkRequest(new SimpleRestClient.RawBulkRequest(body, "ons", null)).getEndpoint());
+        // A default type only applies within a default index
+        assertEquals("/_bulk",
+                SimpleRestClient.rawBulkRequest(new SimpleRestClient.RawBulkRequest(body, null, "document")).getEndpoint());
+        assertEquals("/ons%202018/my%23type/_bulk",
+                SimpleRestClient.rawBulkRequest(new SimpleRestClient.RawBulkRequest(body, "ons 2018", "my#type")).getEndpoint());
+    }
+
+    @Test
+    public void testParseMultiSearchResponse() throws Exception {
+        String json = "{\"responses\":["
+                + "{\"took\":5,\"timed_out\":false,\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+                + "\"hits\":{\"total\":1,\"max_score\":1.0,\"hits\":[{\"_index\":\"ons\",\"_type\":\"document\","
+                + "\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"name\":\"a\"}}]}},"
+                + "{\"error\":{\"type\":\"index_not_found_exception\",\"reason\":\"no such index\"},\"status\":404}"
+                + "]}";
+
+        MultiSearchResponse response;
+        try (SimpleRestClient client = new SimpleRestClient(RestClient.builder(new HttpHost("localhost", 9200)));
+             XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY, json)) {
+            response = client.parseMultiSearchResponse(parser);
+        }
+
+        assertEquals(2, response.getResponses().length);
+        assertFalse(response.getResponses()[0].isFailure());
+        assertEquals(5, response.getResponses()[0].getResponse().getTook().millis());
+        assertEquals("1", response.getResponses()[0].getResponse().getHits().getAt(0).getId());
+        assertTrue(response.getResponses()[1].isFailure());
+        assertTrue(response.getResponses()[1].getFailureMessage().contains("no such index"));
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.github.onsdigital.elasticutils.client.metrics;
+
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for per index and label operation metrics. No Elasticsearch required.
+ */
+public class TestHistogramOperationMetricsRegistry {
+
+    private static OperationSample search(String index, String label, long clientMillis, long tookMillis, boolean failed) {
+        return new OperationSample(ClientOperation.SEARCH, index, label, TimeUnit.MILLISECONDS.toNanos(clientMillis),
+                tookMillis, 10, 1024, failed);
+    }
+
+    @Test
+    public void testKeysByIndexAndLabel() {
+        HistogramOperationMetricsRegistry registry = new HistogramOperationMetricsRegistry();
+
+        registry.record(search("ons", "autocomplete", 12, 8, false));
+        registry.record(search("ons", "autocomplete", 20, 15, false));
+        registry.record(search("ons", "content", 50, 40, false));
+        registry.record(new OperationSample(ClientOperation.SEARCH, "ons", "content", 1000L, OperationSample.NOT_AVAILABLE,
+                OperationSample.NOT_AVAILABLE, OperationSample.NOT_AVAILABLE, true));
+
+        OperationStats autocomplete = registry.getStats(ClientOperation.SEARCH, "ons", "autocomplete");
+        assertEquals(2, autocomplete.getCount());
+        assertEquals(20, autocomplete.getHits());
+        assertEquals(2048, autocomplete.getBytes());
+        assertEquals(2, autocomplete.getTookHistogram().getTotalCount());
+        assertEquals(15.0, autocomplete.getTookMaxMillis(), 0.1);
+
+        OperationStats content = registry.getStats(ClientOperation.SEARCH, "ons", "content");
+        assertEquals(2, content.getCount());
+        assertEquals(1, content.getFailures());
+        assertEquals(1, content.getTookHistogram().getTotalCount());
+        assertEquals(2, content.getClientHistogram().getTotalCount());
+
+        assertNull(registry.getStats(ClientOperation.SCROLL, "ons", "content"));
+        assertEquals(2, registry.getStats(ClientOperation.SEARCH).size());
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        HistogramOperationMetricsRegistry registry = new HistogramOperationMetricsRegistry(true);
+        registry.record(search("jmx_test", "default", 5, 3, false));
+
+        ObjectName name = new ObjectName("com.github.onsdigital.elasticutils:type=OperationStats,"
+                + "operation=\"search\",index=\"jmx_test\",label=\"default\"");
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count"));
+        } finally {
+            registry.unregisterMBeans();
+        }
+    }
+
+}
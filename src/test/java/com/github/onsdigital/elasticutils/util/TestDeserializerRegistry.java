@@ -0,0 +1,45 @@
+package com.github.onsdigital.elasticutils.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.onsdigital.elasticutils.models.GeoLocation;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for the cached ObjectReaders used to read search hits. No Elasticsearch required.
+ */
+public class TestDeserializerRegistry {
+
+    @Test
+    public void testReadersAreCachedPerClass() {
+        DeserializerRegistry registry = DeserializerRegistry.getInstance();
+
+        ObjectReader reader = registry.readerFor(GeoLocation.class);
+        assertSame(reader, registry.readerFor(GeoLocation.class));
+        assertNotSame(reader, registry.readerFor(Document.class));
+        assertSame(registry.readerFor(Document.class), registry.readerFor(Document.class));
+    }
+
+    @Test
+    public void testReadersUseTheRegistryMapper() throws IOException {
+        DeserializerRegistry lenient = new DeserializerRegistry(new ObjectMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+
+        assertNotSame(DeserializerRegistry.getInstance().readerFor(Document.class), lenient.readerFor(Document.class));
+        Document document = lenient.readerFor(Document.class).readValue("{\"n\":1,\"unknown\":true}");
+        assertEquals(1, document.n);
+    }
+
+    public static class Document {
+
+        public int n;
+
+    }
+}
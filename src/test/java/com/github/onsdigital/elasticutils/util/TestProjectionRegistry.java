@@ -0,0 +1,126 @@
+package com.github.onsdigital.elasticutils.util;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.github.onsdigital.elasticutils.models.GeoLocation;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for the _source fields derived from Jackson bean descriptions. No Elasticsearch required.
+ */
+public class TestProjectionRegistry {
+
+    public static class Views {
+        public static class Summary {}
+        public static class Detail extends Summary {}
+    }
+
+    public static class Article {
+        @JsonView(Views.Summary.class)
+        public String title;
+
+        @JsonView(Views.Summary.class)
+        @JsonProperty("published_date")
+        public String publishedDate;
+
+        @JsonView(Views.Detail.class)
+        public String body;
+
+        public String uri;
+
+        @JsonIgnore
+        public String internalNotes;
+
+        // Read only, so never deserialized
+        public int getWordCount() {
+            return body == null ? 0 : body.split(" ").length;
+        }
+    }
+
+    public static class Open {
+        public String name;
+
+        @JsonAnySetter
+        public void set(String key, Object value) {}
+    }
+
+    public static class Unwrapped {
+        public String name;
+
+        // Reads "lat", "lon" etc. from the top level of the source
+        @JsonUnwrapped
+        public GeoLocation location;
+    }
+
+    public static class Aliased {
+        @JsonAlias("headline")
+        public String title;
+    }
+
+    public static class AliasedCreator {
+        private final String title;
+
+        @JsonCreator
+        public AliasedCreator(@JsonProperty("title") @JsonAlias("headline") String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    @Test
+    public void testIncludesFromBeanDescription() {
+        ProjectionRegistry registry = ProjectionRegistry.getInstance();
+
+        // GeoLocation#getIndex has no mutator
+        assertEquals(fields("geoId", "lat", "lon"), fields(registry.includesFor(GeoLocation.class)));
+        assertEquals(fields("title", "published_date", "body", "uri"), fields(registry.includesFor(Article.class)));
+        assertSame(registry.includesFor(Article.class), registry.includesFor(Article.class));
+    }
+
+    @Test
+    public void testIncludesInView() {
+        ProjectionRegistry registry = ProjectionRegistry.getInstance();
+
+        // Properties without a view are in every view, as with Jackson's default view inclusion
+        assertEquals(fields("title", "published_date", "uri"), fields(registry.includesFor(Article.class, Views.Summary.class)));
+        assertEquals(fields("title", "published_date", "body", "uri"), fields(registry.includesFor(Article.class, Views.Detail.class)));
+    }
+
+    @Test
+    public void testUnprojectableClasses() {
+        ProjectionRegistry registry = ProjectionRegistry.getInstance();
+
+        assertNull(registry.includesFor(Open.class));
+        assertNull(registry.includesFor(Map.class));
+        assertNull(registry.includesFor(Object.class));
+    }
+
+    @Test
+    public void testPropertiesReadUnderOtherNamesAreUnprojectable() {
+        ProjectionRegistry registry = ProjectionRegistry.getInstance();
+
+        assertNull(registry.includesFor(Unwrapped.class));
+        assertNull(registry.includesFor(Aliased.class));
+        assertNull(registry.includesFor(AliasedCreator.class));
+    }
+
+    private static HashSet<String> fields(String... fields) {
+        return new HashSet<>(Arrays.asList(fields));
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.onsdigital.elasticutils.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.onsdigital.elasticutils.models.GeoLocation;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the cached ObjectWriters used during (bulk) indexing. No Elasticsearch required.
+ */
+public class TestSerializerRegistry {
+
+    @Test
+    public void testWritersAreCached() {
+        SerializerRegistry registry = SerializerRegistry.getInstance();
+
+        ObjectWriter writer = registry.writerFor(GeoLocation.class, JsonInclude.Include.NON_NULL);
+        assertSame(writer, registry.writerFor(GeoLocation.class, JsonInclude.Include.NON_NULL));
+        assertSame(writer, registry.writerForValue(new GeoLocation("id", 0.0, 0.0), JsonInclude.Include.NON_NULL));
+    }
+
+    @Test
+    public void testInclusionPolicy() {
+        GeoLocation geoLocation = new GeoLocation(null, 51.566407, -3.027560);
+
+        String defaults = new String(JsonUtils.convertJsonToBytes(geoLocation).get(), StandardCharsets.UTF_8);
+        assertTrue(defaults.contains("\"geoId\":null"));
+
+        String nonNull = new String(JsonUtils.convertJsonToBytes(geoLocation, JsonInclude.Include.NON_NULL).get(),
+                StandardCharsets.UTF_8);
+        assertFalse(nonNull.contains("geoId"));
+        assertEquals("{\"lat\":51.566407,\"lon\":-3.02756}", nonNull);
+    }
+
+    @Test
+    public void testContentTypes() {
+        SerializerRegistry registry = SerializerRegistry.getInstance();
+        assertSame(registry, registry.forContentType(XContentType.JSON));
+
+        GeoLocation geoLocation = new GeoLocation(null, 51.566407, -3.027560);
+        for (XContentType contentType : new XContentType[] { XContentType.SMILE, XContentType.CBOR }) {
+            SerializerRegistry binary = registry.forContentType(contentType);
+            assertSame(binary, registry.forContentType(contentType));
+            assertEquals(contentType, binary.getContentType());
+
+            // Writers keep the inclusion policy of the registry they are derived from
+            byte[] bytes = JsonUtils.convertJsonToBytes(geoLocation, binary.writerFor(GeoLocation.class, JsonInclude.Include.NON_NULL)).get();
+            assertEquals(contentType, XContentFormats.detect(bytes, 0, bytes.length));
+            assertTrue(bytes.length < JsonUtils.convertJsonToBytes(geoLocation,
+                    binary.writerFor(GeoLocation.class, JsonInclude.Include.USE_DEFAULTS)).get().length);
+        }
+    }
+
+    @Test
+    public void testDetectsContentTypes() throws IOException {
+        for (XContentType contentType : XContentType.values()) {
+            XContentBuilder builder = XContentFactory.contentBuilder(contentType).startObject().field("n", 1).endObject();
+            byte[] bytes = BytesReference.toBytes(builder.bytes());
+            assertEquals(contentType, XContentFormats.detect(bytes, 0, bytes.length));
+        }
+
+        byte[] padded = " \n{\"n\":1}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(XContentType.JSON, XContentFormats.detect(padded, 0, padded.length));
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '{', '}'};
+        assertEquals(XContentType.JSON, XContentFormats.detect(bom, 0, bom.length));
+        byte[] selfDescribedCbor = {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7, (byte) 0xA0};
+        assertEquals(XContentType.CBOR, XContentFormats.detect(selfDescribedCbor, 0, selfDescribedCbor.length));
+
+        byte[] array = "x[1]".getBytes(StandardCharsets.UTF_8);
+        assertNull(XContentFormats.detect(array, 1, 3));
+        assertNull(XContentFormats.detect(array, 0, 0));
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.onsdigital.elasticutils.util.reindex;
+
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for reindex progress. No Elasticsearch required.
+ */
+public class TestReindexProgress {
+
+    @Test
+    public void testProgress() throws InterruptedException {
+        ReindexProgress progress = new ReindexProgress("ons", "ons_1");
+        assertEquals(0.0, progress.getPercentComplete(), 0.0);
+
+        progress.setTotalDocuments(4);
+        progress.setPhase(ReindexProgress.Phase.COPYING);
+        for (int i = 0; i < 3; i++) {
+            progress.read();
+        }
+        progress.indexed();
+        progress.indexed();
+        progress.skipped();
+
+        assertEquals(75.0, progress.getPercentComplete(), 0.0);
+        assertEquals(2, progress.getIndexedDocuments());
+        assertEquals(1, progress.getSkippedDocuments());
+        assertFalse(progress.isFinished());
+
+        Thread.sleep(5);
+        progress.setPhase(ReindexProgress.Phase.DONE);
+        assertTrue(progress.isFinished());
+        long elapsed = progress.getElapsedMillis();
+        Thread.sleep(5);
+        assertEquals(elapsed, progress.getElapsedMillis());
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        ReindexProgress progress = new ReindexProgress("test", "test_1").registerMBean();
+        try {
+            progress.read();
+            ObjectName name = new ObjectName("com.github.onsdigital.elasticutils:type=Reindex,name=\"test\"");
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ReadDocuments"));
+            assertEquals("CREATING", ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Phase"));
+        } finally {
+            progress.unregisterMBean();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.onsdigital.elasticutils.util.reindex;
+
+import com.github.onsdigital.elasticutils.client.generic.StubSearchClient;
+import com.github.onsdigital.elasticutils.client.type.DocumentType;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the reindex workflow against a stub client. No Elasticsearch required.
+ */
+public class TestReindexer {
+
+    @Test
+    public void testDoesNotMoveAliasWhenBulkRequestsDoNotDrain() throws Exception {
+        ReindexClient client = new ReindexClient();
+        ReindexOptions options = ReindexOptions.builder()
+                .setSlices(1)
+                .setVerifyCount(false)
+                .build();
+        Reindexer<Object> reindexer = new Reindexer<Object>(client, Object.class, options) {
+            @Override
+            protected String newIndexName(String alias) {
+                return alias + "_2";
+            }
+        };
+
+        try {
+            reindexer.reindex("ons", () -> "document", Settings.EMPTY, Collections.emptyMap());
+            fail("Expected the reindex to fail while bulk requests are in flight");
+        } catch (IOException e) {
+            // Reported by the bulk load session
+        }
+
+        assertFalse(client.swapped);
+        assertEquals(Collections.singletonList("ons_2"), client.dropped);
+        assertEquals(ReindexProgress.Phase.FAILED, reindexer.getProgress().phase());
+    }
+
+    /**
+     * Serves an alias over one empty index, whose bulk requests never drain
+     */
+    private static class ReindexClient extends StubSearchClient<Object> {
+
+        final List<String> dropped = new ArrayList<>();
+        boolean swapped;
+
+        @Override
+        public Set<String> getAliasedIndices(String alias) {
+            return alias.equals("ons") ? Collections.singleton("ons_1") : Collections.emptySet();
+        }
+
+        @Override
+        public boolean createIndex(String index, DocumentType documentType, Settings settings,
+                                   Map<String, Object> mapping) {
+            return true;
+        }
+
+        @Override
+        public SearchResponse search(SearchRequest request) {
+            return searchResponse(request.scroll() == null ? null : "scroll", 0);
+        }
+
+        @Override
+        public ClearScrollResponse clearScroll(ClearScrollRequest request) {
+            return new ClearScrollResponse(true, 1);
+        }
+
+        @Override
+        public Settings getIndexSettings(String index) {
+            return Settings.EMPTY;
+        }
+
+        @Override
+        public boolean updateIndexSettings(String index, Settings settings) {
+            return true;
+        }
+
+        @Override
+        public boolean awaitFlush(long timeout, TimeUnit unit) {
+            return false;
+        }
+
+        @Override
+        public boolean swapAlias(String alias, String index, Collection<String> fromIndices) {
+            this.swapped = true;
+            return true;
+        }
+
+        @Override
+        public boolean dropIndex(String index) {
+            this.dropped.add(index);
+            return true;
+        }
+    }
+}
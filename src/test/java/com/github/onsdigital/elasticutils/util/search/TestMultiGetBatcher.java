@@ -0,0 +1,109 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkThreadPool;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.get.GetResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for coalescing gets into multi gets. No Elasticsearch required.
+ */
+public class TestMultiGetBatcher {
+
+    /**
+     * Finds every document except id "missing"
+     */
+    private static Function<MultiGetRequest, CompletableFuture<MultiGetResponse>> cluster(List<MultiGetRequest> requests) {
+        return request -> {
+            requests.add(request);
+            List<MultiGetItemResponse> items = new ArrayList<>();
+            for (MultiGetRequest.Item item : request.getItems()) {
+                boolean exists = !item.id().equals("missing");
+                GetResult result = new GetResult(item.index(), item.type(), item.id(), 1, exists,
+                        exists ? new BytesArray("{}") : null, Collections.emptyMap());
+                items.add(new MultiGetItemResponse(new GetResponse(result), null));
+            }
+            return CompletableFuture.completedFuture(new MultiGetResponse(items.toArray(new MultiGetItemResponse[items.size()])));
+        };
+    }
+
+    @Test
+    public void testSendsFullBatchImmediately() throws Exception {
+        List<MultiGetRequest> requests = new CopyOnWriteArrayList<>();
+        MultiGetBatcher batcher = new MultiGetBatcher(cluster(requests), 3, TimeValue.timeValueMinutes(1),
+                BulkThreadPool.getInstance());
+
+        CompletableFuture<GetResponse> first = batcher.get("ons", "document", "1");
+        CompletableFuture<GetResponse> duplicate = batcher.get("ons", "document", "1");
+        CompletableFuture<GetResponse> second = batcher.get("ons", "document", "2");
+        assertFalse(first.isDone());
+        CompletableFuture<GetResponse> missing = batcher.get("ons", "document", "missing");
+
+        assertEquals(1, requests.size());
+        assertEquals(3, requests.get(0).getItems().size());
+        assertEquals("1", first.get(1, TimeUnit.SECONDS).getId());
+        assertEquals("1", duplicate.get(1, TimeUnit.SECONDS).getId());
+        assertEquals("2", second.get(1, TimeUnit.SECONDS).getId());
+        assertFalse(missing.get(1, TimeUnit.SECONDS).isExists());
+        assertEquals(4, batcher.getGets());
+        assertEquals(3.0, batcher.getMeanBatchSize(), 0.0);
+    }
+
+    @Test
+    public void testSendsPartialBatchAfterDelay() throws Exception {
+        List<MultiGetRequest> requests = new CopyOnWriteArrayList<>();
+        MultiGetBatcher batcher = new MultiGetBatcher(cluster(requests), 100, TimeValue.timeValueMillis(20),
+                BulkThreadPool.getInstance());
+
+        CompletableFuture<GetResponse> first = batcher.get("ons", "document", "1");
+        CompletableFuture<GetResponse> second = batcher.get("other", "document", "2");
+
+        assertTrue(first.get(1, TimeUnit.SECONDS).isExists());
+        assertTrue(second.get(1, TimeUnit.SECONDS).isExists());
+        assertEquals(1, requests.size());
+        assertEquals(2, requests.get(0).getItems().size());
+    }
+
+    @Test
+    public void testFailsEveryGetOnShortResponse() throws Exception {
+        List<MultiGetRequest> requests = new CopyOnWriteArrayList<>();
+        Function<MultiGetRequest, CompletableFuture<MultiGetResponse>> cluster = cluster(requests);
+        // Drops the last item of every response
+        MultiGetBatcher batcher = new MultiGetBatcher(request -> cluster.apply(request).thenApply(response ->
+                new MultiGetResponse(Arrays.copyOf(response.getResponses(), response.getResponses().length - 1))),
+                2, TimeValue.timeValueMinutes(1), BulkThreadPool.getInstance());
+
+        CompletableFuture<GetResponse> first = batcher.get("ons", "document", "1");
+        CompletableFuture<GetResponse> second = batcher.get("ons", "document", "2");
+
+        for (CompletableFuture<GetResponse> future : Arrays.asList(first, second)) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                fail("Expected the get to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.github.onsdigital.elasticutils.client.bulk.configuration.BulkThreadPool;
+import com.github.onsdigital.elasticutils.client.generic.ElasticSearchResponse;
+import com.github.onsdigital.elasticutils.models.GeoLocation;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for grouping searches into multi searches. No Elasticsearch required.
+ */
+public class TestMultiSearchBatcher {
+
+    /**
+     * Fails searches against index "missing", and answers the others with no hits, took = position in the batch
+     */
+    private static Function<MultiSearchRequest, CompletableFuture<MultiSearchResponse>> cluster(List<MultiSearchRequest> requests) {
+        return request -> {
+            requests.add(request);
+            List<SearchRequest> searches = request.requests();
+            MultiSearchResponse.Item[] items = new MultiSearchResponse.Item[searches.size()];
+            for (int i = 0; i < items.length; i++) {
+                if (searches.get(i).indices()[0].equals("missing")) {
+                    items[i] = new MultiSearchResponse.Item(null, new IndexNotFoundException("missing"));
+                } else {
+                    items[i] = new MultiSearchResponse.Item(new SearchResponse(InternalSearchResponse.empty(), null,
+                            1, 1, 0, i, ShardSearchFailure.EMPTY_ARRAY), null);
+                }
+            }
+            return CompletableFuture.completedFuture(new MultiSearchResponse(items));
+        };
+    }
+
+    @Test
+    public void testExplicitFlush() throws Exception {
+        List<MultiSearchRequest> requests = new CopyOnWriteArrayList<>();
+        MultiSearchBatcher<GeoLocation> batcher = new MultiSearchBatcher<>(cluster(requests), GeoLocation.class,
+                Integer.MAX_VALUE, null, null);
+
+        CompletableFuture<ElasticSearchResponse<GeoLocation>> first = batcher.add(new SearchRequest("ons"));
+        CompletableFuture<ElasticSearchResponse<GeoLocation>> missing = batcher.add(new SearchRequest("missing"));
+        CompletableFuture<ElasticSearchResponse<GeoLocation>> third = batcher.add(new SearchRequest("ons"));
+        assertFalse(first.isDone());
+
+        batcher.flush();
+
+        assertEquals(1, requests.size());
+        assertEquals(0, first.get(1, TimeUnit.SECONDS).getResponse().getTook().millis());
+        assertEquals(2, third.get(1, TimeUnit.SECONDS).getResponse().getTook().millis());
+        assertTrue(first.get().entities().isEmpty());
+        try {
+            missing.get(1, TimeUnit.SECONDS);
+            fail("Expected the failed search to complete exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IndexNotFoundException);
+        }
+    }
+
+    @Test
+    public void testTimeWindow() throws Exception {
+        List<MultiSearchRequest> requests = new CopyOnWriteArrayList<>();
+        MultiSearchBatcher<GeoLocation> batcher = new MultiSearchBatcher<>(cluster(requests), GeoLocation.class,
+                2, TimeValue.timeValueMillis(20), BulkThreadPool.getInstance());
+
+        batcher.add(new SearchRequest("ons"));
+        batcher.add(new SearchRequest("ons"));
+        assertEquals(1, requests.size());
+
+        CompletableFuture<ElasticSearchResponse<GeoLocation>> partial = batcher.add(new SearchRequest("ons"));
+        partial.get(1, TimeUnit.SECONDS);
+        assertEquals(2, requests.size());
+        assertEquals(3, batcher.getSearches());
+        assertEquals(2, batcher.getBatches());
+    }
+
+    @Test
+    public void testFailsEverySearchWhenResponseCannotBeMatched() throws Exception {
+        List<MultiSearchRequest> requests = new CopyOnWriteArrayList<>();
+        Function<MultiSearchRequest, CompletableFuture<MultiSearchResponse>> cluster = cluster(requests);
+
+        // One item short
+        MultiSearchBatcher<GeoLocation> batcher = new MultiSearchBatcher<>(request -> cluster.apply(request)
+                .thenApply(response -> new MultiSearchResponse(Arrays.copyOf(response.getResponses(), 1))),
+                GeoLocation.class, Integer.MAX_VALUE, null, null);
+        assertAllFail(IllegalStateException.class, batcher, batcher.add(new SearchRequest("ons")),
+                batcher.add(new SearchRequest("ons")));
+
+        // An item which cannot be read
+        batcher = new MultiSearchBatcher<>(request -> cluster.apply(request).thenApply(response -> {
+            MultiSearchResponse.Item[] items = response.getResponses();
+            items[items.length - 1] = null;
+            return new MultiSearchResponse(items);
+        }), GeoLocation.class, Integer.MAX_VALUE, null, null);
+        CompletableFuture<ElasticSearchResponse<GeoLocation>> first = batcher.add(new SearchRequest("ons"));
+        CompletableFuture<ElasticSearchResponse<GeoLocation>> unreadable = batcher.add(new SearchRequest("ons"));
+        batcher.flush();
+        assertEquals(0, first.get(1, TimeUnit.SECONDS).getResponse().getTook().millis());
+        try {
+            unreadable.get(1, TimeUnit.SECONDS);
+            fail("Expected the unreadable search to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NullPointerException);
+        }
+    }
+
+    @SafeVarargs
+    private static void assertAllFail(Class<? extends Throwable> failure, MultiSearchBatcher<GeoLocation> batcher,
+                                      CompletableFuture<ElasticSearchResponse<GeoLocation>>... futures) throws Exception {
+        batcher.flush();
+        for (CompletableFuture<ElasticSearchResponse<GeoLocation>> future : futures) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                fail("Expected the search to fail");
+            } catch (ExecutionException e) {
+                assertTrue(failure.isInstance(e.getCause()));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.github.onsdigital.elasticutils.client.generic.StubSearchClient;
+import com.github.onsdigital.elasticutils.client.type.DefaultDocumentTypes;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for argument checking and projection by the searcher. No Elasticsearch required.
+ */
+public class TestObjectSearcher {
+
+    private final ObjectSearcher<Object> searcher = new ObjectSearcher<>(new StubSearchClient<>(), "ons", Object.class);
+
+    @Test
+    public void testFindManyRejectsNonPositiveChunkSizeAndConcurrency() throws IOException {
+        for (int[] arguments : new int[][]{{0, 1}, {-1, 1}, {1, 0}, {1, -1}}) {
+            try {
+                this.searcher.findMany(Collections.singletonList("1"), DefaultDocumentTypes.DOCUMENT, arguments[0], arguments[1]);
+                fail(String.format("Expected chunkSize %d and concurrency %d to be rejected", arguments[0], arguments[1]));
+            } catch (IllegalArgumentException e) {
+                // Rejected before any request was sent
+            }
+        }
+    }
+
+    @Test
+    public void testPaginatorReadsProjectedView() throws IOException {
+        ObjectSearcher<Document> searcher = new ObjectSearcher<>(new StubSearchClient<Document>() {
+            @Override
+            public SearchResponse search(SearchRequest request) {
+                // Returns the whole document, as a cluster ignoring the source filter would
+                return searchResponse(null, 1, "{\"title\":\"Inflation\",\"body\":\"Prices rose\"}");
+            }
+        }, "ons", Document.class).setProjection(Summary.class);
+
+        SearchAfterPaginator<Document> paginator = searcher.paginator(QueryBuilders.matchAllQuery(),
+                DefaultDocumentTypes.DOCUMENT, 10);
+        List<Document> documents = paginator.firstPage().getEntities();
+
+        assertArrayEquals(new String[]{"title"}, searcher.getSourceIncludes());
+        assertEquals(1, documents.size());
+        assertEquals("Inflation", documents.get(0).title);
+        assertNull(documents.get(0).body);
+    }
+
+    public interface Summary {
+    }
+
+    public interface Detail {
+    }
+
+    public static class Document {
+
+        @JsonView(Summary.class)
+        public String title;
+
+        @JsonView(Detail.class)
+        public String body;
+
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.github.onsdigital.elasticutils.client.generic.StubSearchClient;
+import com.github.onsdigital.elasticutils.util.DeserializerRegistry;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for iterating scroll searches against a stub client. No Elasticsearch required.
+ */
+public class TestScrollIterator {
+
+    private static final TimeValue KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    private static SearchRequest request() {
+        return new SearchRequest("ons").scroll(KEEP_ALIVE);
+    }
+
+    private static ScrollIterator<Document> iterator(ScrollClient client) throws IOException {
+        return new ScrollIterator<>(client, request(), DeserializerRegistry.getInstance().readerFor(Document.class),
+                Document.class);
+    }
+
+    @Test
+    public void testPrefetchesNextPageWhileCurrentIsConsumed() throws IOException {
+        ScrollClient client = new ScrollClient(5, 2);
+        try (ScrollIterator<Document> iterator = iterator(client)) {
+            // Page 2 is requested as soon as page 1 arrives
+            assertEquals(1, client.scrollRequests.size());
+            assertEquals("scroll-1", client.scrollRequests.get(0).scrollId());
+            assertEquals(KEEP_ALIVE, client.scrollRequests.get(0).scroll().keepAlive());
+
+            assertEquals(0, iterator.next().n);
+            assertEquals(1, iterator.next().n);
+            assertEquals(1, client.scrollRequests.size());
+
+            // Moving on to page 2 requests page 3
+            assertEquals(2, iterator.next().n);
+            assertEquals(2, client.scrollRequests.size());
+            assertEquals("scroll-2", client.scrollRequests.get(1).scrollId());
+        }
+    }
+
+    @Test
+    public void testClearsScrollOnceExhausted() throws IOException {
+        ScrollClient client = new ScrollClient(5, 2);
+        ScrollIterator<Document> iterator = iterator(client);
+
+        List<Integer> read = new ArrayList<>();
+        iterator.forEachRemaining(document -> read.add(document.n));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), read);
+        // No page is requested beyond the total hits
+        assertEquals(2, client.scrollRequests.size());
+        assertEquals(Collections.singletonList("scroll-3"), client.cleared);
+        assertFalse(iterator.hasNext());
+
+        iterator.close();
+        assertEquals(1, client.cleared.size());
+    }
+
+    @Test
+    public void testEmptyResultIsNotScrolled() throws IOException {
+        ScrollClient client = new ScrollClient(0, 2);
+        try (ScrollIterator<Document> iterator = iterator(client)) {
+            assertFalse(iterator.hasNext());
+        }
+        assertTrue(client.scrollRequests.isEmpty());
+        assertEquals(Collections.singletonList("scroll-1"), client.cleared);
+    }
+
+    @Test
+    public void testCloseCancelsPrefetchAndClearsScroll() throws IOException {
+        ScrollClient client = new ScrollClient(5, 2);
+        client.completePages = false;
+        ScrollIterator<Document> iterator = iterator(client);
+        assertEquals(0, iterator.next().n);
+
+        iterator.close();
+        iterator.close();
+
+        assertTrue(client.pending.get(0).isCancelled());
+        assertEquals(Collections.singletonList("scroll-1"), client.cleared);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testStreamClearsScrollWhenClosed() throws IOException {
+        ScrollClient client = new ScrollClient(5, 2);
+        try (Stream<Document> stream = iterator(client).stream()) {
+            assertEquals(0, stream.findFirst().get().n);
+        }
+        assertEquals(Collections.singletonList("scroll-1"), client.cleared);
+    }
+
+    @Test
+    public void testHitsKeepIdsAndSources() throws IOException {
+        ScrollClient client = new ScrollClient(3, 2);
+        try (ScrollIterator<SearchHit> hits = ScrollIterator.hits(client, request())) {
+            List<SearchHit> all = new ArrayList<>();
+            hits.forEachRemaining(all::add);
+
+            assertEquals(Arrays.asList("0", "1", "0"), all.stream().map(SearchHit::getId).collect(Collectors.toList()));
+            assertEquals(Arrays.asList(0, 1, 2), all.stream().map(hit -> hit.getSourceAsMap().get("n")).collect(Collectors.toList()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequiresScrollKeepAlive() throws IOException {
+        new ScrollIterator<>(new ScrollClient(1, 1), new SearchRequest("ons"),
+                DeserializerRegistry.getInstance().readerFor(Document.class), Document.class);
+    }
+
+    /**
+     * Serves totalHits documents {"n": 0, 1, ...} in pages of pageSize, page N having scroll id "scroll-N"
+     */
+    private static class ScrollClient extends StubSearchClient<Document> {
+
+        private final int totalHits;
+        private final int pageSize;
+
+        final List<SearchScrollRequest> scrollRequests = new ArrayList<>();
+        final List<CompletableFuture<SearchResponse>> pending = new ArrayList<>();
+        final List<String> cleared = new ArrayList<>();
+        boolean completePages = true;
+
+        ScrollClient(int totalHits, int pageSize) {
+            this.totalHits = totalHits;
+            this.pageSize = pageSize;
+        }
+
+        private SearchResponse page(int page) {
+            int from = (page - 1) * this.pageSize;
+            int to = Math.min(from + this.pageSize, this.totalHits);
+            String[] sources = new String[Math.max(0, to - from)];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = String.format("{\"n\":%d}", from + i);
+            }
+            return searchResponse("scroll-" + page, this.totalHits, sources);
+        }
+
+        @Override
+        public SearchResponse search(SearchRequest request) {
+            return this.page(1);
+        }
+
+        @Override
+        public CompletableFuture<SearchResponse> searchScrollAsync(SearchScrollRequest request) {
+            this.scrollRequests.add(request);
+            int page = Integer.parseInt(request.scrollId().substring("scroll-".length())) + 1;
+            CompletableFuture<SearchResponse> future = this.completePages
+                    ? CompletableFuture.completedFuture(this.page(page))
+                    : new CompletableFuture<>();
+            this.pending.add(future);
+            return future;
+        }
+
+        @Override
+        public ClearScrollResponse clearScroll(ClearScrollRequest request) {
+            this.cleared.addAll(request.getScrollIds());
+            return new ClearScrollResponse(true, request.getScrollIds().size());
+        }
+    }
+
+    public static class Document {
+
+        public int n;
+
+    }
+}
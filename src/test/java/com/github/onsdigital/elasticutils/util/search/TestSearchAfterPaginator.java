@@ -0,0 +1,173 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.github.onsdigital.elasticutils.action.search.SimpleSearchRequestBuilder;
+import com.github.onsdigital.elasticutils.client.generic.StubSearchClient;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.ScoreSortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for search_after pagination against a stub client. No Elasticsearch required.
+ */
+public class TestSearchAfterPaginator {
+
+    private static final String TIEBREAK = SearchAfterPaginator.DEFAULT_TIEBREAK_FIELD;
+
+    @Test
+    public void testLeavesBuilderWithoutSortsUnchanged() throws IOException {
+        SimpleSearchRequestBuilder builder = new SimpleSearchRequestBuilder("ons").setSize(2);
+        PageClient client = new PageClient(2);
+
+        new SearchAfterPaginator<>(client, builder, Document.class).firstPage();
+
+        assertNull(builder.request().source().sorts());
+        // The search itself sorts by score, then the tiebreak
+        List<?> sorts = client.requests.get(0).source().sorts();
+        assertEquals(2, sorts.size());
+        assertTrue(sorts.get(0) instanceof ScoreSortBuilder);
+        assertEquals(TIEBREAK, ((FieldSortBuilder) sorts.get(1)).getFieldName());
+    }
+
+    @Test
+    public void testLeavesBuilderSortsUnchanged() throws IOException {
+        SimpleSearchRequestBuilder builder = new SimpleSearchRequestBuilder("ons")
+                .setQuery(QueryBuilders.matchQuery("title", "inflation"))
+                .addSort("date", SortOrder.DESC);
+        PageClient client = new PageClient(2);
+
+        new SearchAfterPaginator<>(client, builder, Document.class).firstPage();
+
+        assertEquals(1, builder.request().source().sorts().size());
+        SearchRequest request = client.requests.get(0);
+        assertEquals(QueryBuilders.matchQuery("title", "inflation"), request.source().query());
+        List<?> sorts = request.source().sorts();
+        assertEquals(2, sorts.size());
+        assertEquals("date", ((FieldSortBuilder) sorts.get(0)).getFieldName());
+        assertEquals(TIEBREAK, ((FieldSortBuilder) sorts.get(1)).getFieldName());
+    }
+
+    @Test
+    public void testKeepsExistingTiebreakSort() throws IOException {
+        SimpleSearchRequestBuilder builder = new SimpleSearchRequestBuilder("ons").addSort(TIEBREAK, SortOrder.DESC);
+        PageClient client = new PageClient(2);
+
+        new SearchAfterPaginator<>(client, builder, Document.class).firstPage();
+
+        List<?> sorts = client.requests.get(0).source().sorts();
+        assertEquals(1, sorts.size());
+        assertEquals(SortOrder.DESC, ((FieldSortBuilder) sorts.get(0)).order());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsFrom() {
+        new SearchAfterPaginator<>(new PageClient(1), new SimpleSearchRequestBuilder("ons").setFrom(10), Document.class);
+    }
+
+    @Test
+    public void testCursorRoundTrip() throws IOException {
+        Object[] sortValues = {1.5, "document#42", 1518652800000L, true};
+
+        String cursor = SearchAfterPaginator.encodeCursor(sortValues);
+
+        // URL safe without padding, so it can be passed as a query parameter as is
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+        assertArrayEquals(sortValues, SearchAfterPaginator.decodeCursor(cursor));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsInvalidCursor() throws IOException {
+        SearchAfterPaginator.decodeCursor("not a cursor!");
+    }
+
+    @Test
+    public void testFullPageHasNextCursor() throws IOException {
+        PageClient client = new PageClient(3, 1);
+        SearchAfterPaginator<Document> paginator = new SearchAfterPaginator<>(client,
+                new SimpleSearchRequestBuilder("ons").setSize(3), Document.class);
+
+        SearchAfterPaginator.Page<Document> first = paginator.firstPage();
+        assertEquals(3, first.getEntities().size());
+        assertTrue(first.hasNext());
+        assertNull(client.requests.get(0).source().searchAfter());
+
+        // The next page resumes after the last hit of the first
+        SearchAfterPaginator.Page<Document> second = paginator.nextPage(first);
+        assertArrayEquals(new Object[]{"document#2"}, client.requests.get(1).source().searchAfter());
+        assertEquals(1, second.getEntities().size());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    public void testEmptyPageHasNoCursor() throws IOException {
+        SearchAfterPaginator<Document> paginator = new SearchAfterPaginator<>(new PageClient(0),
+                new SimpleSearchRequestBuilder("ons").setSize(3), Document.class);
+
+        assertFalse(paginator.firstPage().hasNext());
+    }
+
+    @Test
+    public void testStreamsEveryPage() {
+        PageClient client = new PageClient(2, 2, 1);
+        SearchAfterPaginator<Document> paginator = new SearchAfterPaginator<>(client,
+                new SimpleSearchRequestBuilder("ons").setSize(2), Document.class);
+
+        List<Integer> read = new ArrayList<>();
+        paginator.stream().forEach(document -> read.add(document.n));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), read);
+        assertEquals(3, client.requests.size());
+    }
+
+    /**
+     * Serves pages of the given sizes in turn, holding documents {"n": 0, 1, ...} sorted on "document#n"
+     */
+    private static class PageClient extends StubSearchClient<Document> {
+
+        private final int[] pageSizes;
+        private int served;
+        final List<SearchRequest> requests = new ArrayList<>();
+
+        PageClient(int... pageSizes) {
+            this.pageSizes = pageSizes;
+        }
+
+        @Override
+        public SearchResponse search(SearchRequest request) {
+            int page = this.requests.size();
+            this.requests.add(request);
+
+            String[] sources = new String[this.pageSizes[page]];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = String.format("{\"n\":%d}", this.served + i);
+            }
+            SearchResponse response = searchResponse(null, sources.length, sources);
+            for (SearchHit hit : response.getHits().getHits()) {
+                hit.sortValues(new Object[]{"document#" + this.served++}, new DocValueFormat[]{DocValueFormat.RAW});
+            }
+            return response;
+        }
+    }
+
+    public static class Document {
+
+        public int n;
+
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Unit tests for the search result cache. No Elasticsearch required.
+ */
+public class TestSearchResultCache {
+
+    private static SearchRequest request(String index, String term) {
+        return new SearchRequest(index).types("document")
+                .source(new SearchSourceBuilder().query(QueryBuilders.termQuery("name", term)));
+    }
+
+    private static List<String> load(AtomicInteger loads, String result) {
+        loads.incrementAndGet();
+        return Collections.singletonList(result);
+    }
+
+    @Test
+    public void testHitsAndInvalidation() throws Exception {
+        SearchResultCache<String> cache = new SearchResultCache<>(10, TimeValue.timeValueMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a", cache.get(request("ons", "a"), () -> load(loads, "a")).get(0));
+        assertEquals("a", cache.get(request("ons", "a"), () -> load(loads, "a")).get(0));
+        cache.get(request("ons*", "b"), () -> load(loads, "b"));
+        cache.get(request("other", "c"), () -> load(loads, "c"));
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        // Invalidates the exact and the wildcard match, but not the other index
+        cache.onWrite("ons");
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getInvalidations());
+
+        cache.get(request("ons", "a"), () -> load(loads, "a"));
+        cache.get(request("other", "c"), () -> load(loads, "c"));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testInFlightLoadIsNotCachedAfterWrite() throws Exception {
+        SearchResultCache<String> cache = new SearchResultCache<>(10, TimeValue.timeValueMinutes(1));
+        cache.get(request("ons", "a"), () -> {
+            cache.onWrite("ons");
+            return Collections.singletonList("stale");
+        });
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInFlightLoadIsCachedAfterWriteToOtherIndex() throws Exception {
+        SearchResultCache<String> cache = new SearchResultCache<>(10, TimeValue.timeValueMinutes(1));
+        cache.get(request("ons*", "a"), () -> {
+            cache.onWrite("other");
+            cache.onWrite("ons_1");
+            return Collections.singletonList("stale");
+        });
+        cache.get(request("ons", "a"), () -> {
+            cache.onWrite("other");
+            return Collections.singletonList("fresh");
+        });
+        assertEquals(1, cache.size());
+
+        cache.get(request("other", "a"), () -> {
+            cache.invalidateAll();
+            return Collections.singletonList("stale");
+        });
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testKeyIncludesSearchOptions() {
+        String key = SearchResultCache.keyOf(request("ons", "a"));
+
+        assertEquals(key, SearchResultCache.keyOf(request("ons", "a")));
+        assertNotEquals(key, SearchResultCache.keyOf(request("ons", "a").searchType(SearchType.DFS_QUERY_THEN_FETCH)));
+        assertNotEquals(key, SearchResultCache.keyOf(request("ons", "a").indicesOptions(IndicesOptions.lenientExpandOpen())));
+        assertNotEquals(key, SearchResultCache.keyOf(request("ons", "a").requestCache(false)));
+    }
+
+    @Test
+    public void testEvictionAndExpiry() throws Exception {
+        SearchResultCache<String> cache = new SearchResultCache<>(2, TimeValue.timeValueMillis(50));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(request("ons", "a"), () -> load(loads, "a"));
+        cache.get(request("ons", "b"), () -> load(loads, "b"));
+        cache.get(request("ons", "a"), () -> load(loads, "a"));
+        // "b" is least recently used
+        cache.get(request("ons", "c"), () -> load(loads, "c"));
+        assertEquals(1, cache.getEvictions());
+        cache.get(request("ons", "a"), () -> load(loads, "a"));
+        assertEquals(3, loads.get());
+
+        Thread.sleep(60);
+        cache.get(request("ons", "a"), () -> load(loads, "a"));
+        assertEquals(4, loads.get());
+        assertEquals(1, cache.getExpirations());
+    }
+
+}
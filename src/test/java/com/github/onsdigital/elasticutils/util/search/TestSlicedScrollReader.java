@@ -0,0 +1,178 @@
+package com.github.onsdigital.elasticutils.util.search;
+
+import com.github.onsdigital.elasticutils.client.generic.StubSearchClient;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for reading sliced scrolls. No Elasticsearch required.
+ */
+public class TestSlicedScrollReader {
+
+    private static final int HITS_PER_SLICE = 3;
+
+    @Test
+    public void testSliceRequest() {
+        SearchRequest request = request();
+
+        assertSame(request, SlicedScrollReader.sliceRequest(request, 0, 1));
+
+        SearchRequest slice = SlicedScrollReader.sliceRequest(request, 2, 4);
+        assertNotSame(request, slice);
+        assertEquals(new SliceBuilder(2, 4), slice.source().slice());
+        assertEquals(request.source().query(), slice.source().query());
+        assertNull(request.source().slice());
+    }
+
+    @Test
+    public void testStreamOpensSlicesLazilyAndClearsThemOnClose() {
+        SliceClient client = new SliceClient();
+        SlicedScrollReader<Document> reader = new SlicedScrollReader<>(client, Document.class);
+
+        Optional<Document> first;
+        try (Stream<Document> stream = reader.stream(request(), 8)) {
+            first = stream.sequential().findFirst();
+        }
+
+        assertTrue(first.isPresent());
+        assertEquals(0, first.get().slice);
+        assertEquals(1, client.searched.size());
+        assertEquals(Collections.singletonList("scroll-0"), client.cleared);
+    }
+
+    @Test
+    public void testStreamReadsEverySliceOnce() {
+        int slices = 8;
+        SliceClient client = new SliceClient();
+        SlicedScrollReader<Document> reader = new SlicedScrollReader<>(client, Document.class);
+
+        List<String> read;
+        try (Stream<Document> stream = reader.stream(request(), slices)) {
+            read = stream.map(Document::toString).sorted().collect(Collectors.toList());
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int slice = 0; slice < slices; slice++) {
+            for (int n = 0; n < HITS_PER_SLICE; n++) {
+                expected.add(new Document(slice, n).toString());
+            }
+        }
+        Collections.sort(expected);
+
+        assertEquals(expected, read);
+        assertEquals(slices, client.searched.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testForEachSlicePropagatesFirstFailure() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        SliceClient client = new SliceClient() {
+            @Override
+            public SearchResponse search(SearchRequest request) throws IOException {
+                if (sliceId(request) == 0) {
+                    // Never released: the failure of slice 1 must not wait for this slice
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw new InterruptedIOException();
+                    }
+                }
+                throw new IOException("slice " + sliceId(request) + " failed");
+            }
+        };
+        SlicedScrollReader<Document> reader = new SlicedScrollReader<>(client, Document.class);
+
+        try {
+            reader.forEachSlice(request(), 2, (sliceId, document) -> fail("No slice has any hits"));
+            fail("Expected the failure of slice 1 to be rethrown");
+        } catch (IOException e) {
+            assertEquals("slice 1 failed", e.getMessage());
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    private static SearchRequest request() {
+        return new SearchRequest("ons")
+                .source(new SearchSourceBuilder().query(QueryBuilders.matchAllQuery()))
+                .scroll(TimeValue.timeValueMinutes(1));
+    }
+
+    private static int sliceId(SearchRequest request) {
+        SliceBuilder slice = request.source().slice();
+        return slice == null ? 0 : slice.getId();
+    }
+
+    /**
+     * Returns a single page of hits per slice, recording the searches made and scrolls cleared
+     */
+    private static class SliceClient extends StubSearchClient<Document> {
+
+        final List<Integer> searched = new CopyOnWriteArrayList<>();
+        final List<String> cleared = new CopyOnWriteArrayList<>();
+
+        @Override
+        public SearchResponse search(SearchRequest request) throws IOException {
+            int sliceId = sliceId(request);
+            this.searched.add(sliceId);
+
+            String[] sources = new String[HITS_PER_SLICE];
+            for (int n = 0; n < HITS_PER_SLICE; n++) {
+                sources[n] = String.format("{\"slice\":%d,\"n\":%d}", sliceId, n);
+            }
+            return searchResponse("scroll-" + sliceId, HITS_PER_SLICE, sources);
+        }
+
+        @Override
+        public ClearScrollResponse clearScroll(ClearScrollRequest request) {
+            this.cleared.addAll(request.getScrollIds());
+            return new ClearScrollResponse(true, request.getScrollIds().size());
+        }
+    }
+
+    public static class Document {
+
+        public int slice;
+        public int n;
+
+        public Document() {
+        }
+
+        Document(int slice, int n) {
+            this.slice = slice;
+            this.n = n;
+        }
+
+        @Override
+        public String toString() {
+            return this.slice + "/" + this.n;
+        }
+    }
+}